@@ -0,0 +1,51 @@
+package com.grupp3.weather.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ClientIpProperties - klient-IP och åtkomstlistor från application.properties (app.client-ip).
+ *
+ * trusted-proxies: CIDR-block vars X-Forwarded-For / X-Real-IP litas på. Headern läses
+ * bara om anslutningen kommer från en betrodd proxy, och X-Forwarded-For gås igenom
+ * från höger tills första icke-betrodda adressen - den är klienten.
+ * Opt-in: default är tom lista, alltså inga headers alls. Privata nät får inte vara default -
+ * utan proxy når externa klienter appen via Dockers bridge-gateway (172.17.0.1) och kunde
+ * annars skriva valfri adress i headern. Sätts per driftmiljö (CLIENT_IP_TRUSTED_PROXIES)
+ * till proxyns adresser.
+ *
+ * allow / deny: statiska CIDR-listor. Deny ger 403 direkt, allow undantas från
+ * DDoS-heuristik och IP-blockering (t.ex. övervakning).
+ *
+ * deny-file: valfri fil med ett CIDR-block per rad (#-kommentarer tillåtna), t.ex. från
+ * ett threat feed. Läses om var reload-interval-ms om filen ändrats.
+ */
+
+@Component
+@ConfigurationProperties(prefix = "app.client-ip")
+public class ClientIpProperties {
+
+    private List<String> trustedProxies = new ArrayList<>();
+    private List<String> allow = new ArrayList<>();
+    private List<String> deny = new ArrayList<>();
+    private String denyFile;
+    private long reloadIntervalMs = 60_000;
+
+    public List<String> getTrustedProxies() { return trustedProxies; }
+    public void setTrustedProxies(List<String> trustedProxies) { this.trustedProxies = trustedProxies; }
+
+    public List<String> getAllow() { return allow; }
+    public void setAllow(List<String> allow) { this.allow = allow; }
+
+    public List<String> getDeny() { return deny; }
+    public void setDeny(List<String> deny) { this.deny = deny; }
+
+    public String getDenyFile() { return denyFile; }
+    public void setDenyFile(String denyFile) { this.denyFile = denyFile; }
+
+    public long getReloadIntervalMs() { return reloadIntervalMs; }
+    public void setReloadIntervalMs(long reloadIntervalMs) { this.reloadIntervalMs = reloadIntervalMs; }
+}
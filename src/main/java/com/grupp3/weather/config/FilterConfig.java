@@ -0,0 +1,63 @@
+package com.grupp3.weather.config;
+
+import com.grupp3.weather.security.ApiKeyFilter;
+import com.grupp3.weather.security.DDoSProtectionFilter;
+import com.grupp3.weather.security.JwtAuthenticationFilter;
+import com.grupp3.weather.security.UserRateLimitFilter;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * FilterConfig - explicit ordning för servlet-filtren runt Spring Security-kedjan.
+ *
+ * Alla filter är @Component och skulle annars registreras automatiskt i servlet-containern
+ * med ordning som beror på annoteringar och defaults. Här bestäms ordningen uttryckligen:
+ *
+ * 1. EDGE (före Spring Security): DDoSProtectionFilter - deny-lista, IP-blockering,
+ *    flod-tröskel och gräns per IP och endpoint-typ. Billiga avslag från förkodade svar; en
+ *    nekad request skapar aldrig SecurityContext och når aldrig JWT-verifieringen.
+ * 2. SPRING SECURITY (SecurityConfig): JwtAuthenticationFilter → UserRateLimitFilter →
+ *    behörighet per route. Rate limiting per användare kräver JWT-subject och ligger därför här.
+ * 3. EFTER SECURITY: ApiKeyFilter - API-nyckel, scope och kvot per nyckel för skrivoperationer.
+ *
+ * JwtAuthenticationFilter och UserRateLimitFilter körs bara inuti säkerhetskedjan; deras
+ * automatiska servlet-registrering stängs av så att de inte ligger i två kedjor.
+ */
+
+@Configuration
+public class FilterConfig {
+
+    // === FILTER ORDER ===
+    public static final int EDGE_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER - 10;
+    public static final int API_KEY_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER + 10;
+
+    @Bean
+    public FilterRegistrationBean<DDoSProtectionFilter> ddosProtectionFilterRegistration(DDoSProtectionFilter filter) {
+        FilterRegistrationBean<DDoSProtectionFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(EDGE_FILTER_ORDER);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ApiKeyFilter> apiKeyFilterRegistration(ApiKeyFilter filter) {
+        FilterRegistrationBean<ApiKeyFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(API_KEY_FILTER_ORDER);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false); // Körs i SecurityConfig-kedjan
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<UserRateLimitFilter> userRateLimitFilterRegistration(UserRateLimitFilter filter) {
+        FilterRegistrationBean<UserRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false); // Körs i SecurityConfig-kedjan
+        return registration;
+    }
+}
@@ -0,0 +1,38 @@
+package com.grupp3.weather.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PaginationProperties - sidstorlek för list-endpoints från application.properties (app.pagination).
+ *
+ * default-size: antal rader när klienten inte anger size
+ * max-size: tak för size - större värden kortas ner istället för att ge fel
+ */
+
+@Component
+@ConfigurationProperties(prefix = "app.pagination")
+public class PaginationProperties {
+
+    private int defaultSize = 50;
+    private int maxSize = 500;
+
+    public int getDefaultSize() { return defaultSize; }
+    public void setDefaultSize(int defaultSize) { this.defaultSize = defaultSize; }
+
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    /**
+     * Sidstorlek för en request - default om size saknas, högst maxSize
+     */
+    public int resolve(Integer requested) {
+        if (requested == null) {
+            return defaultSize;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("size must be at least 1");
+        }
+        return Math.min(requested, maxSize);
+    }
+}
@@ -0,0 +1,198 @@
+package com.grupp3.weather.config;
+
+import com.grupp3.weather.service.RateLimitingService.EndpointType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RateLimitProperties - rate limit-nivåer per roll från application.properties (app.rate-limit).
+ *
+ * Inloggade användare begränsas per JWT-subject istället för per IP. Varje roll har en
+ * multiplikator på endpoint-typens grundgräns (t.ex. ROLE_ADMIN=5 ger 5x WEATHER-gränsen).
+ * Har användaren flera roller gäller den högsta multiplikatorn.
+ *
+ * mode: LOCAL (default, buckets i minnet per nod) eller REDIS (delade buckets för flera noder).
+ * I REDIS-läge hämtar varje nod en lease av polletter i taget (lease-fraction av gränsen)
+ * så att klienter långt under sin gräns inte kostar ett Redis-anrop per request.
+ *
+ * store: tak och utgång för lokala buckets (BucketStore). En bucket som varit oanvänd
+ * längre än en påfyllnadsperiod är ändå full, så idle-timeout kan vara kort.
+ *
+ * limits: gräns per endpoint-typ (route-klass i RoutePolicyTable) - capacity, påfyllnad
+ * (refill-tokens per refill-period-ms), GREEDY (jämnt) eller INTERVALLY (allt på en gång vid
+ * periodens slut) och burst (max requests per sekund, 0 = bara capacity begränsar).
+ * Kan ändras i drift via PUT /admin/rate-limits/{type} - befintliga buckets behåller sitt state.
+ *
+ * heavy-hitters: count-min sketch som räknar alla IP:n i konstant minne. Buckets skapas
+ * bara för IP:n som når flag-threshold i glidande fönster - håll tröskeln under minsta gränsen.
+ */
+
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private Map<String, Double> roleMultipliers = new HashMap<>();
+    private double defaultMultiplier = 1.0;
+    private Mode mode = Mode.LOCAL;
+    private Redis redis = new Redis();
+    private Store store = new Store();
+    private HeavyHitters heavyHitters = new HeavyHitters();
+    private Map<EndpointType, Limit> limits = defaultLimits();
+
+    public Map<String, Double> getRoleMultipliers() { return roleMultipliers; }
+    public void setRoleMultipliers(Map<String, Double> roleMultipliers) { this.roleMultipliers = roleMultipliers; }
+
+    public double getDefaultMultiplier() { return defaultMultiplier; }
+    public void setDefaultMultiplier(double defaultMultiplier) { this.defaultMultiplier = defaultMultiplier; }
+
+    public Mode getMode() { return mode; }
+    public void setMode(Mode mode) { this.mode = mode; }
+
+    public Redis getRedis() { return redis; }
+    public void setRedis(Redis redis) { this.redis = redis; }
+
+    public Store getStore() { return store; }
+    public void setStore(Store store) { this.store = store; }
+
+    public HeavyHitters getHeavyHitters() { return heavyHitters; }
+    public void setHeavyHitters(HeavyHitters heavyHitters) { this.heavyHitters = heavyHitters; }
+
+    public Map<EndpointType, Limit> getLimits() { return limits; }
+    public void setLimits(Map<EndpointType, Limit> limits) { this.limits = limits; }
+
+    /**
+     * Gräns för endpoint-typen, OTHER:s gräns om typen saknas i konfigurationen
+     */
+    public Limit limitFor(EndpointType endpointType) {
+        Limit limit = limits.get(endpointType);
+        return limit != null ? limit : limits.getOrDefault(EndpointType.OTHER, new Limit(60, 60));
+    }
+
+    /**
+     * Samma gränser som de tidigare hårdkodade konstanterna
+     */
+    private static Map<EndpointType, Limit> defaultLimits() {
+        Map<EndpointType, Limit> defaults = new EnumMap<>(EndpointType.class);
+        defaults.put(EndpointType.WEATHER, new Limit(30, 30));
+        defaults.put(EndpointType.ADMIN, new Limit(10, 10));
+        defaults.put(EndpointType.PLACES_WRITE, new Limit(20, 20));
+        defaults.put(EndpointType.PLACES_READ, new Limit(60, 60));
+        defaults.put(EndpointType.OTHER, new Limit(60, 60));
+        return defaults;
+    }
+
+    public enum RefillType {
+        GREEDY,     // Polletter läggs till jämnt under perioden - inga bursts vid periodgränsen
+        INTERVALLY  // Hela refill-tokens läggs till när perioden är slut
+    }
+
+    public enum Mode {
+        LOCAL,  // En nod - bucket4j i minnet
+        REDIS   // Flera noder - token buckets i Redis via Lua-script
+    }
+
+    public static class Redis {
+        private double leaseFraction = 0.1;
+        private long leaseTtlMs = 1000;
+
+        public double getLeaseFraction() { return leaseFraction; }
+        public void setLeaseFraction(double leaseFraction) { this.leaseFraction = leaseFraction; }
+
+        public long getLeaseTtlMs() { return leaseTtlMs; }
+        public void setLeaseTtlMs(long leaseTtlMs) { this.leaseTtlMs = leaseTtlMs; }
+    }
+
+    public static class Limit {
+        private int capacity;
+        private int refillTokens;
+        private long refillPeriodMs = 60_000;
+        private RefillType refill = RefillType.GREEDY;
+        private int burst;
+
+        public Limit() {}
+
+        public Limit(int capacity, int refillTokens) {
+            this.capacity = capacity;
+            this.refillTokens = refillTokens;
+        }
+
+        public Limit(Limit other) {
+            this.capacity = other.capacity;
+            this.refillTokens = other.refillTokens;
+            this.refillPeriodMs = other.refillPeriodMs;
+            this.refill = other.refill;
+            this.burst = other.burst;
+        }
+
+        /**
+         * Kasta IllegalArgumentException om gränsen inte går att använda
+         */
+        public void validate() {
+            if (capacity < 1 || refillTokens < 1 || refillPeriodMs < 1 || burst < 0 || refill == null) {
+                throw new IllegalArgumentException("Rate limit needs capacity >= 1, refill-tokens >= 1, "
+                        + "refill-period-ms >= 1, burst >= 0 and a refill type");
+            }
+        }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public int getRefillTokens() { return refillTokens; }
+        public void setRefillTokens(int refillTokens) { this.refillTokens = refillTokens; }
+
+        public long getRefillPeriodMs() { return refillPeriodMs; }
+        public void setRefillPeriodMs(long refillPeriodMs) { this.refillPeriodMs = refillPeriodMs; }
+
+        public RefillType getRefill() { return refill; }
+        public void setRefill(RefillType refill) { this.refill = refill; }
+
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+    }
+
+    public static class Store {
+        private int maxEntries = 100_000;
+        private long idleTimeoutMs = 120_000;
+        private long sweepIntervalMs = 60_000;
+        private int estimatedBucketBytes = 256;
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+        public long getIdleTimeoutMs() { return idleTimeoutMs; }
+        public void setIdleTimeoutMs(long idleTimeoutMs) { this.idleTimeoutMs = idleTimeoutMs; }
+
+        public long getSweepIntervalMs() { return sweepIntervalMs; }
+        public void setSweepIntervalMs(long sweepIntervalMs) { this.sweepIntervalMs = sweepIntervalMs; }
+
+        public int getEstimatedBucketBytes() { return estimatedBucketBytes; }
+        public void setEstimatedBucketBytes(int estimatedBucketBytes) { this.estimatedBucketBytes = estimatedBucketBytes; }
+    }
+
+    public static class HeavyHitters {
+        private int sketchDepth = 4;
+        private int sketchWidth = 65_536;
+        private long windowMs = 60_000;
+        private int flagThreshold = 5;
+        private int topK = 32;
+
+        public int getSketchDepth() { return sketchDepth; }
+        public void setSketchDepth(int sketchDepth) { this.sketchDepth = sketchDepth; }
+
+        public int getSketchWidth() { return sketchWidth; }
+        public void setSketchWidth(int sketchWidth) { this.sketchWidth = sketchWidth; }
+
+        public long getWindowMs() { return windowMs; }
+        public void setWindowMs(long windowMs) { this.windowMs = windowMs; }
+
+        public int getFlagThreshold() { return flagThreshold; }
+        public void setFlagThreshold(int flagThreshold) { this.flagThreshold = flagThreshold; }
+
+        public int getTopK() { return topK; }
+        public void setTopK(int topK) { this.topK = topK; }
+    }
+}
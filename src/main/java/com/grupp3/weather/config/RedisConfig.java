@@ -1,9 +1,15 @@
 package com.grupp3.weather.config;
 
+import com.grupp3.weather.security.BlockList;
+import com.grupp3.weather.service.PlaceChangeBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -24,4 +30,32 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tar emot blockeringar från andra noder - bara i distribuerat läge (app.rate-limit.mode=REDIS)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "REDIS")
+    public RedisMessageListenerContainer blockListListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    BlockList blockList,
+                                                                    @Value("${app.block-list.channel:weather:blocks}") String channel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(blockList, new ChannelTopic(channel));
+        return container;
+    }
+
+    /**
+     * Tar emot platsändringar från andra noder - egen brytare (app.places.sync.enabled=true)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.places.sync.enabled", havingValue = "true")
+    public RedisMessageListenerContainer placeSyncListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    PlaceChangeBroadcaster placeChangeBroadcaster,
+                                                                    @Value("${app.places.channel:weather:places}") String channel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(placeChangeBroadcaster, new ChannelTopic(channel));
+        return container;
+    }
+}
@@ -0,0 +1,60 @@
+package com.grupp3.weather.config;
+
+import com.grupp3.weather.security.RoutePolicy;
+import com.grupp3.weather.service.RateLimitingService;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoutePolicyProperties - route policy-tabellen från application.properties (app.routes.rules[n]).
+ *
+ * Varje regel: pattern ("/admin/**", "/forecast/*"), valfria methods (tom = alla metoder),
+ * auth, rate-limit och api-key-scope. Kompileras till en trie av RoutePolicyTable vid start.
+ */
+
+@Component
+@ConfigurationProperties(prefix = "app.routes")
+public class RoutePolicyProperties {
+
+    private List<Rule> rules = new ArrayList<>();
+
+    public List<Rule> getRules() { return rules; }
+    public void setRules(List<Rule> rules) { this.rules = rules; }
+
+    public static class Rule {
+        private String pattern;
+        private List<String> methods = new ArrayList<>();
+        private RoutePolicy.AuthLevel auth = RoutePolicy.AuthLevel.AUTHENTICATED;
+        private RateLimitingService.EndpointType rateLimit = RateLimitingService.EndpointType.OTHER;
+        private String apiKeyScope;
+
+        public Rule() {}
+
+        public Rule(String pattern, List<String> methods, RoutePolicy.AuthLevel auth,
+                    RateLimitingService.EndpointType rateLimit, String apiKeyScope) {
+            this.pattern = pattern;
+            this.methods = methods;
+            this.auth = auth;
+            this.rateLimit = rateLimit;
+            this.apiKeyScope = apiKeyScope;
+        }
+
+        public String getPattern() { return pattern; }
+        public void setPattern(String pattern) { this.pattern = pattern; }
+
+        public List<String> getMethods() { return methods; }
+        public void setMethods(List<String> methods) { this.methods = methods; }
+
+        public RoutePolicy.AuthLevel getAuth() { return auth; }
+        public void setAuth(RoutePolicy.AuthLevel auth) { this.auth = auth; }
+
+        public RateLimitingService.EndpointType getRateLimit() { return rateLimit; }
+        public void setRateLimit(RateLimitingService.EndpointType rateLimit) { this.rateLimit = rateLimit; }
+
+        public String getApiKeyScope() { return apiKeyScope; }
+        public void setApiKeyScope(String apiKeyScope) { this.apiKeyScope = apiKeyScope; }
+    }
+}
@@ -1,6 +1,9 @@
 package com.grupp3.weather.config;
 
 import com.grupp3.weather.security.JwtAuthenticationFilter;
+import com.grupp3.weather.security.RoutePolicyAuthorizationManager;
+import com.grupp3.weather.security.UserRateLimitFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,9 +23,15 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RoutePolicyAuthorizationManager routePolicyAuthorizationManager;
+    private final UserRateLimitFilter userRateLimitFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                          RoutePolicyAuthorizationManager routePolicyAuthorizationManager,
+                          UserRateLimitFilter userRateLimitFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.routePolicyAuthorizationManager = routePolicyAuthorizationManager;
+        this.userRateLimitFilter = userRateLimitFilter;
     }
 
     @Bean
@@ -39,21 +48,20 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Nivåerna (PUBLIC / AUTHENTICATED / ADMIN) per path ligger i app.routes.rules:
+                // NIVÅ 1: /api/auth/**, /weather/** - publikt
+                // NIVÅ 2: /favorites/**, /forecast/**, allt annat - kräver JWT
+                // NIVÅ 3: /admin/** - kräver ADMIN-roll
                 .authorizeHttpRequests(auth -> auth
-                        // NIVÅ 1: Publikt så ingen autentisering
-                        .requestMatchers("/api/auth/**").permitAll()      // Registrering/login
-                        .requestMatchers("/weather/**").permitAll()       // Väder (huvudfunktion)
-
-                        // NIVÅ 2: Skyddat vilket kräver JWT (USER-roll räcker)
-                        .requestMatchers("/favorites/**").authenticated() // Hantera favoriter
-                        .requestMatchers("/forecast/**").authenticated()  // Se prognoser
-
-                        // NIVÅ 3: Admin som kräver ADMIN-roll
-                        .requestMatchers("/admin/**").hasRole("ADMIN")    // Admin-funktioner
-
-                        .anyRequest().authenticated()                     // Allt annat skyddat
+                        // Strömmade svar (StreamingResponseBody) avslutas med en ASYNC-dispatch utan JWT-kontext -
+                        // själva requesten har redan godkänts av route-policyn
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .anyRequest().access(routePolicyAuthorizationManager)
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                // DDoSProtectionFilter har redan körts före kedjan (FilterConfig) - blockerade IP:n kommer aldrig hit
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Gräns per användare efter JWT-filtret - gränsen per IP har redan tagits i edge-filtret
+                .addFilterAfter(userRateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -1,7 +1,10 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.PaginationProperties;
+import com.grupp3.weather.dto.PageDTO;
 import com.grupp3.weather.model.WeatherAlert;
 import com.grupp3.weather.repository.WeatherAlertRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -14,9 +17,11 @@ import java.util.List;
 public class AdminAlertController {
 
     private final WeatherAlertRepository alertRepository;
+    private final PaginationProperties paginationProperties;
 
-    public AdminAlertController(WeatherAlertRepository alertRepository) {
+    public AdminAlertController(WeatherAlertRepository alertRepository, PaginationProperties paginationProperties) {
         this.alertRepository = alertRepository;
+        this.paginationProperties = paginationProperties;
     }
 
     @PostMapping
@@ -25,9 +30,14 @@ public class AdminAlertController {
         return ResponseEntity.ok(saved);
     }
 
+    // En sida alerts i id-ordning - nextCursor i svaret ger nästa sida
     @GetMapping
-    public ResponseEntity<List<WeatherAlert>> getAllAlerts() {
-        return ResponseEntity.ok(alertRepository.findAll());
+    public ResponseEntity<PageDTO<WeatherAlert>> getAllAlerts(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer size) {
+        int pageSize = paginationProperties.resolve(size);
+        long afterId = cursor == null ? 0L : PageDTO.decodeCursor(cursor, Long::parseLong);
+        List<WeatherAlert> alerts = alertRepository.findPageAfter(afterId, Limit.of(pageSize + 1));
+        return ResponseEntity.ok(PageDTO.of(alerts, pageSize, WeatherAlert::getId));
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,110 @@
+package com.grupp3.weather.controller;
+
+import com.grupp3.weather.dto.ApiKeyDTO;
+import com.grupp3.weather.mapper.ApiKeyMapper;
+import com.grupp3.weather.model.ApiKey;
+import com.grupp3.weather.repository.ApiKeyRepository;
+import com.grupp3.weather.security.ApiKeyRegistry;
+import com.grupp3.weather.security.TokenHasher;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AdminApiKeyController - utdelning och spärr av API-nycklar för partners.
+ *
+ * Klartextnyckeln returneras bara i svaret på POST och lagras aldrig.
+ * Efter varje ändring laddas ApiKeyRegistry om direkt, så nya/spärrade nycklar
+ * gäller utan omstart.
+ */
+
+@RestController
+@RequestMapping("/admin/api-keys")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminApiKeyController {
+    private static final Logger log = LoggerFactory.getLogger(AdminApiKeyController.class);
+
+    private static final int KEY_BYTES = 32;
+    private static final String KEY_PREFIX = "wk_";
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final ApiKeyRegistry apiKeyRegistry;
+    private final ApiKeyMapper apiKeyMapper;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public AdminApiKeyController(ApiKeyRepository apiKeyRepository,
+                                 ApiKeyRegistry apiKeyRegistry,
+                                 ApiKeyMapper apiKeyMapper) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.apiKeyRegistry = apiKeyRegistry;
+        this.apiKeyMapper = apiKeyMapper;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ApiKeyDTO>> getAllApiKeys() {
+        return ResponseEntity.ok(apiKeyMapper.toDTOList(apiKeyRepository.findAll()));
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createApiKey(@Valid @RequestBody CreateApiKeyRequest request) {
+        byte[] random = new byte[KEY_BYTES];
+        secureRandom.nextBytes(random);
+        String plainKey = KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        ApiKey apiKey = new ApiKey(request.name, TokenHasher.sha256Hex(plainKey),
+                String.join(",", ApiKeyRegistry.parseScopes(request.scopes)), request.requestsPerMinute);
+        ApiKey saved = apiKeyRepository.save(apiKey);
+        apiKeyRegistry.reload();
+
+        log.info("Created API key '{}' with scopes [{}]", saved.getName(), saved.getScopes());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                "apiKey", plainKey,
+                "key", apiKeyMapper.toDTO(saved),
+                "info", "Store this key now - it cannot be shown again"
+        ));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> disableApiKey(@PathVariable Long id) {
+        return apiKeyRepository.findById(id)
+                .map(apiKey -> {
+                    apiKey.setEnabled(false);
+                    apiKeyRepository.save(apiKey);
+                    apiKeyRegistry.reload();
+                    log.info("Disabled API key '{}'", apiKey.getName());
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reloadApiKeys() {
+        apiKeyRegistry.reload();
+        return ResponseEntity.ok(Map.of("loaded", apiKeyRegistry.size()));
+    }
+
+    public static class CreateApiKeyRequest {
+        @NotBlank(message = "Name is required")
+        public String name;
+
+        @NotBlank(message = "Scopes are required")
+        public String scopes;
+
+        @Min(value = 1, message = "Quota must be at least 1 request per minute")
+        @Max(value = 100000, message = "Quota must be at most 100000 requests per minute")
+        public int requestsPerMinute = 60;
+    }
+}
@@ -1,5 +1,11 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.dto.BlockRequestDTO;
+import com.grupp3.weather.security.BlockList;
+import com.grupp3.weather.security.ClientKeys;
+import com.grupp3.weather.service.SpaceSavingCounter;
+import com.grupp3.weather.service.RateLimitingService;
 import com.grupp3.weather.service.WeatherService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,6 +13,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -15,10 +25,17 @@ import java.util.Map;
 public class AdminController {
     private static final Logger log = LoggerFactory.getLogger(AdminController.class);
 
+    // === BLOCK LIMITS ===
+    static final long MAX_BLOCK_SECONDS = 30L * 24 * 60 * 60; // 30 dagar - håller durationSeconds * 1000 långt från overflow
+
     private final WeatherService weatherService;
+    private final RateLimitingService rateLimitingService;
+    private final BlockList blockList;
 
-    public AdminController(WeatherService weatherService) {
+    public AdminController(WeatherService weatherService, RateLimitingService rateLimitingService, BlockList blockList) {
         this.weatherService = weatherService;
+        this.rateLimitingService = rateLimitingService;
+        this.blockList = blockList;
     }
 
     @PostMapping("/weather/update")
@@ -33,10 +50,87 @@ public class AdminController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
         log.info("Admin accessed stats endpoint");
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("status", "operational");
+        stats.put("bucketsByEndpointType", rateLimitingService.getBucketCounts());
+        stats.put("rejectionsByEndpointType", rateLimitingService.getRejectionCounts());
+        stats.put("storeSizes", rateLimitingService.getStoreSizes());
+        stats.put("blockedClients", blockList.size());
+        stats.put("blocksIssued", blockList.blocksIssued());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/blocks")
+    public ResponseEntity<List<Map<String, Object>>> getBlocks(@RequestParam(defaultValue = "100") int limit) {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> blocks = blockList.list(Math.max(1, Math.min(limit, 1000))).stream()
+                .map(block -> Map.<String, Object>of(
+                        "client", ClientKeys.format(block.clientKey()),
+                        "expiresAt", Instant.ofEpochMilli(block.expiresAt()).toString(),
+                        "remainingSeconds", (block.expiresAt() - now + 999) / 1000,
+                        "reason", block.reason() != null ? block.reason() : ""))
+                .toList();
+        return ResponseEntity.ok(blocks);
+    }
+
+    @PostMapping("/blocks")
+    public ResponseEntity<Map<String, Object>> blockClient(@RequestBody BlockRequestDTO request) {
+        long clientKey = ClientKeys.requireIpKey(request.getClient());
+        if (request.getDurationSeconds() < 1 || request.getDurationSeconds() > MAX_BLOCK_SECONDS) {
+            throw new IllegalArgumentException("durationSeconds must be between 1 and " + MAX_BLOCK_SECONDS);
+        }
+        log.info("Admin blocked {} for {} s", ClientKeys.format(clientKey), request.getDurationSeconds());
+        blockList.block(clientKey, request.getDurationSeconds() * 1000, request.getReason());
         return ResponseEntity.ok(Map.of(
-            "message", "Admin stats endpoint",
-            "status", "operational",
-            "adminAccess", true
-        ));
+                "client", ClientKeys.format(clientKey),
+                "remainingSeconds", request.getDurationSeconds()));
+    }
+
+    @DeleteMapping("/blocks/{client}")
+    public ResponseEntity<Void> unblockClient(@PathVariable String client) {
+        long clientKey = ClientKeys.requireIpKey(client);
+        log.info("Admin unblocked {}", ClientKeys.format(clientKey));
+        blockList.unblock(clientKey);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/top-rejected")
+    public ResponseEntity<List<Map<String, Object>>> getTopRejected(@RequestParam(defaultValue = "20") int limit) {
+        List<Map<String, Object>> rejected = rateLimitingService.getTopRejected(Math.max(1, Math.min(limit, 64))).stream()
+                .map(AdminController::rejectedEntry)
+                .toList();
+        return ResponseEntity.ok(rejected);
+    }
+
+    @GetMapping("/top-talkers")
+    public ResponseEntity<List<Map<String, Object>>> getTopTalkers(@RequestParam(defaultValue = "20") int limit) {
+        log.info("Admin requested top {} talkers", limit);
+        List<Map<String, Object>> talkers = rateLimitingService.getTopTalkers(Math.max(1, Math.min(limit, 100))).stream()
+                .map(talker -> Map.<String, Object>of(
+                        "client", ClientKeys.format(talker.clientKey()),
+                        "estimatedRequests", talker.estimatedRequests()))
+                .toList();
+        return ResponseEntity.ok(talkers);
+    }
+
+    private static Map<String, Object> rejectedEntry(SpaceSavingCounter.Entry entry) {
+        return Map.of(
+                "client", entry.label() != null ? "user:" + entry.label() : ClientKeys.format(entry.key()),
+                "rejections", entry.count(),
+                "maxOvercount", entry.error());
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<RateLimitingService.EndpointType, RateLimitProperties.Limit>> getRateLimits() {
+        return ResponseEntity.ok(rateLimitingService.getLimits());
+    }
+
+    @PutMapping("/rate-limits/{type}")
+    public ResponseEntity<Map<RateLimitingService.EndpointType, RateLimitProperties.Limit>> updateRateLimit(
+            @PathVariable String type, @RequestBody RateLimitProperties.Limit limit) {
+        RateLimitingService.EndpointType endpointType = RateLimitingService.EndpointType.valueOf(type.toUpperCase(Locale.ROOT));
+        log.info("Admin changed rate limit for {}", endpointType);
+        rateLimitingService.updateLimit(endpointType, limit);
+        return ResponseEntity.ok(rateLimitingService.getLimits());
     }
 }
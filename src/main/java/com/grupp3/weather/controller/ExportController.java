@@ -0,0 +1,159 @@
+package com.grupp3.weather.controller;
+
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.service.PlaceService;
+import com.grupp3.weather.service.WeatherExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ExportController - export av sparad väderhistorik för analys.
+ *
+ * Huvudfunktioner:
+ * - exportWeather(...): GET /export/weather?places=Stockholm,Malmö&from=...&to=...&format=ndjson|csv
+ *
+ * Svaret strömmas (StreamingResponseBody) medan raderna läses från databasen, så exporten kan vara
+ * flera GB utan att hållas i minnet. Fel i parametrar ger 400/404 innan strömmen startar - fel
+ * mitt i en export avbryter svaret. Ligger under /** (inloggad användare) i route-policyn,
+ * inte under den publika /weather/**.
+ *
+ * En export håller en async-tråd och en databasanslutning i upp till app.export.timeout (1h) -
+ * timeouten sätts bara för exporten, inte globalt - så högst app.export.max-concurrent exporter
+ * körs samtidigt. Fler ger 429 direkt, innan platserna slås upp.
+ *
+ * Exportplatsen släpps av ExportSlotInterceptor när async-requesten avslutas - även vid timeout,
+ * fel, avbruten klient eller om executorn aldrig startar strömmen. Strömmen själv släpper den
+ * direkt när den är skriven; platsen släpps bara en gång.
+ */
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private final PlaceService placeService;
+    private final WeatherExportService weatherExportService;
+
+    // === EXPORT LIMITS ===
+    private static final int MAX_EXPORT_PLACES = 100;
+
+    static final String EXPORT_INTERCEPTOR_KEY = ExportController.class.getName() + ".slot";
+
+    private final Semaphore exportSlots;
+    private final long exportTimeoutMs;
+
+    public ExportController(PlaceService placeService, WeatherExportService weatherExportService,
+                            @Value("${app.export.max-concurrent:2}") int maxConcurrentExports,
+                            @Value("${app.export.timeout:1h}") Duration exportTimeout) {
+        this.placeService = placeService;
+        this.weatherExportService = weatherExportService;
+        this.exportSlots = new Semaphore(maxConcurrentExports);
+        this.exportTimeoutMs = exportTimeout.toMillis();
+    }
+
+    @GetMapping("/weather")
+    public ResponseEntity<StreamingResponseBody> exportWeather(
+            @RequestParam List<String> places,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) {
+
+        WeatherExportService.Format exportFormat = WeatherExportService.Format.parse(format);
+        if (places.isEmpty() || places.size() > MAX_EXPORT_PLACES) {
+            throw new IllegalArgumentException("places must list between 1 and " + MAX_EXPORT_PLACES + " places");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+
+        // 1. Boka en exportplats - alla upptagna ger 429
+        if (!exportSlots.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports running, try again later");
+        }
+
+        ExportSlotInterceptor slot = new ExportSlotInterceptor(exportSlots, exportTimeoutMs);
+        try {
+            // 2. Slå upp alla platser innan strömmen startar - okänd plats ger 404
+            Map<Long, String> placeNames = new LinkedHashMap<>();
+            for (String placeName : places) {
+                Place place = placeService.findByName(placeName).orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Place not found: " + placeName));
+                placeNames.put(place.getId(), place.getName());
+            }
+
+            // 3. Skriv raderna medan de läses - platsen släpps när strömmen är klar, eller när async-requesten avslutas
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_INTERCEPTOR_KEY, slot);
+            StreamingResponseBody body = out -> {
+                try {
+                    weatherExportService.export(placeNames, from, to, exportFormat, out);
+                } finally {
+                    slot.release();
+                }
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"weather-export." + exportFormat.extension() + "\"")
+                    .body(body);
+        } catch (RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Exportens egen async-timeout och en exportplats som släpps exakt en gång
+     */
+    static final class ExportSlotInterceptor implements CallableProcessingInterceptor {
+
+        private final Semaphore slots;
+        private final long timeoutMs;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ExportSlotInterceptor(Semaphore slots, long timeoutMs) {
+            this.slots = slots;
+            this.timeoutMs = timeoutMs;
+        }
+
+        // Körs innan async-läget startar - bara exporten får den långa timeouten
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            if (request instanceof AsyncWebRequest asyncRequest) {
+                asyncRequest.setTimeout(timeoutMs);
+            }
+        }
+
+        // Körs när async-requesten avslutas, oavsett utfall (klar, timeout, fel, avbruten)
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            release();
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+}
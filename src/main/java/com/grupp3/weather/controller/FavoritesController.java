@@ -1,5 +1,7 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.PaginationProperties;
+import com.grupp3.weather.dto.PageDTO;
 import com.grupp3.weather.dto.PlaceDTO;
 import com.grupp3.weather.mapper.PlaceMapper;
 import com.grupp3.weather.model.Place;
@@ -15,16 +17,23 @@ public class FavoritesController {
 
     private final PlaceService placeService;
     private final PlaceMapper placeMapper;
+    private final PaginationProperties paginationProperties;
 
-    public FavoritesController(PlaceService placeService, PlaceMapper placeMapper) {
+    public FavoritesController(PlaceService placeService, PlaceMapper placeMapper,
+                               PaginationProperties paginationProperties) {
         this.placeService = placeService;
         this.placeMapper = placeMapper;
+        this.paginationProperties = paginationProperties;
     }
 
+    // En sida favoriter i id-ordning - nextCursor i svaret ger nästa sida
     @GetMapping
-    public ResponseEntity<List<PlaceDTO>> getFavorites() {
-        List<Place> favorites = placeService.findFavorites();
-        return ResponseEntity.ok(placeMapper.toDTOList(favorites));
+    public ResponseEntity<PageDTO<PlaceDTO>> getFavorites(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size) {
+        int pageSize = paginationProperties.resolve(size);
+        long afterId = cursor == null ? 0L : PageDTO.decodeCursor(cursor, Long::parseLong);
+        List<Place> favorites = placeService.findFavoritesPage(afterId, pageSize + 1);
+        return ResponseEntity.ok(PageDTO.of(favorites, pageSize, Place::getId).map(placeMapper::toDTOList));
     }
 
     @PutMapping("/{placeName}")
@@ -36,7 +36,7 @@ public class ForecastController {
         }
 
         // Hämta prognoser
-        List<WeatherForecast> forecasts = forecastService.getForecastsForPlace(placeName);
+        List<WeatherForecast> forecasts = forecastService.getForecastsForPlace(place.getId());
 
         Map<String, Object> response = Map.of(
                 "place", Map.of("name", place.getName(), "lat", place.getLat(), "lon", place.getLon()),
@@ -64,7 +64,7 @@ public class ForecastController {
             return ResponseEntity.notFound().build();
         }
 
-        List<WeatherForecast> forecasts = forecastService.getForecastsForNextDays(placeName, days);
+        List<WeatherForecast> forecasts = forecastService.getForecastsForNextDays(place.getId(), days);
 
         Map<String, Object> response = Map.of(
                 "place", Map.of("name", place.getName(), "lat", place.getLat(), "lon", place.getLon()),
@@ -97,7 +97,7 @@ public class ForecastController {
                 return ResponseEntity.notFound().build();
             }
 
-            WeatherForecast forecast = forecastService.getForecastForDate(placeName, forecastDate);
+            WeatherForecast forecast = forecastService.getForecastForDate(place.getId(), forecastDate);
             if (forecast == null) {
                 Map<String, Object> error = Map.of("error", "No forecast available for this date");
                 return ResponseEntity.status(404).body(error);
@@ -120,14 +120,10 @@ public class ForecastController {
 
     /**
      * Manuell uppdatering av prognoser för en plats (admin endpoint)
+     * API-nyckel med scope "forecast:update" kontrolleras av ApiKeyFilter
      */
     @PostMapping("/{placeName}/update")
-    public ResponseEntity<Map<String, Object>> updateForecast(@PathVariable String placeName,
-                                                              @RequestHeader(value = "X-API-KEY", required = false) String apiKey) {
-        if (!"topsecret123".equals(apiKey)) {
-            return ResponseEntity.status(401).build();
-        }
-
+    public ResponseEntity<Map<String, Object>> updateForecast(@PathVariable String placeName) {
         Place place = placeService.findByName(placeName).orElse(null);
         if (place == null) {
             return ResponseEntity.notFound().build();
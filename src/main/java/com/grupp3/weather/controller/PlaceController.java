@@ -1,13 +1,18 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.PaginationProperties;
+import com.grupp3.weather.dto.NearbyPlaceDTO;
+import com.grupp3.weather.dto.PageDTO;
 import com.grupp3.weather.dto.PlaceDTO;
 import com.grupp3.weather.mapper.PlaceMapper;
 import com.grupp3.weather.model.Place;
 import com.grupp3.weather.service.PlaceService;
+import com.grupp3.weather.service.PlaceSpatialIndex;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/places")
@@ -15,15 +20,43 @@ public class PlaceController {
 
     private final PlaceService placeService;
     private final PlaceMapper placeMapper;
+    private final PlaceSpatialIndex placeSpatialIndex;
+    private final PaginationProperties paginationProperties;
 
-    public PlaceController(PlaceService placeService, PlaceMapper placeMapper) {
+    // === NEAREST LIMITS ===
+    private static final int MAX_NEAREST = 50;
+
+    public PlaceController(PlaceService placeService, PlaceMapper placeMapper, PlaceSpatialIndex placeSpatialIndex,
+                           PaginationProperties paginationProperties) {
         this.placeService = placeService;
         this.placeMapper = placeMapper;
+        this.placeSpatialIndex = placeSpatialIndex;
+        this.paginationProperties = paginationProperties;
     }
 
+    // En sida platser i id-ordning - nextCursor i svaret ger nästa sida
     @GetMapping
-    public ResponseEntity<List<PlaceDTO>> getAllPlaces() {
-        List<Place> places = placeService.findAll();
-        return ResponseEntity.ok(placeMapper.toDTOList(places));
+    public ResponseEntity<PageDTO<PlaceDTO>> getAllPlaces(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size) {
+        int pageSize = paginationProperties.resolve(size);
+        long afterId = cursor == null ? 0L : PageDTO.decodeCursor(cursor, Long::parseLong);
+        List<Place> places = placeService.findPage(afterId, pageSize + 1);
+        return ResponseEntity.ok(PageDTO.of(places, pageSize, Place::getId).map(placeMapper::toDTOList));
+    }
+
+    // De k närmaste av våra platser till en punkt - ur minnesindexet, närmast först
+    @GetMapping("/nearest")
+    public ResponseEntity<?> nearest(@RequestParam double lat,
+                                     @RequestParam double lon,
+                                     @RequestParam(defaultValue = "1") int k) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return ResponseEntity.badRequest().body(Map.of("error", "lat must be within ±90 and lon within ±180"));
+        }
+        if (k < 1 || k > MAX_NEAREST) {
+            return ResponseEntity.badRequest().body(Map.of("error", "k must be between 1 and " + MAX_NEAREST));
+        }
+
+        List<NearbyPlaceDTO> nearest = placeSpatialIndex.nearest(lat, lon, k);
+        return ResponseEntity.ok(nearest);
     }
 }
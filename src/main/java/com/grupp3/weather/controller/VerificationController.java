@@ -26,18 +26,18 @@ public class VerificationController {
 
     @GetMapping("/verify")
     public ResponseEntity<Map<String, String>> verifyEmail(@RequestParam String token) {
-        log.info("Email verification attempt with token: {}", token);
+        log.info("Email verification attempt");
 
         return verificationTokenService.getVerificationToken(token)
             .map(verificationToken -> {
                 if (verificationToken.isExpired()) {
-                    log.warn("Verification token expired: {}", token);
+                    log.warn("Verification token expired for user: {}", verificationToken.getUser().getUsername());
                     return ResponseEntity.badRequest()
                         .body(Map.of("error", "Token has expired"));
                 }
 
                 if (verificationToken.getVerifiedAt() != null) {
-                    log.warn("Token already used: {}", token);
+                    log.warn("Token already used for user: {}", verificationToken.getUser().getUsername());
                     return ResponseEntity.badRequest()
                         .body(Map.of("error", "Token already used"));
                 }
@@ -54,7 +54,7 @@ public class VerificationController {
                 ));
             })
             .orElseGet(() -> {
-                log.warn("Invalid verification token: {}", token);
+                log.warn("Invalid verification token");
                 return ResponseEntity.badRequest()
                     .body(Map.of("error", "Invalid verification token"));
             });
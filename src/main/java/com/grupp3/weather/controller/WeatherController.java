@@ -1,14 +1,24 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.PaginationProperties;
+import com.grupp3.weather.dto.NearbyPlaceDTO;
+import com.grupp3.weather.dto.PageDTO;
 import com.grupp3.weather.model.Place;
+import com.grupp3.weather.model.WeatherData;
 import com.grupp3.weather.service.PlaceService;
+import com.grupp3.weather.service.PlaceSpatialIndex;
+import com.grupp3.weather.service.WeatherRollupService;
 import com.grupp3.weather.service.WeatherService;
 import com.grupp3.weather.service.WeatherCacheService;
+import com.grupp3.weather.service.WeatherHistoryService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,9 +30,12 @@ import java.util.Optional;
  *
  * Huvudfunktioner:
  * - current(String placeName): Hämta väder för favoritplats => kollar cache först
- * - getWeatherAtSpecificLocation(String placeName): Sök väder för vilken plats som helst
+ * - getWeatherAtSpecificLocation(String placeName): Sök väder för vilken plats som helst - återanvänder
+ *   cachat väder från en av våra platser inom NEARBY_REUSE_KM (PlaceSpatialIndex) istället för API-anrop
  * - fetchLocationByName(String placeName): Geocoding för platskoordinater
  * - clearCache(): Admin-endpoints för cache-rensning
+ * - series(String placeName, int days): Egen sparad historik, rå eller timvis/dygnsvis aggregerad
+ * - observations(String placeName, int days, ...): Sparade observationer sida för sida, nyast först
  *
  * Cache-strategi implementerar:
  * - Cache hit: Returnera sparad data inom 5 minuter (snabbt)
@@ -41,13 +54,31 @@ public class WeatherController {
     private final PlaceService placeService;
     private final WeatherService weatherService;
     private final WeatherCacheService weatherCacheService;
+    private final WeatherRollupService weatherRollupService;
+    private final PlaceSpatialIndex placeSpatialIndex;
+    private final WeatherHistoryService weatherHistoryService;
+    private final PaginationProperties paginationProperties;
+
+    // === SERIES LIMITS ===
+    private static final int MAX_SERIES_DAYS = 366;
+
+    // === NEARBY REUSE ===
+    private static final double NEARBY_REUSE_KM = 5.0;
 
     public WeatherController(PlaceService placeService,
                              WeatherService weatherService,
-                             WeatherCacheService weatherCacheService) {
+                             WeatherCacheService weatherCacheService,
+                             WeatherRollupService weatherRollupService,
+                             PlaceSpatialIndex placeSpatialIndex,
+                             WeatherHistoryService weatherHistoryService,
+                             PaginationProperties paginationProperties) {
         this.placeService = placeService;
         this.weatherService = weatherService;
         this.weatherCacheService = weatherCacheService;
+        this.weatherRollupService = weatherRollupService;
+        this.placeSpatialIndex = placeSpatialIndex;
+        this.weatherHistoryService = weatherHistoryService;
+        this.paginationProperties = paginationProperties;
     }
 
     @GetMapping("/{placeName}")
@@ -86,13 +117,42 @@ public class WeatherController {
 
     @GetMapping("/weatherAtLocation/{placeName}")
     public ResponseEntity<Map<String, Object>> getWeatherAtSpecificLocation(@PathVariable String placeName) {
-        Map<String, Object> weather = weatherService.fetchCurrentWeatherAtSpecificLocation(placeName);
-        if (weather == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("message", "Location not found: " + placeName));
+        // 1. Koordinater - egen plats med samma namn, annars geocoding
+        double lat;
+        double lon;
+        Optional<Place> known = placeService.findByName(placeName);
+        if (known.isPresent()) {
+            lat = known.get().getLat();
+            lon = known.get().getLon();
+        } else {
+            Map<String, Object> location = weatherService.fetchLocationByName(placeName);
+            if (location == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "Location not found: " + placeName));
+            }
+            lat = ((Number) location.get("latitude")).doubleValue();
+            lon = ((Number) location.get("longitude")).doubleValue();
         }
 
-        return ResponseEntity.ok(weather);
+        // 2. Cachat väder för en av våra platser i närheten - inget väderanrop
+        Optional<NearbyPlaceDTO> nearby = placeSpatialIndex.nearestWithin(lat, lon, NEARBY_REUSE_KM);
+        if (nearby.isPresent()) {
+            Optional<Map<String, Object>> cached = weatherCacheService.getCachedWeather(nearby.get().getDisplayName());
+            if (cached.isPresent()) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("latitude", lat);
+                response.put("longitude", lon);
+                response.put("current", cached.get().get("data"));
+                response.put("cached", true);
+                response.put("nearby_place", Map.of(
+                        "name", nearby.get().getDisplayName(),
+                        "distance_km", nearby.get().getDistanceKm()));
+                return ResponseEntity.ok(response);
+            }
+        }
+
+        // 3. Cache miss - hämta från Open-Meteo
+        return ResponseEntity.ok(weatherService.fetchCurrent(lat, lon));
     }
 
     @GetMapping("/locationByName/{placeName}")
@@ -146,5 +206,69 @@ public class WeatherController {
         );
         return ResponseEntity.ok(response);
     }
-}
 
+    @GetMapping("/{placeName}/series")
+    public ResponseEntity<?> series(@PathVariable String placeName, @RequestParam(defaultValue = "7") int days) {
+
+        // 1. Kolla om plats finns
+        Place place = placeService.findByName(placeName).orElse(null);
+        if (place == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (days < 1 || days > MAX_SERIES_DAYS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "days must be between 1 and " + MAX_SERIES_DAYS)
+            );
+        }
+
+        // 2. Egen historik - upplösningen väljs efter intervallet (rå, timme eller dygn)
+        LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minusDays(days);
+        WeatherRollupService.Series series = weatherRollupService.getSeries(place.getId(), from, to);
+
+        Map<String, Object> response = Map.of(
+                "place", Map.of("name", place.getName(), "lat", place.getLat(), "lon", place.getLon()),
+                "source", "weather-service",
+                "days", days,
+                "resolution", series.resolution(),
+                "data", series.points()
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{placeName}/observations")
+    public ResponseEntity<?> observations(@PathVariable String placeName,
+                                          @RequestParam(defaultValue = "7") int days,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer size) {
+
+        // 1. Kolla om plats finns
+        Place place = placeService.findByName(placeName).orElse(null);
+        if (place == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (days < 1 || days > MAX_SERIES_DAYS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "days must be between 1 and " + MAX_SERIES_DAYS)
+            );
+        }
+
+        // 2. En sida rå observationer - cursor är sista observation_time på förra sidan
+        int pageSize = paginationProperties.resolve(size);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime before = cursor == null ? now.plusDays(1) : PageDTO.decodeCursor(cursor, LocalDateTime::parse);
+        List<WeatherData> rows = weatherHistoryService.getWeatherHistoryPage(
+                place.getId(), now.minusDays(days), before, pageSize + 1);
+        PageDTO<WeatherData> page = PageDTO.of(rows, pageSize, WeatherData::getObservationTime);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("place", Map.of("name", place.getName(), "lat", place.getLat(), "lon", place.getLon()));
+        response.put("source", "weather-service");
+        response.put("days", days);
+        response.put("items", page.getItems());
+        response.put("nextCursor", page.getNextCursor());
+        return ResponseEntity.ok(response);
+    }
+}
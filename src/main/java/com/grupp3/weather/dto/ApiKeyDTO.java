@@ -0,0 +1,43 @@
+package com.grupp3.weather.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+public class ApiKeyDTO {
+    private Long id;
+    private String name;
+    private Set<String> scopes;
+    private int requestsPerMinute;
+    private boolean enabled;
+    private LocalDateTime createdAt;
+
+    public ApiKeyDTO() {}
+
+    public ApiKeyDTO(Long id, String name, Set<String> scopes, int requestsPerMinute,
+                     boolean enabled, LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.scopes = scopes;
+        this.requestsPerMinute = requestsPerMinute;
+        this.enabled = enabled;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Set<String> getScopes() { return scopes; }
+    public void setScopes(Set<String> scopes) { this.scopes = scopes; }
+
+    public int getRequestsPerMinute() { return requestsPerMinute; }
+    public void setRequestsPerMinute(int requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
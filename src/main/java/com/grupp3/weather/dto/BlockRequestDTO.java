@@ -0,0 +1,24 @@
+package com.grupp3.weather.dto;
+
+public class BlockRequestDTO {
+    private String client;
+    private long durationSeconds = 15 * 60;
+    private String reason = "manual block";
+
+    public BlockRequestDTO() {}
+
+    public BlockRequestDTO(String client, long durationSeconds, String reason) {
+        this.client = client;
+        this.durationSeconds = durationSeconds;
+        this.reason = reason;
+    }
+
+    public String getClient() { return client; }
+    public void setClient(String client) { this.client = client; }
+
+    public long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(long durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
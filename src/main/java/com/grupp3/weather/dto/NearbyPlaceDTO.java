@@ -0,0 +1,37 @@
+package com.grupp3.weather.dto;
+
+/**
+ * En plats från närmaste-sökningen och dess avstånd (storcirkel, km) från sökpunkten.
+ */
+public class NearbyPlaceDTO {
+    private Long id;
+    private String displayName;
+    private double lat;
+    private double lon;
+    private double distanceKm;
+
+    public NearbyPlaceDTO() {}
+
+    public NearbyPlaceDTO(Long id, String displayName, double lat, double lon, double distanceKm) {
+        this.id = id;
+        this.displayName = displayName;
+        this.lat = lat;
+        this.lon = lon;
+        this.distanceKm = distanceKm;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDisplayName() { return displayName; }
+    public void setDisplayName(String displayName) { this.displayName = displayName; }
+
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; }
+
+    public double getLon() { return lon; }
+    public void setLon(double lon) { this.lon = lon; }
+
+    public double getDistanceKm() { return distanceKm; }
+    public void setDistanceKm(double distanceKm) { this.distanceKm = distanceKm; }
+}
@@ -0,0 +1,71 @@
+package com.grupp3.weather.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * En sida ur en keyset-paginerad lista.
+ *
+ * nextCursor är opak för klienten (base64url av sista radens sorteringsnyckel) och skickas
+ * tillbaka som ?cursor= för nästa sida. null betyder att det inte finns fler rader.
+ * Repositoryt hämtar size + 1 rader - den extra raden visar bara att det finns en sida till.
+ */
+public class PageDTO<T> {
+    private static final String CURSOR_PREFIX = "v1:";
+
+    private List<T> items;
+    private String nextCursor;
+
+    public PageDTO() {}
+
+    public PageDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Sida av upp till size + 1 rader, nyckeln för nästa sida tas från sista raden som visas
+     */
+    public static <T> PageDTO<T> of(List<T> rows, int size, Function<T, Object> keyOf) {
+        if (rows.size() <= size) {
+            return new PageDTO<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new PageDTO<>(items, encodeCursor(String.valueOf(keyOf.apply(items.get(size - 1)))));
+    }
+
+    /**
+     * Samma sida med raderna omvandlade, t.ex. entiteter till DTO:er
+     */
+    public <R> PageDTO<R> map(Function<List<T>, List<R>> mapper) {
+        return new PageDTO<>(mapper.apply(items), nextCursor);
+    }
+
+    public static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sorteringsnyckeln i en cursor - ogiltig cursor ger IllegalArgumentException (400)
+     */
+    public static <K> K decodeCursor(String cursor, Function<String, K> parser) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parser.apply(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
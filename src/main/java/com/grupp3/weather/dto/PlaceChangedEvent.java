@@ -0,0 +1,51 @@
+package com.grupp3.weather.dto;
+
+import com.grupp3.weather.model.Place;
+
+/**
+ * Publiceras av PlaceService när en plats sparas eller raderas.
+ * Bär en kopia av platsens värden (inte entiteten), så lyssnare efter commit inte rör en JPA-entitet.
+ */
+public class PlaceChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long placeId;
+    private final String displayName;
+    private final double lat;
+    private final double lon;
+    private final boolean favorite;
+
+    private PlaceChangedEvent(Type type, Long placeId, String displayName, double lat, double lon, boolean favorite) {
+        this.type = type;
+        this.placeId = placeId;
+        this.displayName = displayName;
+        this.lat = lat;
+        this.lon = lon;
+        this.favorite = favorite;
+    }
+
+    public static PlaceChangedEvent saved(Place place) {
+        return saved(place.getId(), place.getDisplayName(), place.getLat(), place.getLon(), place.isFavorite());
+    }
+
+    // Ändring som kommit från en annan nod (PlaceChangeBroadcaster)
+    public static PlaceChangedEvent saved(Long placeId, String displayName, double lat, double lon, boolean favorite) {
+        return new PlaceChangedEvent(Type.SAVED, placeId, displayName, lat, lon, favorite);
+    }
+
+    public static PlaceChangedEvent deleted(Long placeId) {
+        return new PlaceChangedEvent(Type.DELETED, placeId, null, 0, 0, false);
+    }
+
+    public Type getType() { return type; }
+    public Long getPlaceId() { return placeId; }
+    public String getDisplayName() { return displayName; }
+    public double getLat() { return lat; }
+    public double getLon() { return lon; }
+    public boolean isFavorite() { return favorite; }
+}
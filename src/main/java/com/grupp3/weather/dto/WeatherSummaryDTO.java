@@ -0,0 +1,73 @@
+package com.grupp3.weather.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * En punkt i en väderserie: en enskild observation (RAW) eller min/max/medel för en timme eller ett dygn.
+ * För RAW är min, max och medel samma värde och sampleCount 1.
+ */
+public class WeatherSummaryDTO {
+    private LocalDateTime bucketStart;
+    private int sampleCount;
+    private Double temperatureMin;
+    private Double temperatureMax;
+    private Double temperatureAvg;
+    private Double windSpeedMin;
+    private Double windSpeedMax;
+    private Double windSpeedAvg;
+    private Double cloudCoverMin;
+    private Double cloudCoverMax;
+    private Double cloudCoverAvg;
+
+    public WeatherSummaryDTO() {}
+
+    public WeatherSummaryDTO(LocalDateTime bucketStart, int sampleCount,
+                             Double temperatureMin, Double temperatureMax, Double temperatureAvg,
+                             Double windSpeedMin, Double windSpeedMax, Double windSpeedAvg,
+                             Double cloudCoverMin, Double cloudCoverMax, Double cloudCoverAvg) {
+        this.bucketStart = bucketStart;
+        this.sampleCount = sampleCount;
+        this.temperatureMin = temperatureMin;
+        this.temperatureMax = temperatureMax;
+        this.temperatureAvg = temperatureAvg;
+        this.windSpeedMin = windSpeedMin;
+        this.windSpeedMax = windSpeedMax;
+        this.windSpeedAvg = windSpeedAvg;
+        this.cloudCoverMin = cloudCoverMin;
+        this.cloudCoverMax = cloudCoverMax;
+        this.cloudCoverAvg = cloudCoverAvg;
+    }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public int getSampleCount() { return sampleCount; }
+    public void setSampleCount(int sampleCount) { this.sampleCount = sampleCount; }
+
+    public Double getTemperatureMin() { return temperatureMin; }
+    public void setTemperatureMin(Double temperatureMin) { this.temperatureMin = temperatureMin; }
+
+    public Double getTemperatureMax() { return temperatureMax; }
+    public void setTemperatureMax(Double temperatureMax) { this.temperatureMax = temperatureMax; }
+
+    public Double getTemperatureAvg() { return temperatureAvg; }
+    public void setTemperatureAvg(Double temperatureAvg) { this.temperatureAvg = temperatureAvg; }
+
+    public Double getWindSpeedMin() { return windSpeedMin; }
+    public void setWindSpeedMin(Double windSpeedMin) { this.windSpeedMin = windSpeedMin; }
+
+    public Double getWindSpeedMax() { return windSpeedMax; }
+    public void setWindSpeedMax(Double windSpeedMax) { this.windSpeedMax = windSpeedMax; }
+
+    public Double getWindSpeedAvg() { return windSpeedAvg; }
+    public void setWindSpeedAvg(Double windSpeedAvg) { this.windSpeedAvg = windSpeedAvg; }
+
+    public Double getCloudCoverMin() { return cloudCoverMin; }
+    public void setCloudCoverMin(Double cloudCoverMin) { this.cloudCoverMin = cloudCoverMin; }
+
+    public Double getCloudCoverMax() { return cloudCoverMax; }
+    public void setCloudCoverMax(Double cloudCoverMax) { this.cloudCoverMax = cloudCoverMax; }
+
+    public Double getCloudCoverAvg() { return cloudCoverAvg; }
+    public void setCloudCoverAvg(Double cloudCoverAvg) { this.cloudCoverAvg = cloudCoverAvg; }
+}
@@ -0,0 +1,35 @@
+package com.grupp3.weather.mapper;
+
+import com.grupp3.weather.dto.ApiKeyDTO;
+import com.grupp3.weather.model.ApiKey;
+import com.grupp3.weather.security.ApiKeyRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class ApiKeyMapper {
+
+    public ApiKeyDTO toDTO(ApiKey apiKey) {
+        if (apiKey == null) {
+            return null;
+        }
+
+        // Hashen exponeras aldrig utåt
+        return new ApiKeyDTO(
+            apiKey.getId(),
+            apiKey.getName(),
+            ApiKeyRegistry.parseScopes(apiKey.getScopes()),
+            apiKey.getRequestsPerMinute(),
+            apiKey.isEnabled(),
+            apiKey.getCreatedAt()
+        );
+    }
+
+    public List<ApiKeyDTO> toDTOList(List<ApiKey> apiKeys) {
+        return apiKeys.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+}
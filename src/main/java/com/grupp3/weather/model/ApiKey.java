@@ -0,0 +1,74 @@
+package com.grupp3.weather.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * ApiKey - en utdelad API-nyckel för partner-integrationer och skrivoperationer.
+ *
+ * Nyckeln lagras bara som SHA-256-hash (hex). Klartexten visas en gång när den skapas
+ * via /admin/api-keys och kan sedan inte återskapas.
+ *
+ * scopes är en kommaseparerad lista, t.ex. "places:write,forecast:update" eller "*".
+ * requestsPerMinute är nyckelns egen kvot, mätt separat från IP-baserad rate limiting.
+ */
+
+@Entity
+@Table(name = "api_keys")
+public class ApiKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name; // "partner-smhi", "internal-cron"
+
+    @Column(name = "key_hash", nullable = false, unique = true, length = 64)
+    private String keyHash;
+
+    @Column(name = "scopes", nullable = false)
+    private String scopes;
+
+    @Column(name = "requests_per_minute", nullable = false)
+    private int requestsPerMinute;
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled = true;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public ApiKey() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public ApiKey(String name, String keyHash, String scopes, int requestsPerMinute) {
+        this();
+        this.name = name;
+        this.keyHash = keyHash;
+        this.scopes = scopes;
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getKeyHash() { return keyHash; }
+    public void setKeyHash(String keyHash) { this.keyHash = keyHash; }
+
+    public String getScopes() { return scopes; }
+    public void setScopes(String scopes) { this.scopes = scopes; }
+
+    public int getRequestsPerMinute() { return requestsPerMinute; }
+    public void setRequestsPerMinute(int requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
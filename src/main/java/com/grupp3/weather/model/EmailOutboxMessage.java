@@ -0,0 +1,88 @@
+package com.grupp3.weather.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * EmailOutboxMessage - en rad i transactional outbox för verifikationsmail.
+ *
+ * Skrivs i samma databastransaktion som User och VerificationToken, så att ett
+ * registrerat konto alltid har ett mail som väntar på att skickas. EmailOutboxService
+ * läser väntande rader i batchar och publicerar dem till RabbitMQ med publisher confirms.
+ *
+ * publishedAt == null betyder att meddelandet ännu inte bekräftats av brokern.
+ * attempts/nextAttemptAt ger backoff när RabbitMQ inte är tillgängligt.
+ */
+
+@Entity
+@Table(name = "email_outbox",
+        indexes = @Index(name = "idx_email_outbox_pending", columnList = "published_at, next_attempt_at"))
+public class EmailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "verification_token")
+    private String verificationToken;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    public EmailOutboxMessage() {
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public EmailOutboxMessage(String email, String username, String verificationToken) {
+        this();
+        this.email = email;
+        this.username = username;
+        this.verificationToken = verificationToken;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getVerificationToken() { return verificationToken; }
+    public void setVerificationToken(String verificationToken) { this.verificationToken = verificationToken; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getPublishedAt() { return publishedAt; }
+    public void setPublishedAt(LocalDateTime publishedAt) { this.publishedAt = publishedAt; }
+}
@@ -2,6 +2,8 @@ package com.grupp3.weather.model;
 
 import jakarta.persistence.*;
 
+import java.util.Locale;
+
 /**
  * Place-klassen är en mall/blueprint som definierar vad varje place-objekt ska innehålla.
  *
@@ -11,8 +13,13 @@ import jakarta.persistence.*;
  */
 
 @Entity
+// Unika (lat, lon) ger också indexet som PlaceRepository:s koordinatsökning (bounding box) använder
 @Table(name = "places",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"lat", "lon"}))
+        uniqueConstraints = @UniqueConstraint(columnNames = {"lat", "lon"}),
+        indexes = {
+                @Index(name = "idx_places_name_key", columnList = "name_key"),
+                @Index(name = "idx_places_favorite_id", columnList = "is_favorite, id")  // Keyset-sidor av favoriter
+        })
 public class Place {
 
     @Id
@@ -22,6 +29,10 @@ public class Place {
     @Column(name = "display_name", nullable = false)
     private String displayName;  // Vad användaren sökte på (t.ex. "göteborg")
 
+    // Normaliserat namn (gemener) för skiftlägesokänslig sökning via index, sätts vid varje skrivning
+    @Column(name = "name_key")
+    private String nameKey;
+
     @Column(name = "lat", nullable = false)
     private double lat;
 
@@ -40,10 +51,25 @@ public class Place {
         this.lon = lon;
     }
 
+    @PrePersist
+    @PreUpdate
+    void updateNameKey() {
+        this.nameKey = nameKeyOf(displayName);
+    }
+
+    /**
+     * Nyckeln ett namn söks på - all normalisering sker här, aldrig med LOWER() i databasen
+     */
+    public static String nameKeyOf(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public String getNameKey() { return nameKey; }
+
     public String getDisplayName() { return displayName; }
     public void setDisplayName(String displayName) { this.displayName = displayName; }
 
@@ -3,16 +3,29 @@ package com.grupp3.weather.model;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+/**
+ * VerificationToken - engångstoken för email-verifiering.
+ *
+ * Själva token lagras aldrig i klartext: kolumnen "token" innehåller SHA-256-hashen
+ * (hex) och har ett unikt index, så uppslag vid verifiering är ett index-uppslag.
+ * Utgångna och använda tokens rensas i batchar av VerificationTokenService.
+ */
+
 @Entity
-@Table(name = "verification_tokens")
+@Table(name = "verification_tokens",
+        indexes = {
+                @Index(name = "idx_verification_tokens_expiry", columnList = "expiry_date"),
+                @Index(name = "idx_verification_tokens_verified", columnList = "verified_at")
+        })
 public class VerificationToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    // SHA-256 hex av token som skickas i mailet (kolumnnamnet behålls för befintliga databaser)
+    @Column(name = "token", nullable = false, unique = true, length = 64)
+    private String tokenHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -31,9 +44,9 @@ public class VerificationToken {
         this.expiryDate = LocalDateTime.now().plusHours(24);
     }
 
-    public VerificationToken(String token, User user) {
+    public VerificationToken(String tokenHash, User user) {
         this();
-        this.token = token;
+        this.tokenHash = tokenHash;
         this.user = user;
     }
 
@@ -44,8 +57,8 @@ public class VerificationToken {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
-    public String getToken() { return token; }
-    public void setToken(String token) { this.token = token; }
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
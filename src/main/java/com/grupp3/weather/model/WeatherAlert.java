@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
  *
  * 1. @Scheduled metod triggas var 30:e minut
  * 2. updateWeatherForAllPlaces() hämtar nytt väder och sparar WeatherData
- * 3. checkAlertsForAllPlaces() anropas EFTER väderuppdatering
+ * 3. checkAlerts() anropas EFTER väderuppdatering, för platser som fått en ny observation
  * 4. alertRepository.findActiveAlerts() hämtar alla aktiva alerts
  * 5. getLatestWeatherData() hämtar senaste data för varje plats
  * 6. shouldTrigger() jämför alert-regler mot faktiska värden
@@ -8,34 +8,33 @@ import java.time.LocalDateTime;
  *
  * Varje objekt är en ögonblicksbild av vädret vid en specifik tidpunkt
  * NYA objekt skapas var 30:e minut
- * Kopplas till Place via placeName string, inte databas-relation
- * Varje WeatherData-objekt har ett placeName fält som innehåller samma namn som Place-objektet:
+ * Kopplas till Place via placeId (place_id, främmande nyckel till places.id)
+ * Namn och koordinater finns bara på Place - en omdöpt plats behåller sin historik:
  *
- * Exempel: 3 WeatherData-objekt för "Stockholm" med olika tider och temperaturer:
+ * Exempel: 3 WeatherData-objekt för Stockholm (id 1) med olika tider och temperaturer:
  *
- * WeatherData kl10 = new WeatherData("Stockholm", 59.3293, 18.0686, 15.0, ...);
- * WeatherData kl1030 = new WeatherData("Stockholm", 59.3293, 18.0686, 16.0, ...);
- * WeatherData kl11 = new WeatherData("Stockholm", 59.3293, 18.0686, 14.0, ...);
+ * WeatherData kl10 = new WeatherData(1L, 15.0, ...);
+ * WeatherData kl1030 = new WeatherData(1L, 16.0, ...);
+ * WeatherData kl11 = new WeatherData(1L, 14.0, ...);
  *
  * Bygger upp historisk data för trendanalys och alert-system
+ *
+ * Nya observationer skrivs i batchar av WeatherDataWriteBuffer, inte med save() per rad.
  */
 
 @Entity
 @Table(name = "weather_data")
 public class WeatherData {
 
+    // Sekvens istället för IDENTITY så att inserts kan batchas - id delas ut i block om 50 (pooled-lo)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_seq")
+    @SequenceGenerator(name = "weather_data_seq", sequenceName = "weather_data_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "place_name", nullable = false)
-    private String placeName;
-
-    @Column(name = "latitude", nullable = false)
-    private Double latitude;
-
-    @Column(name = "longitude", nullable = false)
-    private Double longitude;
+    // NOT NULL och främmande nyckel sätts av PlaceReferenceMigration
+    @Column(name = "place_id")
+    private Long placeId;
 
     @Column(name = "temperature")
     private Double temperature;
@@ -60,13 +59,10 @@ public class WeatherData {
         this.createdAt = LocalDateTime.now();
     }
 
-    public WeatherData(String placeName, Double latitude, Double longitude,
-                       Double temperature, Integer cloudCover, Double windSpeed,
+    public WeatherData(Long placeId, Double temperature, Integer cloudCover, Double windSpeed,
                        LocalDateTime observationTime) {
         this();
-        this.placeName = placeName;
-        this.latitude = latitude;
-        this.longitude = longitude;
+        this.placeId = placeId;
         this.temperature = temperature;
         this.cloudCover = cloudCover;
         this.windSpeed = windSpeed;
@@ -77,14 +73,8 @@ public class WeatherData {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
-    public String getPlaceName() { return placeName; }
-    public void setPlaceName(String placeName) { this.placeName = placeName; }
-
-    public Double getLatitude() { return latitude; }
-    public void setLatitude(Double latitude) { this.latitude = latitude; }
-
-    public Double getLongitude() { return longitude; }
-    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public Long getPlaceId() { return placeId; }
+    public void setPlaceId(Long placeId) { this.placeId = placeId; }
 
     public Double getTemperature() { return temperature; }
     public void setTemperature(Double temperature) { this.temperature = temperature; }
@@ -11,26 +11,22 @@ import java.time.LocalDateTime;
  * Skiljer sig från WeatherData: datum istället för exakt tid, max/min värden istället för ögonblick
  *
  * Skapas när systemet hämtar 7-dagars prognos från Open-Meteo API
- * Kopplas till Place via placeName string, precis som WeatherData
+ * Kopplas till Place via placeId (place_id, främmande nyckel till places.id), precis som WeatherData
  * Används för endpoints som /forecast/{place} för att visa kommande väder
  */
 
 @Entity
-@Table(name = "weather_forecast")
+@Table(name = "weather_forecast",
+        indexes = @Index(name = "idx_weather_forecast_place_date", columnList = "place_id, forecast_date"))
 public class WeatherForecast {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "place_name", nullable = false)
-    private String placeName;
-
-    @Column(name = "latitude", nullable = false)
-    private Double latitude;
-
-    @Column(name = "longitude", nullable = false)
-    private Double longitude;
+    // NOT NULL och främmande nyckel sätts av PlaceReferenceMigration
+    @Column(name = "place_id")
+    private Long placeId;
 
     @Column(name = "forecast_date", nullable = false)
     private LocalDate forecastDate;
@@ -61,12 +57,9 @@ public class WeatherForecast {
         this.createdAt = LocalDateTime.now();
     }
 
-    public WeatherForecast(String placeName, Double latitude, Double longitude,
-                           LocalDate forecastDate) {
+    public WeatherForecast(Long placeId, LocalDate forecastDate) {
         this();
-        this.placeName = placeName;
-        this.latitude = latitude;
-        this.longitude = longitude;
+        this.placeId = placeId;
         this.forecastDate = forecastDate;
     }
 
@@ -74,14 +67,8 @@ public class WeatherForecast {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
-    public String getPlaceName() { return placeName; }
-    public void setPlaceName(String placeName) { this.placeName = placeName; }
-
-    public Double getLatitude() { return latitude; }
-    public void setLatitude(Double latitude) { this.latitude = latitude; }
-
-    public Double getLongitude() { return longitude; }
-    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public Long getPlaceId() { return placeId; }
+    public void setPlaceId(Long placeId) { this.placeId = placeId; }
 
     public LocalDate getForecastDate() { return forecastDate; }
     public void setForecastDate(LocalDate forecastDate) { this.forecastDate = forecastDate; }
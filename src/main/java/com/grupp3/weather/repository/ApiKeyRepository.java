@@ -0,0 +1,14 @@
+package com.grupp3.weather.repository;
+
+import com.grupp3.weather.model.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
+
+    // Alla aktiva nycklar, laddas in i ApiKeyRegistry
+    List<ApiKey> findByEnabledTrue();
+}
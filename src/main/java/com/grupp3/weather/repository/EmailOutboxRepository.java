@@ -0,0 +1,54 @@
+package com.grupp3.weather.repository;
+
+import com.grupp3.weather.model.EmailOutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * EmailOutboxRepository - kö-läsare för email_outbox tabellen.
+ *
+ * lockPendingBatch() använder SELECT ... FOR UPDATE SKIP LOCKED (lock timeout -2)
+ * så att flera noder kan köra relän samtidigt utan att skicka samma mail två gånger.
+ */
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Hämta och lås nästa batch av opublicerade meddelanden som är redo att skickas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM EmailOutboxMessage m WHERE m.publishedAt IS NULL " +
+            "AND m.nextAttemptAt <= :now AND m.attempts < :maxAttempts ORDER BY m.id")
+    List<EmailOutboxMessage> lockPendingBatch(@Param("now") LocalDateTime now,
+                                              @Param("maxAttempts") int maxAttempts,
+                                              Pageable pageable);
+
+    // Antal meddelanden som väntar på publicering (för loggning/diagnostik)
+    @Query("SELECT COUNT(m) FROM EmailOutboxMessage m WHERE m.publishedAt IS NULL")
+    long countPending();
+
+    // Ta bort publicerade meddelanden äldre än cutoff
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.publishedAt IS NOT NULL AND m.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Ta bort meddelanden som gett upp (maxAttempts nått) och inte försökts sedan cutoff
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.publishedAt IS NULL " +
+            "AND m.attempts >= :maxAttempts AND m.nextAttemptAt < :cutoff")
+    int deleteAbandonedBefore(@Param("maxAttempts") int maxAttempts, @Param("cutoff") LocalDateTime cutoff);
+}
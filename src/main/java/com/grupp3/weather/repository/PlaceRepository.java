@@ -1,7 +1,9 @@
 package com.grupp3.weather.repository;
 
 import com.grupp3.weather.model.Place;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,6 +22,17 @@ import java.util.Optional;
  * - existsByNameIgnoreCase(): Validering innan API-anrop för att hålla nere API anrop
  * - findFavorites(): Hämtar platser för schemalagda väderuppdateringar
  * - deleteByNameIgnoreCase(): Admin-cleanup av oanvända platser
+ * - findByCoordinates(), existsByCoordinates(), deleteByCoordinates(): Plats inom ±0.001° från en punkt
+ * - findPageAfter(), findFavoritesPageAfter(): Keyset-sidor i id-ordning (söker i index, ingen OFFSET)
+ *
+ * Koordinatsökningen är en bounding box (lat och lon inom intervall) istället för ABS(p.lat - :lat),
+ * så att index på (lat, lon) - från unika constrainten på Place - kan användas: range scan på lat,
+ * lon filtreras i indexet. O(log n) även med miljontals platser istället för full tabellskanning.
+ *
+ * Namnsökningen jämför name_key (displayName i gemener, sätts av Place vid varje skrivning) mot
+ * Place.nameKeyOf(namn), normaliserat i Java - inte LOWER(), som beror på databasens LC_CTYPE
+ * (under C-locale lämnas Å, Ä och Ö orörda). Kolumnen står orörd, så indexet idx_places_name_key
+ * används. Heta anrop går inte hit alls - se PlaceNameRegistry.
  *
  * Spring genererar SQL automatiskt från metodnamn och @Query annotations.
  */
@@ -28,33 +41,73 @@ import java.util.Optional;
 @Repository
 public interface PlaceRepository extends JpaRepository<Place, Long> {
 
-    // Hitta plats efter koordinater (huvudsättet nu)
-    @Query("SELECT p FROM Place p WHERE ABS(p.lat - :lat) < 0.001 AND ABS(p.lon - :lon) < 0.001")
+    // Kolumnerna står ensamma på ena sidan - gränserna räknas ut på parametrarna, inte per rad
+    String COORDINATE_BOX = "p.lat > :lat - 0.001 AND p.lat < :lat + 0.001 " +
+            "AND p.lon > :lon - 0.001 AND p.lon < :lon + 0.001";
+
+    // Hitta plats efter koordinater (huvudsättet nu) - närmast punkten om flera ligger i rutan
+    @Query("SELECT p FROM Place p WHERE " + COORDINATE_BOX +
+            " ORDER BY ABS(p.lat - :lat) + ABS(p.lon - :lon) LIMIT 1")
     Optional<Place> findByCoordinates(@Param("lat") double lat, @Param("lon") double lon);
 
     // Kolla om plats finns efter koordinater
-    @Query("SELECT COUNT(p) > 0 FROM Place p WHERE ABS(p.lat - :lat) < 0.001 AND ABS(p.lon - :lon) < 0.001")
+    @Query("SELECT COUNT(p) > 0 FROM Place p WHERE " + COORDINATE_BOX)
     boolean existsByCoordinates(@Param("lat") double lat, @Param("lon") double lon);
 
+    // Id för platserna i rutan - så att raderingen kan meddelas (PlaceChangedEvent)
+    @Query("SELECT p.id FROM Place p WHERE " + COORDINATE_BOX)
+    List<Long> findIdsByCoordinates(@Param("lat") double lat, @Param("lon") double lon);
+
     // Ta bort plats efter koordinater
-    @Query("DELETE FROM Place p WHERE ABS(p.lat - :lat) < 0.001 AND ABS(p.lon - :lon) < 0.001")
-    void deleteByCoordinates(@Param("lat") double lat, @Param("lon") double lon);
+    @Modifying
+    @Query("DELETE FROM Place p WHERE " + COORDINATE_BOX)
+    int deleteByCoordinates(@Param("lat") double lat, @Param("lon") double lon);
 
     // Hitta alla favoritplatser
     @Query("SELECT p FROM Place p WHERE p.favorite = true")
     List<Place> findFavorites();
 
+    // Nästa sida platser efter ett id - primärnyckeln ger sökningen
+    @Query("SELECT p FROM Place p WHERE p.id > :afterId ORDER BY p.id")
+    List<Place> findPageAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Nästa sida favoriter efter ett id - idx_places_favorite_id ger sökningen
+    @Query("SELECT p FROM Place p WHERE p.favorite = true AND p.id > :afterId ORDER BY p.id")
+    List<Place> findFavoritesPageAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Sökning på normaliserad nyckel - anropa via metoderna nedan, som normaliserar namnet
+    @Query("SELECT p FROM Place p WHERE p.nameKey = :nameKey")
+    Optional<Place> findByNameKey(@Param("nameKey") String nameKey);
+
+    @Query("SELECT COUNT(p) > 0 FROM Place p WHERE p.nameKey = :nameKey")
+    boolean existsByNameKey(@Param("nameKey") String nameKey);
+
+    @Query("SELECT p.id FROM Place p WHERE p.nameKey = :nameKey")
+    List<Long> findIdsByNameKey(@Param("nameKey") String nameKey);
+
+    @Modifying
+    @Query("DELETE FROM Place p WHERE p.nameKey = :nameKey")
+    void deleteByNameKey(@Param("nameKey") String nameKey);
+
     // Bakåtkompatibilitet - hitta efter displayName (för befintliga platser)
-    @Query("SELECT p FROM Place p WHERE LOWER(p.displayName) = LOWER(:name)")
-    Optional<Place> findByDisplayName(@Param("name") String name);
+    default Optional<Place> findByDisplayName(String name) {
+        return findByNameKey(Place.nameKeyOf(name));
+    }
 
     // Bakåtkompatibilitet, för befintlig kod som använder namn
-    @Query("SELECT p FROM Place p WHERE LOWER(p.displayName) = LOWER(:name)")
-    Optional<Place> findByNameIgnoreCase(@Param("name") String name);
+    default Optional<Place> findByNameIgnoreCase(String name) {
+        return findByNameKey(Place.nameKeyOf(name));
+    }
+
+    default boolean existsByNameIgnoreCase(String name) {
+        return existsByNameKey(Place.nameKeyOf(name));
+    }
 
-    @Query("SELECT COUNT(p) > 0 FROM Place p WHERE LOWER(p.displayName) = LOWER(:name)")
-    boolean existsByNameIgnoreCase(@Param("name") String name);
+    default List<Long> findIdsByNameIgnoreCase(String name) {
+        return findIdsByNameKey(Place.nameKeyOf(name));
+    }
 
-    @Query("DELETE FROM Place p WHERE LOWER(p.displayName) = LOWER(:name)")
-    void deleteByNameIgnoreCase(@Param("name") String name);
+    default void deleteByNameIgnoreCase(String name) {
+        deleteByNameKey(Place.nameKeyOf(name));
+    }
 }
\ No newline at end of file
@@ -2,11 +2,29 @@ package com.grupp3.weather.repository;
 
 import com.grupp3.weather.model.VerificationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
-    Optional<VerificationToken> findByToken(String token);
+
+    // Uppslag på hashad token (unikt index)
+    Optional<VerificationToken> findByTokenHash(String tokenHash);
+
+    // Ta bort max batchSize utgångna eller sedan länge verifierade tokens, egen transaktion per batch
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM verification_tokens WHERE id IN (" +
+            "SELECT id FROM verification_tokens " +
+            "WHERE expiry_date < :now OR verified_at < :verifiedBefore " +
+            "LIMIT :batchSize)", nativeQuery = true)
+    int deleteStaleBatch(@Param("now") LocalDateTime now,
+                         @Param("verifiedBefore") LocalDateTime verifiedBefore,
+                         @Param("batchSize") int batchSize);
 }
@@ -1,6 +1,7 @@
 package com.grupp3.weather.repository;
 
 import com.grupp3.weather.model.WeatherAlert;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,6 +23,7 @@ import java.util.Optional;
  *
  * Används av ScheduledWeatherService för att hitta "vilka regler ska kollas just nu"
  * och av admin-controllers för hantering med prioritetsordning.
+ * Admin-listan hämtas i keyset-sidor på id (findPageAfter) istället för hela tabellen.
  */
 
 @Repository
@@ -69,6 +71,10 @@ public interface WeatherAlertRepository extends JpaRepository<WeatherAlert, Long
     @Query("SELECT w FROM WeatherAlert w ORDER BY w.active DESC, w.createdAt DESC")
     List<WeatherAlert> findAllOrderedForAdmin();
 
+    // Nästa sida alerts efter ett id (admin-listan)
+    @Query("SELECT w FROM WeatherAlert w WHERE w.id > :afterId ORDER BY w.id")
+    List<WeatherAlert> findPageAfter(@Param("afterId") long afterId, Limit limit);
+
     // Räkna antal aktiva alerts per typ
     @Query("SELECT w.alertType, COUNT(w) FROM WeatherAlert w WHERE w.active = true GROUP BY w.alertType")
     List<Object[]> countActiveAlertsByType();
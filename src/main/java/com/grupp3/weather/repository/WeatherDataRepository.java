@@ -1,14 +1,20 @@
 package com.grupp3.weather.repository;
 
 import com.grupp3.weather.model.WeatherData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * WeatherDataRepository - tidsbaserad databas-extraktor för växande väderhistorik.
@@ -17,36 +23,72 @@ import java.util.Optional;
  * Interface hjälper extrahera rätt information från tusentals historiska poster.
  *
  * Samma data används för både:
- * - Aktuell alert-kontroll: findLatestByPlaceName() hämtar senaste för regelkontroll
- * - Historisk analys: findByPlaceNameAndObservationTimeBetween() för trendrapporter
+ * - Aktuell alert-kontroll: findLatestByPlaceId() hämtar senaste för regelkontroll
+ * - Historisk analys: findByPlaceIdAndObservationTimeBetween() för trendrapporter
+ * - Bläddring: findPageBefore() - keyset-sidor nyast först, nästa sida börjar före sista observation_time
+ * - Export: streamForExport() - rader läses med en server-side cursor (fetch size), inte allt i minnet.
+ *   Strömmen måste läsas i en read-only transaktion (pgjdbc följer fetch size bara utan autocommit)
  *
  * Tidsbaserade queries optimerade för växande datamassa:
+ * Alla filtrerar på place_id (BIGINT) och observation_time - samma kolumner som det unika indexet.
+ *
+ * En observation per plats och observation_time (unikt index). Nya rader skrivs av
+ * WeatherDataWriteBuffer i JDBC-batchar med ON CONFLICT DO NOTHING, inte via repositoryt.
  */
 
 @Repository
 public interface WeatherDataRepository extends JpaRepository<WeatherData, Long> {
 
+    // Rader per rundresa till databasen när en export-ström läses
+    String EXPORT_FETCH_SIZE = "1000";
+
     // Hitta senaste väderdata för en plats
-    @Query("SELECT w FROM WeatherData w WHERE w.placeName = :placeName ORDER BY w.observationTime DESC")
-    List<WeatherData> findByPlaceNameOrderByObservationTimeDesc(@Param("placeName") String placeName);
+    @Query("SELECT w FROM WeatherData w WHERE w.placeId = :placeId ORDER BY w.observationTime DESC")
+    List<WeatherData> findByPlaceIdOrderByObservationTimeDesc(@Param("placeId") Long placeId);
 
     // Hitta senaste väderdata för en plats (bara den första)
-    @Query("SELECT w FROM WeatherData w WHERE w.placeName = :placeName ORDER BY w.observationTime DESC LIMIT 1")
-    Optional<WeatherData> findLatestByPlaceName(@Param("placeName") String placeName);
+    @Query("SELECT w FROM WeatherData w WHERE w.placeId = :placeId ORDER BY w.observationTime DESC LIMIT 1")
+    Optional<WeatherData> findLatestByPlaceId(@Param("placeId") Long placeId);
 
     // Hitta väderdata inom ett tidsintervall, nyast först
-    @Query("SELECT w FROM WeatherData w WHERE w.placeName = :placeName AND w.observationTime BETWEEN :start AND :end ORDER BY w.observationTime DESC")
-    List<WeatherData> findByPlaceNameAndObservationTimeBetween(
-            @Param("placeName") String placeName,
+    @Query("SELECT w FROM WeatherData w WHERE w.placeId = :placeId AND w.observationTime BETWEEN :start AND :end ORDER BY w.observationTime DESC")
+    List<WeatherData> findByPlaceIdAndObservationTimeBetween(
+            @Param("placeId") Long placeId,
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end
     );
 
+    // Nästa sida observationer (nyast först) före en tidpunkt - söker i unika indexet (place_id, observation_time)
+    @Query("SELECT w FROM WeatherData w WHERE w.placeId = :placeId AND w.observationTime >= :from " +
+            "AND w.observationTime < :before ORDER BY w.observationTime DESC")
+    List<WeatherData> findPageBefore(
+            @Param("placeId") Long placeId,
+            @Param("from") LocalDateTime from,
+            @Param("before") LocalDateTime before,
+            Limit limit
+    );
+
+    // Alla observationer för platserna i intervallet [from, to), per plats och äldst först
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w FROM WeatherData w WHERE w.placeId IN :placeIds AND w.observationTime >= :from " +
+            "AND w.observationTime < :to ORDER BY w.placeId, w.observationTime")
+    Stream<WeatherData> streamForExport(
+            @Param("placeIds") Collection<Long> placeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
     // Hitta all data från senaste X timmarna
     @Query("SELECT w FROM WeatherData w WHERE w.observationTime >= :since ORDER BY w.observationTime DESC")
     List<WeatherData> findRecentData(@Param("since") LocalDateTime since);
 
-    // Hitta alla unika platsnamn
-    @Query("SELECT DISTINCT w.placeName FROM WeatherData w")
-    List<String> findDistinctPlaceNames();
+    // Hitta alla platser som har väderdata
+    @Query("SELECT DISTINCT w.placeId FROM WeatherData w")
+    List<Long> findDistinctPlaceIds();
+
+    // Har någon av platserna historik - då får de inte raderas (ON DELETE RESTRICT)
+    boolean existsByPlaceIdIn(Collection<Long> placeIds);
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,10 +18,12 @@ import java.util.Optional;
  * Prognoser är per dag och byts ut när nya hämtas, till skillnad från WeatherData som samlas historiskt.
  *
  * Huvudanvändning:
- * - findByPlaceNameAndForecastDate(): Specifik dag ("Hur blir fredagen?")
+ * - findByPlaceIdAndForecastDate(): Specifik dag ("Hur blir fredagen?")
  * - findForecastsForNextDays(): X-dagars prognos framåt i kronologisk ordning
  * - deleteOldForecasts(): Rensning av gårdagens prognoser (ej historisk data)
  *
+ * Filtrerar på place_id (BIGINT) - index (place_id, forecast_date) på WeatherForecast.
+ *
  * Används av ForecastController och ScheduledWeatherService för att visa/uppdatera
  * 7-dagars prognoser från Open-Meteo API.
  */
@@ -29,36 +32,39 @@ import java.util.Optional;
 public interface WeatherForecastRepository extends JpaRepository<WeatherForecast, Long> {
 
     // Hitta prognoser för en plats sorterat på datum
-    @Query("SELECT w FROM WeatherForecast w WHERE w.placeName = :placeName ORDER BY w.forecastDate ASC")
-    List<WeatherForecast> findByPlaceNameOrderByForecastDate(@Param("placeName") String placeName);
+    @Query("SELECT w FROM WeatherForecast w WHERE w.placeId = :placeId ORDER BY w.forecastDate ASC")
+    List<WeatherForecast> findByPlaceIdOrderByForecastDate(@Param("placeId") Long placeId);
 
     // Hitta prognos för specifik plats och datum
-    @Query("SELECT w FROM WeatherForecast w WHERE w.placeName = :placeName AND w.forecastDate = :date")
-    Optional<WeatherForecast> findByPlaceNameAndForecastDate(@Param("placeName") String placeName,
-                                                             @Param("date") LocalDate date);
+    @Query("SELECT w FROM WeatherForecast w WHERE w.placeId = :placeId AND w.forecastDate = :date")
+    Optional<WeatherForecast> findByPlaceIdAndForecastDate(@Param("placeId") Long placeId,
+                                                           @Param("date") LocalDate date);
 
     // Hitta prognoser inom ett datumintervall
-    @Query("SELECT w FROM WeatherForecast w WHERE w.placeName = :placeName AND w.forecastDate BETWEEN :startDate AND :endDate ORDER BY w.forecastDate ASC")
-    List<WeatherForecast> findByPlaceNameAndForecastDateBetween(@Param("placeName") String placeName,
-                                                                @Param("startDate") LocalDate startDate,
-                                                                @Param("endDate") LocalDate endDate);
+    @Query("SELECT w FROM WeatherForecast w WHERE w.placeId = :placeId AND w.forecastDate BETWEEN :startDate AND :endDate ORDER BY w.forecastDate ASC")
+    List<WeatherForecast> findByPlaceIdAndForecastDateBetween(@Param("placeId") Long placeId,
+                                                              @Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate);
 
     // Ta bort gamla prognoser (äldre än idag)
     @Query("DELETE FROM WeatherForecast w WHERE w.forecastDate < :today")
     void deleteOldForecasts(@Param("today") LocalDate today);
 
-    // Hitta alla unika platsnamn som har prognoser
-    @Query("SELECT DISTINCT w.placeName FROM WeatherForecast w")
-    List<String> findDistinctPlaceNames();
+    // Hitta alla platser som har prognoser
+    @Query("SELECT DISTINCT w.placeId FROM WeatherForecast w")
+    List<Long> findDistinctPlaceIds();
+
+    // Har någon av platserna prognoser - då får de inte raderas (ON DELETE RESTRICT)
+    boolean existsByPlaceIdIn(Collection<Long> placeIds);
 
     // Hitta framtida prognoser för en plats (från idag och framåt)
-    @Query("SELECT w FROM WeatherForecast w WHERE w.placeName = :placeName AND w.forecastDate >= :today ORDER BY w.forecastDate ASC")
-    List<WeatherForecast> findFutureForecasts(@Param("placeName") String placeName,
+    @Query("SELECT w FROM WeatherForecast w WHERE w.placeId = :placeId AND w.forecastDate >= :today ORDER BY w.forecastDate ASC")
+    List<WeatherForecast> findFutureForecasts(@Param("placeId") Long placeId,
                                               @Param("today") LocalDate today);
 
     // Hitta prognoser för kommande X dagar
-    @Query("SELECT w FROM WeatherForecast w WHERE w.placeName = :placeName AND w.forecastDate BETWEEN :today AND :endDate ORDER BY w.forecastDate ASC")
-    List<WeatherForecast> findForecastsForNextDays(@Param("placeName") String placeName,
+    @Query("SELECT w FROM WeatherForecast w WHERE w.placeId = :placeId AND w.forecastDate BETWEEN :today AND :endDate ORDER BY w.forecastDate ASC")
+    List<WeatherForecast> findForecastsForNextDays(@Param("placeId") Long placeId,
                                                    @Param("today") LocalDate today,
                                                    @Param("endDate") LocalDate endDate);
 }
\ No newline at end of file
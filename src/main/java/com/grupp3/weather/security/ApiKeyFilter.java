@@ -1,7 +1,6 @@
 package com.grupp3.weather.security;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpMethod;
+import com.grupp3.weather.service.RateLimitingService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -10,6 +9,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * ApiKeyFilter - autentisering-portier för admin-endpoints och skrivoperationer.
@@ -17,39 +17,59 @@ import java.io.IOException;
  * Huvudfunktion:
  * - doFilterInternal(): Kontrollera om request kräver API-key och validera X-API-KEY header
  *
- * Säkerhetsregler implementerar:
- * - Öppen läsning: Alla GET requests tillåts utan API-key (bara hämta data)
- * - Skyddad skrivning: POST/PUT/DELETE kräver API-key (ändra systemet)
+ * Säkerhetsregler kommer från RoutePolicyTable (app.routes.rules), som standard:
+ * - Öppen läsning: GET/HEAD/OPTIONS tillåts utan API-key (bara hämta data)
+ * - Skyddad skrivning: POST/PUT/DELETE kräver API-key med regelns scope (ändra systemet)
  * - Auth-undantag: /api/auth/* endpoints tillåts utan API-key (registrering/login)
  * - Användarundantag: /favorites/* endpoints tillåts för vanliga användare
+ *
+ * Nycklar slås upp i ApiKeyRegistry (hashade, O(1)). Varje nyckel har egna scopes
+ * och en egen kvot per minut: fel scope ger 403, slut på kvot ger 429.
  */
 
 @Component
 public class ApiKeyFilter extends OncePerRequestFilter {
 
-    @Value("${app.api-key}")
-    private String expected;
+    private final ApiKeyRegistry apiKeyRegistry;
+    private final RateLimitingService rateLimitingService;
+    private final RoutePolicyTable routePolicyTable;
+
+    public ApiKeyFilter(ApiKeyRegistry apiKeyRegistry,
+                        RateLimitingService rateLimitingService,
+                        RoutePolicyTable routePolicyTable) {
+        this.apiKeyRegistry = apiKeyRegistry;
+        this.rateLimitingService = rateLimitingService;
+        this.routePolicyTable = routePolicyTable;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest req,
                                     HttpServletResponse res,
                                     FilterChain chain) throws ServletException, IOException {
 
-        String path = req.getRequestURI();
-        boolean isWrite = !HttpMethod.GET.matches(req.getMethod());
-        boolean isFavoritesEndpoint = path.startsWith("/favorites");
-        boolean isAuthEndpoint = path.startsWith("/api/auth");
-
-        // Tillåt utan API-key:
-        // - GET requests (läsning)
-        // - /favorites endpoints (användare)
-        // - /api/auth endpoints (registrering/login)
-        if (isWrite && !isFavoritesEndpoint && !isAuthEndpoint) {
-            String provided = req.getHeader("X-API-KEY");
-            if (provided == null || !provided.equals(expected)) {
+        RoutePolicy policy = routePolicyTable.resolve(req);
+
+        // Policyn säger om path + metod kräver API-key, och i så fall vilket scope
+        if (policy.requiresApiKey()) {
+            Optional<ApiKeyRegistry.ApiKeyEntry> apiKey = apiKeyRegistry.lookup(req.getHeader("X-API-KEY"));
+            if (apiKey.isEmpty()) {
                 res.setStatus(HttpServletResponse.SC_UNAUTHORIZED); // 401
                 return;
             }
+
+            ApiKeyRegistry.ApiKeyEntry entry = apiKey.get();
+            if (!entry.hasScope(policy.apiKeyScope())) {
+                res.setStatus(HttpServletResponse.SC_FORBIDDEN); // 403
+                return;
+            }
+
+            if (!rateLimitingService.isAllowedForApiKey(entry.id(), entry.requestsPerMinute())) {
+                res.setStatus(429); // Too Many Requests
+                return;
+            }
+
+            // Gör nyckeln tillgänglig för controllers (loggning/mätning per partner)
+            req.setAttribute(ApiKeyRegistry.REQUEST_ATTRIBUTE, entry);
         }
 
         chain.doFilter(req, res);
@@ -0,0 +1,145 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.model.ApiKey;
+import com.grupp3.weather.repository.ApiKeyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * ApiKeyRegistry - in-memory register över giltiga API-nycklar.
+ *
+ * Skiljer sig från ApiKeyRepository genom att aldrig gå till databasen per request:
+ * alla aktiva nycklar laddas i en oföränderlig map som byts ut atomärt vid reload.
+ *
+ * Huvudfunktioner:
+ * - lookup(String providedKey): Hasha nyckeln → O(1) uppslag på hash-prefix → konstanttidsjämförelse
+ * - reload(): Läs om api_keys från databasen utan omstart (schemalagt + via admin-endpoint)
+ *
+ * Uppslag implementerar:
+ * - Map-nyckel: första 8 bytes av SHA-256 som long (ingen sträng-hashning av hemligheten)
+ * - Jämförelse: MessageDigest.isEqual på hela hashen, läcker inte timing
+ * - Legacy-nyckel: app.api-key registreras som "default" med scope "*" för bakåtkompatibilitet
+ */
+
+@Component
+public class ApiKeyRegistry {
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyRegistry.class);
+
+    public static final String REQUEST_ATTRIBUTE = ApiKeyRegistry.class.getName() + ".KEY";
+    public static final String WILDCARD_SCOPE = "*";
+
+    private static final long LEGACY_KEY_ID = 0L;
+
+    private final ApiKeyRepository apiKeyRepository;
+
+    @Value("${app.api-key:}")
+    private String legacyApiKey;
+
+    @Value("${app.api-keys.default-requests-per-minute:60}")
+    private int legacyRequestsPerMinute;
+
+    private volatile Map<Long, ApiKeyEntry> entriesByPrefix = Map.of();
+
+    public ApiKeyRegistry(ApiKeyRepository apiKeyRepository) {
+        this.apiKeyRepository = apiKeyRepository;
+    }
+
+    /**
+     * En laddad nyckel - ingen klartext, bara hash, scopes och kvot
+     */
+    public record ApiKeyEntry(long id, String name, byte[] hash, Set<String> scopes, int requestsPerMinute) {
+
+        public boolean hasScope(String scope) {
+            return scope == null || scopes.contains(WILDCARD_SCOPE) || scopes.contains(scope);
+        }
+    }
+
+    /**
+     * Slå upp en nyckel från X-API-KEY headern
+     */
+    public Optional<ApiKeyEntry> lookup(String providedKey) {
+        if (providedKey == null || providedKey.isEmpty()) {
+            return Optional.empty();
+        }
+
+        byte[] hash = TokenHasher.sha256(providedKey);
+        ApiKeyEntry entry = entriesByPrefix.get(prefixOf(hash));
+
+        if (entry != null && MessageDigest.isEqual(entry.hash(), hash)) {
+            return Optional.of(entry);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Ladda om alla aktiva nycklar från databasen
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.api-keys.reload-interval-ms:60000}",
+            initialDelayString = "${app.api-keys.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            Map<Long, ApiKeyEntry> loaded = new HashMap<>();
+
+            if (legacyApiKey != null && !legacyApiKey.isEmpty()) {
+                register(loaded, new ApiKeyEntry(LEGACY_KEY_ID, "default",
+                        TokenHasher.sha256(legacyApiKey), Set.of(WILDCARD_SCOPE), legacyRequestsPerMinute));
+            }
+
+            for (ApiKey apiKey : apiKeyRepository.findByEnabledTrue()) {
+                register(loaded, new ApiKeyEntry(apiKey.getId(), apiKey.getName(),
+                        HexFormat.of().parseHex(apiKey.getKeyHash()),
+                        parseScopes(apiKey.getScopes()), apiKey.getRequestsPerMinute()));
+            }
+
+            entriesByPrefix = Map.copyOf(loaded);
+            log.debug("Loaded {} API keys", loaded.size());
+        } catch (Exception e) {
+            // Behåll senast laddade nycklar hellre än att låsa ute alla
+            log.error("Failed to reload API keys, keeping previous set: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return entriesByPrefix.size();
+    }
+
+    /**
+     * "a, b ,c" → {"a","b","c"}
+     */
+    public static Set<String> parseScopes(String scopes) {
+        if (scopes == null || scopes.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(scopes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private void register(Map<Long, ApiKeyEntry> target, ApiKeyEntry entry) {
+        ApiKeyEntry previous = target.putIfAbsent(prefixOf(entry.hash()), entry);
+        if (previous != null) {
+            // 64-bitars kollision är i praktiken omöjlig, men tappa aldrig en nyckel tyst
+            log.warn("API key '{}' shares hash prefix with '{}', ignoring it", entry.name(), previous.name());
+        }
+    }
+
+    private static long prefixOf(byte[] hash) {
+        return ByteBuffer.wrap(hash, 0, Long.BYTES).getLong();
+    }
+}
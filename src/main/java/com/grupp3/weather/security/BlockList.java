@@ -0,0 +1,242 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.service.BucketStore;
+import com.grupp3.weather.service.RateLimitingService;
+import com.grupp3.weather.service.TimingWheel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BlockList - tillfälliga IP-blockeringar med utgång via tidshjul och spridning till alla noder.
+ *
+ * Ersätter DDoSProtectionFilters egen blockeringstabell, där en blockering bara togs bort
+ * när samma IP kom tillbaka.
+ *
+ * Huvudfunktioner:
+ * - block(long clientKey, long durationMs, String reason): Blockera lokalt och publicera till andra noder
+ * - unblock(long clientKey): Häv blockering lokalt och på andra noder
+ * - isBlocked(long clientKey) / remainingMs(long clientKey): Uppslag på hot path, inga lås utöver store-segmentet
+ * - list(int limit): Aktuella blockeringar med utgångstid för admin-API:t (listan är liten, max 16 384)
+ * - expireBlocks(): Stega tidshjulet varje sekund - bara poster vars deadline passerats berörs
+ *
+ * Utgång:
+ * - Varje blockering läggs i ett TimingWheel; en tick kostar O(utgångna), inte O(alla blockerade)
+ * - En förlängd blockering ligger kvar i hjulet med gammal deadline - handlern jämför mot
+ *   postens aktuella expiresAt och tar bara bort den som verkligen gått ut
+ * - När blockeringen tas bort nollställs klientens överträdelser i RateLimitingService
+ *
+ * Spridning (app.rate-limit.mode=REDIS): blockeringar publiceras på Redis-kanalen
+ * app.block-list.channel och tas emot av alla noders RedisMessageListenerContainer.
+ * Meddelanden bär varaktighet, inte absolut tid, så klockskillnad mellan noder spelar ingen roll.
+ * Format: "BLOCK <nyckel hex> <durationMs> <nodeId> <orsak>" och "UNBLOCK <nyckel hex> <nodeId>".
+ * Om Redis inte svarar gäller blockeringen fortfarande lokalt.
+ */
+
+@Component
+public class BlockList implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockList.class);
+
+    // === BLOCK LIST CONFIGURATION ===
+    private static final long TICK_MS = 1000;               // Blockeringar hävs inom en sekund efter utgång
+    private static final int MAX_BLOCKED_CLIENTS = 16_384;
+    private static final long NO_IDLE_TIMEOUT = Long.MAX_VALUE / 2; // Utgång styrs av tidshjulet, inte idle-sweep
+    private static final int ESTIMATED_ENTRY_BYTES = 48;
+
+    private static final String BLOCK = "BLOCK";
+    private static final String UNBLOCK = "UNBLOCK";
+
+    private final BucketStore<BlockEntry> blocked;
+    private final TimingWheel wheel;
+    private final RateLimitingService rateLimitingService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean distributed;
+    private final String nodeId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final LongAdder blocksIssued = new LongAdder();
+
+    @Value("${app.block-list.channel:weather:blocks}")
+    private String channel;
+
+    public BlockList(RateLimitingService rateLimitingService,
+                     RedisTemplate<String, String> redisTemplate,
+                     RateLimitProperties rateLimitProperties,
+                     MeterRegistry meterRegistry) {
+        this.rateLimitingService = rateLimitingService;
+        this.redisTemplate = redisTemplate;
+        this.distributed = rateLimitProperties.getMode() == RateLimitProperties.Mode.REDIS;
+        this.blocked = new BucketStore<>(MAX_BLOCKED_CLIENTS, NO_IDLE_TIMEOUT, ESTIMATED_ENTRY_BYTES);
+        this.wheel = new TimingWheel(TICK_MS, System.currentTimeMillis());
+        blocked.registerMetrics(meterRegistry, "blocks");
+    }
+
+    /**
+     * Blockera klienten i durationMs och publicera blockeringen till övriga noder
+     */
+    public void block(long clientKey, long durationMs, String reason) {
+        blockLocally(clientKey, durationMs, reason);
+        log.warn("Blocked {} for {} s: {}", ClientKeys.format(clientKey), durationMs / 1000, reason);
+        publish(BLOCK + " " + Long.toHexString(clientKey) + " " + durationMs + " " + nodeId + " " + reason);
+    }
+
+    /**
+     * Häv blockeringen direkt (admin) och publicera till övriga noder
+     */
+    public void unblock(long clientKey) {
+        unblockLocally(clientKey);
+        log.info("Unblocked {}", ClientKeys.format(clientKey));
+        publish(UNBLOCK + " " + Long.toHexString(clientKey) + " " + nodeId);
+    }
+
+    /**
+     * Är klienten blockerad just nu
+     */
+    public boolean isBlocked(long clientKey) {
+        return remainingMs(clientKey) > 0;
+    }
+
+    /**
+     * Återstående blockeringstid i ms, 0 om klienten inte är blockerad
+     */
+    public long remainingMs(long clientKey) {
+        BlockEntry entry = blocked.getIfPresent(clientKey);
+        if (entry == null) {
+            return 0;
+        }
+        return Math.max(0, entry.expiresAt - System.currentTimeMillis());
+    }
+
+    public int size() {
+        return blocked.size();
+    }
+
+    /**
+     * Antal blockeringar (lokala och från andra noder) sedan start
+     */
+    public long blocksIssued() {
+        return blocksIssued.sum();
+    }
+
+    /**
+     * Aktuella blockeringar, de med längst kvar först
+     */
+    public List<BlockInfo> list(int limit) {
+        long now = System.currentTimeMillis();
+        List<BlockInfo> result = new ArrayList<>();
+        blocked.forEach((clientKey, entry) -> {
+            if (entry.expiresAt > now) {
+                result.add(new BlockInfo(clientKey, entry.expiresAt, entry.reason));
+            }
+        });
+        result.sort(Comparator.comparingLong(BlockInfo::expiresAt).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * Stega tidshjulet och ta bort blockeringar som gått ut
+     */
+    @Scheduled(fixedRate = TICK_MS)
+    public void expireBlocks() {
+        long now = System.currentTimeMillis();
+        int expired;
+        synchronized (wheel) {
+            expired = wheel.advance(now, (clientKey, deadlineMs) -> {
+                BlockEntry entry = blocked.getIfPresent(clientKey);
+                // Förlängd blockering har senare expiresAt - dess nya deadline ligger redan i hjulet
+                if (entry != null && entry.expiresAt <= now) {
+                    blocked.remove(clientKey);
+                    rateLimitingService.clearViolations(clientKey);
+                }
+            });
+        }
+        if (expired > 0) {
+            log.debug("Block list tick: {} deadlines passed, {} clients still blocked", expired, blocked.size());
+        }
+    }
+
+    /**
+     * Blockering eller hävning från en annan nod
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(" ", 5);
+
+        try {
+            if (parts.length >= 4 && BLOCK.equals(parts[0])) {
+                if (!nodeId.equals(parts[3])) {
+                    blockLocally(Long.parseUnsignedLong(parts[1], 16), Long.parseLong(parts[2]),
+                            parts.length == 5 ? parts[4] : "");
+                }
+            } else if (parts.length >= 3 && UNBLOCK.equals(parts[0])) {
+                if (!nodeId.equals(parts[2])) {
+                    unblockLocally(Long.parseUnsignedLong(parts[1], 16));
+                }
+            } else {
+                log.warn("Ignoring malformed block list message: {}", body);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed block list message: {}", body);
+        }
+    }
+
+    private void blockLocally(long clientKey, long durationMs, String reason) {
+        long expiresAt = System.currentTimeMillis() + durationMs;
+        BlockEntry entry = blocked.getOrCreate(clientKey, k -> new BlockEntry());
+        entry.extendTo(expiresAt, reason);
+        blocksIssued.increment();
+        synchronized (wheel) {
+            wheel.schedule(clientKey, expiresAt);
+        }
+    }
+
+    private void unblockLocally(long clientKey) {
+        // Deadlinen ligger kvar i hjulet men hittar ingen post när den passeras
+        blocked.remove(clientKey);
+        rateLimitingService.clearViolations(clientKey);
+    }
+
+    private void publish(String message) {
+        if (!distributed) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (DataAccessException e) {
+            log.warn("Could not publish block list change, it applies to this node only: {}", e.getMessage());
+        }
+    }
+
+    public record BlockInfo(long clientKey, long expiresAt, String reason) {
+    }
+
+    /**
+     * En blockering - förlängs på plats om klienten blockeras igen innan den gått ut
+     */
+    private static final class BlockEntry {
+        private volatile long expiresAt;
+        private volatile String reason;
+
+        private synchronized void extendTo(long newExpiresAt, String newReason) {
+            if (newExpiresAt > expiresAt) {
+                expiresAt = newExpiresAt;
+                reason = newReason;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.grupp3.weather.security;
+
+import java.util.Arrays;
+
+/**
+ * CidrRadixTree - mängd av CIDR-block som binärt radix-träd, för uppslag på klientnycklar.
+ *
+ * Huvudfunktioner:
+ * - add(String cidr): Lägg till "10.0.0.0/8", "2001:db8::/32" eller en enskild adress
+ * - contains(long clientKey): Ligger nyckeln i något block - högst 64 bitsteg, oberoende av antal block
+ *
+ * Trädet arbetar direkt på ClientKeys-nycklarna (64 bitar):
+ * - IPv4 a.b.c.d/n blir nyckelprefixet 0x0000FFFF_aabbccdd med längd 32 + n
+ * - IPv6 /n blir de övre n bitarna; block längre än /64 avrundas till /64 eftersom
+ *   nyckeln bara bär /64-prefixet
+ *
+ * Struktur:
+ * - Path-komprimerat (PATRICIA): varje nod bär sitt prefix och dess längd, så en kedja utan
+ *   förgreningar blir en enda nod. 100 000 block ger högst ~200 000 noder.
+ * - Varje nod är två long i en gemensam array: prefixet, och barnindex + längd + slutflagga
+ *   packade i ett ord. Inga objekt per nod, och ett steg i uppslaget rör en enda cache-rad
+ * - Uppslaget avbryts vid första träffande block - mer specifika block under det spelar ingen roll
+ * - IPv4: ett direktindex på adressens första 16 bitar (64K int, byggs vid första uppslaget)
+ *   pekar ut noden att börja i, så stora listor kostar några få steg istället för ~20
+ *
+ * Inte trådsäkert för skrivning: bygg färdigt trädet och publicera det sedan (volatile-fält),
+ * därefter är contains() säkert från alla trådar.
+ */
+public class CidrRadixTree {
+
+    // === TREE CONFIGURATION ===
+    private static final int ROOT = 0;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int KEY_BITS = 64;
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_KEY_BITS = 64; // Nyckeln bär /64-prefixet
+
+    // === NODE LAYOUT ===
+    // nodes[2n] = prefix, nodes[2n + 1] = vänster barn (28 bitar) | höger barn (28) | slutflagga (1) | längd (7)
+    private static final int CHILD_BITS = 28;
+    private static final long CHILD_MASK = (1L << CHILD_BITS) - 1;
+    private static final int NONE = (int) CHILD_MASK;
+    private static final int LEFT_SHIFT = 36;
+    private static final int RIGHT_SHIFT = 8;
+    private static final long TERMINAL = 1L << 7;
+    private static final long LENGTH_MASK = 0x7F;
+    private static final long NO_CHILDREN = ((long) NONE << LEFT_SHIFT) | ((long) NONE << RIGHT_SHIFT);
+
+    // === IPV4 INDEX ===
+    private static final int INDEX_BITS = 16;
+    private static final int INDEX_DEPTH = IPV4_BITS + INDEX_BITS; // Nyckelbitar som indexet täcker
+    private static final int COVERED = -1; // Hela /16 ligger i ett block
+
+    private long[] nodes = new long[INITIAL_CAPACITY * 2];
+    private int nodeCount;
+    private int blocks;
+    private volatile int[] ipv4Index;
+
+    public CidrRadixTree() {
+        newNode(0, 0); // Roten: tomt prefix
+    }
+
+    /**
+     * Lägg till ett CIDR-block, kastar IllegalArgumentException om det inte går att parsa
+     */
+    public void add(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        int end = slash >= 0 ? slash : value.length();
+
+        long key = ClientKeys.parseKey(value, 0, end);
+        if (key == ClientKeys.INVALID) {
+            throw new IllegalArgumentException("Invalid CIDR block: " + cidr);
+        }
+
+        boolean ipv4 = (key >>> IPV4_BITS) == 0xFFFFL;
+        boolean ipv6Text = value.lastIndexOf(':', end) >= 0;
+        int maxBits = ipv4 && !ipv6Text ? IPV4_BITS : 128;
+        int bits = maxBits;
+        if (slash >= 0) {
+            try {
+                bits = Integer.parseInt(value, slash + 1, value.length(), 10);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CIDR block: " + cidr);
+            }
+            if (bits < 0 || bits > maxBits) {
+                throw new IllegalArgumentException("Invalid prefix length in CIDR block: " + cidr);
+            }
+        }
+
+        int keyBits;
+        if (ipv4 && !ipv6Text) {
+            keyBits = IPV4_BITS + bits;
+        } else if (ipv4) {
+            keyBits = IPV4_BITS + Math.max(0, bits - 96); // ::ffff:a.b.c.d/n
+        } else {
+            keyBits = Math.min(bits, IPV6_KEY_BITS);
+        }
+        insert(key & mask(keyBits), keyBits);
+    }
+
+    /**
+     * Ligger nyckeln i något av blocken
+     */
+    public boolean contains(long clientKey) {
+        int start = ROOT;
+        if ((clientKey >>> IPV4_BITS) == 0xFFFFL) {
+            int[] index = ipv4Index;
+            if (index == null) {
+                index = buildIpv4Index();
+                ipv4Index = index;
+            }
+            start = index[(int) (clientKey >>> (KEY_BITS - INDEX_DEPTH)) & ((1 << INDEX_BITS) - 1)];
+            if (start == COVERED) {
+                return true;
+            }
+        }
+
+        long[] tree = nodes;
+        long meta = tree[start * 2 + 1];
+        while ((meta & TERMINAL) == 0) {
+            int length = (int) (meta & LENGTH_MASK);
+            if (length == KEY_BITS) {
+                return false;
+            }
+            int child = bitAt(clientKey, length) == 0 ? left(meta) : right(meta);
+            if (child == NONE) {
+                return false;
+            }
+            meta = tree[child * 2 + 1];
+            if (((clientKey ^ tree[child * 2]) & mask((int) (meta & LENGTH_MASK))) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Antal tillagda block
+     */
+    public int size() {
+        return blocks;
+    }
+
+    public boolean isEmpty() {
+        return blocks == 0;
+    }
+
+    /**
+     * Minne för nodarrayen i byte
+     */
+    public long sizeInBytes() {
+        return (long) nodes.length * 8 + (ipv4Index != null ? 4L << INDEX_BITS : 0);
+    }
+
+    /**
+     * Startnod per IPv4 /16: djupaste noden med längd <= INDEX_DEPTH som matchar, COVERED vid träff
+     */
+    private int[] buildIpv4Index() {
+        int[] index = new int[1 << INDEX_BITS];
+        for (int i = 0; i < index.length; i++) {
+            long key = ClientKeys.IPV4_PREFIX | ((long) i << (KEY_BITS - INDEX_DEPTH));
+            int node = ROOT;
+            while (true) {
+                long meta = nodes[node * 2 + 1];
+                if ((meta & TERMINAL) != 0) {
+                    node = COVERED;
+                    break;
+                }
+                int child = bitAt(key, (int) (meta & LENGTH_MASK)) == 0 ? left(meta) : right(meta);
+                if (child == NONE || lengthOf(child) > INDEX_DEPTH
+                        || ((key ^ nodes[child * 2]) & mask(lengthOf(child))) != 0) {
+                    break;
+                }
+                node = child;
+            }
+            index[i] = node;
+        }
+        return index;
+    }
+
+    private void insert(long prefix, int length) {
+        ipv4Index = null;
+        blocks++;
+        int node = ROOT;
+        while (true) {
+            if (lengthOf(node) == length) {
+                nodes[node * 2 + 1] |= TERMINAL;
+                return;
+            }
+
+            int bit = bitAt(prefix, lengthOf(node));
+            int child = bit == 0 ? left(nodes[node * 2 + 1]) : right(nodes[node * 2 + 1]);
+            if (child == NONE) {
+                setChild(node, bit, newLeaf(prefix, length));
+                return;
+            }
+
+            long childPrefix = nodes[child * 2];
+            int childLength = lengthOf(child);
+            int common = Math.min(commonPrefixLength(prefix, childPrefix), Math.min(length, childLength));
+            if (common == childLength) {
+                node = child;
+                continue;
+            }
+
+            // Dela kanten: ny mellannod med det gemensamma prefixet
+            int middle = newNode(prefix & mask(common), common);
+            setChild(node, bit, middle);
+            setChild(middle, bitAt(childPrefix, common), child);
+            if (common == length) {
+                nodes[middle * 2 + 1] |= TERMINAL;
+            } else {
+                setChild(middle, bitAt(prefix, common), newLeaf(prefix, length));
+            }
+            return;
+        }
+    }
+
+    private int newLeaf(long prefix, int length) {
+        int node = newNode(prefix, length);
+        nodes[node * 2 + 1] |= TERMINAL;
+        return node;
+    }
+
+    private int newNode(long prefix, int length) {
+        if (nodeCount * 2 == nodes.length) {
+            if (nodeCount >= NONE) {
+                throw new IllegalStateException("CIDR tree is full");
+            }
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        int node = nodeCount++;
+        nodes[node * 2] = prefix;
+        nodes[node * 2 + 1] = NO_CHILDREN | length;
+        return node;
+    }
+
+    private void setChild(int node, int bit, int child) {
+        int shift = bit == 0 ? LEFT_SHIFT : RIGHT_SHIFT;
+        long meta = nodes[node * 2 + 1];
+        nodes[node * 2 + 1] = (meta & ~(CHILD_MASK << shift)) | ((long) child << shift);
+    }
+
+    private int lengthOf(int node) {
+        return (int) (nodes[node * 2 + 1] & LENGTH_MASK);
+    }
+
+    private static int left(long meta) {
+        return (int) ((meta >>> LEFT_SHIFT) & CHILD_MASK);
+    }
+
+    private static int right(long meta) {
+        return (int) ((meta >>> RIGHT_SHIFT) & CHILD_MASK);
+    }
+
+    private static int bitAt(long value, int index) {
+        return (int) (value >>> (KEY_BITS - 1 - index)) & 1;
+    }
+
+    private static int commonPrefixLength(long a, long b) {
+        return Long.numberOfLeadingZeros(a ^ b);
+    }
+
+    private static long mask(int length) {
+        return length == 0 ? 0 : -1L << (KEY_BITS - length);
+    }
+}
@@ -0,0 +1,83 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.ClientIpProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * ClientIpResolver - klientens IP som long-nyckel, med proxy-headers bara från betrodda proxies.
+ *
+ * Tidigare lästes första adressen i X-Forwarded-For från vem som helst, så en klient kunde
+ * skicka en påhittad adress per request och slippa rate limiting helt.
+ *
+ * Huvudfunktioner:
+ * - clientKey(HttpServletRequest): Nyckel för klienten bakom eventuella betrodda proxies
+ * - isTrustedProxy(long key): Ligger adressen i app.client-ip.trusted-proxies
+ *
+ * Algoritm:
+ * - Kommer anslutningen inte från en betrodd proxy är remote address klienten - headers ignoreras
+ * - Annars gås X-Forwarded-For igenom från höger: varje betrodd proxy har lagt till adressen
+ *   den tog emot anslutningen från. Första adressen som inte är betrodd är klienten;
+ *   allt till vänster om den kan klienten ha skrivit själv.
+ * - Är alla adresser betrodda används den vänstraste. Utan X-Forwarded-For används X-Real-IP.
+ *
+ * Headern parsas på plats bakifrån (ClientKeys.ipKey på delintervall) - ingen split eller substring,
+ * och varje steg är ett uppslag i CidrRadixTree.
+ */
+
+@Component
+public class ClientIpResolver {
+
+    private final CidrRadixTree trustedProxies = new CidrRadixTree();
+
+    public ClientIpResolver(ClientIpProperties clientIpProperties) {
+        for (String cidr : clientIpProperties.getTrustedProxies()) {
+            if (!cidr.isBlank()) {
+                trustedProxies.add(cidr);
+            }
+        }
+    }
+
+    /**
+     * Klientnyckel för requesten
+     */
+    public long clientKey(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        long peer = remoteAddr != null ? ClientKeys.ipKey(remoteAddr, 0, remoteAddr.length()) : 0;
+        if (!trustedProxies.contains(peer)) {
+            return peer;
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return walkForwardedFor(xForwardedFor);
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return ClientKeys.ipKey(xRealIp, 0, xRealIp.length());
+        }
+        return peer;
+    }
+
+    public boolean isTrustedProxy(long clientKey) {
+        return trustedProxies.contains(clientKey);
+    }
+
+    /**
+     * Höger till vänster genom "klient, proxy1, proxy2" - första icke-betrodda adressen
+     */
+    private long walkForwardedFor(String header) {
+        long key = 0;
+        int end = header.length();
+        while (end >= 0) {
+            int comma = header.lastIndexOf(',', end - 1);
+            key = ClientKeys.ipKey(header, comma + 1, end);
+            if (!trustedProxies.contains(key)) {
+                return key;
+            }
+            end = comma;
+        }
+        return key; // Bara betrodda adresser - vänstraste
+    }
+}
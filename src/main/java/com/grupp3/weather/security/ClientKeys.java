@@ -0,0 +1,256 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.service.BucketStore;
+
+/**
+ * ClientKeys - klientens IP som primitiv long-nyckel för rate limiting, utan allokering.
+ *
+ * Huvudfunktioner:
+ * - ipKey(CharSequence, int from, int to): Parsa en IP-adress direkt i headern, utan substring/split
+ * - parseKey(CharSequence, int from, int to): Som ipKey men INVALID för oparsbart värde
+ * - format(long key): Läsbar form för loggar (kall väg, får allokera)
+ *
+ * Nyckelformat:
+ * - IPv4 a.b.c.d: 0x0000FFFF_aabbccdd (samma som IPv4-mappad IPv6 ::ffff:a.b.c.d)
+ * - IPv6: de övre 64 bitarna, dvs. /64-prefixet - en klient styr normalt hela sitt /64,
+ *   så adressrotation inom prefixet ger ingen ny bucket
+ * - Oparsbart värde: seedad hash av texten (BucketStore.hash)
+ *
+ * IPv4-nycklarna ligger i 0::/8 som är reserverat och aldrig routas, så de krockar inte med /64-prefix.
+ *
+ * Vilken adress i headers som är klienten avgörs av ClientIpResolver (betrodda proxies).
+ */
+public final class ClientKeys {
+
+    public static final long IPV4_PREFIX = 0xFFFFL << 32;
+
+    static final long INVALID = Long.MIN_VALUE;
+
+    private ClientKeys() {
+    }
+
+    /**
+     * Nyckel för IP-adressen i value[from, to) - blanksteg, [..] och zon-id (%eth0) ignoreras
+     */
+    public static long ipKey(CharSequence value, int from, int to) {
+        long key = parseKey(value, from, to);
+        return key != INVALID ? key : BucketStore.hash(value, from, to);
+    }
+
+    /**
+     * Nyckel för IP-adressen i value[from, to), INVALID om värdet inte är en giltig adress
+     */
+    static long parseKey(CharSequence value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (to - from >= 2 && value.charAt(from) == '[' && value.charAt(to - 1) == ']') {
+            from++;
+            to--;
+        }
+
+        long key = INVALID;
+        if (indexOf(value, ':', from, to) >= 0) {
+            int zone = indexOf(value, '%', from, to);
+            key = ipv6Key(value, from, zone >= 0 ? zone : to);
+        } else {
+            long ipv4 = parseIpv4(value, from, to);
+            if (ipv4 >= 0) {
+                key = IPV4_PREFIX | ipv4;
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Nyckel för en adress från admin-API:t, kastar IllegalArgumentException om den inte är en giltig IP
+     */
+    public static long requireIpKey(String value) {
+        long key = value != null ? parseKey(value, 0, value.length()) : INVALID;
+        if (key == INVALID) {
+            throw new IllegalArgumentException("Invalid IP address: " + value);
+        }
+        return key;
+    }
+
+    /**
+     * Läsbar form av en nyckel: "a.b.c.d" för IPv4, "xxxx:xxxx:xxxx:xxxx::/64" annars
+     */
+    public static String format(long key) {
+        if ((key >>> 32) == 0xFFFFL) {
+            return ((key >>> 24) & 0xFF) + "." + ((key >>> 16) & 0xFF) + "." + ((key >>> 8) & 0xFF) + "." + (key & 0xFF);
+        }
+        return Long.toHexString((key >>> 48) & 0xFFFF) + ":" + Long.toHexString((key >>> 32) & 0xFFFF) + ":"
+                + Long.toHexString((key >>> 16) & 0xFFFF) + ":" + Long.toHexString(key & 0xFFFF) + "::/64";
+    }
+
+    /**
+     * IPv4 som osignerat 32-bitarsvärde, -1 om texten inte är en giltig adress
+     */
+    static long parseIpv4(CharSequence value, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int i = from;
+
+        while (i < to) {
+            int start = i;
+            int octet = 0;
+            while (i < to && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                octet = octet * 10 + (value.charAt(i) - '0');
+                i++;
+                if (i - start > 3) {
+                    return -1;
+                }
+            }
+            if (i == start || octet > 255) {
+                return -1;
+            }
+            result = (result << 8) | octet;
+            octets++;
+
+            if (i < to) {
+                if (value.charAt(i) != '.' || octets == 4) {
+                    return -1;
+                }
+                i++;
+                if (i == to) {
+                    return -1; // avslutande punkt
+                }
+            }
+        }
+        return octets == 4 ? result : -1;
+    }
+
+    /**
+     * IPv6 till nyckel: /64-prefixet, eller IPv4-nyckel för ::ffff:a.b.c.d. INVALID om ogiltig.
+     *
+     * Två pass över texten: först räknas grupper före och efter "::", sedan placeras
+     * varje grupp på sitt index - så behövs ingen array för de åtta grupperna.
+     */
+    private static long ipv6Key(CharSequence value, int from, int to) {
+        int head = 0;
+        int tail = 0;
+        boolean compressed = false;
+
+        // Pass 1: validera och räkna grupper
+        int i = from;
+        if (to - from >= 2 && value.charAt(i) == ':' && value.charAt(i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (i < to && value.charAt(i) == ':') {
+            return INVALID;
+        }
+        while (i < to) {
+            int start = i;
+            boolean dotted = false;
+            while (i < to && value.charAt(i) != ':') {
+                if (value.charAt(i) == '.') {
+                    dotted = true;
+                }
+                i++;
+            }
+            int groups;
+            if (dotted) {
+                if (i != to || parseIpv4(value, start, i) < 0) {
+                    return INVALID; // inbäddad IPv4 bara som sista del
+                }
+                groups = 2;
+            } else {
+                if (parseHexGroup(value, start, i) < 0) {
+                    return INVALID;
+                }
+                groups = 1;
+            }
+            if (compressed) {
+                tail += groups;
+            } else {
+                head += groups;
+            }
+            if (i < to) {
+                i++;
+                if (i < to && value.charAt(i) == ':') {
+                    if (compressed) {
+                        return INVALID; // bara ett "::" tillåtet
+                    }
+                    compressed = true;
+                    i++;
+                } else if (i == to) {
+                    return INVALID; // avslutande ensamt kolon
+                }
+            }
+        }
+        if (compressed ? head + tail > 7 : head + tail != 8) {
+            return INVALID;
+        }
+
+        // Pass 2: placera grupperna
+        long hi = 0;
+        long lo = 0;
+        int index = 0;
+        i = from;
+        if (to - from >= 2 && value.charAt(i) == ':' && value.charAt(i + 1) == ':') {
+            index = 8 - tail;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            while (i < to && value.charAt(i) != ':') {
+                i++;
+            }
+            if (indexOf(value, '.', start, i) >= 0) {
+                long ipv4 = parseIpv4(value, start, i);
+                lo |= ipv4; // inbäddad IPv4 är alltid grupp 6-7
+                index += 2;
+            } else {
+                long group = parseHexGroup(value, start, i);
+                if (index < 4) {
+                    hi |= group << (16 * (3 - index));
+                } else {
+                    lo |= group << (16 * (7 - index));
+                }
+                index++;
+            }
+            if (i < to) {
+                i++;
+                if (i < to && value.charAt(i) == ':') {
+                    index = 8 - tail;
+                    i++;
+                }
+            }
+        }
+
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL) {
+            return lo; // ::ffff:a.b.c.d - samma nyckel som IPv4-adressen
+        }
+        return hi;
+    }
+
+    private static long parseHexGroup(CharSequence value, int from, int to) {
+        int length = to - from;
+        if (length < 1 || length > 4) {
+            return -1;
+        }
+        long group = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            group = (group << 4) | digit;
+        }
+        return group;
+    }
+
+    private static int indexOf(CharSequence value, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
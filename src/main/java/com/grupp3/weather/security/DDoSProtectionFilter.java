@@ -5,14 +5,10 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.core.Ordered;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DDoSProtectionFilter - säkerhetsdetektiv för misstänkt beteende och DDoS-attacker.
@@ -23,38 +19,53 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Huvudfunktioner:
  * - doFilterInternal(): Multi-layer säkerhetsanalys av inkommande requests
  * - isSuspiciousBehavior(): Upptäck bots, överdriven användning och attackmönster
- * - blockIP(): 15-minuters IP-ban för misstänkta adresser med automatisk upphävning
- * - getClientIpAddress(): Smart IP-detection genom proxy-headers (X-Forwarded-For)
+ * - BlockList.block(): 15-minuters IP-ban för misstänkta adresser, hävs av tidshjul och sprids till alla noder
+ * - ClientIpResolver.clientKey(): IP-detection genom proxy-headers (X-Forwarded-For) från betrodda proxies, som long-nyckel
+ * - IpAccessList: Statiska deny-listor (403 direkt) och allow-listor (undantas från heuristiken)
+ * - RateLimitingService.consume(): Gräns per IP och endpoint-typ (RoutePolicyTable), 429 med bucketens väntetid
  *
  * Multi-layer detection implementerar:
  * - DDoS-tröskelvärde: RateLimitingService kontroll (över 100 requests/minut)
  * - User-Agent analys: Upptäck bots, crawlers, curl och misstänkta patterns
  * - Upprepat misstänkt beteende: Spåra IPs med 10+ rate limit överträdelser
- * - Rate limiting per endpoint-typ: ADMIN (10/min), WEATHER (30/min), PLACES_WRITE (20/min)
  *
- * Filter-kedja position: ANDRA filter efter ApiKeyFilter för fokus på authorized requests.
- * IP-blockering är temporär med 15min TTL och automatisk rensning vid upphörning.
+ * Gränsen per IP gäller alla requests, även allow-listade och inloggade, och kontrolleras här
+ * före JWT-verifieringen. UserRateLimitFilter lägger sedan bara på gränsen per användare.
+ *
+ * Hot path utan allokering: klientens IP parsas direkt i headern till en long, blockeringar
+ * och buckets slås upp på den nyckeln och User-Agent matchas utan toLowerCase().
+ * Nekade svar skrivs från förkodade byte-arrayer (ErrorResponses).
+ *
+ * Filter-kedja position: EDGE - registreras i FilterConfig före Spring Security-kedjan, så
+ * blockerade och nekade requests aldrig kostar SecurityContext eller JWT-verifiering.
+ * Ordning: deny-lista → IP-blockering → flod-tröskel → gräns per IP, därefter autentisering.
+ * IP-blockering är temporär med 15min TTL; BlockList tar bort den när den gått ut, även om IP:n aldrig kommer tillbaka.
  * Integrerar med RateLimitingService för konsekvent säkerhetsstrategi.
  */
 
 @Component
-@Order(Ordered.HIGHEST_PRECEDENCE + 1) // Kör efter API key filter
 public class DDoSProtectionFilter extends OncePerRequestFilter {
 
     // === IP BLOCKING CONFIGURATION ===
     private static final int BLOCK_DURATION_MINUTES = 15; // 15 min
     private static final long BLOCK_DURATION_MS = BLOCK_DURATION_MINUTES * 60 * 1000;
-    private static final int BLOCK_DURATION_SECONDS = BLOCK_DURATION_MINUTES * 60;
+    private static final String BLOCK_RETRY_AFTER = String.valueOf(BLOCK_DURATION_MS / 1000);
 
     private final RateLimitingService rateLimitingService;
-
-    // Spåra misstänkta IP:s
-    private final ConcurrentHashMap<String, AtomicInteger> suspiciousIPs = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> blockedIPs = new ConcurrentHashMap<>();
+    private final BlockList blockList; // Blockerade IP:s (överträdelser räknas i RateLimitingService)
+    private final ClientIpResolver clientIpResolver;
+    private final IpAccessList ipAccessList;
+    private final RoutePolicyTable routePolicyTable;
 
 
-    public DDoSProtectionFilter(RateLimitingService rateLimitingService) {
+    public DDoSProtectionFilter(RateLimitingService rateLimitingService, BlockList blockList,
+                                ClientIpResolver clientIpResolver, IpAccessList ipAccessList,
+                                RoutePolicyTable routePolicyTable) {
         this.rateLimitingService = rateLimitingService;
+        this.blockList = blockList;
+        this.clientIpResolver = clientIpResolver;
+        this.ipAccessList = ipAccessList;
+        this.routePolicyTable = routePolicyTable;
     }
 
     @Override
@@ -62,56 +73,62 @@ public class DDoSProtectionFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String clientIp = getClientIpAddress(request);
+        long clientKey = clientIpResolver.clientKey(request);
         String userAgent = request.getHeader("User-Agent");
-        String path = request.getRequestURI();
+
+        // 0. Statiska listor - deny stoppas direkt, allow undantas från heuristiken
+        //    (men räknas i sketchen, annars får de aldrig buckets och undgår endpoint-gränserna)
+        if (ipAccessList.isDenied(clientKey)) {
+            ErrorResponses.write(response, 403, ErrorResponses.ACCESS_DENIED); // Forbidden
+            return;
+        }
+        if (ipAccessList.isAllowed(clientKey)) {
+            rateLimitingService.recordRequest(clientKey);
+            consumeAndContinue(request, response, filterChain, clientKey);
+            return;
+        }
 
         // 1. Kolla om IP är blockerad
-        if (isBlocked(clientIp)) {
-            response.setStatus(429); // Too Many Requests
-            response.setHeader("Retry-After", String.valueOf(BLOCK_DURATION_SECONDS)); // 15 minuter
-            response.setContentType("application/json");
-            response.getWriter().write("{\"error\":\"IP temporarily blocked due to suspicious activity\"}");
+        long blockedForMs = blockList.remainingMs(clientKey);
+        if (blockedForMs > 0) {
+            response.setHeader("Retry-After", String.valueOf(ErrorResponses.retryAfterSeconds(blockedForMs))); // Återstående tid
+            ErrorResponses.write(response, 429, ErrorResponses.IP_BLOCKED); // Too Many Requests
             return;
         }
 
         // 2. Upptäck misstänkt beteende
-        if (isSuspiciousBehavior(request, clientIp, userAgent)) {
-            blockIP(clientIp);
-            response.setStatus(429); // Too Many Requests
-            response.setContentType("application/json");
-            response.getWriter().write("{\"error\":\"Suspicious activity detected. IP blocked.\"}");
+        if (isSuspiciousBehavior(request, clientKey, userAgent)) {
+            blockList.block(clientKey, BLOCK_DURATION_MS, "suspicious activity");
+            response.setHeader("Retry-After", BLOCK_RETRY_AFTER);
+            ErrorResponses.write(response, 429, ErrorResponses.SUSPICIOUS_ACTIVITY); // Too Many Requests
             return;
         }
 
-        // 3. Rate limiting baserat på endpoint-typ
-        RateLimitingService.EndpointType endpointType = determineEndpointType(path, request.getMethod());
-
-        if (!rateLimitingService.isAllowed(clientIp, endpointType)) {
-            // Räkna upp misstänkt aktivitet
-            suspiciousIPs.computeIfAbsent(clientIp, k -> new AtomicInteger(0)).incrementAndGet();
+        // 3. Gräns per IP och endpoint-typ
+        consumeAndContinue(request, response, filterChain, clientKey);
+    }
 
-            response.setStatus(429); // Too Many Requests
-            response.setContentType("application/json");
-            response.setHeader("X-RateLimit-Remaining", "0");
-            response.setHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() + 60000));
-            response.getWriter().write("{\"error\":\"Rate limit exceeded\"}");
+    /**
+     * Förbruka en pollett för IP:n - 429 och en överträdelse om kvoten är slut, annars vidare i kedjan
+     */
+    private void consumeAndContinue(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain, long clientKey) throws ServletException, IOException {
+        long remaining = rateLimitingService.consume(clientKey, routePolicyTable.resolve(request).rateLimitClass());
+        if (remaining < 0) {
+            rateLimitingService.recordViolation(clientKey);
+            ErrorResponses.writeRateLimited(response, remaining);
             return;
         }
-
-        // Lägg till rate limit headers
-        long remaining = rateLimitingService.getAvailableTokens(clientIp, endpointType);
-        response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
-
+        response.setHeader("X-RateLimit-Remaining", ErrorResponses.headerValue(remaining));
         filterChain.doFilter(request, response);
     }
 
     /**
      * Upptäck misstänkt beteende
      */
-    private boolean isSuspiciousBehavior(HttpServletRequest request, String clientIp, String userAgent) {
+    private boolean isSuspiciousBehavior(HttpServletRequest request, long clientKey, String userAgent) {
         // 1. Kolla DDoS-tröskelvärden
-        if (rateLimitingService.isDDoSBehavior(clientIp)) {
+        if (rateLimitingService.isDDoSBehavior(clientKey)) {
             return true;
         }
 
@@ -121,8 +138,7 @@ public class DDoSProtectionFilter extends OncePerRequestFilter {
         }
 
         // 3. Kolla om samma IP gjort för många misstänkta requests
-        AtomicInteger suspiciousCount = suspiciousIPs.get(clientIp);
-        if (suspiciousCount != null && suspiciousCount.get() > 10) {
+        if (rateLimitingService.getViolationCount(clientKey) > 10) {
             return true;
         }
 
@@ -135,77 +151,17 @@ public class DDoSProtectionFilter extends OncePerRequestFilter {
         return false;
     }
 
-    /**
-     * Blockera IP temporärt
-     */
-    private void blockIP(String clientIp) {
-        blockedIPs.put(clientIp, System.currentTimeMillis() + BLOCK_DURATION_MS);
-        System.err.println("[SECURITY] Blocked IP " + clientIp + " for suspicious activity");
-    }
-
-    /**
-     * Kolla om IP är blockerad
-     */
-    private boolean isBlocked(String clientIp) {
-        Long blockExpiry = blockedIPs.get(clientIp);
-        if (blockExpiry == null) return false;
-
-        if (System.currentTimeMillis() > blockExpiry) {
-            blockedIPs.remove(clientIp);
-            suspiciousIPs.remove(clientIp);
-            return false;
-        }
-        return true;
-    }
-
-    /**
-     * Bestäm endpoint-typ för rate limiting
-     */
-    private RateLimitingService.EndpointType determineEndpointType(String path, String method) {
-        if (path.startsWith("/admin/")) {
-            return RateLimitingService.EndpointType.ADMIN;
-        }
-        if (path.startsWith("/weather/")) {
-            return RateLimitingService.EndpointType.WEATHER;
-        }
-        if (path.startsWith("/places") && ("POST".equals(method) || "PUT".equals(method) || "DELETE".equals(method))) {
-            return RateLimitingService.EndpointType.PLACES_WRITE;
-        }
-        if (path.startsWith("/places")) {
-            return RateLimitingService.EndpointType.PLACES_READ;
-        }
-        return RateLimitingService.EndpointType.OTHER;
-    }
-
-    /**
-     * Få riktig client IP (hanterar proxies/load balancers)
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-
-        return request.getRemoteAddr();
-    }
-
     /**
      * Kolla misstänkta User-Agents
      */
     private boolean isSuspiciousUserAgent(String userAgent) {
-        String ua = userAgent.toLowerCase();
-        return ua.contains("bot") ||
-                ua.contains("crawler") ||
-                ua.contains("spider") ||
-                ua.contains("scraper") ||
-                ua.length() < 10 ||
-                ua.equals("curl") ||
-                ua.equals("wget");
+        return containsIgnoreCase(userAgent, "bot") ||
+                containsIgnoreCase(userAgent, "crawler") ||
+                containsIgnoreCase(userAgent, "spider") ||
+                containsIgnoreCase(userAgent, "scraper") ||
+                userAgent.length() < 10 ||
+                userAgent.equalsIgnoreCase("curl") ||
+                userAgent.equalsIgnoreCase("wget");
     }
 
     /**
@@ -214,6 +170,19 @@ public class DDoSProtectionFilter extends OncePerRequestFilter {
     private boolean isBotlikeBehavior(String userAgent, String referer) {
         // Detta är en förenklad implementation
         // I verkligheten skulle vi ha mer sofistikerad bot-detection
-        return userAgent != null && userAgent.toLowerCase().contains("python");
+        return userAgent != null && containsIgnoreCase(userAgent, "python");
+    }
+
+    /**
+     * Skiftlägesokänslig contains utan att skapa en ny sträng
+     */
+    private static boolean containsIgnoreCase(String value, String needle) {
+        int last = value.length() - needle.length();
+        for (int i = 0; i <= last; i++) {
+            if (value.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.service.RateLimitingService;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ErrorResponses - förkodade JSON-svar för filtren (403/429).
+ *
+ * Under en flod är nekade svar det vanligaste filtren skriver, så kropparna kodas till
+ * UTF-8 en gång vid klassladdning och skrivs direkt till output-strömmen - ingen Writer,
+ * ingen ny sträng och ingen teckenkodning per svar.
+ *
+ * Huvudfunktioner:
+ * - write(HttpServletResponse response, int status, byte[] body): Status, content-type, längd och kropp
+ * - writeRateLimited(HttpServletResponse response, long remaining): 429 med Retry-After och X-RateLimit-Reset
+ * - headerValue(long remaining): X-RateLimit-Remaining utan ny sträng för vanliga kvoter
+ */
+final class ErrorResponses {
+
+    // === PRE-ENCODED BODIES ===
+    static final byte[] RATE_LIMIT_EXCEEDED = encode("{\"error\":\"Rate limit exceeded\"}");
+    static final byte[] ACCESS_DENIED = encode("{\"error\":\"Access denied\"}");
+    static final byte[] IP_BLOCKED = encode("{\"error\":\"IP temporarily blocked due to suspicious activity\"}");
+    static final byte[] SUSPICIOUS_ACTIVITY = encode("{\"error\":\"Suspicious activity detected. IP blocked.\"}");
+
+    private static final String CONTENT_TYPE = "application/json";
+    private static final String[] HEADER_VALUES = new String[1024];
+
+    static {
+        for (int i = 0; i < HEADER_VALUES.length; i++) {
+            HEADER_VALUES[i] = String.valueOf(i);
+        }
+    }
+
+    private ErrorResponses() {
+    }
+
+    /**
+     * Skriv ett förkodat felsvar - headers måste vara satta innan, svaret är committat efteråt
+     */
+    static void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 429 för en nekad pollett - väntetiden kommer från bucketen själv (RateLimitingService.rejected), inte en fast minut
+     */
+    static void writeRateLimited(HttpServletResponse response, long remaining) throws IOException {
+        long retryAfterMs = RateLimitingService.retryAfterMs(remaining);
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() + retryAfterMs));
+        response.setHeader("Retry-After", headerValue(retryAfterSeconds(retryAfterMs)));
+        write(response, 429, RATE_LIMIT_EXCEEDED); // Too Many Requests
+    }
+
+    /**
+     * Förberäknade header-värden för vanliga kvoter, så att lyckade requests inte skapar strängar
+     */
+    static String headerValue(long remaining) {
+        return remaining < HEADER_VALUES.length ? HEADER_VALUES[(int) remaining] : String.valueOf(remaining);
+    }
+
+    /**
+     * Sekunder att vänta, avrundat uppåt och minst 1 - Retry-After: 0 bjuder in till direkt omförsök
+     */
+    static long retryAfterSeconds(long waitMs) {
+        return Math.max(1, (waitMs + 999) / 1000);
+    }
+
+    private static byte[] encode(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
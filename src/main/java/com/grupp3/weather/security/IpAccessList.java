@@ -0,0 +1,115 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.ClientIpProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * IpAccessList - statiska allow/deny-listor med CIDR-block, uppslag per request i CidrRadixTree.
+ *
+ * Huvudfunktioner:
+ * - isDenied(long clientKey): Ligger klienten i deny-listan (app.client-ip.deny + deny-file)
+ * - isAllowed(long clientKey): Ligger klienten i allow-listan (app.client-ip.allow)
+ * - reload(): Läs om deny-file om den ändrats (schemalagt)
+ *
+ * Ett uppslag är högst 64 bitsteg i ett path-komprimerat träd oavsett listans storlek, så även
+ * threat feeds med 100 000+ block kostar samma sak per request som en lista med tio.
+ * Vid reload byggs ett nytt träd vid sidan av och byts ut atomärt - requests ser alltid
+ * ett komplett träd. Misslyckas inläsningen behålls föregående lista.
+ */
+
+@Component
+public class IpAccessList {
+    private static final Logger log = LoggerFactory.getLogger(IpAccessList.class);
+
+    private final ClientIpProperties clientIpProperties;
+    private final CidrRadixTree allow;
+    private volatile CidrRadixTree deny;
+    private volatile long denyFileModified = Long.MIN_VALUE;
+
+    public IpAccessList(ClientIpProperties clientIpProperties) {
+        this.clientIpProperties = clientIpProperties;
+        this.allow = new CidrRadixTree();
+        for (String cidr : clientIpProperties.getAllow()) {
+            allow.add(cidr);
+        }
+        this.deny = staticDenyList();
+    }
+
+    public boolean isDenied(long clientKey) {
+        return deny.contains(clientKey);
+    }
+
+    public boolean isAllowed(long clientKey) {
+        return allow.contains(clientKey);
+    }
+
+    public int denySize() {
+        return deny.size();
+    }
+
+    /**
+     * Läs om deny-file om den ändrats sedan förra inläsningen
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.client-ip.reload-interval-ms:60000}",
+            initialDelayString = "${app.client-ip.reload-interval-ms:60000}")
+    public void reload() {
+        String denyFile = clientIpProperties.getDenyFile();
+        if (denyFile == null || denyFile.isBlank()) {
+            return;
+        }
+
+        Path path = Path.of(denyFile);
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == denyFileModified) {
+                return;
+            }
+
+            CidrRadixTree loaded = staticDenyList();
+            int skipped = 0;
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int comment = line.indexOf('#');
+                    String cidr = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                    if (cidr.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        loaded.add(cidr);
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                    }
+                }
+            }
+
+            loaded.contains(ClientKeys.IPV4_PREFIX); // Bygg IPv4-indexet här, inte i första requesten
+            deny = loaded;
+            denyFileModified = modified;
+            log.info("Loaded {} deny-list blocks ({} KB), skipped {} invalid lines",
+                    loaded.size(), loaded.sizeInBytes() / 1024, skipped);
+        } catch (IOException e) {
+            // Behåll föregående lista hellre än att släppa in allt
+            log.error("Failed to load deny list from {}, keeping previous list: {}", denyFile, e.getMessage());
+        }
+    }
+
+    private CidrRadixTree staticDenyList() {
+        CidrRadixTree tree = new CidrRadixTree();
+        for (String cidr : clientIpProperties.getDeny()) {
+            tree.add(cidr);
+        }
+        return tree;
+    }
+}
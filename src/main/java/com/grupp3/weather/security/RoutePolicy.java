@@ -0,0 +1,27 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.service.RateLimitingService;
+
+/**
+ * RoutePolicy - förberäknat beslut för en path + HTTP-metod.
+ *
+ * Slås upp en gång per request av RoutePolicyTable och läses sedan av alla filter:
+ * - auth: vilken autentiseringsnivå Spring Security kräver
+ * - rateLimitClass: vilken bucket-typ RateLimitingService ska använda
+ * - apiKeyScope: scope som ApiKeyFilter kräver, null = ingen API-nyckel behövs
+ */
+public record RoutePolicy(String pattern,
+                          AuthLevel auth,
+                          RateLimitingService.EndpointType rateLimitClass,
+                          String apiKeyScope) {
+
+    public enum AuthLevel {
+        PUBLIC,         // Ingen autentisering
+        AUTHENTICATED,  // Giltig JWT krävs
+        ADMIN           // JWT + ROLE_ADMIN
+    }
+
+    public boolean requiresApiKey() {
+        return apiKeyScope != null;
+    }
+}
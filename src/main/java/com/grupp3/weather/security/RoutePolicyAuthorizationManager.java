@@ -0,0 +1,73 @@
+package com.grupp3.weather.security;
+
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * RoutePolicyAuthorizationManager - Spring Security-beslut från RoutePolicyTable.
+ *
+ * Ersätter requestMatchers-kedjan i SecurityConfig: samma policy som filtren redan
+ * slagit upp läses från request-attributet, så pathen klassificeras bara en gång.
+ */
+
+@Component
+public class RoutePolicyAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    private final RoutePolicyTable routePolicyTable;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    public RoutePolicyAuthorizationManager(RoutePolicyTable routePolicyTable) {
+        this.routePolicyTable = routePolicyTable;
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        RoutePolicy policy = routePolicyTable.resolve(context.getRequest());
+
+        return switch (policy.auth()) {
+            case PUBLIC -> GRANTED;
+            case AUTHENTICATED -> isAuthenticated(authentication.get()) ? GRANTED : DENIED;
+            case ADMIN -> isAdmin(authentication.get()) ? GRANTED : DENIED;
+        };
+    }
+
+    /**
+     * Krävs fortfarande av gränssnittet - Spring Security anropar authorize()
+     */
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        return (AuthorizationDecision) authorize(authentication, context);
+    }
+
+    private boolean isAuthenticated(Authentication authentication) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && !trustResolver.isAnonymous(authentication);
+    }
+
+    private boolean isAdmin(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (ADMIN_AUTHORITY.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
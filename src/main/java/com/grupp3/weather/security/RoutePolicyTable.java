@@ -0,0 +1,202 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.RoutePolicyProperties;
+import com.grupp3.weather.service.RateLimitingService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RoutePolicyTable - route policy-tabellen kompilerad till en prefix-trie över path-segment.
+ *
+ * Ersätter de separata startsWith-kedjorna i ApiKeyFilter, DDoSProtectionFilter och
+ * SecurityConfig med en enda klassificering per request.
+ *
+ * Huvudfunktioner:
+ * - resolve(HttpServletRequest): Slå upp policy en gång, cachas som request-attribut
+ * - lookup(String method, String path): Själva trie-uppslaget
+ *
+ * Matchning implementerar:
+ * - Segment-trie: "/admin/alerts/1" går tre steg ner i trädet, oberoende av antal regler
+ * - Precedens: literal segment > "*" (ett segment) > "**" (resten av pathen, även noll segment)
+ * - Metod: regel med explicit metod vinner över regel utan metoder på samma nod
+ * - Ingen allokering vid uppslag: segment jämförs med regionMatches direkt i URI:n
+ *
+ * Okänd path (ingen regel matchar) ger DEFAULT_POLICY som kräver inloggning.
+ *
+ * resolve() klassificerar den avkodade och normaliserade pathen inom applikationen (UrlPathHelper),
+ * samma path som Spring MVC routar på - annars når "POST /%70laces" PlaceController med /**-policyn.
+ */
+
+@Component
+public class RoutePolicyTable {
+
+    public static final String REQUEST_ATTRIBUTE = RoutePolicyTable.class.getName() + ".POLICY";
+
+    public static final RoutePolicy DEFAULT_POLICY = new RoutePolicy("/**",
+            RoutePolicy.AuthLevel.AUTHENTICATED, RateLimitingService.EndpointType.OTHER, null);
+
+    private final Node root;
+
+    public RoutePolicyTable(RoutePolicyProperties properties) {
+        Node compiled = new Node();
+        for (RoutePolicyProperties.Rule rule : properties.getRules()) {
+            insert(compiled, rule);
+        }
+        this.root = compiled;
+    }
+
+    /**
+     * Policy för requesten - beräknas bara första gången, därefter från request-attributet
+     */
+    public RoutePolicy resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof RoutePolicy policy) {
+            return policy;
+        }
+
+        RoutePolicy policy = lookup(request.getMethod(), UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+        request.setAttribute(REQUEST_ATTRIBUTE, policy);
+        return policy;
+    }
+
+    /**
+     * Slå upp policy för metod + path i trien
+     */
+    public RoutePolicy lookup(String method, String path) {
+        if (path == null) {
+            return DEFAULT_POLICY;
+        }
+        RoutePolicy policy = match(root, path, 0, method);
+        return policy != null ? policy : DEFAULT_POLICY;
+    }
+
+    private RoutePolicy match(Node node, String path, int pos, String method) {
+        int length = path.length();
+        while (pos < length && path.charAt(pos) == '/') {
+            pos++;
+        }
+
+        if (pos == length) {
+            RoutePolicy policy = node.policyFor(method);
+            if (policy == null && node.multi != null) {
+                policy = node.multi.policyFor(method); // "**" matchar noll segment
+            }
+            return policy;
+        }
+
+        int end = path.indexOf('/', pos);
+        if (end < 0) {
+            end = length;
+        }
+        int segmentLength = end - pos;
+
+        // 1. Literal segment
+        for (int i = 0; i < node.labels.length; i++) {
+            String label = node.labels[i];
+            if (label.length() == segmentLength && path.regionMatches(pos, label, 0, segmentLength)) {
+                RoutePolicy policy = match(node.children[i], path, end, method);
+                if (policy != null) {
+                    return policy;
+                }
+                break;
+            }
+        }
+
+        // 2. "*" - exakt ett segment
+        if (node.single != null) {
+            RoutePolicy policy = match(node.single, path, end, method);
+            if (policy != null) {
+                return policy;
+            }
+        }
+
+        // 3. "**" - resten av pathen
+        return node.multi != null ? node.multi.policyFor(method) : null;
+    }
+
+    private void insert(Node root, RoutePolicyProperties.Rule rule) {
+        if (rule.getPattern() == null || rule.getPattern().isBlank()) {
+            throw new IllegalArgumentException("Route rule without pattern");
+        }
+
+        Node node = root;
+        String[] segments = Arrays.stream(rule.getPattern().split("/"))
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if ("**".equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' must be the last segment: " + rule.getPattern());
+                }
+                if (node.multi == null) {
+                    node.multi = new Node();
+                }
+                node = node.multi;
+            } else if ("*".equals(segment)) {
+                if (node.single == null) {
+                    node.single = new Node();
+                }
+                node = node.single;
+            } else {
+                node = node.literalChild(segment);
+            }
+        }
+
+        RoutePolicy policy = new RoutePolicy(rule.getPattern(), rule.getAuth(), rule.getRateLimit(),
+                rule.getApiKeyScope() == null || rule.getApiKeyScope().isBlank() ? null : rule.getApiKeyScope().trim());
+
+        if (rule.getMethods() == null || rule.getMethods().isEmpty()) {
+            if (node.anyMethod == null) {
+                node.anyMethod = policy; // första regeln vinner, precis som requestMatchers
+            }
+        } else {
+            for (String method : rule.getMethods()) {
+                node.byMethod.putIfAbsent(method.trim().toUpperCase(Locale.ROOT), policy);
+            }
+        }
+    }
+
+    /**
+     * En nod i trien - få barn per nod, därför linjär sökning i arrays istället för HashMap
+     */
+    private static final class Node {
+        private String[] labels = new String[0];
+        private Node[] children = new Node[0];
+        private Node single;
+        private Node multi;
+        private final Map<String, RoutePolicy> byMethod = new HashMap<>();
+        private RoutePolicy anyMethod;
+
+        private Node literalChild(String label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i].equals(label)) {
+                    return children[i];
+                }
+            }
+            Node child = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = label;
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        private RoutePolicy policyFor(String method) {
+            if (method != null && !byMethod.isEmpty()) {
+                RoutePolicy policy = byMethod.get(method);
+                if (policy != null) {
+                    return policy;
+                }
+            }
+            return anyMethod;
+        }
+    }
+}
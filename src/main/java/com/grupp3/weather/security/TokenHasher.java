@@ -0,0 +1,42 @@
+package com.grupp3.weather.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * TokenHasher - SHA-256 för hemligheter som bara ska lagras hashade.
+ *
+ * Används för verifikationstokens: databasen innehåller bara hashen, och
+ * uppslag sker genom att hasha inkommande token och söka på det unika indexet.
+ * MessageDigest är inte trådsäker, därför en instans per tråd.
+ */
+public final class TokenHasher {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private TokenHasher() {}
+
+    /**
+     * SHA-256 av värdet som rå bytes
+     */
+    public static byte[] sha256(String value) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * SHA-256 av värdet som 64 tecken lång hex-sträng
+     */
+    public static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(sha256(value));
+    }
+}
@@ -0,0 +1,103 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.service.RateLimitingService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * UserRateLimitFilter - rate limiting per användare (JWT-subject).
+ *
+ * Körs i Spring Security-kedjan direkt efter JwtAuthenticationFilter, så principal
+ * redan finns i SecurityContext - JWT:n parsas inte en gång till.
+ *
+ * Huvudfunktioner:
+ * - doFilterInternal(): Förbruka en pollett för inloggad användare - ett anrop ger både beslut
+ *   och kvarvarande polletter
+ * - multiplierFor(): Högsta roll-multiplikatorn från RateLimitProperties
+ *
+ * Gränsen per IP ligger i DDoSProtectionFilter före kedjan, så en IP över sin kvot aldrig
+ * kostar JWT-verifiering. Här läggs bara gränsen per användare ovanpå: "USER:<subject>" delas
+ * inte med andra bakom samma NAT och följer användaren mellan IP:n. Anonyma släpps vidare.
+ *
+ * Nekad request (429): Retry-After (sekunder) och X-RateLimit-Reset (epoch ms) räknas från
+ * bucketens tid till nästa pollett, kroppen skrivs från en förkodad byte-array (ErrorResponses).
+ *
+ * Endpoint-typen (WEATHER, ADMIN, ...) läses från RoutePolicyTable.
+ */
+
+@Component
+public class UserRateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitingService rateLimitingService;
+    private final RoutePolicyTable routePolicyTable;
+    private final RateLimitProperties rateLimitProperties;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    public UserRateLimitFilter(RateLimitingService rateLimitingService,
+                               RoutePolicyTable routePolicyTable,
+                               RateLimitProperties rateLimitProperties) {
+        this.rateLimitingService = rateLimitingService;
+        this.routePolicyTable = routePolicyTable;
+        this.rateLimitProperties = rateLimitProperties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // Anonyma har redan begränsats per IP i DDoSProtectionFilter
+        if (!isAuthenticated(authentication)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitingService.EndpointType endpointType = routePolicyTable.resolve(request).rateLimitClass();
+        long remaining = rateLimitingService.consumeForUser(authentication.getName(), endpointType,
+                multiplierFor(authentication));
+
+        if (remaining < 0) {
+            ErrorResponses.writeRateLimited(response, remaining);
+            return;
+        }
+
+        // Lägg till rate limit headers - ersätter IP-kvoten från edge-filtret
+        response.setHeader("X-RateLimit-Remaining", ErrorResponses.headerValue(remaining));
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Högsta multiplikatorn bland användarens roller, default om ingen roll är konfigurerad
+     */
+    private double multiplierFor(Authentication authentication) {
+        Double multiplier = null;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            Double roleMultiplier = rateLimitProperties.getRoleMultipliers().get(authority.getAuthority());
+            if (roleMultiplier != null && (multiplier == null || roleMultiplier > multiplier)) {
+                multiplier = roleMultiplier;
+            }
+        }
+        return multiplier != null ? multiplier : rateLimitProperties.getDefaultMultiplier();
+    }
+
+    private boolean isAuthenticated(Authentication authentication) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && !trustResolver.isAnonymous(authentication);
+    }
+}
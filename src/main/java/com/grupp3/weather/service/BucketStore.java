@@ -0,0 +1,417 @@
+package com.grupp3.weather.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * BucketStore - minnesbegränsad lagring av rate limit-state med utgång och LRU-liknande eviction.
+ *
+ * Ersätter den obegränsade ConcurrentHashMap:en i RateLimitingService som tömdes helt
+ * över 10 000 poster - vilket nollställde alla klienters gränser och lät en angripare
+ * slippa undan genom att spraya IP-adresser.
+ *
+ * Huvudfunktioner:
+ * - getOrCreate(long key, LongFunction factory): Hämta eller skapa post, uppdaterar senast använd
+ * - getIfPresent(long key): Hämta utan att skapa
+ * - expireIdle(): Ta bort poster som inte använts på idleTimeoutMs (körs periodiskt)
+ * - registerMetrics(): Antal poster, kapacitet, evictions, utgångna poster och uppskattat minne
+ * - onRemoval(RemovalListener): Anropas för varje post som tas bort, evictas eller går ut
+ * - forEach(EntryVisitor): Gå igenom alla poster (admin, små lager) - ett segment-lås i taget
+ *
+ * Struktur:
+ * - Striped: SEGMENTS oberoende segment med egen lås, nyckeln avgör segment
+ * - Open addressing med linjär probing i förallokerade arrays - minnet är konstant från start
+ * - Hårt tak: varje segment rymmer maxEntries / SEGMENTS poster
+ * - Fullt segment: SAMPLE_SIZE slumpvisa poster jämförs, den minst nyligen använda tas bort
+ *   (samma approximativa LRU som Redis). Aktiva klienter överlever därmed en flod av engångs-IP:n.
+ *
+ * Nycklar är 64-bitars long. Strängnycklar hashas med hash(CharSequence) som har ett slumpat
+ * seed per process, så att kollisioner inte kan förberäknas.
+ */
+public class BucketStore<V> {
+
+    // === STORE CONFIGURATION ===
+    private static final int SEGMENTS = 64;         // Måste vara tvåpotens
+    public static final int MIN_ENTRIES = SEGMENTS * 16; // Minsta rimliga tak (16 poster per segment)
+    private static final int SAMPLE_SIZE = 8;       // Antal kandidater vid eviction
+    private static final int SLOT_OVERHEAD_BYTES = 8 + 8 + 8; // key + referens + senast använd
+
+    private static final long SEED = ThreadLocalRandom.current().nextLong();
+
+    private final Segment[] segments;
+    private final long idleTimeoutMs;
+    private final int estimatedValueBytes;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private volatile RemovalListener<? super V> removalListener;
+
+    public BucketStore(int maxEntries, long idleTimeoutMs, int estimatedValueBytes) {
+        if (maxEntries < SEGMENTS) {
+            throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS);
+        }
+        int segmentCapacity = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.estimatedValueBytes = estimatedValueBytes;
+    }
+
+    @FunctionalInterface
+    public interface RemovalListener<V> {
+        void removed(long key, V value);
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor<V> {
+        void visit(long key, V value);
+    }
+
+    /**
+     * Registrera lyssnare för borttagna poster - anropas under segment-låset, ska vara billig
+     */
+    public void onRemoval(RemovalListener<? super V> listener) {
+        this.removalListener = listener;
+    }
+
+    /**
+     * Hämta post för nyckeln, skapa med factory om den saknas
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrCreate(long key, LongFunction<? extends V> factory) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long now = System.currentTimeMillis();
+
+        synchronized (segment) {
+            int slot = segment.find(key, hash);
+            if (slot >= 0) {
+                segment.lastAccess[slot] = now;
+                return (V) segment.values[slot];
+            }
+
+            if (segment.size >= segment.maxSize) {
+                evictOne(segment, now);
+            }
+
+            V value = factory.apply(key);
+            segment.insert(key, hash, value, now);
+            return value;
+        }
+    }
+
+    /**
+     * Hämta post utan att skapa, null om den saknas
+     */
+    @SuppressWarnings("unchecked")
+    public V getIfPresent(long key) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment) {
+            int slot = segment.find(key, hash);
+            return slot >= 0 ? (V) segment.values[slot] : null;
+        }
+    }
+
+    /**
+     * Ta bort post för nyckeln
+     */
+    public void remove(long key) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment) {
+            int slot = segment.find(key, hash);
+            if (slot >= 0) {
+                removeAt(segment, slot);
+            }
+        }
+    }
+
+    /**
+     * Besök alla poster - segmenten låses ett i taget, så vyn är inte en exakt ögonblicksbild
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<? super V> visitor) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.values.length; slot++) {
+                    if (segment.values[slot] != null) {
+                        visitor.visit(segment.keys[slot], (V) segment.values[slot]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ta bort poster som inte använts på idleTimeoutMs, returnerar antal borttagna
+     */
+    public int expireIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        int removed = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                int slot = 0;
+                while (slot < segment.values.length) {
+                    if (segment.values[slot] != null && segment.lastAccess[slot] < cutoff) {
+                        // Backward shift kan flytta en senare post hit - kontrollera samma slot igen
+                        removeAt(segment, slot);
+                        removed++;
+                    } else {
+                        slot++;
+                    }
+                }
+            }
+        }
+
+        expirations.add(removed);
+        return removed;
+    }
+
+    /**
+     * Töm hela lagret
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                RemovalListener<? super V> listener = removalListener;
+                if (listener != null) {
+                    for (int slot = 0; slot < segment.values.length; slot++) {
+                        if (segment.values[slot] != null) {
+                            notifyRemoved(listener, segment, slot);
+                        }
+                    }
+                }
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return segments[0].maxSize * SEGMENTS;
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long expirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Uppskattat minne: förallokerade slots plus uppskattad storlek per lagrat värde
+     */
+    public long estimatedBytes() {
+        long slots = (long) segments[0].values.length * SEGMENTS;
+        return slots * SLOT_OVERHEAD_BYTES + (long) size() * estimatedValueBytes;
+    }
+
+    /**
+     * Registrera gauges och counters under ratelimit.store.* med tag store=storeName
+     */
+    public void registerMetrics(MeterRegistry registry, String storeName) {
+        Gauge.builder("ratelimit.store.entries", this, BucketStore::size)
+                .tag("store", storeName)
+                .description("Number of entries currently held")
+                .register(registry);
+        Gauge.builder("ratelimit.store.capacity", this, BucketStore::capacity)
+                .tag("store", storeName)
+                .description("Hard entry cap")
+                .register(registry);
+        Gauge.builder("ratelimit.store.memory.estimated", this, BucketStore::estimatedBytes)
+                .tag("store", storeName)
+                .baseUnit("bytes")
+                .description("Estimated memory used by slots and stored values")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.evictions", this, BucketStore::evictions)
+                .tag("store", storeName)
+                .description("Entries evicted because the store was full")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.expirations", this, BucketStore::expirations)
+                .tag("store", storeName)
+                .description("Entries removed after being idle")
+                .register(registry);
+    }
+
+    /**
+     * Seedad 64-bitars hash av en sträng (FNV-1a), för strängnycklar som användarnamn
+     */
+    public static long hash(CharSequence value) {
+        return hash(value, 0, value.length());
+    }
+
+    /**
+     * Seedad hash av en del av en sträng, utan substring
+     */
+    public static long hash(CharSequence value, int from, int to) {
+        long hash = 0xcbf29ce484222325L ^ SEED;
+        for (int i = from; i < to; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Sampla SAMPLE_SIZE poster från slumpad position och ta bort den minst nyligen använda
+     */
+    private void evictOne(Segment segment, long now) {
+        int length = segment.values.length;
+        int slot = ThreadLocalRandom.current().nextInt(length);
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+
+        for (int seen = 0, scanned = 0; seen < SAMPLE_SIZE && scanned < length; scanned++) {
+            if (segment.values[slot] != null) {
+                seen++;
+                if (segment.lastAccess[slot] < oldest) {
+                    oldest = segment.lastAccess[slot];
+                    victim = slot;
+                }
+            }
+            slot = (slot + 1) & segment.mask;
+        }
+
+        if (victim >= 0) {
+            removeAt(segment, victim);
+            if (now - oldest > idleTimeoutMs) {
+                expirations.increment();
+            } else {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Ta bort posten i slot och meddela lyssnaren - anroparen håller segment-låset
+     */
+    private void removeAt(Segment segment, int slot) {
+        RemovalListener<? super V> listener = removalListener;
+        if (listener != null) {
+            notifyRemoved(listener, segment, slot);
+        }
+        segment.deleteAt(slot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyRemoved(RemovalListener<? super V> listener, Segment segment, int slot) {
+        listener.removed(segment.keys[slot], (V) segment.values[slot]);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 58) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Bit-blandning (murmur3 fmix64) så att sekventiella nycklar som IPv4-adresser sprids jämnt
+     */
+    private static long mix(long key) {
+        long h = key ^ SEED;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Ett segment - open addressing-tabell med plats för dubbla maxSize (load factor <= 0.5)
+     */
+    private static final class Segment {
+        private final long[] keys;
+        private final Object[] values;
+        private final long[] lastAccess;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+
+        private Segment(int maxSize) {
+            int tableSize = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+            this.keys = new long[tableSize];
+            this.values = new Object[tableSize];
+            this.lastAccess = new long[tableSize];
+            this.mask = tableSize - 1;
+            this.maxSize = maxSize;
+        }
+
+        private int find(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(long key, long hash, Object value, long now) {
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            lastAccess[slot] = now;
+            size++;
+        }
+
+        /**
+         * Backward shift deletion - inga tombstones, probe-kedjorna förblir korta
+         */
+        private void deleteAt(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (values[next] == null) {
+                    break;
+                }
+                int home = (int) mix(keys[next]) & mask;
+                // Flytta bara posten om dess hemposition inte ligger cykliskt i (hole, next]
+                boolean movable = hole <= next
+                        ? (home <= hole || home > next)
+                        : (home <= hole && home > next);
+                if (movable) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    lastAccess[hole] = lastAccess[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+            lastAccess[hole] = 0;
+            size--;
+        }
+
+        private void clear() {
+            Arrays.fill(keys, 0);
+            Arrays.fill(values, null);
+            Arrays.fill(lastAccess, 0);
+            size = 0;
+        }
+    }
+}
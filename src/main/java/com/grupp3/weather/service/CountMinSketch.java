@@ -0,0 +1,84 @@
+package com.grupp3.weather.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * CountMinSketch - frekvensräknare i konstant minne för long-nycklar.
+ *
+ * depth rader med width räknare var; en nyckel räknas i en cell per rad och
+ * uppskattningen är minsta cellen. Kan överskatta (kollisioner) men aldrig underskatta.
+ *
+ * Huvudfunktioner:
+ * - add(long key): Räkna upp nyckeln, returnerar ny uppskattning
+ * - estimate(long key): Uppskattning utan att räkna upp
+ * - clear(): Nollställ alla räknare (när ett tidsfönster roteras)
+ *
+ * Conservative update: bara de celler som är lika med minimum räknas upp, vilket
+ * minskar överskattningen kraftigt när många nycklar delar celler (t.ex. vid IP-spoofing).
+ * Lås-fritt via AtomicIntegerArray.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final long[] seeds;
+    private final AtomicIntegerArray counters;
+
+    public CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two: " + width);
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.seeds = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = ThreadLocalRandom.current().nextLong();
+        }
+        this.counters = new AtomicIntegerArray(depth * width);
+    }
+
+    /**
+     * Räkna upp nyckeln med conservative update, returnerar ny uppskattning
+     */
+    public int add(long key) {
+        int target = estimate(key) + 1;
+
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, key);
+            int current = counters.get(index);
+            while (current < target && !counters.compareAndSet(index, current, target)) {
+                current = counters.get(index);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Uppskattat antal för nyckeln (minsta cellen över alla rader)
+     */
+    public int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(row, key)));
+        }
+        return min;
+    }
+
+    /**
+     * Nollställ alla räknare
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(int row, long key) {
+        long h = key ^ seeds[row];
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return row * (mask + 1) + ((int) h & mask);
+    }
+}
@@ -0,0 +1,165 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.EmailOutboxMessage;
+import com.grupp3.weather.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailOutboxService - transactional outbox för verifikationsmail.
+ *
+ * Skiljer sig från EmailPublisher genom att registreringen aldrig pratar med RabbitMQ
+ * direkt. UserService skriver en outbox-rad i samma transaktion som användaren, och
+ * en bakgrundsrelä publicerar raderna efter commit.
+ *
+ * Huvudfunktioner:
+ * - enqueueVerificationEmail(): Skriv outbox-rad, kräver pågående transaktion
+ * - relayPendingMessages(): Schemalagd relä, skickar en batch och väntar på publisher confirms
+ * - cleanupPublishedMessages(): Daglig rensning av publicerade och uppgivna rader
+ *
+ * Leveransgaranti:
+ * - Ett mail markeras publicerat först när brokern har ack:at det (at-least-once)
+ * - NACK/timeout ger exponentiell backoff via nextAttemptAt, max antal försök är konfigurerbart
+ * - Uppgivna rader (max-attempts) får sin klartext-token raderad direkt och tas bort efter
+ *   samma retention som publicerade - lastError finns kvar till dess för felsökning
+ * - SKIP LOCKED gör att flera noder kan köra relän parallellt
+ */
+
+@Service
+public class EmailOutboxService {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    // === BACKOFF CONFIGURATION ===
+    private static final long MAX_BACKOFF_SECONDS = 15 * 60;  // 15 min
+    private static final int PUBLISHED_RETENTION_DAYS = 7;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailPublisher emailPublisher;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository, EmailPublisher emailPublisher) {
+        this.outboxRepository = outboxRepository;
+        this.emailPublisher = emailPublisher;
+    }
+
+    /**
+     * Lägg verifikationsmail i outbox (måste köras i registreringens transaktion)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueVerificationEmail(String email, String username, String token) {
+        outboxRepository.save(new EmailOutboxMessage(email, username, token));
+        log.debug("Queued verification email for user: {}", username);
+    }
+
+    /**
+     * Publicera väntande meddelanden i batchar med publisher confirms
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval-ms:2000}")
+    @Transactional
+    public void relayPendingMessages() {
+        List<EmailOutboxMessage> batch = outboxRepository.lockPendingBatch(
+                LocalDateTime.now(), maxAttempts, PageRequest.of(0, batchSize));
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // 1. Skicka hela batchen utan att vänta
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        for (EmailOutboxMessage message : batch) {
+            try {
+                confirms.add(emailPublisher.publishVerificationEmailWithConfirm(
+                        message.getEmail(), message.getUsername(),
+                        message.getVerificationToken(), String.valueOf(message.getId())));
+            } catch (Exception e) {
+                confirms.add(null);
+                markFailed(message, e.getMessage());
+            }
+        }
+
+        // 2. Vänta på confirms - en gemensam deadline för hela batchen
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        int published = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            CorrelationData correlationData = confirms.get(i);
+            if (correlationData == null) {
+                continue;
+            }
+
+            EmailOutboxMessage message = batch.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                CorrelationData.Confirm confirm = correlationData.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+
+                if (confirm.isAck()) {
+                    message.setPublishedAt(LocalDateTime.now());
+                    message.setVerificationToken(null); // klartext-token behövs inte längre
+                    message.setLastError(null);
+                    published++;
+                } else {
+                    markFailed(message, "Broker nack: " + confirm.getReason());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                markFailed(message, "Interrupted while waiting for confirm");
+            } catch (Exception e) {
+                markFailed(message, "No publisher confirm: " + e.getMessage());
+            }
+        }
+
+        log.info("Outbox relay published {}/{} verification emails", published, batch.size());
+    }
+
+    /**
+     * Rensa publicerade och uppgivna meddelanden en gång per dag
+     */
+    @Scheduled(cron = "0 30 2 * * *") // Kl 02:30 varje dag
+    public void cleanupPublishedMessages() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(PUBLISHED_RETENTION_DAYS);
+        int deleted = outboxRepository.deletePublishedBefore(cutoff);
+        int abandoned = outboxRepository.deleteAbandonedBefore(maxAttempts, cutoff);
+        log.info("Removed {} published and {} abandoned outbox messages", deleted, abandoned);
+    }
+
+    /**
+     * Räkna upp försök och schemalägg nytt försök med exponentiell backoff
+     */
+    private void markFailed(EmailOutboxMessage message, String error) {
+        int attempts = message.getAttempts() + 1;
+        long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(attempts, 20));
+
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoffSeconds));
+        message.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= maxAttempts) {
+            message.setVerificationToken(null); // skickas aldrig - klartext-token ska inte ligga kvar
+            log.error("Giving up on verification email for user {} after {} attempts: {}",
+                    message.getUsername(), attempts, error);
+        } else {
+            log.warn("Verification email for user {} failed (attempt {}), retrying in {}s: {}",
+                    message.getUsername(), attempts, backoffSeconds, error);
+        }
+    }
+}
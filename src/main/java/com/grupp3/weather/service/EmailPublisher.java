@@ -4,6 +4,7 @@ import com.grupp3.weather.config.RabbitMQConfig;
 import com.grupp3.weather.dto.EmailVerificationEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 
@@ -30,4 +31,23 @@ public class EmailPublisher {
         
         log.info("Verification email event published successfully");
     }
+
+    /**
+     * Publicera utan att vänta - anroparen väntar själv på broker-confirm via
+     * CorrelationData.getFuture(), så att en hel batch kan skickas innan vi väntar.
+     */
+    public CorrelationData publishVerificationEmailWithConfirm(String email, String username,
+                                                               String token, String correlationId) {
+        EmailVerificationEvent event = new EmailVerificationEvent(email, username, token);
+        CorrelationData correlationData = new CorrelationData(correlationId);
+
+        rabbitTemplate.convertAndSend(
+            RabbitMQConfig.EMAIL_EXCHANGE,
+            RabbitMQConfig.EMAIL_ROUTING_KEY,
+            event,
+            correlationData
+        );
+
+        return correlationData;
+    }
 }
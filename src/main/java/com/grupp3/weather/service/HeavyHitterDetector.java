@@ -0,0 +1,170 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HeavyHitterDetector - upptäck klienter med hög trafik i konstant minne.
+ *
+ * Ersätter per-IP DDoS-buckets: en flod av spoofade källadresser kostar inget heap-minne,
+ * eftersom varje request bara räknas upp i en count-min sketch av fast storlek.
+ *
+ * Huvudfunktioner:
+ * - record(long clientKey): Räkna requesten, returnerar uppskattat antal i glidande fönster
+ * - estimate(long clientKey): Uppskattning utan att räkna
+ * - getFlagThreshold(): Tröskeln där RateLimitingService skapar buckets för klienten
+ * - topTalkers(int limit): Klienter med mest trafik just nu, för admin-API:t
+ *
+ * Glidande fönster:
+ * - Två sketcher: nuvarande och föregående fönster (windowMs långa)
+ * - Uppskattning = nuvarande + föregående * andel av föregående fönster som fortfarande täcks
+ * - Vid fönsterbyte blir nuvarande föregående och den gamla föregående nollställs
+ *
+ * Top talkers: en liten kandidattabell (topK platser) i space-saving-stil. Bara flaggade
+ * klienter erbjuds, och bara var 16:e request, så låset tas sällan även under attack.
+ */
+
+@Service
+public class HeavyHitterDetector {
+
+    // === TOP TALKER CONFIGURATION ===
+    private static final int OFFER_INTERVAL_MASK = 0xF; // Erbjud kandidattabellen var 16:e request
+
+    private final long windowMs;
+    private final int flagThreshold;
+
+    private volatile CountMinSketch current;
+    private volatile CountMinSketch previous;
+    private volatile long windowStart;
+
+    private final long[] candidateKeys;
+    private final long[] candidateCounts;
+    private int candidates;
+
+    public HeavyHitterDetector(RateLimitProperties rateLimitProperties) {
+        RateLimitProperties.HeavyHitters config = rateLimitProperties.getHeavyHitters();
+        this.windowMs = config.getWindowMs();
+        this.flagThreshold = config.getFlagThreshold();
+        this.current = new CountMinSketch(config.getSketchDepth(), config.getSketchWidth());
+        this.previous = new CountMinSketch(config.getSketchDepth(), config.getSketchWidth());
+        this.windowStart = System.currentTimeMillis();
+        this.candidateKeys = new long[config.getTopK()];
+        this.candidateCounts = new long[config.getTopK()];
+    }
+
+    /**
+     * Räkna en request för klienten, returnerar uppskattat antal i glidande fönster
+     */
+    public long record(long clientKey) {
+        long now = System.currentTimeMillis();
+        rotateIfNeeded(now);
+
+        int inWindow = current.add(clientKey);
+        long estimate = slidingEstimate(inWindow, previous.estimate(clientKey), now);
+
+        if (estimate >= flagThreshold && ((inWindow & OFFER_INTERVAL_MASK) == 0 || inWindow == flagThreshold)) {
+            offer(clientKey, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Uppskattat antal requests i glidande fönster, utan att räkna upp
+     */
+    public long estimate(long clientKey) {
+        long now = System.currentTimeMillis();
+        rotateIfNeeded(now);
+        return slidingEstimate(current.estimate(clientKey), previous.estimate(clientKey), now);
+    }
+
+    /**
+     * Klienter med mest trafik i glidande fönster, sorterade fallande
+     */
+    public List<TopTalker> topTalkers(int limit) {
+        long[] keys;
+        synchronized (this) {
+            keys = new long[candidates];
+            System.arraycopy(candidateKeys, 0, keys, 0, candidates);
+        }
+
+        List<TopTalker> result = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            long estimate = estimate(key);
+            if (estimate > 0) {
+                result.add(new TopTalker(key, estimate));
+            }
+        }
+        result.sort(Comparator.comparingLong(TopTalker::estimatedRequests).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public int getFlagThreshold() {
+        return flagThreshold;
+    }
+
+    /**
+     * Lägg klienten i kandidattabellen - ersätt lägsta om tabellen är full (space-saving)
+     */
+    private synchronized void offer(long clientKey, long estimate) {
+        int minSlot = -1;
+        for (int i = 0; i < candidates; i++) {
+            if (candidateKeys[i] == clientKey) {
+                candidateCounts[i] = estimate;
+                return;
+            }
+            if (minSlot < 0 || candidateCounts[i] < candidateCounts[minSlot]) {
+                minSlot = i;
+            }
+        }
+
+        if (candidates < candidateKeys.length) {
+            candidateKeys[candidates] = clientKey;
+            candidateCounts[candidates] = estimate;
+            candidates++;
+        } else if (estimate > candidateCounts[minSlot]) {
+            candidateKeys[minSlot] = clientKey;
+            candidateCounts[minSlot] = estimate;
+        }
+    }
+
+    private long slidingEstimate(long inWindow, long inPrevious, long now) {
+        long elapsed = Math.min(windowMs, Math.max(0, now - windowStart));
+        return inWindow + inPrevious * (windowMs - elapsed) / windowMs;
+    }
+
+    /**
+     * Byt fönster när windowMs passerat - nuvarande blir föregående, gamla föregående nollställs
+     */
+    private void rotateIfNeeded(long now) {
+        if (now - windowStart < windowMs) {
+            return;
+        }
+        synchronized (this) {
+            long elapsed = now - windowStart;
+            if (elapsed < windowMs) {
+                return;
+            }
+
+            CountMinSketch recycled = previous;
+            recycled.clear();
+            if (elapsed >= 2 * windowMs) {
+                current.clear(); // Ingen trafik i föregående fönster heller
+            }
+            previous = current;
+            current = recycled;
+            windowStart = now - (elapsed % windowMs);
+
+            // Kandidaternas räknare gäller gamla fönstret - behåll nycklarna, sänk vikten
+            for (int i = 0; i < candidates; i++) {
+                candidateCounts[i] /= 2;
+            }
+        }
+    }
+
+    public record TopTalker(long clientKey, long estimatedRequests) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PlaceChangeBroadcaster - sprider platsändringar till andra noders minnesindex.
+ *
+ * PlaceNameRegistry och PlaceSpatialIndex uppdateras av PlaceChangedEvent, men bara på noden
+ * som gjorde skrivningen. Utan spridning ger en plats skapad på nod A 404 på nod B.
+ *
+ * Huvudfunktioner:
+ * - onPlaceChanged(PlaceChangedEvent event): Publicera en lokal ändring efter commit
+ * - onMessage(Message message, byte[] pattern): Ändring från en annan nod - uppdatera båda indexen
+ *
+ * Spridning (app.places.sync.enabled=true): ändringar publiceras på Redis-kanalen app.places.channel
+ * och tas emot av placeSyncListenerContainer på alla noder. Egen brytare, oberoende av
+ * app.rate-limit.mode - flera noder med lokal rate limiting delar ändå databasen.
+ * Format: "SAVED <id> <lat> <lon> <favorite> <nodeId> <namn>" och "DELETED <id> <nodeId>".
+ * Pub/sub kan tappa meddelanden (Redis nere, nod som startar om anslutningen) - därför laddar
+ * indexen också om sig från databasen var app.places.resync-interval-ms.
+ */
+
+@Component
+public class PlaceChangeBroadcaster implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(PlaceChangeBroadcaster.class);
+
+    private static final String SAVED = "SAVED";
+    private static final String DELETED = "DELETED";
+
+    private final PlaceNameRegistry placeNameRegistry;
+    private final PlaceSpatialIndex placeSpatialIndex;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final String nodeId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    @Value("${app.places.channel:weather:places}")
+    private String channel;
+
+    public PlaceChangeBroadcaster(PlaceNameRegistry placeNameRegistry,
+                                  PlaceSpatialIndex placeSpatialIndex,
+                                  RedisTemplate<String, String> redisTemplate,
+                                  @Value("${app.places.sync.enabled:false}") boolean enabled) {
+        this.placeNameRegistry = placeNameRegistry;
+        this.placeSpatialIndex = placeSpatialIndex;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Publicera en lokal ändring - körs efter commit, så andra noder ser aldrig en rollback
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlaceChanged(PlaceChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String message = event.getType() == PlaceChangedEvent.Type.SAVED
+                ? SAVED + " " + event.getPlaceId() + " " + event.getLat() + " " + event.getLon() + " "
+                        + event.isFavorite() + " " + nodeId + " " + event.getDisplayName()
+                : DELETED + " " + event.getPlaceId() + " " + nodeId;
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (DataAccessException e) {
+            log.warn("Could not publish place change, other nodes catch up on next resync: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ändring från en annan nod
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(" ", 7);
+
+        try {
+            PlaceChangedEvent event;
+            if (parts.length == 7 && SAVED.equals(parts[0])) {
+                if (nodeId.equals(parts[5])) {
+                    return;
+                }
+                event = PlaceChangedEvent.saved(Long.parseLong(parts[1]), parts[6],
+                        Double.parseDouble(parts[2]), Double.parseDouble(parts[3]), Boolean.parseBoolean(parts[4]));
+            } else if (parts.length == 3 && DELETED.equals(parts[0])) {
+                if (nodeId.equals(parts[2])) {
+                    return;
+                }
+                event = PlaceChangedEvent.deleted(Long.parseLong(parts[1]));
+            } else {
+                log.warn("Ignoring malformed place change message: {}", body);
+                return;
+            }
+            placeNameRegistry.onPlaceChanged(event);
+            placeSpatialIndex.onPlaceChanged(event);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed place change message: {}", body);
+        }
+    }
+}
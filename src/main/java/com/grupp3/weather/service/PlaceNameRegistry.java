@@ -0,0 +1,214 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.repository.PlaceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PlaceNameRegistry - namn → plats i minnet, så att namnuppslag inte kostar en databasfråga.
+ *
+ * /weather/{placeName}, /forecast/{placeName} och /favorites slår upp platsen på namn vid varje
+ * anrop. Uppslaget görs här på Place.nameKeyOf(namn) - samma nyckel som name_key-kolumnen.
+ *
+ * Huvudfunktioner:
+ * - find(String name): Platsen med namnet, skiftlägesokänsligt (kopia - ändringar påverkar inte registret)
+ * - contains(String name): Finns en plats med namnet
+ * - onPlaceChanged(PlaceChangedEvent event): Lägg till, döp om eller ta bort en plats efter commit
+ *
+ * Registret byggs från databasen vid start och hålls sedan aktuellt av PlaceService-händelser,
+ * på samma sätt som PlaceSpatialIndex. Ändringar på andra noder kommer via PlaceChangeBroadcaster,
+ * och hela registret laddas om var app.places.resync-interval-ms. Delar flera platser namn ges
+ * den med lägst id. Händelser som kommer medan findAll() körs sparas och spelas upp på det nya
+ * registret, så en ändring som committas mitt i en omladdning inte försvinner.
+ * Vid start fylls även name_key i för platser som sparades innan kolumnen fanns.
+ */
+
+@Service
+public class PlaceNameRegistry {
+    private static final Logger log = LoggerFactory.getLogger(PlaceNameRegistry.class);
+
+    // === NAME KEY BACKFILL ===
+    // Nyckeln räknas i Java (Place.nameKeyOf) - LOWER() i databasen beror på LC_CTYPE
+    private static final String MISSING_KEYS_SQL =
+            "SELECT id, display_name FROM places WHERE name_key IS NULL";
+    private static final String BACKFILL_SQL =
+            "UPDATE places SET name_key = ? WHERE id = ?";
+    private static final String NOT_NULL_SQL =
+            "ALTER TABLE places ALTER COLUMN name_key SET NOT NULL";
+
+    private final PlaceRepository placeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private final Map<String, NavigableMap<Long, Entry>> byKey = new HashMap<>();
+    private List<PlaceChangedEvent> pendingDuringRebuild; // Skyddas av lock, null utanför rebuild
+
+    public PlaceNameRegistry(PlaceRepository placeRepository, JdbcTemplate jdbcTemplate) {
+        this.placeRepository = placeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fyll i saknade name_key och bygg registret från alla platser
+     */
+    @PostConstruct
+    public void initialize() {
+        List<Object[]> backfill = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(MISSING_KEYS_SQL)) {
+            backfill.add(new Object[]{Place.nameKeyOf((String) row.get("display_name")), row.get("id")});
+        }
+        if (!backfill.isEmpty()) {
+            jdbcTemplate.batchUpdate(BACKFILL_SQL, backfill);
+            log.info("Backfilled name_key for {} places", backfill.size());
+        }
+        jdbcTemplate.execute(NOT_NULL_SQL);
+        rebuild();
+    }
+
+    /**
+     * Bygg registret från alla platser i databasen - även periodiskt, ifall en ändring från en annan nod tappats
+     */
+    @Scheduled(initialDelayString = "${app.places.resync-interval-ms:600000}",
+            fixedDelayString = "${app.places.resync-interval-ms:600000}")
+    public void rebuild() {
+        setPending(new ArrayList<>());
+        List<Place> places;
+        try {
+            places = placeRepository.findAll();
+        } catch (RuntimeException e) {
+            setPending(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byKey.clear();
+            for (Place place : places) {
+                add(new Entry(place.getId(), place.getDisplayName(), place.getLat(), place.getLon(), place.isFavorite()));
+            }
+            // Ändringar under findAll() kan saknas i resultatet - att spela upp en som redan finns där är ofarligt
+            pendingDuringRebuild.forEach(this::apply);
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Place name registry built with {} places", places.size());
+    }
+
+    /**
+     * Håll registret i takt med databasen - körs efter commit, så en rollback syns aldrig här
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlaceChanged(PlaceChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Platsen med namnet (skiftlägesokänsligt), som en ny Place-instans
+     */
+    public Optional<Place> find(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, Entry> entries = byKey.get(Place.nameKeyOf(name));
+            return entries == null ? Optional.empty() : Optional.of(entries.firstEntry().getValue().toPlace());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String name) {
+        if (name == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return byKey.containsKey(Place.nameKeyOf(name));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setPending(List<PlaceChangedEvent> pending) {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = pending;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(PlaceChangedEvent event) {
+        remove(event.getPlaceId());
+        if (event.getType() == PlaceChangedEvent.Type.SAVED) {
+            add(new Entry(event.getPlaceId(), event.getDisplayName(), event.getLat(), event.getLon(), event.isFavorite()));
+        }
+    }
+
+    private void add(Entry entry) {
+        byId.put(entry.id(), entry);
+        byKey.computeIfAbsent(Place.nameKeyOf(entry.name()), key -> new TreeMap<>()).put(entry.id(), entry);
+    }
+
+    private void remove(Long id) {
+        Entry existing = byId.remove(id);
+        if (existing == null) {
+            return;
+        }
+        String key = Place.nameKeyOf(existing.name());
+        NavigableMap<Long, Entry> entries = byKey.get(key);
+        entries.remove(id);
+        if (entries.isEmpty()) {
+            byKey.remove(key);
+        }
+    }
+
+    /**
+     * En plats värden, oberoende av JPA-entiteten
+     */
+    private record Entry(Long id, String name, double lat, double lon, boolean favorite) {
+
+        Place toPlace() {
+            Place place = new Place(name, lat, lon);
+            place.setId(id);
+            place.setFavorite(favorite);
+            return place;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.Place;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PlaceReferenceMigration - place_id istället för place_name/latitude/longitude på väderrader.
+ *
+ * weather_data och weather_forecast upprepade platsens namn och koordinater på varje rad och
+ * filtrerades på en varchar. En omdöpt plats tappade sin historik. Raderna pekar nu på places.id.
+ *
+ * Huvudfunktioner:
+ * - initialize(): Vid start, per tabell och i en transaktion:
+ *   1. Fyll place_id från places - först på exakta koordinater (raderna kopierade platsens lat/lon),
+ *      sedan på namn för platser vars koordinater ändrats. Namn jämförs med Place.nameKeyOf i Java,
+ *      samma nyckel som name_key och PlaceNameRegistry - inte LOWER() i databasen. Delar flera
+ *      platser koordinater eller namn väljs den med lägst id, samma regel som PlaceNameRegistry
+ *   2. Flytta rader utan matchande plats till <tabell>_unmatched (med place_name kvar) och ta bort
+ *      dem ur tabellen - de gick redan inte att nå via någon plats, men kan återställas för hand
+ *   3. Släpp place_name, latitude och longitude (index på place_name följer med)
+ *   4. place_id NOT NULL och främmande nyckel till places (ON DELETE RESTRICT) - en plats med
+ *      historik eller prognoser kan inte raderas, PlaceService svarar 409 istället
+ *
+ * Idempotent: steg 1-3 körs bara om place_name finns kvar, steg 4 bara om nyckeln saknas. En
+ * nyckel från en tidigare version med ON DELETE CASCADE byts ut.
+ * Hibernates ddl-auto lägger till place_id-kolumnen (nullable) innan detta körs.
+ * Körs före WeatherDataPartitionManager, som skapar det unika indexet på (place_id, observation_time).
+ */
+
+@Service
+public class PlaceReferenceMigration {
+    private static final Logger log = LoggerFactory.getLogger(PlaceReferenceMigration.class);
+
+    // === MIGRATION CONFIGURATION ===
+    private static final String[] TABLES = {"weather_data", "weather_forecast"};
+
+    private static final String TABLE_EXISTS_SQL =
+            "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = ? AND table_schema = current_schema()";
+    private static final String COLUMN_EXISTS_SQL =
+            "SELECT COUNT(*) FROM information_schema.columns " +
+            "WHERE table_name = ? AND column_name = ? AND table_schema = current_schema()";
+    private static final String CONSTRAINT_EXISTS_SQL =
+            "SELECT COUNT(*) FROM pg_constraint WHERE conrelid = ?::regclass AND conname = ?";
+    private static final String CASCADE_CONSTRAINT_SQL =
+            "SELECT COUNT(*) FROM pg_constraint WHERE conrelid = ?::regclass AND conname = ? AND confdeltype = 'c'";
+    private static final String PLACE_NAMES_SQL = "SELECT id, display_name FROM places";
+    private static final String UNMATCHED_SUFFIX = "_unmatched";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PlaceReferenceMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Migrera väder-tabellerna till place_id
+     */
+    @PostConstruct
+    public void initialize() {
+        for (String table : TABLES) {
+            if (count(TABLE_EXISTS_SQL, table) == 0) {
+                log.warn("Table {} does not exist, skipping place_id migration", table);
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> migrate(table));
+        }
+    }
+
+    private void migrate(String table) {
+        if (count(COLUMN_EXISTS_SQL, table, "place_name") > 0) {
+            backfill(table);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN place_id SET NOT NULL");
+        String foreignKey = "fk_" + table + "_place";
+        if (count(CASCADE_CONSTRAINT_SQL, table, foreignKey) > 0) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + foreignKey);
+            log.info("Replacing ON DELETE CASCADE on {} with RESTRICT", foreignKey);
+        }
+        if (count(CONSTRAINT_EXISTS_SQL, table, foreignKey) == 0) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + foreignKey +
+                    " FOREIGN KEY (place_id) REFERENCES places (id) ON DELETE RESTRICT");
+        }
+    }
+
+    private void backfill(String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS place_id BIGINT");
+
+        // Lägsta id per koordinat och per namn - annars väljer UPDATE ... FROM en godtycklig plats
+        int byCoordinates = jdbcTemplate.update("UPDATE " + table + " t SET place_id = p.id " +
+                "FROM (SELECT lat, lon, MIN(id) AS id FROM places GROUP BY lat, lon) p " +
+                "WHERE t.place_id IS NULL AND p.lat = t.latitude AND p.lon = t.longitude");
+        int byName = backfillByName(table);
+
+        int orphaned = count("SELECT COUNT(*) FROM " + table + " WHERE place_id IS NULL");
+        if (orphaned > 0) {
+            String unmatched = table + UNMATCHED_SUFFIX;
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + unmatched + " (LIKE " + table + " INCLUDING DEFAULTS)");
+            jdbcTemplate.update("INSERT INTO " + unmatched + " SELECT * FROM " + table + " WHERE place_id IS NULL");
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE place_id IS NULL");
+            log.warn("Moved {} rows without a matching place from {} to {}", orphaned, table, unmatched);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + table +
+                " DROP COLUMN place_name, DROP COLUMN IF EXISTS latitude, DROP COLUMN IF EXISTS longitude");
+
+        log.info("Migrated {} to place_id: {} rows matched by coordinates, {} by name, {} without place moved",
+                table, byCoordinates, byName, orphaned);
+    }
+
+    /**
+     * Fyll place_id på namn - nyckeln räknas i Java (Place.nameKeyOf), LOWER() i databasen beror på LC_CTYPE
+     */
+    private int backfillByName(String table) {
+        Map<String, Long> idByKey = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(PLACE_NAMES_SQL)) {
+            long id = ((Number) row.get("id")).longValue();
+            idByKey.merge(Place.nameKeyOf((String) row.get("display_name")), id, Math::min);
+        }
+
+        List<Object[]> matches = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList("SELECT DISTINCT place_name FROM " + table +
+                " WHERE place_id IS NULL AND place_name IS NOT NULL", String.class)) {
+            Long id = idByKey.get(Place.nameKeyOf(name));
+            if (id != null) {
+                matches.add(new Object[]{id, name});
+            }
+        }
+        if (matches.isEmpty()) {
+            return 0;
+        }
+
+        int updated = 0;
+        for (int rows : jdbcTemplate.batchUpdate("UPDATE " + table + " SET place_id = ? " +
+                "WHERE place_id IS NULL AND place_name = ?", matches)) {
+            updated += Math.max(rows, 0); // SUCCESS_NO_INFO räknas inte
+        }
+        return updated;
+    }
+
+    private int count(String sql, Object... args) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return count != null ? count : 0;
+    }
+}
@@ -1,9 +1,16 @@
 package com.grupp3.weather.service;
 
+import com.grupp3.weather.dto.PlaceChangedEvent;
 import com.grupp3.weather.model.Place;
 import com.grupp3.weather.repository.PlaceRepository;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import com.grupp3.weather.repository.WeatherForecastRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,9 +23,13 @@ import java.util.Optional;
  *
  * Affärslogik inkluderar:
  * - Input-validering: null-skydd förhindrar systemkrasch vid felaktiga API-anrop
- * - Säker radering: kontrollerar existens först, ger tydlig feedback om resultat
+ * - Säker radering: kontrollerar existens först, ger tydlig feedback om resultat. En plats med
+ *   väderhistorik eller prognoser raderas inte (409) - främmande nyckeln är ON DELETE RESTRICT
  * - Immutable names: platsnamn kan aldrig ändras för att bevara datakonsistens
  * - State-persistence: favoritändringar sparas omedelbart för att undvika dataförlust
+ * - Ändringshändelser: varje sparad eller raderad plats publiceras som PlaceChangedEvent,
+ *   som minnesindex (PlaceSpatialIndex, PlaceNameRegistry) uppdateras från efter commit
+ * - Namnuppslag: findByName() och exists() svarar från PlaceNameRegistry utan databasfråga
  *
  * @Transactional säkerställer databas-rollback vid fel.
  * Används av controllers för CRUD och favorithantering.
@@ -29,15 +40,34 @@ import java.util.Optional;
 public class PlaceService {
 
     private final PlaceRepository placeRepository;
-
-    public PlaceService(PlaceRepository placeRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlaceNameRegistry placeNameRegistry;
+    private final WeatherDataRepository weatherDataRepository;
+    private final WeatherForecastRepository weatherForecastRepository;
+
+    public PlaceService(PlaceRepository placeRepository, ApplicationEventPublisher eventPublisher,
+                        PlaceNameRegistry placeNameRegistry, WeatherDataRepository weatherDataRepository,
+                        WeatherForecastRepository weatherForecastRepository) {
         this.placeRepository = placeRepository;
+        this.eventPublisher = eventPublisher;
+        this.placeNameRegistry = placeNameRegistry;
+        this.weatherDataRepository = weatherDataRepository;
+        this.weatherForecastRepository = weatherForecastRepository;
     }
 
     public List<Place> findAll() {
         return placeRepository.findAll();
     }
 
+    // Keyset-sidor i id-ordning - limit rader med id större än afterId
+    public List<Place> findPage(long afterId, int limit) {
+        return placeRepository.findPageAfter(afterId, Limit.of(limit));
+    }
+
+    public List<Place> findFavoritesPage(long afterId, int limit) {
+        return placeRepository.findFavoritesPageAfter(afterId, Limit.of(limit));
+    }
+
     // Nya koordinatbaserade metoder
     public Optional<Place> findByCoordinates(double lat, double lon) {
         return placeRepository.findByCoordinates(lat, lon);
@@ -51,41 +81,47 @@ public class PlaceService {
         return placeRepository.findByCoordinates(lat, lon)
                 .map(place -> {
                     place.setFavorite(favorite);
-                    return placeRepository.save(place);
+                    return saved(placeRepository.save(place));
                 });
     }
 
     @Transactional
     public boolean deleteByCoordinates(double lat, double lon) {
-        if (placeRepository.existsByCoordinates(lat, lon)) {
-            placeRepository.deleteByCoordinates(lat, lon);
+        List<Long> ids = placeRepository.findIdsByCoordinates(lat, lon);
+        requireNoWeatherData(ids);
+        if (placeRepository.deleteByCoordinates(lat, lon) > 0) {
+            ids.forEach(id -> eventPublisher.publishEvent(PlaceChangedEvent.deleted(id)));
             return true;
         }
         return false;
     }
 
     // Bakåtkompatibla metoder för befintlig kod
+    // Läsningar på namn går mot registret i minnet - skrivningar nedan hämtar entiteten från databasen
     public Optional<Place> findByName(String name) {
-        return placeRepository.findByNameIgnoreCase(name);
+        return placeNameRegistry.find(name);
     }
 
     public boolean exists(String name) {
         if (name == null) return false;
-        return placeRepository.existsByNameIgnoreCase(name);
+        return placeNameRegistry.contains(name);
     }
 
     public Optional<Place> setFavorite(String name, boolean favorite) {
         return placeRepository.findByNameIgnoreCase(name)
                 .map(place -> {
                     place.setFavorite(favorite);
-                    return placeRepository.save(place);
+                    return saved(placeRepository.save(place));
                 });
     }
 
     @Transactional
     public boolean delete(String name) {
         if (placeRepository.existsByNameIgnoreCase(name)) {
+            List<Long> ids = placeRepository.findIdsByNameIgnoreCase(name);
+            requireNoWeatherData(ids);
             placeRepository.deleteByNameIgnoreCase(name);
+            ids.forEach(id -> eventPublisher.publishEvent(PlaceChangedEvent.deleted(id)));
             return true;
         }
         return false;
@@ -93,7 +129,7 @@ public class PlaceService {
 
     // Gemensamma metoder
     public Place create(Place place) {
-        return placeRepository.save(place);
+        return saved(placeRepository.save(place));
     }
 
     public Optional<Place> update(String name, Place incoming) {
@@ -101,11 +137,25 @@ public class PlaceService {
                 .map(existing -> {
                     existing.setLat(incoming.getLat());
                     existing.setLon(incoming.getLon());
-                    return placeRepository.save(existing);
+                    return saved(placeRepository.save(existing));
                 });
     }
 
     public List<Place> findFavorites() {
         return placeRepository.findFavorites();
     }
-}
\ No newline at end of file
+
+    // Meddela lyssnare (efter commit) att platsen sparats
+    private Place saved(Place place) {
+        eventPublisher.publishEvent(PlaceChangedEvent.saved(place));
+        return place;
+    }
+
+    // Historik och prognoser ska inte försvinna med platsen - databasen nekar ändå (ON DELETE RESTRICT)
+    private void requireNoWeatherData(List<Long> ids) {
+        if (!ids.isEmpty() && (weatherDataRepository.existsByPlaceIdIn(ids)
+                || weatherForecastRepository.existsByPlaceIdIn(ids))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Place has weather history and cannot be deleted");
+        }
+    }
+}
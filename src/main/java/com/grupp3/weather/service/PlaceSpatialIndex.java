@@ -0,0 +1,272 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.NearbyPlaceDTO;
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.repository.PlaceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PlaceSpatialIndex - närmaste-plats-sökning i minnet utan PlaceRepository.findAll().
+ *
+ * Varje plats läggs som en punkt på enhetssfären (x, y, z) i ett 3D-rutnät. Rakt avstånd (korda)
+ * mellan två punkter växer med storcirkelavståndet, så närmast i rutnätet = närmast på jorden -
+ * utan specialfall vid datumlinjen eller polerna.
+ *
+ * Huvudfunktioner:
+ * - nearest(double lat, double lon, int k): De k närmaste platserna, närmast först
+ * - nearestWithin(double lat, double lon, double maxKm): Närmaste plats inom ett avstånd
+ * - onPlaceChanged(PlaceChangedEvent event): Lägg till, flytta eller ta bort en plats efter commit
+ *
+ * Sökning: rutorna söks i skal (avstånd 0, 1, 2 ... rutor från sökpunktens ruta). Efter skal r
+ * ligger alla osedda punkter minst r * CELL_SIZE bort, så sökningen stannar när k träffar är
+ * närmare än så. Ligger inga platser inom MAX_RING rutor (mitt i havet) söks alla platser.
+ *
+ * Indexet byggs från databasen vid start och hålls sedan aktuellt av PlaceService-händelser.
+ * Ändringar på andra noder kommer via PlaceChangeBroadcaster, och indexet byggs om helt var
+ * app.places.resync-interval-ms. Händelser som kommer medan findAll() körs spelas upp på det
+ * nya indexet, precis som i PlaceNameRegistry.
+ */
+
+@Service
+public class PlaceSpatialIndex {
+    private static final Logger log = LoggerFactory.getLogger(PlaceSpatialIndex.class);
+
+    // === INDEX CONFIGURATION ===
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double CELL_SIZE = 0.005;   // Korda på enhetssfären, ca 32 km
+    private static final int MAX_RING = 8;           // Därefter söks alla platser
+    private static final int CELL_OFFSET = 1024;     // Rutindex (±200) packas i 11 bitar per axel
+
+    private final PlaceRepository placeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private List<PlaceChangedEvent> pendingDuringRebuild; // Skyddas av lock, null utanför rebuild
+
+    public PlaceSpatialIndex(PlaceRepository placeRepository) {
+        this.placeRepository = placeRepository;
+    }
+
+    /**
+     * Bygg indexet från alla platser i databasen - vid start och periodiskt, ifall en ändring från en annan nod tappats
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${app.places.resync-interval-ms:600000}",
+            fixedDelayString = "${app.places.resync-interval-ms:600000}")
+    public void rebuild() {
+        setPending(new ArrayList<>());
+        List<Place> places;
+        try {
+            places = placeRepository.findAll();
+        } catch (RuntimeException e) {
+            setPending(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            cells.clear();
+            for (Place place : places) {
+                add(new Entry(place.getId(), place.getDisplayName(), place.getLat(), place.getLon()));
+            }
+            // Ändringar under findAll() kan saknas i resultatet - att spela upp en som redan finns där är ofarligt
+            pendingDuringRebuild.forEach(this::apply);
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Place spatial index built with {} places", places.size());
+    }
+
+    /**
+     * Håll indexet i takt med databasen - körs efter commit, så en rollback syns aldrig här
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlaceChanged(PlaceChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * De k närmaste platserna till punkten, närmast först
+     */
+    public List<NearbyPlaceDTO> nearest(double lat, double lon, int k) {
+        Entry query = new Entry(null, null, lat, lon);
+        // Max-heap: sämsta av de k bästa överst
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::chord).reversed());
+
+        lock.readLock().lock();
+        try {
+            if (k <= 0 || byId.isEmpty()) {
+                return List.of();
+            }
+            boolean complete = false;
+            for (int r = 0; r <= MAX_RING && !complete; r++) {
+                visitShell(query, r, k, best);
+                complete = best.size() == k && best.peek().chord() <= r * CELL_SIZE;
+            }
+            if (!complete) {
+                best.clear();
+                for (Entry entry : byId.values()) {
+                    offer(best, k, entry, query);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(Candidate::chord));
+        List<NearbyPlaceDTO> result = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            Entry entry = candidate.entry();
+            result.add(new NearbyPlaceDTO(entry.id(), entry.name(), entry.lat(), entry.lon(), toKm(candidate.chord())));
+        }
+        return result;
+    }
+
+    /**
+     * Närmaste plats om den ligger inom maxKm
+     */
+    public Optional<NearbyPlaceDTO> nearestWithin(double lat, double lon, double maxKm) {
+        return nearest(lat, lon, 1).stream()
+                .filter(place -> place.getDistanceKm() <= maxKm)
+                .findFirst();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rutorna exakt r steg från sökpunktens ruta (ytan på en kub med sidan 2r+1)
+     */
+    private void visitShell(Entry query, int r, int k, PriorityQueue<Candidate> best) {
+        int cx = cellIndex(query.x()), cy = cellIndex(query.y()), cz = cellIndex(query.z());
+        for (int dx = -r; dx <= r; dx++) {
+            for (int dy = -r; dy <= r; dy++) {
+                boolean edge = Math.abs(dx) == r || Math.abs(dy) == r;
+                int dzStep = edge ? 1 : 2 * r; // Inuti kvadraten räcker kubens botten och topp (r > 0 här)
+                for (int dz = -r; dz <= r; dz += dzStep) {
+                    List<Entry> cell = cells.get(cellKey(cx + dx, cy + dy, cz + dz));
+                    if (cell != null) {
+                        for (Entry entry : cell) {
+                            offer(best, k, entry, query);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, int k, Entry entry, Entry query) {
+        double chord = chord(entry, query);
+        if (best.size() < k) {
+            best.add(new Candidate(entry, chord));
+        } else if (chord < best.peek().chord()) {
+            best.poll();
+            best.add(new Candidate(entry, chord));
+        }
+    }
+
+    private void setPending(List<PlaceChangedEvent> pending) {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = pending;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(PlaceChangedEvent event) {
+        remove(event.getPlaceId());
+        if (event.getType() == PlaceChangedEvent.Type.SAVED) {
+            add(new Entry(event.getPlaceId(), event.getDisplayName(), event.getLat(), event.getLon()));
+        }
+    }
+
+    private void add(Entry entry) {
+        byId.put(entry.id(), entry);
+        cells.computeIfAbsent(entry.cell(), key -> new ArrayList<>()).add(entry);
+    }
+
+    private void remove(Long id) {
+        Entry existing = byId.remove(id);
+        if (existing == null) {
+            return;
+        }
+        List<Entry> cell = cells.get(existing.cell());
+        cell.removeIf(entry -> entry.id().equals(id));
+        if (cell.isEmpty()) {
+            cells.remove(existing.cell());
+        }
+    }
+
+    private static double chord(Entry a, Entry b) {
+        double dx = a.x() - b.x(), dy = a.y() - b.y(), dz = a.z() - b.z();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Korda på enhetssfären till storcirkelavstånd i km
+     */
+    static double toKm(double chord) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, chord / 2));
+    }
+
+    private static int cellIndex(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long cellKey(int ix, int iy, int iz) {
+        return ((long) (ix + CELL_OFFSET) << 22) | ((long) (iy + CELL_OFFSET) << 11) | (iz + CELL_OFFSET);
+    }
+
+    private record Candidate(Entry entry, double chord) {
+    }
+
+    /**
+     * En plats som punkt på enhetssfären, med sin ruta
+     */
+    private record Entry(Long id, String name, double lat, double lon, double x, double y, double z, long cell) {
+
+        Entry(Long id, String name, double lat, double lon) {
+            this(id, name, lat, lon,
+                    Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(lon)),
+                    Math.cos(Math.toRadians(lat)) * Math.sin(Math.toRadians(lon)),
+                    Math.sin(Math.toRadians(lat)));
+        }
+
+        private Entry(Long id, String name, double lat, double lon, double x, double y, double z) {
+            this(id, name, lat, lon, x, y, z, cellKey(cellIndex(x), cellIndex(y), cellIndex(z)));
+        }
+    }
+}
@@ -1,12 +1,30 @@
 package com.grupp3.weather.service;
 
+import com.grupp3.weather.config.RateLimitProperties;
 import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BandwidthBuilder.BandwidthBuilderRefillStage;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.github.bucket4j.local.SynchronizationStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
 
 /**
  * RateLimitingService - säkerhetsvakt implementerat med token bucket-algoritm för API-skydd.
@@ -15,16 +33,56 @@ import java.util.concurrent.ConcurrentHashMap;
  * istället för affärslogik, med thread-safe concurrent operations.
  *
  * Huvudfunktioner:
- * - isAllowed(String clientIp, EndpointType endpointType): Kontrollera om request tillåts
- * - isDDoSBehavior(String clientIp): Upptäck extremt beteende över 100 requests/minut
- * - getAvailableTokens(): Returnera kvarvarande polletter för HTTP-headers
- * - cleanupOldBuckets(): Förhindra minnesleak från gamla IP-buckets
+ * - consume(long clientKey, EndpointType endpointType): Förbruka pollett, returnerar kvarvarande eller < 0 vid nekad
+ * - retryAfterMs(long result): Väntetid till nästa pollett ur ett nekat resultat
+ * - isDDoSBehavior(long clientKey): Upptäck extremt beteende över 100 requests/minut
+ * - recordRequest(long clientKey): Räkna requesten i sketchen utan DDoS-kontroll (allow-listade IP:n)
+ * - isAllowedForApiKey(): Egen kvot per API-nyckel, oberoende av klientens IP
+ * - consumeForUser(): Egen kvot per inloggad användare (JWT-subject), skalad per roll
+ * - recordViolation(): Räkna rate limit-överträdelser per IP för DDoS-blockering
+ * - updateLimit(): Ändra gränsen för en endpoint-typ i drift (admin)
+ * - getBucketCounts() / getRejectionCounts() / getTopRejected(): Live-state för admin-API:t
+ * - cleanupOldBuckets(): Ta bort buckets som varit oanvända längre än idle-timeout
  *
  * Dual-layer säkerhetslogik (kontrolleras i ordning):
  * - FÖRSTA: DDoS detection (100/minut) → över tröskelvärde = 15 minuters IP-ban
- * - ANDRA: Normal rate limiting (30/minut WEATHER) → över limit = HTTP 429, vänta ~1 minut
- * - Differentierade endpoint-limits: ADMIN (10/min), PLACES_WRITE (20/min)
+ * - ANDRA: Normal rate limiting per endpoint-typ (app.rate-limit.limits) → över limit = HTTP 429
+ * - Differentierade endpoint-limits: default WEATHER 30/min, ADMIN 10/min, PLACES_WRITE 20/min
  * - Per-IP bucket-isolation: Samma IP har separata hinkar för olika endpoint-typer
+ *   i en gemensam ClientRecord (array indexerad på EndpointType.ordinal())
+ * - DDoS-tröskeln mäts i HeavyHitterDetector (count-min sketch, konstant minne) - en IP får
+ *   en ClientRecord först när sketchen flaggar den, så spoofade engångs-IP:n kostar inget heap.
+ *   Den nya bucketen startar med sketchens antal redan förbrukat, så tröskeln ger ingen extra kvot;
+ *   därför måste capacity och burst ligga över flag-threshold (kontrolleras i LimitTable)
+ * - Per-användare: inloggade delar inte bucket med andra bakom samma NAT
+ *
+ * Lagring (app.rate-limit.mode):
+ * - LOCAL (default): bucket4j-buckets i minnet, en uppsättning per nod
+ * - REDIS: delade token buckets via RedisRateLimiter, så N noder inte ger N gånger gränsen.
+ *   Om Redis inte svarar faller tjänsten tillbaka på lokala buckets tills Redis är tillbaka.
+ *
+ * Minne: lokala buckets och överträdelser ligger i BucketStore med hårt tak, idle-utgång
+ * och approximativ LRU-eviction (app.rate-limit.store), så en flod av spoofade IP:n
+ * aldrig växer minnet eller nollställer aktiva klienter. Mätvärden under ratelimit.store.*.
+ *
+ * Klientnycklar är primitiva long (se ClientKeys): IPv4-adress, IPv6 /64-prefix eller
+ * seedad hash av användarnamn. I LOCAL-läge allokerar ett uppslag ingenting - ingen
+ * strängkonkatenering, ett store-uppslag och ett lås per request.
+ *
+ * Admin-statistik räknas på hot path, aldrig genom att gå igenom lagren:
+ * - Antal buckets per endpoint-typ: LongAdder upp när en bucket skapas, ned via BucketStore.onRemoval
+ * - Nekade requests per endpoint-typ: LongAdder
+ * - Mest nekade klienter: SpaceSavingCounter (top-K), bara nekade requests tar dess lås
+ *
+ * Ändrade gränser: varje gräns blir en BucketConfiguration i en oföränderlig tabell som byts
+ * ut atomärt. En bucket som ser en ny konfiguration byter den på plats med
+ * TokensInheritanceStrategy.PROPORTIONALLY - en klient som förbrukat halva sin kvot har
+ * fortfarande förbrukat halva efter ändringen, inga buckets nollställs.
+ *
+ * Nekade requests: consume/consumeForUser returnerar -1 - väntetiden i ms, där väntetiden är
+ * bucketens egen tid till nästa pollett (bucket4j nanosToWaitForRefill, över alla bandbredder
+ * inklusive burst) eller motsvarande från Redis-scriptet. Beslut, kvarvarande och väntetid
+ * ryms alltså i en long - godkända requests betalar ingenting extra.
  *
  * Token bucket-mekanism: Polletter konsumeras per request, fylls på kontinuerligt.
  * Används av DDoSProtectionFilter som "early warning" innan normal rate limiting.
@@ -33,106 +91,488 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class RateLimitingService {
 
-    // === RATE LIMIT THRESHOLDS PER ENDPOINT TYPE ===
-    // Rate limits för olika typer av endpoints
-    private static final int WEATHER_REQUESTS_PER_MINUTE = 30;  // 30 requests per minut för väder
-    private static final int ADMIN_REQUESTS_PER_MINUTE = 10;    // 10 requests per minut för admin
-    private static final int PLACES_WRITE_REQUESTS_PER_MINUTE = 20; // 20 skrivande requests per minut
-    private static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+    private static final Logger log = LoggerFactory.getLogger(RateLimitingService.class);
+
+    // === RATE LIMIT CONFIGURATION ===
+    // Gränser per endpoint-typ kommer från app.rate-limit.limits
+    private static final long MINUTE_MS = 60_000;
+    private static final long BURST_PERIOD_MS = 1000; // burst = max requests per sekund
+    private static final String RATE_BANDWIDTH = "rate";
+    private static final String BURST_BANDWIDTH = "burst";
+    private static final int MULTIPLIER_SCALE = 1000;  // Multiplikatorer jämförs med tre decimaler
 
     // DDoS detection thresholds
     private static final int DDOS_THRESHOLD_PER_MINUTE = 100;   // 100+ requests = misstänkt DDoS
 
+    // === REDIS FALLBACK ===
+    private static final long REDIS_RETRY_INTERVAL_MS = 5000; // Lokala buckets så länge innan Redis provas igen
+    private static final long REDIS_FAILED = Long.MIN_VALUE;   // Sentinel: Redis svarade inte, använd lokal bucket
+
+    // === REJECTION ENCODING ===
+    private static final long MAX_RETRY_AFTER_MS = Integer.MAX_VALUE; // Håller nekade resultat långt från REDIS_FAILED
+    private static final long NANOS_PER_MS = 1_000_000;
+
     // === MEMORY MANAGEMENT ===
-    private static final int MAX_BUCKETS_BEFORE_CLEANUP = 10000;
+    private static final long VIOLATION_IDLE_TIMEOUT_MS = 15 * 60 * 1000; // Samma som IP-blockeringen
+    private static final int ESTIMATED_VIOLATION_BYTES = 16;
+
+    // === ADMIN STATISTICS ===
+    private static final int TOP_REJECTED_CAPACITY = 64; // Platser i top-K för nekade klienter
+
+    private static final EndpointType[] ENDPOINT_TYPES = EndpointType.values();
+
+    private final BucketStore<ClientRecord> clients;
+    private final BucketStore<ClientRecord> users;
+    private final BucketStore<ClientRecord> apiKeys;
+    private final BucketStore<AtomicInteger> violations;
+
+    private final HeavyHitterDetector heavyHitters;
+    private final RedisRateLimiter redisRateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+    private final Map<Integer, BucketConfiguration> apiKeyConfigs = new ConcurrentHashMap<>();
+    private final LongAdder[] bucketCounts = newCounters();
+    private final LongAdder[] rejectionCounts = newCounters();
+    private final SpaceSavingCounter topRejected = new SpaceSavingCounter(TOP_REJECTED_CAPACITY);
+    private final LongFunction<ClientRecord> countedRecord = k -> new ClientRecord(bucketCounts);
+    private volatile LimitTable limitTable;
+    private final boolean distributed;
+    private final AtomicBoolean redisAvailable = new AtomicBoolean(true);
+    private volatile long redisRetryAt;
+
+    public RateLimitingService(RateLimitProperties rateLimitProperties,
+                               HeavyHitterDetector heavyHitters,
+                               RedisRateLimiter redisRateLimiter,
+                               MeterRegistry meterRegistry) {
+        this.heavyHitters = heavyHitters;
+        this.redisRateLimiter = redisRateLimiter;
+        this.rateLimitProperties = rateLimitProperties;
+        this.limitTable = new LimitTable(rateLimitProperties, heavyHitters.getFlagThreshold());
+        this.distributed = rateLimitProperties.getMode() == RateLimitProperties.Mode.REDIS;
+
+        RateLimitProperties.Store store = rateLimitProperties.getStore();
+        this.clients = new BucketStore<>(store.getMaxEntries(), store.getIdleTimeoutMs(), store.getEstimatedBucketBytes());
+        this.users = new BucketStore<>(store.getMaxEntries(), store.getIdleTimeoutMs(), store.getEstimatedBucketBytes());
+        this.apiKeys = new BucketStore<>(BucketStore.MIN_ENTRIES, store.getIdleTimeoutMs(), store.getEstimatedBucketBytes());
+        this.violations = new BucketStore<>(store.getMaxEntries(), VIOLATION_IDLE_TIMEOUT_MS, ESTIMATED_VIOLATION_BYTES);
+        // Buckets i borttagna poster räknas av från per-typ-räknarna
+        clients.onRemoval((key, record) -> record.release());
+        users.onRemoval((key, record) -> record.release());
+        clients.registerMetrics(meterRegistry, "clients");
+        users.registerMetrics(meterRegistry, "users");
+        apiKeys.registerMetrics(meterRegistry, "api-keys");
+        violations.registerMetrics(meterRegistry, "violations");
+    }
 
-    private final ConcurrentHashMap<String, Bucket> cache = new ConcurrentHashMap<>();
+    /**
+     * Förbruka en pollett för klienten (IP) - kvarvarande polletter, eller rejected(väntetid) om gränsen är nådd
+     */
+    public long consume(long clientKey, EndpointType endpointType) {
+        LimitTable table = limitTable;
+        RateLimitProperties.Limit limit = table.limits[endpointType.ordinal()];
+
+        // Oflaggade klienter ligger under alla gränser (capacity och burst > tröskeln) - ingen bucket behövs
+        ClientRecord existing = clients.getIfPresent(clientKey);
+        long preConsumed = 0;
+        if (existing == null) {
+            long seen = heavyHitters.estimate(clientKey);
+            if (seen < heavyHitters.getFlagThreshold()) {
+                return Math.max(0, limit.getCapacity() - seen);
+            }
+            preConsumed = seen - 1; // Requests före denna, som gick igenom utan bucket
+        }
+
+        long remaining = REDIS_FAILED;
+        if (useRedis()) {
+            remaining = consumeRedis("ip:" + Long.toHexString(clientKey) + ":" + endpointType.name(),
+                    limit.getCapacity(), limit.getRefillTokens(), limit.getRefillPeriodMs(), preConsumed);
+        }
+        if (remaining == REDIS_FAILED) {
+            ClientRecord record = existing != null ? existing : clients.getOrCreate(clientKey, countedRecord);
+            remaining = record.consume(endpointType.ordinal(), table.base[endpointType.ordinal()], preConsumed);
+        }
+        if (remaining < 0) {
+            recordRejection(endpointType, clientKey, null);
+        }
+        return remaining;
+    }
 
     /**
-     * Kolla om request tillåts för weather endpoints
+     * Räkna requesten i sketchen och kolla om klienten (IP) visar DDoS-beteende
      */
-    public boolean isAllowed(String clientIp, EndpointType endpointType) {
-        Bucket bucket = getBucket(clientIp, endpointType);
-        return bucket.tryConsume(1);
+    public boolean isDDoSBehavior(long clientKey) {
+        long seen = heavyHitters.record(clientKey);
+
+        // Distribuerat: tröskeln gäller summan över alla noder, men bara flaggade klienter kostar ett Redis-anrop
+        if (seen >= heavyHitters.getFlagThreshold() && useRedis()) {
+            long remaining = consumeRedis("ip:" + Long.toHexString(clientKey) + ":DDOS",
+                    DDOS_THRESHOLD_PER_MINUTE, DDOS_THRESHOLD_PER_MINUTE, MINUTE_MS);
+            if (remaining != REDIS_FAILED) {
+                return remaining < 0;
+            }
+        }
+        return seen > DDOS_THRESHOLD_PER_MINUTE;
     }
 
     /**
-     * Kolla om IP:n visar DDoS-beteende
+     * Räkna requesten i sketchen utan DDoS-kontroll - allow-listade IP:n undantas från heuristiken
+     * men ska ändå få buckets i consume när de når flaggningströskeln
      */
-    public boolean isDDoSBehavior(String clientIp) {
-        Bucket ddosBucket = getDDoSBucket(clientIp);
-        return !ddosBucket.tryConsume(1);
+    public void recordRequest(long clientKey) {
+        heavyHitters.record(clientKey);
     }
 
     /**
-     * Få tillgängliga tokens för en IP
+     * Klienter med mest trafik just nu (från sketchen)
      */
-    public long getAvailableTokens(String clientIp, EndpointType endpointType) {
-        Bucket bucket = getBucket(clientIp, endpointType);
-        return bucket.getAvailableTokens();
+    public List<HeavyHitterDetector.TopTalker> getTopTalkers(int limit) {
+        return heavyHitters.topTalkers(limit);
     }
 
     /**
-     * Få bucket för specifik IP och endpoint-typ
+     * Förbruka en pollett för inloggad användare - kvarvarande polletter, eller rejected(väntetid) om gränsen är nådd
      */
-    private Bucket getBucket(String clientIp, EndpointType endpointType) {
-        String key = clientIp + ":" + endpointType.name();
-        return cache.computeIfAbsent(key, k -> createBucket(endpointType));
+    public long consumeForUser(String username, EndpointType endpointType, double multiplier) {
+        LimitTable table = limitTable;
+        long userKey = BucketStore.hash(username);
+        long remaining = REDIS_FAILED;
+        if (useRedis()) {
+            RateLimitProperties.Limit limit = table.limits[endpointType.ordinal()];
+            remaining = consumeRedis("user:" + username + ":" + endpointType.name(),
+                    scale(limit.getCapacity(), multiplier), scale(limit.getRefillTokens(), multiplier),
+                    limit.getRefillPeriodMs());
+        }
+        if (remaining == REDIS_FAILED) {
+            ClientRecord record = users.getOrCreate(userKey, countedRecord);
+            remaining = record.consume(endpointType.ordinal(), table.scaled(endpointType, multiplier));
+        }
+        if (remaining < 0) {
+            recordRejection(endpointType, userKey, username);
+        }
+        return remaining;
     }
 
     /**
-     * Få DDoS detection bucket
+     * Resultat för nekad request som kan försöka igen om retryAfterMs (alltid < 0)
      */
-    private Bucket getDDoSBucket(String clientIp) {
-        String key = clientIp + ":DDOS";
-        return cache.computeIfAbsent(key, k -> createDDoSBucket());
+    public static long rejected(long retryAfterMs) {
+        return -1 - Math.min(Math.max(0, retryAfterMs), MAX_RETRY_AFTER_MS);
     }
 
     /**
-     * Skapa bucket baserat på endpoint-typ
+     * Väntetid i ms ur ett resultat från consume/consumeForUser, 0 om requesten godkändes
      */
-    private Bucket createBucket(EndpointType endpointType) {
-        Bandwidth limit;
+    public static long retryAfterMs(long result) {
+        return result < 0 ? -1 - result : 0;
+    }
 
-        switch (endpointType) {
-            case WEATHER:
-                limit = Bandwidth.classic(WEATHER_REQUESTS_PER_MINUTE,
-                        Refill.intervally(WEATHER_REQUESTS_PER_MINUTE, Duration.ofMinutes(1)));
-                break;
-            case ADMIN:
-                limit = Bandwidth.classic(ADMIN_REQUESTS_PER_MINUTE,
-                        Refill.intervally(ADMIN_REQUESTS_PER_MINUTE, Duration.ofMinutes(1)));
-                break;
-            case PLACES_WRITE:
-                limit = Bandwidth.classic(PLACES_WRITE_REQUESTS_PER_MINUTE,
-                        Refill.intervally(PLACES_WRITE_REQUESTS_PER_MINUTE, Duration.ofMinutes(1)));
-                break;
-            default:
-                limit = Bandwidth.classic(DEFAULT_REQUESTS_PER_MINUTE,
-                        Refill.intervally(DEFAULT_REQUESTS_PER_MINUTE, Duration.ofMinutes(1)));
-                break;
+    /**
+     * Kolla om en API-nyckel har kvar av sin egen kvot (mäts separat per nyckel)
+     */
+    public boolean isAllowedForApiKey(long apiKeyId, int requestsPerMinute) {
+        if (useRedis()) {
+            long remaining = consumeRedis("apikey:" + apiKeyId, requestsPerMinute, requestsPerMinute, MINUTE_MS);
+            if (remaining != REDIS_FAILED) {
+                return remaining >= 0;
+            }
         }
+        BucketConfiguration config = apiKeyConfigs.computeIfAbsent(requestsPerMinute,
+                rpm -> createConfiguration(rpm, rpm, MINUTE_MS, RateLimitProperties.RefillType.GREEDY, 0));
+        ClientRecord record = apiKeys.getOrCreate(apiKeyId, k -> new ClientRecord(null));
+        return record.consume(0, config) >= 0;
+    }
+
+    /**
+     * Antal lokala buckets per endpoint-typ (IP och användare)
+     */
+    public Map<EndpointType, Long> getBucketCounts() {
+        return snapshot(bucketCounts);
+    }
+
+    /**
+     * Antal nekade requests per endpoint-typ sedan start
+     */
+    public Map<EndpointType, Long> getRejectionCounts() {
+        return snapshot(rejectionCounts);
+    }
 
-        return Bucket.builder().addLimit(limit).build();
+    /**
+     * Klienter (IP eller användare) med flest nekade requests - label är användarnamnet, null för IP
+     */
+    public List<SpaceSavingCounter.Entry> getTopRejected(int limit) {
+        return topRejected.top(limit);
     }
 
     /**
-     * Skapa DDoS detection bucket
+     * Antal poster per lager (clients, users, api-keys, violations)
      */
-    private Bucket createDDoSBucket() {
-        Bandwidth limit = Bandwidth.classic(DDOS_THRESHOLD_PER_MINUTE,
-                Refill.intervally(DDOS_THRESHOLD_PER_MINUTE, Duration.ofMinutes(1)));
-        return Bucket.builder().addLimit(limit).build();
+    public Map<String, Integer> getStoreSizes() {
+        return Map.of(
+                "clients", clients.size(),
+                "users", users.size(),
+                "api-keys", apiKeys.size(),
+                "violations", violations.size());
     }
 
     /**
-     * Rensa gamla buckets (körs periodiskt)
+     * Aktuella gränser per endpoint-typ (kopior)
      */
+    public Map<EndpointType, RateLimitProperties.Limit> getLimits() {
+        LimitTable table = limitTable;
+        Map<EndpointType, RateLimitProperties.Limit> result = new EnumMap<>(EndpointType.class);
+        for (EndpointType type : ENDPOINT_TYPES) {
+            result.put(type, new RateLimitProperties.Limit(table.limits[type.ordinal()]));
+        }
+        return result;
+    }
+
+    /**
+     * Ändra gränsen för en endpoint-typ i drift - gäller nya och befintliga buckets utan att nollställa dem
+     */
+    public synchronized void updateLimit(EndpointType endpointType, RateLimitProperties.Limit limit) {
+        limit.validate();
+        validateAboveFlagThreshold(endpointType, limit, heavyHitters.getFlagThreshold());
+        rateLimitProperties.getLimits().put(endpointType, new RateLimitProperties.Limit(limit));
+        limitTable = new LimitTable(rateLimitProperties, heavyHitters.getFlagThreshold());
+        log.info("Rate limit for {} changed: capacity={}, refill={}/{}ms {}, burst={}", endpointType,
+                limit.getCapacity(), limit.getRefillTokens(), limit.getRefillPeriodMs(), limit.getRefill(), limit.getBurst());
+    }
+
+    /**
+     * Registrera en rate limit-överträdelse för klienten, returnerar totalt antal
+     */
+    public int recordViolation(long clientKey) {
+        return violations.getOrCreate(clientKey, k -> new AtomicInteger(0)).incrementAndGet();
+    }
+
+    /**
+     * Antal rate limit-överträdelser för klienten
+     */
+    public int getViolationCount(long clientKey) {
+        AtomicInteger count = violations.getIfPresent(clientKey);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Nollställ överträdelser när en IP-blockering löper ut
+     */
+    public void clearViolations(long clientKey) {
+        violations.remove(clientKey);
+    }
+
+    private boolean useRedis() {
+        return distributed && (redisAvailable.get() || System.currentTimeMillis() >= redisRetryAt);
+    }
+
+    /**
+     * Förbruka en pollett i Redis - kvarvarande, rejected(väntetid) vid nekad, REDIS_FAILED om Redis inte svarar
+     */
+    private long consumeRedis(String key, int capacity, int refillTokens, long refillPeriodMs) {
+        return consumeRedis(key, capacity, refillTokens, refillPeriodMs, 0);
+    }
+
+    private long consumeRedis(String key, int capacity, int refillTokens, long refillPeriodMs, long preConsumed) {
+        try {
+            long remaining = redisRateLimiter.tryConsume(key, capacity, refillTokens, refillPeriodMs, preConsumed);
+            if (redisAvailable.compareAndSet(false, true)) {
+                log.info("Redis rate limiting available again");
+            }
+            return remaining;
+        } catch (DataAccessException e) {
+            redisRetryAt = System.currentTimeMillis() + REDIS_RETRY_INTERVAL_MS;
+            if (redisAvailable.compareAndSet(true, false)) {
+                log.warn("Redis rate limiting unavailable, falling back to local buckets: {}", e.getMessage());
+            }
+            return REDIS_FAILED;
+        }
+    }
+
+    private void recordRejection(EndpointType endpointType, long key, String label) {
+        rejectionCounts[endpointType.ordinal()].increment();
+        topRejected.increment(key, label);
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[ENDPOINT_TYPES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static Map<EndpointType, Long> snapshot(LongAdder[] counters) {
+        Map<EndpointType, Long> result = new EnumMap<>(EndpointType.class);
+        for (EndpointType type : ENDPOINT_TYPES) {
+            result.put(type, counters[type.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * IP-gränser under flaggningströskeln går aldrig att upprätthålla - oflaggade klienter har ingen bucket
+     */
+    private static void validateAboveFlagThreshold(EndpointType type, RateLimitProperties.Limit limit, int flagThreshold) {
+        if (limit.getCapacity() <= flagThreshold || (limit.getBurst() > 0 && limit.getBurst() <= flagThreshold)) {
+            throw new IllegalArgumentException("Rate limit for " + type + " needs capacity and burst above "
+                    + "heavy-hitters.flag-threshold (" + flagThreshold + ")");
+        }
+    }
+
+    /**
+     * Värde skalat med roll-multiplikator, minst 1
+     */
+    private static int scale(int value, double multiplier) {
+        return (int) Math.max(1, Math.round(value * multiplier));
+    }
+
+    /**
+     * Bucket-konfiguration: "rate" med capacity och påfyllnad, valfri "burst" per sekund.
+     * Id:n gör att replaceConfiguration matchar bandbredderna rätt även om burst läggs till eller tas bort.
+     */
+    private static BucketConfiguration createConfiguration(int capacity, int refillTokens, long refillPeriodMs,
+                                                           RateLimitProperties.RefillType refillType, int burst) {
+        Duration period = Duration.ofMillis(refillPeriodMs);
+        BandwidthBuilderRefillStage rate = Bandwidth.builder().capacity(capacity);
+        Bandwidth rateBandwidth = (refillType == RateLimitProperties.RefillType.INTERVALLY
+                ? rate.refillIntervally(refillTokens, period)
+                : rate.refillGreedy(refillTokens, period))
+                .id(RATE_BANDWIDTH)
+                .build();
+
+        ConfigurationBuilder builder = BucketConfiguration.builder().addLimit(rateBandwidth);
+        if (burst > 0) {
+            builder.addLimit(Bandwidth.builder()
+                    .capacity(burst)
+                    .refillGreedy(burst, Duration.ofMillis(BURST_PERIOD_MS))
+                    .id(BURST_BANDWIDTH)
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Skapa bucket från konfiguration - skyddas av ClientRecord-låset, därför NONE
+     */
+    private static Bucket createBucket(BucketConfiguration config) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : config.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.withSynchronizationStrategy(SynchronizationStrategy.NONE).build();
+    }
+
+    /**
+     * Rensa buckets som varit oanvända längre än idle-timeout (körs periodiskt)
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.store.sweep-interval-ms:60000}")
     public void cleanupOldBuckets() {
-        // I en riktig implementation skulle vi spåra senast använd tid
-        // och rensa buckets som inte använts på länge
-        if (cache.size() > MAX_BUCKETS_BEFORE_CLEANUP) {
-            cache.clear();
+        int expiredBuckets = clients.expireIdle() + users.expireIdle() + apiKeys.expireIdle();
+        int expiredViolations = violations.expireIdle();
+        topRejected.decay(); // Top-listan ska spegla senaste tiden, inte hela drifttiden
+        if (distributed) {
+            redisRateLimiter.cleanupExpiredLeases();
+        }
+        if (expiredBuckets > 0 || expiredViolations > 0) {
+            log.debug("Expired {} idle rate limit records and {} violation counters", expiredBuckets, expiredViolations);
+        }
+    }
+
+    /**
+     * Oföränderlig ögonblicksbild av gränserna - byts ut i sin helhet av updateLimit.
+     * Konfigurationerna återanvänds så att ClientRecord kan jämföra med == per request.
+     */
+    private static final class LimitTable {
+        private final RateLimitProperties.Limit[] limits = new RateLimitProperties.Limit[ENDPOINT_TYPES.length];
+        private final BucketConfiguration[] base = new BucketConfiguration[ENDPOINT_TYPES.length];
+        private final Map<Long, BucketConfiguration> scaled = new ConcurrentHashMap<>();
+
+        private LimitTable(RateLimitProperties properties, int flagThreshold) {
+            for (EndpointType type : ENDPOINT_TYPES) {
+                RateLimitProperties.Limit limit = new RateLimitProperties.Limit(properties.limitFor(type));
+                limit.validate();
+                validateAboveFlagThreshold(type, limit, flagThreshold);
+                limits[type.ordinal()] = limit;
+                base[type.ordinal()] = build(limit, 1.0);
+            }
+        }
+
+        /**
+         * Konfiguration skalad med roll-multiplikator (cachas per endpoint-typ och multiplikator)
+         */
+        private BucketConfiguration scaled(EndpointType type, double multiplier) {
+            if (multiplier == 1.0) {
+                return base[type.ordinal()];
+            }
+            long key = ((long) type.ordinal() << 32) | (Math.round(multiplier * MULTIPLIER_SCALE) & 0xFFFFFFFFL);
+            return scaled.computeIfAbsent(key, k -> build(limits[type.ordinal()], multiplier));
+        }
+
+        private static BucketConfiguration build(RateLimitProperties.Limit limit, double multiplier) {
+            return createConfiguration(scale(limit.getCapacity(), multiplier), scale(limit.getRefillTokens(), multiplier),
+                    limit.getRefillPeriodMs(), limit.getRefill(),
+                    limit.getBurst() > 0 ? scale(limit.getBurst(), multiplier) : 0);
+        }
+    }
+
+    /**
+     * Allt rate limit-state för en klient: en bucket per endpoint-typ.
+     * Buckets skapas först när endpoint-typen används. Konfigurationen sparas per slot; byts den
+     * (ändrad gräns, roll-multiplikator eller API-nyckelkvot) ersätts den på plats i bucketen.
+     */
+    private static final class ClientRecord {
+        private final Bucket[] buckets = new Bucket[ENDPOINT_TYPES.length];
+        private final BucketConfiguration[] configs = new BucketConfiguration[ENDPOINT_TYPES.length];
+        private final LongAdder[] counters; // Buckets per endpoint-typ, null = räknas inte
+        private boolean released;
+
+        private ClientRecord(LongAdder[] counters) {
+            this.counters = counters;
+        }
+
+        private long consume(int slot, BucketConfiguration config) {
+            return consume(slot, config, 0);
+        }
+
+        /**
+         * Förbruka en pollett i slot - kvarvarande polletter, eller rejected(tid till nästa pollett) om bucketen är tom.
+         * En ny bucket startar med preConsumed polletter redan dragna.
+         */
+        private synchronized long consume(int slot, BucketConfiguration config, long preConsumed) {
+            Bucket bucket = buckets[slot];
+            if (bucket == null) {
+                bucket = createBucket(config);
+                if (preConsumed > 0) {
+                    bucket.tryConsumeAsMuchAsPossible(preConsumed);
+                }
+                buckets[slot] = bucket;
+                configs[slot] = config;
+                if (counters != null && !released) {
+                    counters[slot].increment();
+                }
+            } else if (configs[slot] != config) {
+                bucket.replaceConfiguration(config, TokensInheritanceStrategy.PROPORTIONALLY);
+                configs[slot] = config;
+            }
+            if (bucket.tryConsume(1)) {
+                return bucket.getAvailableTokens();
+            }
+            // Bara nekade requests frågar efter väntetiden - godkända skapar ingen probe
+            long waitNanos = bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+            return rejected((waitNanos + NANOS_PER_MS - 1) / NANOS_PER_MS);
+        }
+
+        /**
+         * Posten har tagits bort ur lagret - räkna av dess buckets
+         */
+        private synchronized void release() {
+            if (counters == null || released) {
+                return;
+            }
+            released = true;
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (buckets[slot] != null) {
+                    counters[slot].decrement();
+                }
+            }
         }
     }
 
@@ -143,4 +583,4 @@ public class RateLimitingService {
         PLACES_READ,
         OTHER
     }
-}
\ No newline at end of file
+}
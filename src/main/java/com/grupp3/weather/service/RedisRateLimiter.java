@@ -0,0 +1,157 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * RedisRateLimiter - distribuerad token bucket i Redis för drift med flera noder.
+ *
+ * Varje bucket är en Redis-hash (tokens, ts) som uppdateras atomärt av ett Lua-script,
+ * så att alla noder delar samma gräns istället för N gånger gränsen.
+ *
+ * Huvudfunktioner:
+ * - tryConsume(String key, int capacity, int refillTokens, long refillPeriodMs): Förbruka en pollett,
+ *   returnerar kvarvarande eller RateLimitingService.rejected(väntetid). Med preConsumed startar
+ *   en bucket som inte finns i Redis med så många polletter redan dragna (oflaggade IP-requests)
+ * - cleanupExpiredLeases(): Rensa lokala leases som löpt ut
+ *
+ * Lokal förkontroll (lease):
+ * - Noden hämtar flera polletter i ett anrop (leaseFraction av gränsen, minst 1)
+ * - Följande requests förbrukar lokalt tills leasen är slut eller äldre än leaseTtlMs
+ * - Polletterna är redan dragna från Redis - ingen nod kan överskrida den delade gränsen,
+ *   oanvända lease-polletter går förlorade när leasen löper ut
+ *
+ * Scriptet använder Redis TIME så att klockskillnader mellan noder inte påverkar påfyllning,
+ * och returnerar tid i ms till nästa pollett så att nekade svar får en korrekt Retry-After.
+ * Gränsen skickas med i varje anrop, så en ändrad gräns gäller direkt utan att bucketens
+ * state nollställs. Påfyllning är alltid jämn (GREEDY); burst-gränsen tillämpas bara lokalt.
+ */
+
+@Service
+public class RedisRateLimiter {
+
+    // === REDIS CONFIGURATION ===
+    private static final String KEY_PREFIX = "ratelimit:";
+    private static final int ESTIMATED_LEASE_BYTES = 32;
+
+    private static final String TOKEN_BUCKET_SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local refill = tonumber(ARGV[2])
+            local period = tonumber(ARGV[3])
+            local requested = tonumber(ARGV[4])
+            local preConsumed = tonumber(ARGV[5])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+              tokens = math.max(0, capacity - preConsumed)
+              ts = now
+            end
+            if now > ts then
+              tokens = math.min(capacity, tokens + (now - ts) * refill / period)
+              ts = now
+            end
+            local granted = math.min(requested, math.floor(tokens))
+            tokens = tokens - granted
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(period * capacity / refill) * 2)
+            local wait = 0
+            if tokens < 1 then
+              wait = math.ceil((1 - tokens) * period / refill)
+            end
+            return {granted, math.floor(tokens), wait}
+            """;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RateLimitProperties rateLimitProperties;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> script = new DefaultRedisScript<>(TOKEN_BUCKET_SCRIPT, List.class);
+    private final BucketStore<Lease> leases;
+
+    public RedisRateLimiter(RedisTemplate<String, String> redisTemplate, RateLimitProperties rateLimitProperties) {
+        this.redisTemplate = redisTemplate;
+        this.rateLimitProperties = rateLimitProperties;
+        // Leases begränsas som lokala buckets - en utgången lease behövs aldrig igen
+        this.leases = new BucketStore<>(rateLimitProperties.getStore().getMaxEntries(),
+                rateLimitProperties.getRedis().getLeaseTtlMs(), ESTIMATED_LEASE_BYTES);
+    }
+
+    /**
+     * Förbruka en pollett - kvarvarande polletter (uppskattat) vid OK, rejected(väntetid) om gränsen är nådd.
+     * Kastar DataAccessException om Redis inte svarar.
+     */
+    public long tryConsume(String key, int capacity, int refillTokens, long refillPeriodMs) {
+        return tryConsume(key, capacity, refillTokens, refillPeriodMs, 0);
+    }
+
+    /**
+     * Som tryConsume, men en ny bucket i Redis startar med preConsumed polletter redan dragna
+     */
+    public long tryConsume(String key, int capacity, int refillTokens, long refillPeriodMs, long preConsumed) {
+        Lease lease = leases.getOrCreate(BucketStore.hash(key), k -> new Lease());
+
+        synchronized (lease) {
+            long now = System.currentTimeMillis();
+
+            // 1. Lokal förkontroll - inget Redis-anrop så länge leasen räcker
+            if (lease.tokens > 0 && now < lease.expiresAt) {
+                lease.tokens--;
+                return lease.remoteRemaining + lease.tokens;
+            }
+
+            // 2. Hämta ny lease från den delade bucketen
+            int leaseSize = leaseSize(capacity);
+            List<?> result = redisTemplate.execute(script, List.of(KEY_PREFIX + key), String.valueOf(capacity),
+                    String.valueOf(refillTokens), String.valueOf(refillPeriodMs), String.valueOf(leaseSize),
+                    String.valueOf(preConsumed));
+
+            long granted = toLong(result, 0);
+            lease.remoteRemaining = toLong(result, 1);
+            lease.expiresAt = now + rateLimitProperties.getRedis().getLeaseTtlMs();
+
+            if (granted <= 0) {
+                lease.tokens = 0;
+                return RateLimitingService.rejected(toLong(result, 2));
+            }
+
+            lease.tokens = (int) granted - 1;
+            return lease.remoteRemaining + lease.tokens;
+        }
+    }
+
+    /**
+     * Rensa leases som löpt ut (anropas från RateLimitingService.cleanupOldBuckets)
+     */
+    public void cleanupExpiredLeases() {
+        leases.expireIdle();
+    }
+
+    /**
+     * Antal polletter per Redis-anrop - liten andel av gränsen så att noderna delar rättvist
+     */
+    private int leaseSize(int capacity) {
+        return (int) Math.max(1, Math.floor(capacity * rateLimitProperties.getRedis().getLeaseFraction()));
+    }
+
+    private static long toLong(List<?> result, int index) {
+        if (result == null || result.size() <= index || result.get(index) == null) {
+            return 0;
+        }
+        return ((Number) result.get(index)).longValue();
+    }
+
+    /**
+     * Lokalt förhämtade polletter för en nyckel
+     */
+    private static final class Lease {
+        private int tokens;
+        private long remoteRemaining;
+        private long expiresAt;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +21,7 @@ import java.util.Map;
  *
  * Huvudfunktioner:
  * - updateWeatherForAllPlaces(): Automatisk uppdatering var 30:e minut för ENDAST favoriter
- * - checkAlertsForAllPlaces(): Kontrollera väderalerts mot aktuell data efter uppdatering
+ * - checkAlerts(): Kontrollera väderalerts mot de nya observationerna i körningen
  * - cleanupOldData(): Daglig rensning kl 02:00 av gamla prognoser och buckets
  * - triggerManualUpdate(): Admin-triggered omedelbar uppdatering via endpoint
  *
@@ -29,6 +30,7 @@ import java.util.Map;
  * - API-anrops frekvens: 2 anrop per favoritplats (current + forecast) var 30:e minut
  * - Paus mellan platser: 1 sekund delay för att inte överbelasta Open-Meteo API
  * - Detaljerad loggning: Framgång/fel-statistik per körning för diagnostik
+ * - Batchskrivning: observationerna köas i WeatherDataWriteBuffer och töms efter loopen
  *
  * Alert-system koordinerar WeatherAlert-definitioner mot faktisk väderdata.
  * Använder PlaceService, WeatherHistoryService, WeatherForecastService som dependencies.
@@ -49,17 +51,20 @@ public class ScheduledWeatherService {
     private final WeatherForecastService forecastService;
     private final RateLimitingService rateLimitingService;
     private final WeatherAlertRepository alertRepository;
+    private final WeatherDataWriteBuffer writeBuffer;
 
     public ScheduledWeatherService(PlaceService placeService,
                                    WeatherHistoryService weatherHistoryService,
                                    WeatherForecastService forecastService,
                                    RateLimitingService rateLimitingService,
-                                   WeatherAlertRepository alertRepository) {
+                                   WeatherAlertRepository alertRepository,
+                                   WeatherDataWriteBuffer writeBuffer) {
         this.placeService = placeService;
         this.weatherHistoryService = weatherHistoryService;
         this.forecastService = forecastService;
         this.rateLimitingService = rateLimitingService;
         this.alertRepository = alertRepository;
+        this.writeBuffer = writeBuffer;
     }
 
     /**
@@ -78,18 +83,24 @@ public class ScheduledWeatherService {
         System.out.println("[" + LocalDateTime.now() + "] Starting scheduled weather update for " + favoritePlaces.size() + " places");
 
         int currentSuccessCount = 0;
+        int unchangedCount = 0;
         int forecastSuccessCount = 0;
         int errorCount = 0;
+        Map<Place, WeatherData> newObservations = new LinkedHashMap<>();
 
         // Uppdatera väderdata för alla platser
         for (Place place : favoritePlaces) {
             try {
                 // Uppdatera current weather
-                WeatherData currentData = weatherHistoryService.fetchAndSaveWeatherData(place);
-                if (currentData != null) {
+                WeatherHistoryService.IngestResult current = weatherHistoryService.fetchAndSaveWeatherData(place);
+                if (current.isNew()) {
                     currentSuccessCount++;
+                    newObservations.put(place, current.data());
                     System.out.println("✓ Updated current weather for " + place.getName() +
-                            " - Temp: " + currentData.getTemperature() + "°C");
+                            " - Temp: " + current.data().getTemperature() + "°C");
+                } else if (current.isSuccess()) {
+                    // Samma observation_time som redan sparad - ingen ny rad, cache eller alert
+                    unchangedCount++;
                 } else {
                     errorCount++;
                     System.err.println("✗ Failed to update current weather for " + place.getName());
@@ -116,38 +127,40 @@ public class ScheduledWeatherService {
             }
         }
 
+        // Skriv det som köats under körningen i stället för att vänta på nästa intervall
+        int written = writeBuffer.flush();
+
         System.out.println("[" + LocalDateTime.now() + "] Weather update completed - " +
-                "Current: " + currentSuccessCount + " successful, " +
+                "Current: " + currentSuccessCount + " successful, " + unchangedCount + " unchanged, " +
                 "Forecast: " + forecastSuccessCount + " successful, " +
-                errorCount + " errors");
+                errorCount + " errors, " + written + " observations written");
 
-        // Kolla alerts för alla platser med uppdaterad data
-        checkAlertsForAllPlaces();
+        // Kolla alerts bara för platser med en ny observation - oförändrad data har redan kollats
+        checkAlerts(newObservations);
     }
 
     /**
-     * Kolla alerts för alla platser
+     * Kolla alerts mot de nya observationerna - direkt ur minnet, raden kan ligga kvar i skrivbufferten
      */
-    private void checkAlertsForAllPlaces() {
+    private void checkAlerts(Map<Place, WeatherData> observations) {
+        if (observations.isEmpty()) {
+            return;
+        }
+
         List<WeatherAlert> activeAlerts = alertRepository.findActiveAlerts();
 
         if (activeAlerts.isEmpty()) {
             return;
         }
 
-        List<Place> favoritePlaces = placeService.findFavorites();
         int alertsTriggered = 0;
 
         System.out.println("[" + LocalDateTime.now() + "] Checking " + activeAlerts.size() +
-                " active alerts for " + favoritePlaces.size() + " places");
-
-        for (Place place : favoritePlaces) {
-            // Hämta senaste väderdata för platsen
-            WeatherData latestWeather = weatherHistoryService.getLatestWeatherData(place.getName());
+                " active alerts for " + observations.size() + " places");
 
-            if (latestWeather == null) {
-                continue; // Ingen väderdata för denna plats
-            }
+        for (Map.Entry<Place, WeatherData> observation : observations.entrySet()) {
+            Place place = observation.getKey();
+            WeatherData latestWeather = observation.getValue();
 
             // Kolla varje alert mot denna plats
             for (WeatherAlert alert : activeAlerts) {
@@ -0,0 +1,106 @@
+package com.grupp3.weather.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SpaceSavingCounter - de K mest frekventa nycklarna i konstant minne (space-saving-algoritmen).
+ *
+ * Huvudfunktioner:
+ * - increment(long key, String label): Räkna en händelse för nyckeln, O(K) utan allokering
+ * - top(int limit): Nycklarna med högst antal, sorterade fallande
+ * - decay(): Halvera alla antal (körs periodiskt) så att listan speglar senaste tiden
+ *
+ * Algoritm: K platser. En ny nyckel när tabellen är full tar över platsen med lägst antal och
+ * ärver antalet + 1, så antalen är en övre gräns - felet per post sparas och visas som error.
+ * En nyckel med verkligt antal över N/K finns alltid i tabellen.
+ *
+ * label är valfri visningstext (t.ex. användarnamn) som sparas med nyckeln; null för IP-nycklar.
+ * Trådsäkert via lås - anropas bara för nekade requests, inte per request.
+ */
+public class SpaceSavingCounter {
+
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final String[] labels;
+    private int size;
+
+    public SpaceSavingCounter(int capacity) {
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.labels = new String[capacity];
+    }
+
+    /**
+     * Räkna en händelse för nyckeln
+     */
+    public synchronized void increment(long key, String label) {
+        int minSlot = 0;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                counts[i]++;
+                return;
+            }
+            if (counts[i] < counts[minSlot]) {
+                minSlot = i;
+            }
+        }
+
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = 1;
+            errors[size] = 0;
+            labels[size] = label;
+            size++;
+            return;
+        }
+
+        // Ersätt minsta - ärver dess antal som övre gräns
+        keys[minSlot] = key;
+        errors[minSlot] = counts[minSlot];
+        counts[minSlot]++;
+        labels[minSlot] = label;
+    }
+
+    /**
+     * Nycklarna med högst antal, sorterade fallande
+     */
+    public List<Entry> top(int limit) {
+        List<Entry> result;
+        synchronized (this) {
+            result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new Entry(keys[i], labels[i], counts[i], errors[i]));
+            }
+        }
+        result.sort(Comparator.comparingLong(Entry::count).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * Halvera alla antal och släpp poster som nått noll
+     */
+    public synchronized void decay() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long count = counts[i] / 2;
+            if (count > 0) {
+                keys[kept] = keys[i];
+                counts[kept] = count;
+                errors[kept] = errors[i] / 2;
+                labels[kept] = labels[i];
+                kept++;
+            }
+        }
+        for (int i = kept; i < size; i++) {
+            labels[i] = null;
+        }
+        size = kept;
+    }
+
+    public record Entry(long key, String label, long count, long error) {
+    }
+}
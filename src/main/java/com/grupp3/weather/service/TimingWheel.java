@@ -0,0 +1,144 @@
+package com.grupp3.weather.service;
+
+/**
+ * TimingWheel - hierarkiskt tidshjul för utgång av long-nycklar i O(1).
+ *
+ * Istället för att periodiskt gå igenom alla poster (eller vänta tills samma nyckel
+ * kommer tillbaka) läggs varje deadline i en slot; en tick bearbetar bara den slot
+ * som just blivit aktuell.
+ *
+ * Huvudfunktioner:
+ * - schedule(long key, long deadlineMs): Lägg in deadline, O(1)
+ * - advance(long nowMs, ExpiryHandler handler): Stega fram till nowMs och anropa handler för utgångna
+ *
+ * Struktur:
+ * - LEVELS nivåer med SLOTS (64) slottar var; nivå 0 har tickMs upplösning, nivå n har 64^n ticks per slot
+ * - Med tickMs = 1000: nivå 0 täcker 64 s, nivå 1 ~68 min, nivå 2 ~3 dygn, nivå 3 ~194 dygn
+ * - När en lägre nivå slår runt kaskaderas motsvarande slot på nivån ovanför ner
+ *
+ * Avbokning stöds inte: handlern får nyckel + deadline och avgör själv om posten
+ * fortfarande ska tas bort (t.ex. om blockeringen förlängts). Inte trådsäkert på egen hand -
+ * anroparen synkroniserar.
+ */
+public class TimingWheel {
+
+    // === WHEEL CONFIGURATION ===
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // 64
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final Node[][] wheels = new Node[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMs, long startMs) {
+        this.tickMs = tickMs;
+        this.currentTick = startMs / tickMs;
+    }
+
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void expired(long key, long deadlineMs);
+    }
+
+    /**
+     * Lägg in en deadline för nyckeln
+     */
+    public void schedule(long key, long deadlineMs) {
+        // Avrunda uppåt så att posten aldrig går ut före sin deadline
+        long deadlineTick = (deadlineMs + tickMs - 1) / tickMs;
+        // Aktuell tick är redan bearbetad - tidigast nästa tick
+        place(new Node(key, deadlineMs, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Stega fram till nowMs, returnerar antal utgångna poster
+     */
+    public int advance(long nowMs, ExpiryHandler handler) {
+        long targetTick = nowMs / tickMs;
+        int expired = 0;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Kaskadera högre nivåer först, när alla lägre nivåer slagit runt
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                long levelMask = (1L << (SLOT_BITS * level)) - 1;
+                if ((currentTick & levelMask) == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+
+            int slot = (int) (currentTick & SLOT_MASK);
+            Node node = wheels[0][slot];
+            wheels[0][slot] = null;
+            while (node != null) {
+                Node next = node.next;
+                if (node.deadlineTick <= currentTick) {
+                    size--;
+                    expired++;
+                    handler.expired(node.key, node.deadlineMs);
+                } else {
+                    place(node); // Deadline bortom högsta nivån - läggs om
+                }
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slot) {
+        Node node = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (node != null) {
+            Node next = node.next;
+            place(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Placera noden efter avstånd till deadline. Anropas från schedule (deadline > currentTick)
+     * och från kaskad innan currentTicks slot bearbetats (deadline >= currentTick).
+     */
+    private void place(Node node) {
+        long delta = node.deadlineTick - currentTick;
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                push(level, (int) ((node.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK), node);
+                return;
+            }
+        }
+
+        // Längre än hjulet räcker: sista slotten på högsta nivån, placeras om vid kaskad
+        int top = LEVELS - 1;
+        long lastTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        push(top, (int) ((lastTick >>> (SLOT_BITS * top)) & SLOT_MASK), node);
+    }
+
+    private void push(int level, int slot, Node node) {
+        node.next = wheels[level][slot];
+        wheels[level][slot] = node;
+    }
+
+    private static final class Node {
+        private final long key;
+        private final long deadlineMs;
+        private final long deadlineTick;
+        private Node next;
+
+        private Node(long key, long deadlineMs, long deadlineTick) {
+            this.key = key;
+            this.deadlineMs = deadlineMs;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -19,18 +20,23 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final VerificationTokenService verificationTokenService;
-    private final EmailPublisher emailPublisher;
+    private final EmailOutboxService emailOutboxService;
 
     public UserService(UserRepository userRepository, 
                       PasswordEncoder passwordEncoder,
                       VerificationTokenService verificationTokenService,
-                      EmailPublisher emailPublisher) {
+                      EmailOutboxService emailOutboxService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.verificationTokenService = verificationTokenService;
-        this.emailPublisher = emailPublisher;
+        this.emailOutboxService = emailOutboxService;
     }
 
+    /**
+     * Registrera användare - user, token och outbox-rad skrivs i samma transaktion.
+     * Själva mailet publiceras av EmailOutboxService efter commit.
+     */
+    @Transactional
     public User registerUser(String username, String email, String password) {
         if (userRepository.findByUsername(username).isPresent()) {
             throw new IllegalArgumentException("Username already exists");
@@ -51,8 +57,8 @@ public class UserService {
 
         String token = verificationTokenService.createVerificationToken(savedUser);
         
-        log.info("Sending verification email to: {}", email);
-        emailPublisher.publishVerificationEmail(email, username, token);
+        log.info("Queueing verification email to: {}", email);
+        emailOutboxService.enqueueVerificationEmail(email, username, token);
 
         return savedUser;
     }
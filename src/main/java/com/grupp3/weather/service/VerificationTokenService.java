@@ -3,6 +3,11 @@ package com.grupp3.weather.service;
 import com.grupp3.weather.model.User;
 import com.grupp3.weather.model.VerificationToken;
 import com.grupp3.weather.repository.VerificationTokenRepository;
+import com.grupp3.weather.security.TokenHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -11,26 +16,60 @@ import java.util.UUID;
 
 @Service
 public class VerificationTokenService {
+    private static final Logger log = LoggerFactory.getLogger(VerificationTokenService.class);
+
+    // === HOUSEKEEPING CONFIGURATION ===
+    private static final int VERIFIED_RETENTION_DAYS = 1;  // "Token already used" visas ett dygn
+    private static final int MAX_BATCHES_PER_RUN = 1000;   // skydd mot oändlig loop
 
     private final VerificationTokenRepository tokenRepository;
 
+    @Value("${app.verification-tokens.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
     public VerificationTokenService(VerificationTokenRepository tokenRepository) {
         this.tokenRepository = tokenRepository;
     }
 
+    /**
+     * Skapa token - returnerar klartext för mailet, lagrar bara hashen
+     */
     public String createVerificationToken(User user) {
         String token = UUID.randomUUID().toString();
-        VerificationToken verificationToken = new VerificationToken(token, user);
+        VerificationToken verificationToken = new VerificationToken(TokenHasher.sha256Hex(token), user);
         tokenRepository.save(verificationToken);
         return token;
     }
 
     public Optional<VerificationToken> getVerificationToken(String token) {
-        return tokenRepository.findByToken(token);
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        return tokenRepository.findByTokenHash(TokenHasher.sha256Hex(token));
     }
 
     public void markAsVerified(VerificationToken token) {
         token.setVerifiedAt(LocalDateTime.now());
         tokenRepository.save(token);
     }
+
+    /**
+     * Rensa utgångna och använda tokens i batchar (körs varje natt)
+     */
+    @Scheduled(cron = "${app.verification-tokens.purge-cron:0 15 3 * * *}")
+    public void purgeStaleTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime verifiedBefore = now.minusDays(VERIFIED_RETENTION_DAYS);
+
+        int total = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            int deleted = tokenRepository.deleteStaleBatch(now, verifiedBefore, purgeBatchSize);
+            total += deleted;
+            if (deleted < purgeBatchSize) {
+                break;
+            }
+        }
+
+        log.info("Purged {} stale verification tokens", total);
+    }
 }
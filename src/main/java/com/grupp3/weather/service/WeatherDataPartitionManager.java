@@ -0,0 +1,242 @@
+package com.grupp3.weather.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * WeatherDataPartitionManager - månadspartitioner och retention för weather_data.
+ *
+ * weather_data växer med en rad per favoritplats var 30:e minut och rensades aldrig.
+ * Tabellen är nu range-partitionerad per månad på observation_time (PostgreSQL):
+ *
+ * Huvudfunktioner:
+ * - initialize(): Vid start - gör om en opartitionerad weather_data (från Hibernate eller äldre
+ *   version) till partitionerad och flytta över rader inom retention, i en transaktion. Rader
+ *   utanför partitionerna (äldre än retention, eller längre fram än premake) blir kvar i
+ *   weather_data_out_of_range istället för att försvinna
+ * - ensureUniqueObservations(): Unikt index på (place_id, observation_time), dubbletter rensas en gång
+ * - maintainPartitions(): Varje natt - skapa partitioner premake-months framåt och släpp
+ *   partitioner äldre än retention-months
+ *
+ * Retention är DROP TABLE på en hel partition: omedelbart, ingen stor DELETE, ingen vacuum-skuld.
+ * Historik-queries med observation_time-intervall (findByPlaceIdAndObservationTimeBetween)
+ * läser bara partitionerna som intervallet täcker.
+ *
+ * Partitionerad tabell kräver att primärnyckeln innehåller observation_time, så den blir
+ * (id, observation_time). id tas i block från sekvensen weather_data_seq istället för en
+ * IDENTITY-kolumn, som äldre PostgreSQL inte stödjer på partitionerade tabeller och som
+ * hindrar batchade inserts.
+ *
+ * Körs efter Hibernates ddl-auto (transaktionshanteraren kräver EntityManagerFactory),
+ * efter PlaceReferenceMigration (place_id finns) och innan schemalagda jobb startar,
+ * så inga rader skrivs under konverteringen.
+ */
+
+@Service
+@DependsOn("placeReferenceMigration")
+public class WeatherDataPartitionManager {
+    private static final Logger log = LoggerFactory.getLogger(WeatherDataPartitionManager.class);
+
+    // === PARTITION CONFIGURATION ===
+    private static final String TABLE = "weather_data";
+    private static final String LEGACY_TABLE = "weather_data_legacy";
+    private static final String OUT_OF_RANGE_TABLE = "weather_data_out_of_range";
+    private static final String SEQUENCE = "weather_data_seq";
+    public static final int ID_BLOCK_SIZE = 50; // Samma som allocationSize på WeatherData.id
+    private static final String PARTITION_PREFIX = "weather_data_p";
+    private static final String UNIQUE_INDEX = "uq_weather_data_place_time";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String TABLE_KIND_SQL =
+            "SELECT c.relkind FROM pg_class c WHERE c.relname = '" + TABLE + "' AND pg_table_is_visible(c.oid)";
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = '" + TABLE + "' AND pg_table_is_visible(p.oid)";
+    private static final String FOREIGN_KEYS_SQL =
+            "SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint " +
+            "WHERE conrelid = '" + LEGACY_TABLE + "'::regclass AND contype = 'f'";
+    private static final String UNIQUE_INDEX_EXISTS_SQL =
+            "SELECT COUNT(*) FROM pg_class WHERE relname = '" + UNIQUE_INDEX + "' AND pg_table_is_visible(oid)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.weather-data.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${app.weather-data.premake-months:3}")
+    private int premakeMonths;
+
+    public WeatherDataPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Partitionera weather_data om den inte redan är det, och skapa kommande partitioner
+     */
+    @PostConstruct
+    public void initialize() {
+        String kind = jdbcTemplate.query(TABLE_KIND_SQL, rs -> rs.next() ? rs.getString(1) : null);
+        if (kind == null) {
+            log.warn("Table {} does not exist, skipping partition setup", TABLE);
+            return;
+        }
+        if (!"p".equals(kind)) {
+            transactionTemplate.executeWithoutResult(status -> convertToPartitioned(YearMonth.now()));
+        }
+        maintainPartitions();
+        transactionTemplate.executeWithoutResult(status -> {
+            ensureIdSequence();
+            ensureUniqueObservations();
+        });
+    }
+
+    /**
+     * Skapa partitioner framåt och släpp partitioner utanför retention (varje natt)
+     */
+    @Scheduled(cron = "${app.weather-data.partition-cron:0 45 2 * * *}")
+    public void maintainPartitions() {
+        maintainPartitions(YearMonth.now());
+    }
+
+    void maintainPartitions(YearMonth current) {
+        for (int i = 0; i <= premakeMonths; i++) {
+            createPartition(current.plusMonths(i));
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        int dropped = 0;
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class)) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.info("Dropped {} weather_data partitions older than {}", dropped, oldestKept);
+        }
+    }
+
+    /**
+     * Namn på partitionen för en månad, t.ex. weather_data_p202610
+     */
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Månaden en partition täcker, null om namnet inte är en av våra partitioner
+     */
+    static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * id delas ut i block om ID_BLOCK_SIZE från weather_data_seq (pooled-lo: sekvensvärdet är blockets
+     * första id) - av Hibernate och av WeatherDataWriteBuffer. Kolumnen har därför ingen default,
+     * och sekvensen ställs aldrig under högsta befintliga id.
+     */
+    private void ensureIdSequence() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE + " INCREMENT BY " + ID_BLOCK_SIZE);
+        jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " INCREMENT BY " + ID_BLOCK_SIZE);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN id DROP DEFAULT");
+        jdbcTemplate.queryForObject("SELECT setval('" + SEQUENCE + "', GREATEST(" +
+                "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + TABLE + "), nextval('" + SEQUENCE + "')), false)", Long.class);
+    }
+
+    /**
+     * Unikt index på (place_id, observation_time) - befintliga dubbletter tas bort först (lägsta id behålls).
+     * Indexet ersätter det tidigare icke-unika (place_name, observation_time DESC). Ett äldre unikt index
+     * på place_name försvann med kolumnen (PlaceReferenceMigration) och skapas här om på place_id.
+     */
+    private void ensureUniqueObservations() {
+        Integer exists = jdbcTemplate.queryForObject(UNIQUE_INDEX_EXISTS_SQL, Integer.class);
+        if (exists != null && exists > 0) {
+            return;
+        }
+        int duplicates = jdbcTemplate.update("DELETE FROM " + TABLE + " a USING " + TABLE + " b " +
+                "WHERE a.place_id = b.place_id AND a.observation_time = b.observation_time AND a.id > b.id");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX " + UNIQUE_INDEX + " ON " + TABLE + " (place_id, observation_time)");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_weather_data_place_time");
+        log.info("Created unique index on {} (place_id, observation_time), removed {} duplicate rows", TABLE, duplicates);
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    /**
+     * Byt ut den opartitionerade tabellen mot en partitionerad med samma kolumner.
+     * Rader utanför [retention, premake] flyttas inte utan blir kvar i weather_data_out_of_range.
+     */
+    void convertToPartitioned(YearMonth current) {
+        log.info("Converting {} to a table partitioned by month on observation_time", TABLE);
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_TABLE + " INCLUDING DEFAULTS)" +
+                " PARTITION BY RANGE (observation_time)");
+
+        // Eget namn - weather_data_pkey tillhör fortfarande den omdöpta tabellen
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT weather_data_pk PRIMARY KEY (id, observation_time)");
+        // LIKE kopierar inte främmande nycklar (place_id -> places)
+        jdbcTemplate.query(FOREIGN_KEYS_SQL, rs -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + rs.getString(1) + " " + rs.getString(2));
+        });
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        YearMonth end = current.plusMonths(premakeMonths + 1L);
+        Timestamp firstObservation = jdbcTemplate.queryForObject(
+                "SELECT MIN(observation_time) FROM " + LEGACY_TABLE, Timestamp.class);
+        YearMonth first = firstObservation != null
+                ? YearMonth.from(firstObservation.toLocalDateTime())
+                : current;
+        for (YearMonth month = first.isBefore(oldestKept) ? oldestKept : first; month.isBefore(end); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+
+        Timestamp from = Timestamp.valueOf(oldestKept.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(end.atDay(1).atStartOfDay());
+        int copied = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + LEGACY_TABLE +
+                " WHERE observation_time >= ? AND observation_time < ?", from, to);
+
+        // Rader utan partition släpps inte tyst - de behålls i en egen tabell
+        Integer outside = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + LEGACY_TABLE +
+                " WHERE observation_time < ? OR observation_time >= ?", Integer.class, from, to);
+        if (outside == null || outside == 0) {
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        } else {
+            jdbcTemplate.update("DELETE FROM " + LEGACY_TABLE +
+                    " WHERE observation_time >= ? AND observation_time < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME TO " + OUT_OF_RANGE_TABLE);
+            log.warn("Kept {} weather_data rows outside {} - {} in {}", outside, oldestKept, end, OUT_OF_RANGE_TABLE);
+        }
+
+        log.info("Partitioned {}: moved {} rows from {} onwards", TABLE, copied, oldestKept);
+    }
+}
@@ -0,0 +1,322 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherDataWriteBuffer - write-behind för nya WeatherData-observationer.
+ *
+ * Tidigare sparades varje observation med save() direkt i hämtningsloopen, på en IDENTITY-nyckel
+ * som hindrade batchning. Nu läggs observationen i en begränsad buffert och skrivs i batchar.
+ *
+ * Huvudfunktioner:
+ * - submit(WeatherData data): Dubblettkontroll och köa - ACCEPTED, DUPLICATE eller REJECTED
+ * - flush(): Skriv allt i bufferten i JDBC-batchar om batch-size rader (en INSERT med flera
+ *   rader per batch via reWriteBatchedInserts), ON CONFLICT DO NOTHING som sista dubblettskydd
+ * - Flush sker när bufferten når batch-size, var flush-interval-ms och vid nedstängning (@PreDestroy)
+ *
+ * Dubbletter: senaste observation_time per plats hålls i minnet (första gången från databasen).
+ * En observation som inte är nyare än den senaste köas aldrig - ingen rad, ingen cache-skrivning.
+ *
+ * Backpressure när databasen inte hinner med:
+ * - Full buffert: submit() väntar upp till enqueue-timeout-ms, skriver sedan själv (caller-runs),
+ *   och nekar (REJECTED) bara om det inte heller går - producenten saktas ned till databasens takt
+ * - Tillfälligt fel (transient, ingen anslutning): batchen behålls och provas först nästa gång,
+ *   inget nytt töms ur bufferten under tiden - minnet är högst capacity + batch-size rader
+ * - Bestående fel (t.ex. främmande nyckel när platsen raderats, saknad partition): batchen skrivs
+ *   om rad för rad och rader som ändå misslyckas loggas och släpps, så en trasig rad aldrig
+ *   blockerar bufferten
+ * - Mätvärden: weather.write_buffer.size / capacity / pending_retry, .flushed, .rejected,
+ *   .flush_failures, .dropped
+ *
+ * created_at sätts när raden skrivs (writeBatch), inte när observationen skapades - WeatherRollupService
+ * watermark bygger på created_at, och en rad som väntat i bufferten skulle annars landa bakom den.
+ *
+ * id tas i block om WeatherDataPartitionManager.ID_BLOCK_SIZE från weather_data_seq, samma
+ * pooled-lo-schema som Hibernate använder för WeatherData - inget databasanrop per rad.
+ */
+
+@Service
+public class WeatherDataWriteBuffer {
+    private static final Logger log = LoggerFactory.getLogger(WeatherDataWriteBuffer.class);
+
+    // === WRITE BUFFER CONFIGURATION ===
+    private static final LocalDateTime NO_OBSERVATION = LocalDateTime.MIN;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO weather_data (id, place_id, temperature, cloud_cover, " +
+            "wind_speed, observation_time, created_at, data_source) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (place_id, observation_time) DO NOTHING";
+    private static final String NEXT_ID_BLOCK_SQL = "SELECT nextval('weather_data_seq')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WeatherDataRepository weatherDataRepository;
+    private final BlockingQueue<WeatherData> buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+    private final Map<Long, LocalDateTime> lastObservation = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final List<WeatherData> retry = new ArrayList<>(); // Skyddas av flushLock
+
+    private final Counter flushed;
+    private final Counter rejected;
+    private final Counter flushFailures;
+    private final Counter dropped;
+
+    // id-block: nextId..lastId är reserverade i sekvensen (skyddas av flushLock)
+    private long nextId;
+    private long lastId = -1;
+
+    public WeatherDataWriteBuffer(JdbcTemplate jdbcTemplate,
+                                  WeatherDataRepository weatherDataRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.weather-data.write-buffer.capacity:10000}") int capacity,
+                                  @Value("${app.weather-data.write-buffer.batch-size:500}") int batchSize,
+                                  @Value("${app.weather-data.write-buffer.enqueue-timeout-ms:2000}") long enqueueTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.weatherDataRepository = weatherDataRepository;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        Gauge.builder("weather.write_buffer.size", buffer, BlockingQueue::size)
+                .description("Observations waiting to be written").register(meterRegistry);
+        Gauge.builder("weather.write_buffer.capacity", this, b -> b.capacity)
+                .description("Write buffer capacity").register(meterRegistry);
+        Gauge.builder("weather.write_buffer.pending_retry", this, WeatherDataWriteBuffer::pendingRetry)
+                .description("Observations from a failed flush waiting to be retried").register(meterRegistry);
+        this.flushed = Counter.builder("weather.write_buffer.flushed")
+                .description("Observations written to the database").register(meterRegistry);
+        this.rejected = Counter.builder("weather.write_buffer.rejected")
+                .description("Observations rejected because the buffer stayed full").register(meterRegistry);
+        this.flushFailures = Counter.builder("weather.write_buffer.flush_failures")
+                .description("Flushes that failed and will be retried").register(meterRegistry);
+        this.dropped = Counter.builder("weather.write_buffer.dropped")
+                .description("Observations dropped after a non-transient write error").register(meterRegistry);
+    }
+
+    /**
+     * Köa en ny observation för skrivning - DUPLICATE om platsen redan har en lika ny eller nyare
+     */
+    public SubmitResult submit(WeatherData data) {
+        Long placeId = data.getPlaceId();
+        LocalDateTime last = lastObservation.computeIfAbsent(placeId, this::latestStored);
+        if (!data.getObservationTime().isAfter(last)) {
+            return SubmitResult.DUPLICATE;
+        }
+
+        if (!enqueue(data)) {
+            rejected.increment();
+            log.warn("Weather data write buffer full, dropping observation for place {} at {}",
+                    placeId, data.getObservationTime());
+            return SubmitResult.REJECTED;
+        }
+        lastObservation.merge(placeId, data.getObservationTime(), (a, b) -> a.isAfter(b) ? a : b);
+
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+        return SubmitResult.ACCEPTED;
+    }
+
+    /**
+     * Skriv allt som ligger i bufferten, i batchar - returnerar antal skrivna observationer
+     */
+    @Scheduled(fixedDelayString = "${app.weather-data.write-buffer.flush-interval-ms:5000}")
+    public int flush() {
+        synchronized (flushLock) {
+            int written = 0;
+            try {
+                // Först batchen som misslyckades förra gången
+                if (!retry.isEmpty()) {
+                    written += writeRetry();
+                }
+                List<WeatherData> batch = new ArrayList<>(Math.min(batchSize, capacity));
+                while (buffer.drainTo(batch, batchSize) > 0) {
+                    retry.addAll(batch); // Behålls om skrivningen misslyckas tillfälligt
+                    batch.clear();
+                    written += writeRetry();
+                }
+            } catch (DataAccessException e) {
+                flushFailures.increment();
+                log.warn("Could not flush {} weather observations, will retry: {}", retry.size(), e.getMessage());
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Skriv kvarvarande observationer innan databasen stängs
+     */
+    @PreDestroy
+    public void shutdown() {
+        int written = flush();
+        int left = buffer.size() + pendingRetry();
+        if (left > 0) {
+            log.error("Shutting down with {} unwritten weather observations", left);
+        } else if (written > 0) {
+            log.info("Flushed {} weather observations on shutdown", written);
+        }
+    }
+
+    /**
+     * Antal observationer som väntar på skrivning (buffert och misslyckad batch)
+     */
+    public int pending() {
+        return buffer.size() + pendingRetry();
+    }
+
+    private boolean enqueue(WeatherData data) {
+        try {
+            if (buffer.offer(data, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            // Databasen ligger efter - skriv själv och försök en gång till
+            flush();
+            return buffer.offer(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Skriv retry-listan som en batch - vid bestående fel rad för rad. Tillfälliga fel kastas vidare
+     * och det som inte hunnit skrivas ligger kvar i retry
+     */
+    private int writeRetry() {
+        try {
+            int written = writeBatch(retry);
+            retry.clear();
+            return written;
+        } catch (DataAccessException e) {
+            if (isRetryable(e)) {
+                throw e;
+            }
+            log.warn("Batch of {} weather observations failed, writing them one by one: {}", retry.size(), e.getMessage());
+        }
+
+        int written = 0;
+        Iterator<WeatherData> rows = retry.iterator();
+        while (rows.hasNext()) {
+            WeatherData data = rows.next();
+            try {
+                written += writeBatch(List.of(data));
+            } catch (DataAccessException e) {
+                if (isRetryable(e)) {
+                    throw e;
+                }
+                dropped.increment();
+                log.error("Dropping weather observation for place {} at {}: {}",
+                        data.getPlaceId(), data.getObservationTime(), e.getMessage());
+            }
+            rows.remove();
+        }
+        return written;
+    }
+
+    /**
+     * Fel som kan gå över av sig själv - värt att prova samma batch igen. Ingen anslutning
+     * (DataAccessResourceFailureException) räknas hit: rad för rad skulle bara tappa allt
+     */
+    private static boolean isRetryable(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private int writeBatch(List<WeatherData> batch) {
+        long[] ids = new long[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextId();
+        }
+        // Skrivtid, inte skapelsetid - raden kan ha väntat i bufferten längre än rollupens settle-lag
+        LocalDateTime writtenAt = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(writtenAt);
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WeatherData data = batch.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, data.getPlaceId());
+                ps.setObject(3, data.getTemperature(), Types.DOUBLE);
+                ps.setObject(4, data.getCloudCover(), Types.INTEGER);
+                ps.setObject(5, data.getWindSpeed(), Types.DOUBLE);
+                ps.setTimestamp(6, Timestamp.valueOf(data.getObservationTime()));
+                ps.setTimestamp(7, createdAt);
+                ps.setString(8, data.getDataSource());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+        for (WeatherData data : batch) {
+            data.setCreatedAt(writtenAt);
+        }
+        flushed.increment(batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Nästa id ur det reserverade blocket, nytt block ur sekvensen när det tar slut
+     */
+    private long nextId() {
+        if (nextId > lastId) {
+            Long blockStart = jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class);
+            nextId = blockStart;
+            lastId = blockStart + WeatherDataPartitionManager.ID_BLOCK_SIZE - 1;
+        }
+        return nextId++;
+    }
+
+    private int pendingRetry() {
+        synchronized (flushLock) {
+            return retry.size();
+        }
+    }
+
+    private LocalDateTime latestStored(Long placeId) {
+        return weatherDataRepository.findLatestByPlaceId(placeId)
+                .map(WeatherData::getObservationTime)
+                .orElse(NO_OBSERVATION);
+    }
+
+    public enum SubmitResult {
+        ACCEPTED,
+        DUPLICATE,
+        REJECTED
+    }
+}
@@ -0,0 +1,183 @@
+package com.grupp3.weather.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * WeatherExportService - sparad väderhistorik som NDJSON eller CSV, direkt till en OutputStream.
+ *
+ * Huvudfunktioner:
+ * - export(Map<Long, String> places, LocalDateTime from, LocalDateTime to, Format format, OutputStream out):
+ *   Skriv alla observationer för platserna i [from, to), per plats och äldst först. Returnerar antal rader
+ *
+ * Minnet är konstant oavsett exportens storlek:
+ * - Raderna läses som en Stream från WeatherDataRepository med fetch size - en server-side cursor,
+ *   inte hela resultatet i JDBC-drivrutinen
+ * - Varje rad kopplas loss från persistence context när den skrivits, så sessionen inte växer
+ * - Utdata går genom en buffrad Writer rakt till svaret
+ *
+ * Körs i en read-only transaktion som hålls öppen medan exporten skrivs - anropas från
+ * StreamingResponseBody, alltså på MVC:s async-tråd och inte på request-tråden.
+ */
+
+@Service
+public class WeatherExportService {
+    private static final Logger log = LoggerFactory.getLogger(WeatherExportService.class);
+
+    // === CSV ===
+    private static final String CSV_HEADER = "place_id,place,observation_time,temperature,cloud_cover,wind_speed,data_source";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() { return contentType; }
+        public String extension() { return extension; }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format must be ndjson or csv");
+            }
+        }
+    }
+
+    private final WeatherDataRepository weatherDataRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public WeatherExportService(WeatherDataRepository weatherDataRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper) {
+        this.weatherDataRepository = weatherDataRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Skriv platsernas observationer i [from, to) till out - places är place_id → namn
+     */
+    @Transactional(readOnly = true)
+    public long export(Map<Long, String> places, LocalDateTime from, LocalDateTime to,
+                       Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator json = null;
+        if (format == Format.NDJSON) {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null); // Radbrytningen skrivs själv efter varje objekt
+        } else {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try (Stream<WeatherData> stream = weatherDataRepository.streamForExport(places.keySet(), from, to)) {
+            Iterator<WeatherData> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                WeatherData data = iterator.next();
+                String placeName = places.get(data.getPlaceId());
+                if (json != null) {
+                    writeJson(json, data, placeName);
+                } else {
+                    writeCsv(writer, data, placeName);
+                }
+                entityManager.detach(data);
+                rows++;
+            }
+        }
+
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+        log.info("Exported {} weather observations for {} places as {}", rows, places.size(), format);
+        return rows;
+    }
+
+    private static void writeJson(JsonGenerator json, WeatherData data, String placeName) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("place_id", data.getPlaceId());
+        json.writeStringField("place", placeName);
+        json.writeStringField("observation_time", data.getObservationTime().toString());
+        writeNumber(json, "temperature", data.getTemperature());
+        writeNumber(json, "cloud_cover", data.getCloudCover());
+        writeNumber(json, "wind_speed", data.getWindSpeed());
+        json.writeStringField("data_source", data.getDataSource());
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeNumber(JsonGenerator json, String field, Number value) throws IOException {
+        json.writeFieldName(field);
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Integer) {
+            json.writeNumber(value.intValue());
+        } else {
+            json.writeNumber(value.doubleValue());
+        }
+    }
+
+    private static void writeCsv(Writer writer, WeatherData data, String placeName) throws IOException {
+        writer.write(String.valueOf(data.getPlaceId()));
+        writer.write(',');
+        writer.write(csvText(placeName));
+        writer.write(',');
+        writer.write(data.getObservationTime().toString());
+        writer.write(',');
+        writer.write(csvValue(data.getTemperature()));
+        writer.write(',');
+        writer.write(csvValue(data.getCloudCover()));
+        writer.write(',');
+        writer.write(csvValue(data.getWindSpeed()));
+        writer.write(',');
+        writer.write(csvText(data.getDataSource()));
+        writer.write('\n');
+    }
+
+    private static String csvValue(Number value) {
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Text med kommatecken, citattecken eller radbrytning citeras (RFC 4180)
+     */
+    private static String csvText(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -21,15 +21,15 @@ import java.util.function.Consumer;
  *
  * Huvudfunktioner:
  * - fetchAndSaveForecast(Place place): Hämta prognos → array-processing → spara 7 dagar
- * - getForecastsForPlace(String placeName): Alla framtida prognoser från idag och framåt
- * - getForecastsForNextDays(String placeName, int days): Flexibel dagsmängd (1-14 dagar)
- * - getForecastForDate(String placeName, LocalDate date): Specifik datums-prognos
+ * - getForecastsForPlace(Long placeId): Alla framtida prognoser från idag och framåt
+ * - getForecastsForNextDays(Long placeId, int days): Flexibel dagsmängd (1-14 dagar)
+ * - getForecastForDate(Long placeId, LocalDate date): Specifik datums-prognos
  * - cleanupOldForecasts(): Radera inaktuella prognoser äldre än idag
  *
  * Array-processing implementerar:
  * - Parallell array-hantering: Open-Meteo returnerar separata arrays per värdetyp
  * - Index-korrelation: Loop kombinerar time[i] + temp_max[i] + temp_min[i] till komplett dag-objekt
- * - Upsert-logik: findByPlaceNameAndForecastDate() → uppdatera befintlig eller skapa ny
+ * - Upsert-logik: findByPlaceIdAndForecastDate() → uppdatera befintlig eller skapa ny
  * - Datum-konvertering: "2025-09-17" string → LocalDate för databas-kompatibilitet
  *
  * Används av ForecastController och ScheduledWeatherService för prognoshantering.
@@ -156,8 +156,8 @@ public class WeatherForecastService {
 
                 // Kolla om prognos redan finns för denna dag
                 WeatherForecast forecast = forecastRepository
-                        .findByPlaceNameAndForecastDate(place.getName(), forecastDate)
-                        .orElse(new WeatherForecast(place.getName(), place.getLat(), place.getLon(), forecastDate));
+                        .findByPlaceIdAndForecastDate(place.getId(), forecastDate)
+                        .orElse(new WeatherForecast(place.getId(), forecastDate));
 
                 // Uppdatera värden
                 safeSetForecastValue(arrays.getTempMax(), i, forecast::setTemperatureMax);
@@ -180,17 +180,17 @@ public class WeatherForecastService {
     /**
      * Hämta prognoser för en plats
      */
-    public List<WeatherForecast> getForecastsForPlace(String placeName) {
-        return forecastRepository.findFutureForecasts(placeName, LocalDate.now());
+    public List<WeatherForecast> getForecastsForPlace(Long placeId) {
+        return forecastRepository.findFutureForecasts(placeId, LocalDate.now());
     }
 
     /**
      * Hämta prognoser för kommande X dagar
      */
-    public List<WeatherForecast> getForecastsForNextDays(String placeName, int days) {
+    public List<WeatherForecast> getForecastsForNextDays(Long placeId, int days) {
         LocalDate today = LocalDate.now();
         LocalDate endDate = today.plusDays(days - 1);
-        return forecastRepository.findForecastsForNextDays(placeName, today, endDate);
+        return forecastRepository.findForecastsForNextDays(placeId, today, endDate);
     }
 
     /**
@@ -204,7 +204,7 @@ public class WeatherForecastService {
     /**
      * Hämta prognos för specifikt datum
      */
-    public WeatherForecast getForecastForDate(String placeName, LocalDate date) {
-        return forecastRepository.findByPlaceNameAndForecastDate(placeName, date).orElse(null);
+    public WeatherForecast getForecastForDate(Long placeId, LocalDate date) {
+        return forecastRepository.findByPlaceIdAndForecastDate(placeId, date).orElse(null);
     }
 }
\ No newline at end of file
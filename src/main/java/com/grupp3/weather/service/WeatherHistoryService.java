@@ -3,6 +3,7 @@ package com.grupp3.weather.service;
 import com.grupp3.weather.model.Place;
 import com.grupp3.weather.model.WeatherData;
 import com.grupp3.weather.repository.WeatherDataRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -17,15 +18,23 @@ import java.util.Map;
  * istället för temporär Redis-lagring.
  *
  * Huvudfunktioner:
- * - fetchAndSaveWeatherData(Place place): Hämta från API → konvertera → spara i databas
- * - getLatestWeatherData(String placeName): Senaste sparade väderdata för alert-kontroller
- * - getWeatherHistory(String placeName, int hours): Historisk data för trendanalys
+ * - fetchAndSaveWeatherData(Place place): Hämta från API → konvertera → spara i databas,
+ *   returnerar IngestResult (INSERTED, UNCHANGED eller FAILED)
+ * - getLatestWeatherData(Long placeId): Senaste sparade väderdata för alert-kontroller
+ * - getWeatherHistory(Long placeId, int hours): Historisk data för trendanalys
+ * - getWeatherHistoryPage(...): En sida historik nyast först, för bläddring utan att läsa allt
  *
  * Dataflöde implementerar:
  * - API-response parsing: Extraherar temperature, wind_speed, cloud_cover från JSON
  * - Tidskonvertering: Open-Meteo format → Java LocalDateTime för databas-kompatibilitet
  * - Dubbel uppdatering: Sparar i databas OCH uppdaterar cache samtidigt för effektivitet
- * - Graceful degradation: Returnerar null vid API-fel istället för systemkrasch
+ * - Graceful degradation: Returnerar FAILED vid API-fel istället för systemkrasch
+ * - Dubblettskydd: Open-Meteos current-block uppdateras var 15:e minut, så en manuell uppdatering
+ *   nära schemat får samma observation_time. Den köas inte och ger UNCHANGED - cachen skrivs
+ *   inte om och alerts utvärderas inte igen för samma observation.
+ * - Batchskrivning: nya observationer läggs i WeatherDataWriteBuffer och skrivs i batchar.
+ *   INSERTED betyder att observationen är accepterad - raden kan ligga i bufferten en stund.
+ *   Full buffert som inte går att tömma (databasen ligger efter) ger FAILED.
  *
  * Används av ScheduledWeatherService för automatisk historikbyggnad.
  * Databas-lagring → permanent, Cache-lagring → 5 minuter.
@@ -37,19 +46,22 @@ public class WeatherHistoryService {
     private final WeatherDataRepository weatherDataRepository;
     private final WeatherService weatherService;
     private final WeatherCacheService cacheService;
+    private final WeatherDataWriteBuffer writeBuffer;
 
     public WeatherHistoryService(WeatherDataRepository weatherDataRepository,
                                  WeatherService weatherService,
-                                 WeatherCacheService cacheService) {
+                                 WeatherCacheService cacheService,
+                                 WeatherDataWriteBuffer writeBuffer) {
         this.weatherDataRepository = weatherDataRepository;
         this.weatherService = weatherService;
         this.cacheService = cacheService;
+        this.writeBuffer = writeBuffer;
     }
 
     /**
      * Hämta och spara väderdata för en plats
      */
-    public WeatherData fetchAndSaveWeatherData(Place place) {
+    public IngestResult fetchAndSaveWeatherData(Place place) {
         try {
             // Hämta rådata från Open-Meteo
             Map<String, Object> rawData = weatherService.fetchCurrent(place.getLat(), place.getLon());
@@ -59,9 +71,7 @@ public class WeatherHistoryService {
 
             // Konvertera och spara
             WeatherData weatherData = new WeatherData();
-            weatherData.setPlaceName(place.getName());
-            weatherData.setLatitude(place.getLat());
-            weatherData.setLongitude(place.getLon());
+            weatherData.setPlaceId(place.getId());
 
             // Extrahera värden från Open-Meteo response
             if (currentData.get("temperature_2m") != null) {
@@ -82,8 +92,15 @@ public class WeatherHistoryService {
                 weatherData.setObservationTime(LocalDateTime.now());
             }
 
-            // Spara till databas
-            WeatherData saved = weatherDataRepository.save(weatherData);
+            // Köa för batchskrivning - samma observation_time för platsen finns redan = ingen ändring
+            switch (writeBuffer.submit(weatherData)) {
+                case DUPLICATE:
+                    return new IngestResult(IngestResult.Status.UNCHANGED, weatherData);
+                case REJECTED:
+                    return new IngestResult(IngestResult.Status.FAILED, null);
+                default:
+                    break;
+            }
 
             // Uppdatera cache samtidigt
             Map<String, Object> cacheData = Map.of(
@@ -94,31 +111,38 @@ public class WeatherHistoryService {
             );
             cacheService.cacheWeather(place.getName(), cacheData);
 
-            return saved;
+            return new IngestResult(IngestResult.Status.INSERTED, weatherData);
 
         } catch (Exception e) {
             System.err.println("Error fetching weather for " + place.getName() + ": " + e.getMessage());
-            return null;
+            return new IngestResult(IngestResult.Status.FAILED, null);
         }
     }
 
     /**
      * Hämta senaste väderdata för en plats från databasen
      */
-    public WeatherData getLatestWeatherData(String placeName) {
-        return weatherDataRepository.findLatestByPlaceName(placeName).orElse(null);
+    public WeatherData getLatestWeatherData(Long placeId) {
+        return weatherDataRepository.findLatestByPlaceId(placeId).orElse(null);
     }
 
     /**
      * Hämta väderhistorik för en plats
      */
-    public List<WeatherData> getWeatherHistory(String placeName, int hours) {
+    public List<WeatherData> getWeatherHistory(Long placeId, int hours) {
         LocalDateTime since = LocalDateTime.now().minusHours(hours);
-        return weatherDataRepository.findByPlaceNameAndObservationTimeBetween(
-                placeName, since, LocalDateTime.now()
+        return weatherDataRepository.findByPlaceIdAndObservationTimeBetween(
+                placeId, since, LocalDateTime.now()
         );
     }
 
+    /**
+     * En sida väderhistorik, nyast först - observationer från och med from och före before
+     */
+    public List<WeatherData> getWeatherHistoryPage(Long placeId, LocalDateTime from, LocalDateTime before, int limit) {
+        return weatherDataRepository.findPageBefore(placeId, from, before, Limit.of(limit));
+    }
+
     /**
      * Parse observation time från Open-Meteo format
      */
@@ -134,4 +158,25 @@ public class WeatherHistoryService {
             return LocalDateTime.now();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Resultat av en hämtning: ny observation, samma som redan sparad, eller fel (data är då null).
+     * INSERTED betyder accepterad för skrivning - raden kan ligga kvar i WeatherDataWriteBuffer
+     */
+    public record IngestResult(Status status, WeatherData data) {
+
+        public enum Status {
+            INSERTED,
+            UNCHANGED,
+            FAILED
+        }
+
+        public boolean isSuccess() {
+            return status != Status.FAILED;
+        }
+
+        public boolean isNew() {
+            return status == Status.INSERTED;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.WeatherSummaryDTO;
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WeatherRollupService - timvisa och dygnsvisa aggregat av weather_data för långa historikserier.
+ *
+ * Rå historik är ~48 rader per plats och dygn; ett 30-dagarsdiagram blev 1 440 rader.
+ * Aggregaten (antal, min/max/medel för temperatur, vind och molnighet) ligger i egna tabeller,
+ * weather_data_hourly och weather_data_daily, med (place_id, bucket_start) som nyckel.
+ *
+ * Huvudfunktioner:
+ * - rollup(): Inkrementell körning - räknar bara om timmar/dygn som fått nya rader sedan watermark
+ * - getSeries(Long placeId, LocalDateTime from, LocalDateTime to): Serie i grövsta upplösning
+ *   som fortfarande ger en meningsfull kurva för intervallet (Resolution.forRange)
+ *
+ * Inkrementell uppdatering:
+ * - Watermark är created_at (när raden skrevs), inte observation_time - en sen rad för en gammal
+ *   timme räknas också in. Watermark sparas i weather_rollup_state och överlever omstart.
+ * - Berörda buckets räknas om helt från rådata och skrivs med ON CONFLICT DO UPDATE, så en
+ *   körning kan upprepas utan att räkna dubbelt
+ * - settle-lag: rader nyare än så tas med nästa körning, så transaktioner som committar
+ *   sent med äldre created_at inte missas
+ *
+ * Aggregaten ligger högst interval + settle-lag efter rådata; korta intervall läses därför rått.
+ * Aggregattabeller från före place_id (nyckel place_name) släpps vid start och byggs om från rådata.
+ */
+
+@Service
+@DependsOn("weatherDataPartitionManager") // Index skapas på den partitionerade tabellen
+public class WeatherRollupService {
+    private static final Logger log = LoggerFactory.getLogger(WeatherRollupService.class);
+
+    // === ROLLUP CONFIGURATION ===
+    private static final String STATE_NAME = "weather_data";
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String STATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS weather_rollup_state (" +
+            "name VARCHAR(64) PRIMARY KEY, watermark TIMESTAMP(6) NOT NULL)";
+    private static final String LEGACY_KEY_SQL =
+            "SELECT COUNT(*) FROM information_schema.columns " +
+            "WHERE table_name = ? AND column_name = 'place_name' AND table_schema = current_schema()";
+    private static final String CREATED_AT_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_weather_data_created_at ON weather_data (created_at)";
+    private static final RowMapper<WeatherSummaryDTO> SUMMARY_MAPPER = WeatherRollupService::mapSummary;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WeatherDataRepository weatherDataRepository;
+
+    @Value("${app.weather-rollup.settle-lag-ms:300000}")
+    private long settleLagMs;
+
+    public WeatherRollupService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                WeatherDataRepository weatherDataRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.weatherDataRepository = weatherDataRepository;
+    }
+
+    /**
+     * Skapa aggregattabeller, state-tabell och created_at-index om de saknas
+     */
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute(STATE_TABLE_SQL);
+        jdbcTemplate.execute(CREATED_AT_INDEX_SQL);
+        dropLegacyRollups();
+        for (Resolution resolution : Resolution.values()) {
+            if (resolution.table != null) {
+                jdbcTemplate.execute(resolution.createTableSql());
+            }
+        }
+    }
+
+    /**
+     * Räkna om de timmar och dygn som fått nya rader sedan förra körningen
+     */
+    @Scheduled(fixedDelayString = "${app.weather-rollup.interval-ms:300000}",
+            initialDelayString = "${app.weather-rollup.interval-ms:300000}")
+    public void rollup() {
+        LocalDateTime from = watermark();
+        LocalDateTime to = LocalDateTime.now().minus(Duration.ofMillis(settleLagMs));
+        if (!to.isAfter(from)) {
+            return;
+        }
+
+        int[] updated = new int[Resolution.values().length];
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Resolution resolution : Resolution.values()) {
+                if (resolution.table != null) {
+                    updated[resolution.ordinal()] = jdbcTemplate.update(resolution.rollupSql(),
+                            Timestamp.valueOf(from), Timestamp.valueOf(to));
+                }
+            }
+            jdbcTemplate.update("INSERT INTO weather_rollup_state (name, watermark) VALUES (?, ?) " +
+                    "ON CONFLICT (name) DO UPDATE SET watermark = EXCLUDED.watermark", STATE_NAME, Timestamp.valueOf(to));
+        });
+
+        log.debug("Weather rollup up to {}: {} hourly and {} daily buckets updated",
+                to, updated[Resolution.HOURLY.ordinal()], updated[Resolution.DAILY.ordinal()]);
+    }
+
+    /**
+     * Serie för platsen i upplösningen som passar intervallet, äldst först
+     */
+    public Series getSeries(Long placeId, LocalDateTime from, LocalDateTime to) {
+        Resolution resolution = Resolution.forRange(Duration.between(from, to));
+        if (resolution == Resolution.RAW) {
+            List<WeatherData> rows = weatherDataRepository.findByPlaceIdAndObservationTimeBetween(placeId, from, to);
+            List<WeatherSummaryDTO> points = new ArrayList<>(rows.size());
+            for (int i = rows.size() - 1; i >= 0; i--) { // Repositoryt sorterar nyast först
+                points.add(fromObservation(rows.get(i)));
+            }
+            return new Series(resolution, points);
+        }
+
+        List<WeatherSummaryDTO> points = jdbcTemplate.query(
+                "SELECT * FROM " + resolution.table +
+                " WHERE place_id = ? AND bucket_start >= date_trunc('" + resolution.unit + "', ?::timestamp)" +
+                " AND bucket_start <= ? ORDER BY bucket_start",
+                SUMMARY_MAPPER, placeId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return new Series(resolution, points);
+    }
+
+    /**
+     * Aggregat nycklade på place_name släpps och watermark nollställs - nästa rollup() bygger om dem
+     */
+    private void dropLegacyRollups() {
+        boolean legacy = false;
+        for (Resolution resolution : Resolution.values()) {
+            if (resolution.table != null) {
+                Integer columns = jdbcTemplate.queryForObject(LEGACY_KEY_SQL, Integer.class, resolution.table);
+                legacy |= columns != null && columns > 0;
+            }
+        }
+        if (!legacy) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Resolution resolution : Resolution.values()) {
+                if (resolution.table != null) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + resolution.table);
+                }
+            }
+            jdbcTemplate.update("DELETE FROM weather_rollup_state WHERE name = ?", STATE_NAME);
+        });
+        log.info("Dropped rollup tables keyed by place_name, they are rebuilt by place_id on the next rollup");
+    }
+
+    private LocalDateTime watermark() {
+        List<Timestamp> watermark = jdbcTemplate.queryForList(
+                "SELECT watermark FROM weather_rollup_state WHERE name = ?", Timestamp.class, STATE_NAME);
+        return watermark.isEmpty() ? INITIAL_WATERMARK : watermark.get(0).toLocalDateTime();
+    }
+
+    private static WeatherSummaryDTO fromObservation(WeatherData data) {
+        Double cloudCover = data.getCloudCover() != null ? data.getCloudCover().doubleValue() : null;
+        return new WeatherSummaryDTO(data.getObservationTime(), 1,
+                data.getTemperature(), data.getTemperature(), data.getTemperature(),
+                data.getWindSpeed(), data.getWindSpeed(), data.getWindSpeed(),
+                cloudCover, cloudCover, cloudCover);
+    }
+
+    private static WeatherSummaryDTO mapSummary(ResultSet rs, int rowNum) throws SQLException {
+        return new WeatherSummaryDTO(
+                rs.getTimestamp("bucket_start").toLocalDateTime(),
+                rs.getInt("sample_count"),
+                rs.getObject("temperature_min", Double.class),
+                rs.getObject("temperature_max", Double.class),
+                rs.getObject("temperature_avg", Double.class),
+                rs.getObject("wind_speed_min", Double.class),
+                rs.getObject("wind_speed_max", Double.class),
+                rs.getObject("wind_speed_avg", Double.class),
+                rs.getObject("cloud_cover_min", Double.class),
+                rs.getObject("cloud_cover_max", Double.class),
+                rs.getObject("cloud_cover_avg", Double.class));
+    }
+
+    /**
+     * En serie och upplösningen den lästes i
+     */
+    public record Series(Resolution resolution, List<WeatherSummaryDTO> points) {
+    }
+
+    /**
+     * Upplösningar, finast först. maxRange = längsta intervall upplösningen används för,
+     * så en serie blir högst ~100-350 punkter.
+     */
+    public enum Resolution {
+        RAW(null, null, Duration.ofHours(48)),
+        HOURLY("weather_data_hourly", "hour", Duration.ofDays(14)),
+        DAILY("weather_data_daily", "day", null);
+
+        private final String table;
+        private final String unit;
+        private final Duration maxRange;
+
+        Resolution(String table, String unit, Duration maxRange) {
+            this.table = table;
+            this.unit = unit;
+            this.maxRange = maxRange;
+        }
+
+        /**
+         * Grövsta upplösning som fortfarande ger en meningsfull kurva för intervallet
+         */
+        public static Resolution forRange(Duration range) {
+            for (Resolution resolution : values()) {
+                if (resolution.maxRange == null || range.compareTo(resolution.maxRange) <= 0) {
+                    return resolution;
+                }
+            }
+            return DAILY;
+        }
+
+        private String createTableSql() {
+            return "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "place_id BIGINT NOT NULL REFERENCES places (id) ON DELETE RESTRICT, " +
+                    "bucket_start TIMESTAMP(6) NOT NULL, " +
+                    "sample_count INTEGER NOT NULL, " +
+                    "temperature_min DOUBLE PRECISION, temperature_max DOUBLE PRECISION, temperature_avg DOUBLE PRECISION, " +
+                    "wind_speed_min DOUBLE PRECISION, wind_speed_max DOUBLE PRECISION, wind_speed_avg DOUBLE PRECISION, " +
+                    "cloud_cover_min DOUBLE PRECISION, cloud_cover_max DOUBLE PRECISION, cloud_cover_avg DOUBLE PRECISION, " +
+                    "PRIMARY KEY (place_id, bucket_start))";
+        }
+
+        /**
+         * Räkna om varje bucket som har en rad med created_at i (?, ?] - från alla dess rader
+         */
+        private String rollupSql() {
+            String bucket = "date_trunc('" + unit + "', w.observation_time)";
+            return "INSERT INTO " + table + " (place_id, bucket_start, sample_count, " +
+                    "temperature_min, temperature_max, temperature_avg, " +
+                    "wind_speed_min, wind_speed_max, wind_speed_avg, " +
+                    "cloud_cover_min, cloud_cover_max, cloud_cover_avg) " +
+                    "SELECT w.place_id, " + bucket + ", COUNT(*), " +
+                    "MIN(w.temperature), MAX(w.temperature), AVG(w.temperature), " +
+                    "MIN(w.wind_speed), MAX(w.wind_speed), AVG(w.wind_speed), " +
+                    "MIN(w.cloud_cover), MAX(w.cloud_cover), AVG(w.cloud_cover) " +
+                    "FROM weather_data w " +
+                    "JOIN (SELECT DISTINCT place_id, date_trunc('" + unit + "', observation_time) AS bucket_start " +
+                    "      FROM weather_data WHERE created_at > ? AND created_at <= ?) touched " +
+                    "ON w.place_id = touched.place_id " +
+                    "AND w.observation_time >= touched.bucket_start " +
+                    "AND w.observation_time < touched.bucket_start + interval '1 " + unit + "' " +
+                    "GROUP BY w.place_id, " + bucket + " " +
+                    "ON CONFLICT (place_id, bucket_start) DO UPDATE SET " +
+                    "sample_count = EXCLUDED.sample_count, " +
+                    "temperature_min = EXCLUDED.temperature_min, temperature_max = EXCLUDED.temperature_max, " +
+                    "temperature_avg = EXCLUDED.temperature_avg, " +
+                    "wind_speed_min = EXCLUDED.wind_speed_min, wind_speed_max = EXCLUDED.wind_speed_max, " +
+                    "wind_speed_avg = EXCLUDED.wind_speed_avg, " +
+                    "cloud_cover_min = EXCLUDED.cloud_cover_min, cloud_cover_max = EXCLUDED.cloud_cover_max, " +
+                    "cloud_cover_avg = EXCLUDED.cloud_cover_avg";
+        }
+    }
+}
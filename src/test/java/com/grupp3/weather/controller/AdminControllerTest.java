@@ -0,0 +1,60 @@
+package com.grupp3.weather.controller;
+
+import com.grupp3.weather.dto.BlockRequestDTO;
+import com.grupp3.weather.security.BlockList;
+import com.grupp3.weather.service.RateLimitingService;
+import com.grupp3.weather.service.WeatherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdminControllerTest {
+
+    @Mock
+    private WeatherService weatherService;
+
+    @Mock
+    private RateLimitingService rateLimitingService;
+
+    @Mock
+    private BlockList blockList;
+
+    private AdminController adminController;
+
+    @BeforeEach
+    void setUp() {
+        adminController = new AdminController(weatherService, rateLimitingService, blockList);
+    }
+
+    @Test
+    @DisplayName("Blockering längre än 30 dagar ska avvisas innan millisekunderna räknas ut")
+    void blockClient_WithHugeDuration_ShouldBeRejected() {
+        // Arrange - Long.MAX_VALUE / 1000 + 1 sekunder ger overflow vid * 1000
+        BlockRequestDTO request = new BlockRequestDTO("198.51.100.7", Long.MAX_VALUE / 1000 + 1, "test");
+
+        // Act & Assert
+        assertThatThrownBy(() -> adminController.blockClient(request))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(blockList);
+    }
+
+    @Test
+    @DisplayName("Blockering på exakt 30 dagar ska gå igenom med rätt antal millisekunder")
+    void blockClient_AtMaxDuration_ShouldBlock() {
+        // Arrange
+        BlockRequestDTO request = new BlockRequestDTO("198.51.100.7", AdminController.MAX_BLOCK_SECONDS, "test");
+
+        // Act
+        adminController.blockClient(request);
+
+        // Assert
+        verify(blockList).block(anyLong(), eq(30L * 24 * 60 * 60 * 1000), eq("test"));
+    }
+}
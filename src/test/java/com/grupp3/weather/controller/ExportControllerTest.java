@@ -0,0 +1,133 @@
+package com.grupp3.weather.controller;
+
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.service.PlaceService;
+import com.grupp3.weather.service.WeatherExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportControllerTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 9, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 9, 2, 0, 0);
+
+    @Mock
+    private PlaceService placeService;
+
+    @Mock
+    private WeatherExportService weatherExportService;
+
+    private ExportController exportController;
+
+    @BeforeEach
+    void setUp() {
+        exportController = new ExportController(placeService, weatherExportService, 1, Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("Export när alla platser är upptagna ska ge 429 tills strömmen är skriven")
+    void exportWeather_WhenAllSlotsBusy_ShouldReturnTooManyRequests() throws Exception {
+        // Arrange
+        Place stockholm = new Place("Stockholm", 59.3293, 18.0686);
+        stockholm.setId(1L);
+        when(placeService.findByName("Stockholm")).thenReturn(Optional.of(stockholm));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> first =
+                exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", new MockHttpServletRequest());
+
+        // Assert
+        assertThatThrownBy(() -> exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", new MockHttpServletRequest()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+        // Act
+        first.getBody().writeTo(new ByteArrayOutputStream());
+
+        // Assert
+        assertThat(exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", new MockHttpServletRequest()).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DisplayName("Okänd plats ska ge 404 och släppa exportplatsen")
+    void exportWeather_WithUnknownPlace_ShouldReleaseSlot() {
+        // Arrange
+        Place stockholm = new Place("Stockholm", 59.3293, 18.0686);
+        stockholm.setId(1L);
+        when(placeService.findByName("Atlantis")).thenReturn(Optional.empty());
+        when(placeService.findByName("Stockholm")).thenReturn(Optional.of(stockholm));
+
+        // Act & Assert
+        assertThatThrownBy(() -> exportController.exportWeather(List.of("Atlantis"), FROM, TO, "ndjson", new MockHttpServletRequest()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThat(exportController.exportWeather(List.of("Stockholm"), FROM, TO, "ndjson", new MockHttpServletRequest()).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DisplayName("Avslutad async-request ska släppa exportplatsen även om strömmen aldrig startade")
+    void exportWeather_CompletedWithoutBody_ShouldReleaseSlot() throws Exception {
+        // Arrange - t.ex. executorn avvisade uppgiften eller klienten kopplade ner
+        Place stockholm = new Place("Stockholm", 59.3293, 18.0686);
+        stockholm.setId(1L);
+        when(placeService.findByName("Stockholm")).thenReturn(Optional.of(stockholm));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResponseEntity<StreamingResponseBody> first =
+                exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", request);
+        CallableProcessingInterceptor slot = WebAsyncUtils.getAsyncManager(request)
+                .getCallableInterceptor(ExportController.EXPORT_INTERCEPTOR_KEY);
+
+        // Act
+        slot.afterCompletion(null, null);
+        first.getBody().writeTo(new ByteArrayOutputStream()); // Sen ström ska inte släppa en gång till
+
+        // Assert - en plats, och bara en
+        assertThat(exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", new MockHttpServletRequest())
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThatThrownBy(() -> exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", new MockHttpServletRequest()))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    @DisplayName("Exportens timeout ska sättas på den egna async-requesten, inte globalt")
+    void exportWeather_ShouldSetOwnAsyncTimeout() throws Exception {
+        // Arrange
+        Place stockholm = new Place("Stockholm", 59.3293, 18.0686);
+        stockholm.setId(1L);
+        when(placeService.findByName("Stockholm")).thenReturn(Optional.of(stockholm));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        AsyncWebRequest asyncRequest = mock(AsyncWebRequest.class);
+
+        // Act
+        exportController.exportWeather(List.of("Stockholm"), FROM, TO, "csv", request);
+        WebAsyncUtils.getAsyncManager(request).getCallableInterceptor(ExportController.EXPORT_INTERCEPTOR_KEY)
+                .beforeConcurrentHandling(asyncRequest, null);
+
+        // Assert
+        verify(asyncRequest).setTimeout(3_600_000L);
+    }
+}
@@ -1,5 +1,7 @@
 package com.grupp3.weather.controller;
 
+import com.grupp3.weather.config.PaginationProperties;
+import com.grupp3.weather.dto.PageDTO;
 import com.grupp3.weather.dto.PlaceDTO;
 import com.grupp3.weather.mapper.PlaceMapper;
 import com.grupp3.weather.model.Place;
@@ -9,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -31,6 +34,9 @@ class FavoritesControllerTest {
     @Mock
     private PlaceMapper placeMapper;
 
+    @Spy
+    private PaginationProperties paginationProperties = new PaginationProperties();
+
     @InjectMocks
     private FavoritesController favoritesController;
 
@@ -119,32 +125,62 @@ class FavoritesControllerTest {
         List<Place> favorites = Arrays.asList(place1, place2);
         List<PlaceDTO> favoriteDTOs = Arrays.asList(dto1, dto2);
 
-        when(placeService.findFavorites()).thenReturn(favorites);
+        when(placeService.findFavoritesPage(0L, 51)).thenReturn(favorites);
         when(placeMapper.toDTOList(favorites)).thenReturn(favoriteDTOs);
 
-        ResponseEntity<List<PlaceDTO>> response = favoritesController.getFavorites();
+        ResponseEntity<PageDTO<PlaceDTO>> response = favoritesController.getFavorites(null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(2, response.getBody().size());
-        assertTrue(response.getBody().stream().allMatch(PlaceDTO::isFavorite));
+        assertEquals(2, response.getBody().getItems().size());
+        assertTrue(response.getBody().getItems().stream().allMatch(PlaceDTO::isFavorite));
+        assertNull(response.getBody().getNextCursor());
 
-        verify(placeService).findFavorites();
+        verify(placeService).findFavoritesPage(0L, 51);
         verify(placeMapper).toDTOList(favorites);
     }
 
     @Test
     void testGetFavorites_EmptyList() {
-        when(placeService.findFavorites()).thenReturn(Arrays.asList());
+        when(placeService.findFavoritesPage(0L, 51)).thenReturn(Arrays.asList());
         when(placeMapper.toDTOList(anyList())).thenReturn(Arrays.asList());
 
-        ResponseEntity<List<PlaceDTO>> response = favoritesController.getFavorites();
+        ResponseEntity<PageDTO<PlaceDTO>> response = favoritesController.getFavorites(null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertTrue(response.getBody().isEmpty());
+        assertTrue(response.getBody().getItems().isEmpty());
+        assertNull(response.getBody().getNextCursor());
+
+        verify(placeService).findFavoritesPage(0L, 51);
+    }
+
+    @Test
+    void testGetFavorites_NextPageFromCursor() {
+        Place place1 = new Place("Stockholm", 59.3293, 18.0686);
+        place1.setId(7L);
+        Place place2 = new Place("Göteborg", 57.7089, 11.9746);
+        place2.setId(9L);
+        PlaceDTO dto1 = new PlaceDTO();
+        dto1.setName("Stockholm");
+
+        // Första sidan: size + 1 rader betyder att det finns fler
+        when(placeService.findFavoritesPage(0L, 2)).thenReturn(Arrays.asList(place1, place2));
+        when(placeMapper.toDTOList(List.of(place1))).thenReturn(List.of(dto1));
+
+        ResponseEntity<PageDTO<PlaceDTO>> first = favoritesController.getFavorites(null, 1);
+
+        assertEquals(1, first.getBody().getItems().size());
+        assertNotNull(first.getBody().getNextCursor());
+
+        // Nästa sida söker efter sista id:t på förra sidan
+        when(placeService.findFavoritesPage(7L, 2)).thenReturn(List.of(place2));
+        when(placeMapper.toDTOList(List.of(place2))).thenReturn(List.of(new PlaceDTO()));
+
+        ResponseEntity<PageDTO<PlaceDTO>> second = favoritesController.getFavorites(first.getBody().getNextCursor(), 1);
 
-        verify(placeService).findFavorites();
+        assertNull(second.getBody().getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> favoritesController.getFavorites("not-a-cursor", 1));
     }
 
     @Test
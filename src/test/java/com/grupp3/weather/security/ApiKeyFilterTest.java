@@ -8,19 +8,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
+import com.grupp3.weather.config.RoutePolicyProperties;
+import com.grupp3.weather.service.RateLimitingService;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ApiKeyFilterTest {
 
-    @InjectMocks
     private ApiKeyFilter apiKeyFilter;
 
     @Mock
@@ -32,12 +36,24 @@ class ApiKeyFilterTest {
     @Mock
     private FilterChain filterChain;
 
+    @Mock
+    private ApiKeyRegistry apiKeyRegistry;
+
+    @Mock
+    private RateLimitingService rateLimitingService;
+
     private static final String VALID_API_KEY = "topsecret123";
 
+    private static final ApiKeyRegistry.ApiKeyEntry ADMIN_KEY = new ApiKeyRegistry.ApiKeyEntry(
+            1L, "admin-key", TokenHasher.sha256(VALID_API_KEY), Set.of("admin"), 60);
+
     @BeforeEach
     void setUp() {
-        // Sätt API-nyckeln via reflection eftersom @Value inte fungerar i unit tests
-        ReflectionTestUtils.setField(apiKeyFilter, "expected", VALID_API_KEY);
+        apiKeyFilter = new ApiKeyFilter(apiKeyRegistry, rateLimitingService, routePolicyTable());
+
+        // Registret är mockat - okända nycklar ger Optional.empty() som default
+        lenient().when(apiKeyRegistry.lookup(VALID_API_KEY)).thenReturn(Optional.of(ADMIN_KEY));
+        lenient().when(rateLimitingService.isAllowedForApiKey(anyLong(), anyInt())).thenReturn(true);
     }
 
     @Test
@@ -181,4 +197,64 @@ class ApiKeyFilterTest {
         verify(response).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         verify(filterChain, never()).doFilter(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Giltig nyckel utan rätt scope ska ge 403")
+    void validApiKey_WithoutRequiredScope_ShouldBeForbidden() throws ServletException, IOException {
+        // Arrange
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/places");
+        when(request.getHeader("X-API-KEY")).thenReturn(VALID_API_KEY);
+
+        // Act
+        apiKeyFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(response).setStatus(HttpServletResponse.SC_FORBIDDEN);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Nyckel som förbrukat sin kvot ska ge 429")
+    void validApiKey_OverQuota_ShouldBeRateLimited() throws ServletException, IOException {
+        // Arrange
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/admin/alerts");
+        when(request.getHeader("X-API-KEY")).thenReturn(VALID_API_KEY);
+        when(rateLimitingService.isAllowedForApiKey(1L, 60)).thenReturn(false);
+
+        // Act
+        apiKeyFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(response).setStatus(429);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    /**
+     * Samma regler som standardkonfigurationen i application.properties
+     */
+    private static RoutePolicyTable routePolicyTable() {
+        List<String> reads = List.of("GET", "HEAD", "OPTIONS");
+        RoutePolicyProperties properties = new RoutePolicyProperties();
+        properties.setRules(List.of(
+                rule("/api/auth/**", List.of(), RoutePolicy.AuthLevel.PUBLIC, null),
+                rule("/weather/**", reads, RoutePolicy.AuthLevel.PUBLIC, null),
+                rule("/weather/**", List.of(), RoutePolicy.AuthLevel.PUBLIC, "write"),
+                rule("/favorites/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, null),
+                rule("/places/**", reads, RoutePolicy.AuthLevel.AUTHENTICATED, null),
+                rule("/places/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, "places:write"),
+                rule("/admin/**", reads, RoutePolicy.AuthLevel.ADMIN, null),
+                rule("/admin/**", List.of(), RoutePolicy.AuthLevel.ADMIN, "admin"),
+                rule("/**", reads, RoutePolicy.AuthLevel.AUTHENTICATED, null),
+                rule("/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, "write")
+        ));
+        return new RoutePolicyTable(properties);
+    }
+
+    private static RoutePolicyProperties.Rule rule(String pattern, List<String> methods,
+                                                   RoutePolicy.AuthLevel auth, String apiKeyScope) {
+        return new RoutePolicyProperties.Rule(pattern, methods, auth,
+                RateLimitingService.EndpointType.OTHER, apiKeyScope);
+    }
+}
@@ -0,0 +1,89 @@
+package com.grupp3.weather.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CidrRadixTreeTest {
+
+    @Test
+    @DisplayName("IPv4-block ska matcha adresser inom blocket och inga andra")
+    void ipv4Block_ShouldMatchOnlyAddressesInside() {
+        // Arrange
+        CidrRadixTree tree = new CidrRadixTree();
+        tree.add("10.0.0.0/8");
+        tree.add("192.168.1.0/24");
+        tree.add("203.0.113.7");
+
+        // Act & Assert
+        assertThat(tree.contains(key("10.255.3.4"))).isTrue();
+        assertThat(tree.contains(key("192.168.1.200"))).isTrue();
+        assertThat(tree.contains(key("203.0.113.7"))).isTrue();
+        assertThat(tree.contains(key("11.0.0.1"))).isFalse();
+        assertThat(tree.contains(key("192.168.2.1"))).isFalse();
+        assertThat(tree.contains(key("203.0.113.8"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("IPv6-block ska matcha på /64-nyckeln och IPv4-mappade block på IPv4-nyckeln")
+    void ipv6Block_ShouldMatchPrefix() {
+        // Arrange
+        CidrRadixTree tree = new CidrRadixTree();
+        tree.add("2001:db8:bad::/48");
+        tree.add("::ffff:198.51.100.0/120");
+
+        // Act & Assert
+        assertThat(tree.contains(key("2001:db8:bad:1::5"))).isTrue();
+        assertThat(tree.contains(key("2001:db8:bae::1"))).isFalse();
+        assertThat(tree.contains(key("198.51.100.42"))).isTrue();
+        assertThat(tree.contains(key("198.51.101.42"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Ogiltiga block ska ge IllegalArgumentException")
+    void invalidBlock_ShouldThrow() {
+        CidrRadixTree tree = new CidrRadixTree();
+
+        assertThatThrownBy(() -> tree.add("10.0.0.0/33")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tree.add("not-a-cidr")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tree.add("10.0.0.0/x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Slumpade block ska ge samma svar som linjär sökning")
+    void randomBlocks_ShouldMatchLinearScan() {
+        // Arrange
+        Random random = new Random(5);
+        CidrRadixTree tree = new CidrRadixTree();
+        List<long[]> blocks = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int address = random.nextInt();
+            int bits = 8 + random.nextInt(25);
+            String cidr = format(address) + "/" + bits;
+            tree.add(cidr);
+            long mask = bits == 0 ? 0 : 0xFFFFFFFFL << (32 - bits) & 0xFFFFFFFFL;
+            blocks.add(new long[]{address & mask, mask});
+        }
+
+        // Act & Assert
+        for (int i = 0; i < 50_000; i++) {
+            int address = random.nextInt();
+            long value = address & 0xFFFFFFFFL;
+            boolean expected = blocks.stream().anyMatch(b -> (value & b[1]) == b[0]);
+            assertThat(tree.contains(key(format(address)))).as(format(address)).isEqualTo(expected);
+        }
+    }
+
+    private static String format(int address) {
+        return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static long key(String address) {
+        return ClientKeys.ipKey(address, 0, address.length());
+    }
+}
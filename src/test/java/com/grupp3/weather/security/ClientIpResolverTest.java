@@ -0,0 +1,106 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.ClientIpProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientIpResolverTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    private ClientIpResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        ClientIpProperties properties = new ClientIpProperties();
+        properties.setTrustedProxies(List.of("10.0.0.0/8", "2001:db8:1::/48"));
+        resolver = new ClientIpResolver(properties);
+    }
+
+    @Test
+    @DisplayName("X-Forwarded-For från okänd avsändare ska ignoreras")
+    void untrustedPeer_ShouldIgnoreForwardedFor() {
+        // Arrange
+        when(request.getRemoteAddr()).thenReturn("198.51.100.9");
+
+        // Act
+        long clientKey = resolver.clientKey(request);
+
+        // Assert
+        assertThat(clientKey).isEqualTo(key("198.51.100.9"));
+        verify(request, never()).getHeader("X-Forwarded-For");
+    }
+
+    @Test
+    @DisplayName("Utan konfigurerade proxies ska X-Forwarded-For ignoreras även från privata nät")
+    void defaultProperties_ShouldTrustNoProxy() {
+        // Arrange - Dockers bridge-gateway när porten publiceras direkt
+        ClientIpResolver defaultResolver = new ClientIpResolver(new ClientIpProperties());
+        when(request.getRemoteAddr()).thenReturn("172.17.0.1");
+
+        // Act
+        long clientKey = defaultResolver.clientKey(request);
+
+        // Assert
+        assertThat(clientKey).isEqualTo(key("172.17.0.1"));
+        verify(request, never()).getHeader("X-Forwarded-For");
+    }
+
+    @Test
+    @DisplayName("X-Forwarded-For ska gås igenom från höger till första icke-betrodda adressen")
+    void trustedPeer_ShouldWalkForwardedForFromRight() {
+        // Arrange
+        when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("1.2.3.4, 203.0.113.5, 10.0.0.7");
+
+        // Act
+        long clientKey = resolver.clientKey(request);
+
+        // Assert - 1.2.3.4 kan klienten ha skrivit själv
+        assertThat(clientKey).isEqualTo(key("203.0.113.5"));
+    }
+
+    @Test
+    @DisplayName("Bara betrodda adresser i headern ska ge den vänstraste")
+    void allTrusted_ShouldUseLeftmost() {
+        // Arrange
+        when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("2001:db8:1:5::9,10.1.1.1");
+
+        // Act
+        long clientKey = resolver.clientKey(request);
+
+        // Assert
+        assertThat(clientKey).isEqualTo(key("2001:db8:1:5::9"));
+    }
+
+    @Test
+    @DisplayName("Utan X-Forwarded-For ska X-Real-IP från betrodd proxy användas")
+    void trustedPeer_WithoutForwardedFor_ShouldUseRealIp() {
+        // Arrange
+        when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+        when(request.getHeader("X-Real-IP")).thenReturn("192.0.2.44");
+
+        // Act
+        long clientKey = resolver.clientKey(request);
+
+        // Assert
+        assertThat(clientKey).isEqualTo(key("192.0.2.44"));
+    }
+
+    private static long key(String address) {
+        return ClientKeys.ipKey(address, 0, address.length());
+    }
+}
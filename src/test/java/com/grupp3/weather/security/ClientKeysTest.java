@@ -0,0 +1,52 @@
+package com.grupp3.weather.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ClientKeysTest {
+
+    @Test
+    @DisplayName("IPv4 ska bli en kompakt nyckel och kunna formateras tillbaka")
+    void ipv4_ShouldParseToCompactKey() {
+        long key = key("192.168.1.20");
+
+        assertThat(key).isEqualTo(ClientKeys.IPV4_PREFIX | 0xC0A80114L);
+        assertThat(ClientKeys.format(key)).isEqualTo("192.168.1.20");
+    }
+
+    @Test
+    @DisplayName("IPv6-adresser i samma /64 ska ge samma nyckel")
+    void ipv6_SamePrefix_ShouldShareKey() {
+        assertThat(key("2001:db8:aa:bb::1")).isEqualTo(key("2001:db8:aa:bb:ffff:1:2:3"));
+        assertThat(key("2001:db8:aa:bb::1")).isNotEqualTo(key("2001:db8:aa:bc::1"));
+        assertThat(key("[2001:db8:aa:bb::1]")).isEqualTo(key("2001:db8:aa:bb::1"));
+    }
+
+    @Test
+    @DisplayName("IPv4-mappad IPv6 ska ge samma nyckel som IPv4-adressen")
+    void ipv4MappedIpv6_ShouldMatchIpv4() {
+        assertThat(key("::ffff:10.0.0.1")).isEqualTo(key("10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Första adressen i X-Forwarded-For ska parsas utan split")
+    void forwardedFor_ShouldUseFirstEntry() {
+        String header = " 10.0.0.1 , 172.16.0.1";
+
+        assertThat(ClientKeys.ipKey(header, 0, header.indexOf(','))).isEqualTo(key("10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Ogiltiga adresser ska ge en hash-nyckel istället för att krascha")
+    void invalidAddress_ShouldFallBackToHash() {
+        assertThat(key("256.1.1.1")).isNotEqualTo(key("1.1.1.1"));
+        assertThat(key("not-an-ip")).isEqualTo(key("not-an-ip"));
+        assertThat(key("1::2::3")).isEqualTo(key("1::2::3"));
+    }
+
+    private static long key(String value) {
+        return ClientKeys.ipKey(value, 0, value.length());
+    }
+}
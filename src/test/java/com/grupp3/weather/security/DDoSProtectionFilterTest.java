@@ -0,0 +1,186 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.ClientIpProperties;
+import com.grupp3.weather.config.FilterConfig;
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.config.RoutePolicyProperties;
+import com.grupp3.weather.service.HeavyHitterDetector;
+import com.grupp3.weather.service.RateLimitingService;
+import com.grupp3.weather.service.RedisRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class DDoSProtectionFilterTest {
+
+    private static final String BROWSER = "Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0";
+    private static final int FLOOD_REQUESTS = 1_000;
+    private static final int WEATHER_CAPACITY = 30; // RateLimitProperties default
+
+    @Mock
+    private RedisRateLimiter redisRateLimiter;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private DDoSProtectionFilter filter;
+    private BlockList blockList;
+    private RateLimitingService rateLimitingService;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties rateLimitProperties = new RateLimitProperties();
+        rateLimitingService = new RateLimitingService(rateLimitProperties,
+                new HeavyHitterDetector(rateLimitProperties), redisRateLimiter, new SimpleMeterRegistry());
+        blockList = new BlockList(rateLimitingService, redisTemplate, rateLimitProperties, new SimpleMeterRegistry());
+
+        ClientIpProperties clientIpProperties = new ClientIpProperties();
+        clientIpProperties.setDeny(List.of("203.0.113.0/24"));
+        clientIpProperties.setAllow(List.of("192.0.2.0/24"));
+        RoutePolicyProperties routes = new RoutePolicyProperties();
+        routes.setRules(List.of(new RoutePolicyProperties.Rule("/weather/**", List.of(),
+                RoutePolicy.AuthLevel.PUBLIC, RateLimitingService.EndpointType.WEATHER, null)));
+        filter = new DDoSProtectionFilter(rateLimitingService, blockList,
+                new ClientIpResolver(clientIpProperties), new IpAccessList(clientIpProperties),
+                new RoutePolicyTable(routes));
+    }
+
+    @Test
+    @DisplayName("Edge-filtret ska registreras före Spring Security-kedjan")
+    void edgeFilter_ShouldRunBeforeSecurityChain() {
+        // Act
+        int order = new FilterConfig().ddosProtectionFilterRegistration(filter).getOrder();
+
+        // Assert
+        assertThat(order).isLessThan(SecurityProperties.DEFAULT_FILTER_ORDER);
+    }
+
+    @Test
+    @DisplayName("Flod från en IP ska begränsas och blockeras utan att nå resten av kedjan")
+    void flood_ShouldBeRejectedAtEdge() throws Exception {
+        // Arrange - WEATHER-kvoten per IP släpps igenom, sedan 429 tills flod-tröskeln blockerar IP:n
+        int passed = 0;
+        int rejected = 0;
+
+        // Act
+        for (int i = 0; i < FLOOD_REQUESTS; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("198.51.100.7"), response, filterChain);
+            if (response.getStatus() == 429) {
+                rejected++;
+            } else {
+                passed++;
+            }
+        }
+
+        // Assert
+        assertThat(passed).isEqualTo(WEATHER_CAPACITY);
+        assertThat(rejected).isEqualTo(FLOOD_REQUESTS - passed);
+        assertThat(blockList.isBlocked(ClientKeys.ipKey("198.51.100.7", 0, 12))).isTrue();
+        verify(filterChain, times(WEATHER_CAPACITY)).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("IP över kvoten ska få 429 med bucketens väntetid direkt i edge-filtret")
+    void overQuota_ShouldBeRateLimitedAtEdge() throws Exception {
+        // Arrange
+        for (int i = 0; i < WEATHER_CAPACITY; i++) {
+            filter.doFilter(request("198.51.100.9"), new MockHttpServletResponse(), filterChain);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("198.51.100.9"), response, filterChain);
+
+        // Assert - 30 per minut ger en ny pollett varannan sekund
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(response.getContentAsByteArray()).isEqualTo(ErrorResponses.RATE_LIMIT_EXCEEDED);
+        assertThat(rateLimitingService.getViolationCount(ClientKeys.ipKey("198.51.100.9", 0, 12))).isEqualTo(1);
+        verify(filterChain, times(WEATHER_CAPACITY)).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Blockerad IP ska få 429 med Retry-After och förkodad kropp")
+    void blockedIp_ShouldGetRetryAfter() throws Exception {
+        // Arrange
+        blockList.block(ClientKeys.ipKey("198.51.100.8", 0, 12), 90_000, "test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("198.51.100.8"), response, filterChain);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("90");
+        assertThat(response.getContentAsByteArray()).isEqualTo(ErrorResponses.IP_BLOCKED);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("IP i deny-listan ska få 403 direkt")
+    void deniedIp_ShouldBeForbidden() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("203.0.113.5"), response, filterChain);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(403);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("IP i allow-listan ska slippa heuristiken men ändå omfattas av endpoint-gränsen")
+    void allowedIp_ShouldSkipHeuristicsButStillBeRateLimited() throws Exception {
+        // Arrange - över DDoS-tröskeln (100/min) och flaggningströskeln
+        long clientKey = ClientKeys.ipKey("192.0.2.10", 0, 12);
+        int passed = 0;
+
+        // Act
+        for (int i = 0; i < 150; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("192.0.2.10"), response, filterChain);
+            if (response.getStatus() == 200) {
+                passed++;
+            } else {
+                assertThat(response.getStatus()).isEqualTo(429);
+                assertThat(response.getContentAsByteArray()).isEqualTo(ErrorResponses.RATE_LIMIT_EXCEEDED);
+            }
+        }
+
+        // Assert - WEATHER-gränsen är 30 per minut, men ingen blockering
+        assertThat(passed).isEqualTo(WEATHER_CAPACITY);
+        assertThat(blockList.isBlocked(clientKey)).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/weather/current");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("User-Agent", BROWSER);
+        return request;
+    }
+}
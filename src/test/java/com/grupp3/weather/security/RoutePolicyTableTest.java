@@ -0,0 +1,105 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.RoutePolicyProperties;
+import com.grupp3.weather.service.RateLimitingService.EndpointType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RoutePolicyTableTest {
+
+    private RoutePolicyTable table;
+
+    @BeforeEach
+    void setUp() {
+        List<String> reads = List.of("GET", "HEAD", "OPTIONS");
+        RoutePolicyProperties properties = new RoutePolicyProperties();
+        properties.setRules(List.of(
+                rule("/api/auth/**", List.of(), RoutePolicy.AuthLevel.PUBLIC, EndpointType.OTHER, null),
+                rule("/weather/**", reads, RoutePolicy.AuthLevel.PUBLIC, EndpointType.WEATHER, null),
+                rule("/forecast/*/update", List.of("POST"), RoutePolicy.AuthLevel.AUTHENTICATED, EndpointType.OTHER, "forecast:update"),
+                rule("/forecast/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, EndpointType.OTHER, null),
+                rule("/places/**", reads, RoutePolicy.AuthLevel.AUTHENTICATED, EndpointType.PLACES_READ, null),
+                rule("/places/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, EndpointType.PLACES_WRITE, "places:write"),
+                rule("/admin/**", List.of(), RoutePolicy.AuthLevel.ADMIN, EndpointType.ADMIN, "admin"),
+                rule("/**", List.of(), RoutePolicy.AuthLevel.AUTHENTICATED, EndpointType.OTHER, "write")
+        ));
+        table = new RoutePolicyTable(properties);
+    }
+
+    @Test
+    @DisplayName("Literal prefix ska matcha djupare paths via **")
+    void doubleWildcard_ShouldMatchDeeperPaths() {
+        RoutePolicy policy = table.lookup("GET", "/weather/Stockholm/history");
+
+        assertThat(policy.auth()).isEqualTo(RoutePolicy.AuthLevel.PUBLIC);
+        assertThat(policy.rateLimitClass()).isEqualTo(EndpointType.WEATHER);
+        assertThat(policy.requiresApiKey()).isFalse();
+    }
+
+    @Test
+    @DisplayName("** ska även matcha prefixet utan efterföljande segment")
+    void doubleWildcard_ShouldMatchZeroSegments() {
+        assertThat(table.lookup("GET", "/admin").rateLimitClass()).isEqualTo(EndpointType.ADMIN);
+        assertThat(table.lookup("GET", "/admin/").rateLimitClass()).isEqualTo(EndpointType.ADMIN);
+    }
+
+    @Test
+    @DisplayName("Procentkodade segment ska klassificeras på den avkodade pathen som MVC routar på")
+    void resolve_WithEncodedSegment_ShouldUseDecodedPath() {
+        // Arrange
+        MockHttpServletRequest places = new MockHttpServletRequest("POST", "/%70laces/1");
+        MockHttpServletRequest admin = new MockHttpServletRequest("GET", "/%61dmin//alerts;jsessionid=x");
+
+        // Act
+        RoutePolicy placesPolicy = table.resolve(places);
+        RoutePolicy adminPolicy = table.resolve(admin);
+
+        // Assert
+        assertThat(placesPolicy.rateLimitClass()).isEqualTo(EndpointType.PLACES_WRITE);
+        assertThat(placesPolicy.apiKeyScope()).isEqualTo("places:write");
+        assertThat(adminPolicy.auth()).isEqualTo(RoutePolicy.AuthLevel.ADMIN);
+    }
+
+    @Test
+    @DisplayName("Regel med explicit metod ska vinna över regel utan metod")
+    void methodSpecificRule_ShouldWinOverAnyMethodRule() {
+        assertThat(table.lookup("GET", "/places").rateLimitClass()).isEqualTo(EndpointType.PLACES_READ);
+        assertThat(table.lookup("DELETE", "/places/1").rateLimitClass()).isEqualTo(EndpointType.PLACES_WRITE);
+        assertThat(table.lookup("DELETE", "/places/1").apiKeyScope()).isEqualTo("places:write");
+    }
+
+    @Test
+    @DisplayName("Enkelt * ska matcha exakt ett segment och vinna över **")
+    void singleWildcard_ShouldMatchExactlyOneSegment() {
+        assertThat(table.lookup("POST", "/forecast/Stockholm/update").apiKeyScope()).isEqualTo("forecast:update");
+        assertThat(table.lookup("GET", "/forecast/Stockholm/update").apiKeyScope()).isNull();
+        assertThat(table.lookup("POST", "/forecast/Stockholm/days/3").apiKeyScope()).isNull();
+    }
+
+    @Test
+    @DisplayName("Okända paths ska falla tillbaka på catch-all regeln")
+    void unknownPath_ShouldUseCatchAllRule() {
+        RoutePolicy policy = table.lookup("POST", "/alerts");
+
+        assertThat(policy.auth()).isEqualTo(RoutePolicy.AuthLevel.AUTHENTICATED);
+        assertThat(policy.apiKeyScope()).isEqualTo("write");
+    }
+
+    @Test
+    @DisplayName("Prefix som bara delar början av segmentet ska inte matcha")
+    void partialSegment_ShouldNotMatch() {
+        assertThat(table.lookup("GET", "/administrator").rateLimitClass()).isEqualTo(EndpointType.OTHER);
+        assertThat(table.lookup("GET", "/weatherman").rateLimitClass()).isEqualTo(EndpointType.OTHER);
+    }
+
+    private static RoutePolicyProperties.Rule rule(String pattern, List<String> methods, RoutePolicy.AuthLevel auth,
+                                                   EndpointType rateLimit, String apiKeyScope) {
+        return new RoutePolicyProperties.Rule(pattern, methods, auth, rateLimit, apiKeyScope);
+    }
+}
@@ -0,0 +1,129 @@
+package com.grupp3.weather.security;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.config.RoutePolicyProperties;
+import com.grupp3.weather.service.RateLimitingService;
+import com.grupp3.weather.service.RateLimitingService.EndpointType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserRateLimitFilterTest {
+
+    private UserRateLimitFilter userRateLimitFilter;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @Mock
+    private ServletOutputStream outputStream;
+
+    @Mock
+    private RateLimitingService rateLimitingService;
+
+    @BeforeEach
+    void setUp() {
+        RoutePolicyProperties routes = new RoutePolicyProperties();
+        routes.setRules(List.of(new RoutePolicyProperties.Rule("/weather/**", List.of(),
+                RoutePolicy.AuthLevel.PUBLIC, EndpointType.WEATHER, null)));
+
+        RateLimitProperties limits = new RateLimitProperties();
+        limits.setRoleMultipliers(Map.of("ROLE_USER", 1.0, "ROLE_ADMIN", 5.0));
+
+        userRateLimitFilter = new UserRateLimitFilter(rateLimitingService, new RoutePolicyTable(routes), limits);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Inloggad användare ska begränsas per användarnamn med högsta rollens multiplikator")
+    void authenticatedUser_ShouldBeLimitedPerSubject() throws ServletException, IOException {
+        // Arrange
+        authenticate("alice", "ROLE_USER", "ROLE_ADMIN");
+        weatherRequest();
+        when(rateLimitingService.consumeForUser("alice", EndpointType.WEATHER, 5.0)).thenReturn(149L);
+
+        // Act
+        userRateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        verify(response).setHeader("X-RateLimit-Remaining", "149");
+        verify(rateLimitingService, never()).consume(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Inloggad användare över sin kvot ska få 429 utan att IP:n straffas")
+    void authenticatedUser_OverQuota_ShouldNotCountAgainstIp() throws ServletException, IOException {
+        // Arrange
+        authenticate("bob", "ROLE_USER");
+        weatherRequest();
+        when(rateLimitingService.consumeForUser("bob", EndpointType.WEATHER, 1.0))
+                .thenReturn(RateLimitingService.rejected(2500));
+        when(response.getOutputStream()).thenReturn(outputStream);
+
+        // Act
+        userRateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(response).setStatus(429);
+        verify(response).setHeader("Retry-After", "3"); // Bucketens väntetid avrundad uppåt
+        verify(outputStream).write(ErrorResponses.RATE_LIMIT_EXCEEDED);
+        verify(filterChain, never()).doFilter(any(), any());
+        verify(rateLimitingService, never()).recordViolation(anyLong());
+    }
+
+    @Test
+    @DisplayName("Anonyma requests ska släppas vidare - gränsen per IP ligger i edge-filtret")
+    void anonymousRequest_ShouldPassThrough() throws ServletException, IOException {
+        // Act
+        userRateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(rateLimitingService);
+        verify(response, never()).setHeader(anyString(), anyString());
+    }
+
+    private void weatherRequest() {
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/weather/Stockholm");
+    }
+
+    private static void authenticate(String username, String... roles) {
+        var authorities = Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, authorities));
+    }
+}
@@ -0,0 +1,108 @@
+package com.grupp3.weather.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BucketStoreTest {
+
+    @Test
+    @DisplayName("getOrCreate ska återanvända befintlig post och bara anropa factory en gång")
+    void getOrCreate_ShouldReuseExistingEntry() {
+        // Arrange
+        BucketStore<StringBuilder> store = new BucketStore<>(1000, 60_000, 0);
+
+        // Act
+        StringBuilder first = store.getOrCreate(42L, k -> new StringBuilder("a"));
+        StringBuilder second = store.getOrCreate(42L, k -> new StringBuilder("b"));
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Lagret ska aldrig växa över taket även vid flod av nya nycklar")
+    void flood_ShouldNeverExceedCapacity() {
+        // Arrange
+        BucketStore<Long> store = new BucketStore<>(640, 60_000, 0);
+
+        // Act
+        for (long key = 0; key < 100_000; key++) {
+            store.getOrCreate(key, k -> k);
+        }
+
+        // Assert
+        assertThat(store.size()).isLessThanOrEqualTo(store.capacity());
+        assertThat(store.evictions()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Borttagning ska inte tappa andra poster i samma probe-kedja")
+    void remove_ShouldKeepOtherEntriesReachable() {
+        // Arrange
+        BucketStore<Long> store = new BucketStore<>(6400, 60_000, 0);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        // Act
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(3000);
+            if (random.nextBoolean()) {
+                store.getOrCreate(key, k -> k * 7);
+                expected.put(key, key * 7);
+            } else {
+                store.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        // Assert
+        assertThat(store.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(store.getIfPresent(key)).isEqualTo(value));
+    }
+
+    @Test
+    @DisplayName("expireIdle ska ta bort poster som inte använts inom idle-timeout")
+    void expireIdle_ShouldRemoveIdleEntries() throws InterruptedException {
+        // Arrange
+        BucketStore<Long> store = new BucketStore<>(1000, 1, 0);
+        store.getOrCreate(1L, k -> k);
+        store.getOrCreate(2L, k -> k);
+        Thread.sleep(10);
+
+        // Act
+        int removed = store.expireIdle();
+
+        // Assert
+        assertThat(removed).isEqualTo(2);
+        assertThat(store.getIfPresent(1L)).isNull();
+        assertThat(store.expirations()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Lyssnaren ska anropas för varje borttagen, evictad eller utgången post")
+    void removalListener_ShouldSeeEveryRemovedEntry() {
+        // Arrange
+        BucketStore<Long> store = new BucketStore<>(640, 60_000, 0);
+        long[] removed = new long[1];
+        store.onRemoval((key, value) -> removed[0]++);
+
+        // Act
+        for (long key = 0; key < 10_000; key++) {
+            store.getOrCreate(key, k -> k);
+        }
+        store.remove(9_999L);
+        long[] visited = new long[1];
+        store.forEach((key, value) -> visited[0]++);
+
+        // Assert - det som inte längre finns i lagret har rapporterats
+        assertThat(removed[0] + store.size()).isEqualTo(10_000);
+        assertThat(visited[0]).isEqualTo(store.size());
+    }
+}
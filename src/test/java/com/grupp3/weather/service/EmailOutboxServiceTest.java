@@ -0,0 +1,145 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.EmailOutboxMessage;
+import com.grupp3.weather.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxServiceTest {
+
+    @Mock
+    private EmailOutboxRepository outboxRepository;
+
+    @Mock
+    private EmailPublisher emailPublisher;
+
+    private EmailOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new EmailOutboxService(outboxRepository, emailPublisher);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 50);
+        ReflectionTestUtils.setField(outboxService, "confirmTimeoutMs", 100L);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 3);
+    }
+
+    @Test
+    @DisplayName("Relän ska låsa en batch och markera ack:ade meddelanden publicerade utan token")
+    void relayPendingMessages_OnAck_ShouldMarkPublishedAndClearToken() {
+        // Arrange
+        EmailOutboxMessage message = message(1L, 0);
+        when(outboxRepository.lockPendingBatch(any(LocalDateTime.class), eq(3), eq(PageRequest.of(0, 50))))
+                .thenReturn(List.of(message));
+        when(emailPublisher.publishVerificationEmailWithConfirm("anna@example.com", "anna", "token-1", "1"))
+                .thenReturn(confirmed(true, null));
+
+        // Act
+        outboxService.relayPendingMessages();
+
+        // Assert
+        assertThat(message.getPublishedAt()).isNotNull();
+        assertThat(message.getVerificationToken()).isNull();
+        assertThat(message.getAttempts()).isZero();
+    }
+
+    @Test
+    @DisplayName("Nack och utebliven confirm ska ge nytt försök med exponentiell backoff")
+    void relayPendingMessages_OnNackOrTimeout_ShouldBackOff() {
+        // Arrange - den andra confirmen kommer aldrig, deadline är 100 ms
+        EmailOutboxMessage nacked = message(1L, 0);
+        EmailOutboxMessage silent = message(2L, 1);
+        when(outboxRepository.lockPendingBatch(any(LocalDateTime.class), eq(3), any()))
+                .thenReturn(List.of(nacked, silent));
+        when(emailPublisher.publishVerificationEmailWithConfirm(any(), any(), any(), eq("1")))
+                .thenReturn(confirmed(false, "queue full"));
+        when(emailPublisher.publishVerificationEmailWithConfirm(any(), any(), any(), eq("2")))
+                .thenReturn(new CorrelationData("2"));
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        outboxService.relayPendingMessages();
+
+        // Assert - 2^1 s efter första felet, 2^2 s efter andra
+        assertThat(nacked.getAttempts()).isEqualTo(1);
+        assertThat(nacked.getLastError()).isEqualTo("Broker nack: queue full");
+        assertThat(nacked.getNextAttemptAt()).isBetween(before.plusSeconds(2), LocalDateTime.now().plusSeconds(2));
+        assertThat(silent.getAttempts()).isEqualTo(2);
+        assertThat(silent.getLastError()).startsWith("No publisher confirm");
+        assertThat(silent.getNextAttemptAt()).isBetween(before.plusSeconds(4), LocalDateTime.now().plusSeconds(4));
+        assertThat(silent.getVerificationToken()).isEqualTo("token-2");
+        assertThat(nacked.getPublishedAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("Sista misslyckade försöket ska ge upp och radera klartext-token")
+    void relayPendingMessages_AtMaxAttempts_ShouldGiveUpAndClearToken() {
+        // Arrange
+        EmailOutboxMessage message = message(1L, 2);
+        when(outboxRepository.lockPendingBatch(any(LocalDateTime.class), eq(3), any())).thenReturn(List.of(message));
+        when(emailPublisher.publishVerificationEmailWithConfirm(any(), any(), any(), any()))
+                .thenThrow(new AmqpConnectException(new RuntimeException("Connection refused")));
+
+        // Act
+        outboxService.relayPendingMessages();
+
+        // Assert
+        assertThat(message.getAttempts()).isEqualTo(3);
+        assertThat(message.getVerificationToken()).isNull();
+        assertThat(message.getPublishedAt()).isNull();
+        assertThat(message.getLastError()).contains("Connection refused");
+    }
+
+    @Test
+    @DisplayName("Tom batch ska inte publicera något")
+    void relayPendingMessages_WithEmptyBatch_ShouldDoNothing() {
+        // Arrange
+        when(outboxRepository.lockPendingBatch(any(LocalDateTime.class), eq(3), any())).thenReturn(List.of());
+
+        // Act
+        outboxService.relayPendingMessages();
+
+        // Assert
+        verifyNoInteractions(emailPublisher);
+    }
+
+    @Test
+    @DisplayName("Daglig rensning ska ta bort både publicerade och uppgivna meddelanden")
+    void cleanupPublishedMessages_ShouldPurgePublishedAndAbandoned() {
+        // Act
+        outboxService.cleanupPublishedMessages();
+
+        // Assert
+        verify(outboxRepository).deletePublishedBefore(any(LocalDateTime.class));
+        verify(outboxRepository).deleteAbandonedBefore(eq(3), any(LocalDateTime.class));
+    }
+
+    private static EmailOutboxMessage message(Long id, int attempts) {
+        EmailOutboxMessage message = new EmailOutboxMessage("anna@example.com", "anna", "token-" + id);
+        message.setId(id);
+        message.setAttempts(attempts);
+        return message;
+    }
+
+    private static CorrelationData confirmed(boolean ack, String reason) {
+        CorrelationData correlationData = new CorrelationData();
+        correlationData.getFuture().complete(new CorrelationData.Confirm(ack, reason));
+        return correlationData;
+    }
+}
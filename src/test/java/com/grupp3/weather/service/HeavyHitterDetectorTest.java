@@ -0,0 +1,79 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HeavyHitterDetectorTest {
+
+    private HeavyHitterDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getHeavyHitters().setSketchWidth(1024);
+        properties.getHeavyHitters().setFlagThreshold(5);
+        properties.getHeavyHitters().setTopK(4);
+        detector = new HeavyHitterDetector(properties);
+    }
+
+    @Test
+    @DisplayName("Klient under tröskeln ska inte flaggas")
+    void clientBelowThreshold_ShouldNotBeFlagged() {
+        for (int i = 0; i < 4; i++) {
+            detector.record(42L);
+        }
+
+        assertThat(detector.estimate(42L)).isEqualTo(4).isLessThan(detector.getFlagThreshold());
+    }
+
+    @Test
+    @DisplayName("Sketchen ska aldrig underskatta och klienten ska flaggas vid tröskeln")
+    void heavyClient_ShouldBeFlagged() {
+        for (int i = 0; i < 5; i++) {
+            detector.record(42L);
+        }
+
+        assertThat(detector.estimate(42L)).isGreaterThanOrEqualTo(detector.getFlagThreshold());
+    }
+
+    @Test
+    @DisplayName("Flod av engångs-IP:n ska inte tränga undan den verkliga storförbrukaren")
+    void spoofedFlood_ShouldKeepRealHeavyHitterOnTop() {
+        // Arrange - 200 requests från en klient, blandat med 10 000 engångsadresser
+        for (int i = 0; i < 10_000; i++) {
+            detector.record(1_000_000L + i);
+            if (i % 50 == 0) {
+                detector.record(42L);
+            }
+        }
+
+        // Act
+        List<HeavyHitterDetector.TopTalker> top = detector.topTalkers(1);
+
+        // Assert
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).clientKey()).isEqualTo(42L);
+        assertThat(top.get(0).estimatedRequests()).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Count-min sketch med conservative update ska ge exakt antal utan kollisioner")
+    void sketch_WithoutCollisions_ShouldBeExact() {
+        CountMinSketch sketch = new CountMinSketch(4, 1 << 16);
+
+        for (int i = 0; i < 100; i++) {
+            sketch.add(7L);
+        }
+        sketch.add(8L);
+
+        assertThat(sketch.estimate(7L)).isEqualTo(100);
+        assertThat(sketch.estimate(8L)).isEqualTo(1);
+        assertThat(sketch.estimate(9L)).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import com.grupp3.weather.model.Place;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlaceChangeBroadcasterTest {
+
+    private static final String CHANNEL = "weather:places";
+
+    @Mock
+    private PlaceNameRegistry placeNameRegistry;
+
+    @Mock
+    private PlaceSpatialIndex placeSpatialIndex;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private PlaceChangeBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new PlaceChangeBroadcaster(placeNameRegistry, placeSpatialIndex, redisTemplate, true);
+        ReflectionTestUtils.setField(broadcaster, "channel", CHANNEL);
+    }
+
+    @Test
+    @DisplayName("Sparad plats från en annan nod ska synas i namnregistret och närmaste-indexet")
+    void onMessage_FromOtherNode_ShouldUpdateBothIndexes() {
+        // Act
+        broadcaster.onMessage(message("SAVED 5 59.36 18.0 true othernode Solna centrum"), null);
+        broadcaster.onMessage(message("DELETED 4 othernode"), null);
+
+        // Assert
+        ArgumentCaptor<PlaceChangedEvent> events = ArgumentCaptor.forClass(PlaceChangedEvent.class);
+        verify(placeNameRegistry, times(2)).onPlaceChanged(events.capture());
+        PlaceChangedEvent saved = events.getAllValues().get(0);
+        assertThat(saved.getPlaceId()).isEqualTo(5L);
+        assertThat(saved.getDisplayName()).isEqualTo("Solna centrum");
+        assertThat(saved.getLat()).isEqualTo(59.36);
+        assertThat(saved.isFavorite()).isTrue();
+        assertThat(events.getAllValues().get(1).getType()).isEqualTo(PlaceChangedEvent.Type.DELETED);
+        verify(placeSpatialIndex, times(2)).onPlaceChanged(any());
+    }
+
+    @Test
+    @DisplayName("Egen ändring ska publiceras och inte tillämpas igen när den kommer tillbaka")
+    void onPlaceChanged_ShouldPublishAndIgnoreOwnEcho() {
+        // Arrange
+        Place place = new Place("Göteborg", 57.7089, 11.9746);
+        place.setId(3L);
+
+        // Act
+        broadcaster.onPlaceChanged(PlaceChangedEvent.saved(place));
+
+        // Assert
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(CHANNEL), published.capture());
+        assertThat(published.getValue()).startsWith("SAVED 3 57.7089 11.9746 false ").endsWith(" Göteborg");
+
+        broadcaster.onMessage(message(published.getValue()), null);
+        verifyNoInteractions(placeNameRegistry, placeSpatialIndex);
+    }
+
+    @Test
+    @DisplayName("Avslagen synk ska inte publicera något")
+    void onPlaceChanged_SyncDisabled_ShouldNotPublish() {
+        // Arrange
+        broadcaster = new PlaceChangeBroadcaster(placeNameRegistry, placeSpatialIndex, redisTemplate, false);
+
+        // Act
+        broadcaster.onPlaceChanged(PlaceChangedEvent.deleted(1L));
+
+        // Assert
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,130 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.repository.PlaceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlaceNameRegistryTest {
+
+    @Mock
+    private PlaceRepository placeRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private PlaceNameRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        Place stockholm = place(1L, "Stockholm", 59.3293, 18.0686);
+        stockholm.setFavorite(true);
+        when(placeRepository.findAll()).thenReturn(List.of(stockholm, place(2L, "Göteborg", 57.7089, 11.9746)));
+        registry = new PlaceNameRegistry(placeRepository, jdbcTemplate);
+        registry.initialize();
+    }
+
+    @Test
+    @DisplayName("find ska hitta platsen oavsett skiftläge utan databasfråga")
+    void find_ShouldIgnoreCase() {
+        // Act
+        Place result = registry.find("STOCKHOLM").orElseThrow();
+
+        // Assert
+        assertThat(result.getId()).isEqualTo(1L);
+        assertThat(result.isFavorite()).isTrue();
+        assertThat(registry.find("göteborg")).isPresent();
+        assertThat(registry.find("Uppsala")).isEmpty();
+        assertThat(registry.contains(null)).isFalse();
+        verify(placeRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Ändringshändelser ska döpa om, ta bort och uppdatera favoritflaggan")
+    void onPlaceChanged_ShouldUpdateRegistry() {
+        // Arrange
+        Place renamed = place(2L, "Gothenburg", 57.7089, 11.9746);
+        Place stockholm = place(1L, "Stockholm", 59.3293, 18.0686);
+
+        // Act
+        registry.onPlaceChanged(PlaceChangedEvent.saved(renamed));
+        registry.onPlaceChanged(PlaceChangedEvent.saved(stockholm));
+
+        // Assert
+        assertThat(registry.contains("Göteborg")).isFalse();
+        assertThat(registry.find("gothenburg")).map(Place::getId).contains(2L);
+        assertThat(registry.find("Stockholm")).map(Place::isFavorite).contains(false);
+
+        // Act
+        registry.onPlaceChanged(PlaceChangedEvent.deleted(1L));
+
+        // Assert
+        assertThat(registry.find("Stockholm")).isEmpty();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Ändringar som kommer medan omladdningen läser databasen ska inte försvinna")
+    void rebuild_WithConcurrentChange_ShouldReplayChange() {
+        // Arrange - findAll() ger ett ögonblicksläge från före ändringarna
+        Place uppsala = place(3L, "Uppsala", 59.8586, 17.6389);
+        when(placeRepository.findAll()).thenAnswer(invocation -> {
+            registry.onPlaceChanged(PlaceChangedEvent.saved(uppsala));
+            registry.onPlaceChanged(PlaceChangedEvent.deleted(2L));
+            return List.of(place(1L, "Stockholm", 59.3293, 18.0686), place(2L, "Göteborg", 57.7089, 11.9746));
+        });
+
+        // Act
+        registry.rebuild();
+
+        // Assert
+        assertThat(registry.find("Uppsala")).map(Place::getId).contains(3L);
+        assertThat(registry.contains("Göteborg")).isFalse();
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Saknade name_key ska fyllas i med Javas normalisering, inte LOWER() i databasen")
+    void initialize_ShouldBackfillNameKeysInJava() {
+        // Arrange
+        when(jdbcTemplate.queryForList(contains("name_key IS NULL")))
+                .thenReturn(List.of(Map.of("id", 7L, "display_name", "GÖTEBORG")));
+
+        // Act
+        registry.initialize();
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE places SET name_key = ? WHERE id = ?"),
+                argThat((List<Object[]> rows) -> rows.size() == 1
+                        && "göteborg".equals(rows.get(0)[0]) && Long.valueOf(7L).equals(rows.get(0)[1])));
+    }
+
+    @Test
+    @DisplayName("Ändring av returnerad plats ska inte påverka registret")
+    void find_ShouldReturnCopy() {
+        // Act
+        registry.find("Stockholm").orElseThrow().setFavorite(false);
+
+        // Assert
+        assertThat(registry.find("Stockholm")).map(Place::isFavorite).contains(true);
+    }
+
+    private Place place(Long id, String name, double lat, double lon) {
+        Place place = new Place(name, lat, lon);
+        place.setId(id);
+        return place;
+    }
+}
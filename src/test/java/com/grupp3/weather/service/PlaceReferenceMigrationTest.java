@@ -0,0 +1,122 @@
+package com.grupp3.weather.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlaceReferenceMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlaceReferenceMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        migration = new PlaceReferenceMigration(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Tabell med place_name ska fyllas på place_id och tappa namn- och koordinatkolumnerna")
+    void initialize_WithLegacyColumns_ShouldBackfillAndDropThem() {
+        // Arrange - båda tabellerna finns, har place_name och saknar främmande nyckel
+        when(jdbcTemplate.queryForObject(contains("information_schema.tables"), eq(Integer.class), any()))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(Integer.class), any(), eq("place_name")))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("pg_constraint"), eq(Integer.class), any(), anyString()))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM weather_data WHERE place_id IS NULL"),
+                eq(Integer.class), any(Object[].class)))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM weather_forecast WHERE place_id IS NULL"),
+                eq(Integer.class), any(Object[].class)))
+                .thenReturn(3);
+        // "ÅRE" och "Åre" ger samma name_key - lägst id vinner
+        when(jdbcTemplate.queryForList("SELECT id, display_name FROM places"))
+                .thenReturn(List.of(Map.of("id", 7L, "display_name", "ÅRE"), Map.of("id", 4L, "display_name", "Åre")));
+        when(jdbcTemplate.queryForList(contains("SELECT DISTINCT place_name FROM"), eq(String.class)))
+                .thenReturn(List.of("åre", "Okänd"), List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{12});
+
+        // Act
+        migration.initialize();
+
+        // Assert
+        verify(jdbcTemplate).update(contains("UPDATE weather_data t SET place_id = p.id " +
+                "FROM (SELECT lat, lon, MIN(id) AS id FROM places GROUP BY lat, lon) p"));
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE weather_data SET place_id = ? WHERE place_id IS NULL AND place_name = ?"),
+                argThat((List<Object[]> matches) -> matches.size() == 1
+                        && matches.get(0)[0].equals(4L) && matches.get(0)[1].equals("åre")));
+        verify(jdbcTemplate, never()).update(contains("LOWER("));
+        verify(jdbcTemplate, never()).execute(contains("weather_data_unmatched"));
+        verify(jdbcTemplate).update("INSERT INTO weather_forecast_unmatched SELECT * FROM weather_forecast " +
+                "WHERE place_id IS NULL");
+        verify(jdbcTemplate).update("DELETE FROM weather_forecast WHERE place_id IS NULL");
+        verify(jdbcTemplate, never()).update("DELETE FROM weather_data WHERE place_id IS NULL");
+        verify(jdbcTemplate).execute(startsWith("ALTER TABLE weather_data DROP COLUMN place_name"));
+        verify(jdbcTemplate).execute("ALTER TABLE weather_forecast ADD CONSTRAINT fk_weather_forecast_place " +
+                "FOREIGN KEY (place_id) REFERENCES places (id) ON DELETE RESTRICT");
+    }
+
+    @Test
+    @DisplayName("Redan migrerad tabell ska inte röras")
+    void initialize_WhenAlreadyMigrated_ShouldOnlyEnsureNotNull() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(contains("information_schema.tables"), eq(Integer.class), any()))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(Integer.class), any(), eq("place_name")))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForObject(contains("pg_constraint"), eq(Integer.class), any(), anyString()))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("confdeltype"), eq(Integer.class), any(), anyString()))
+                .thenReturn(0);
+
+        // Act
+        migration.initialize();
+
+        // Assert
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(jdbcTemplate).execute("ALTER TABLE weather_data ALTER COLUMN place_id SET NOT NULL");
+        verify(jdbcTemplate, never()).execute(contains("ADD CONSTRAINT"));
+        verify(jdbcTemplate, never()).execute(contains("DROP CONSTRAINT"));
+    }
+
+    @Test
+    @DisplayName("Främmande nyckel med ON DELETE CASCADE ska bytas mot RESTRICT")
+    void initialize_WithCascadeKey_ShouldReplaceWithRestrict() {
+        // Arrange - nyckeln finns med CASCADE, efter DROP saknas den
+        when(jdbcTemplate.queryForObject(contains("information_schema.tables"), eq(Integer.class), any()))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(Integer.class), any(), eq("place_name")))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForObject(contains("pg_constraint"), eq(Integer.class), any(), anyString()))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForObject(contains("confdeltype"), eq(Integer.class), any(), anyString()))
+                .thenReturn(1);
+
+        // Act
+        migration.initialize();
+
+        // Assert
+        verify(jdbcTemplate).execute("ALTER TABLE weather_data DROP CONSTRAINT fk_weather_data_place");
+        verify(jdbcTemplate).execute("ALTER TABLE weather_data ADD CONSTRAINT fk_weather_data_place " +
+                "FOREIGN KEY (place_id) REFERENCES places (id) ON DELETE RESTRICT");
+    }
+}
@@ -2,12 +2,17 @@ package com.grupp3.weather.service;
 
 import com.grupp3.weather.model.Place;
 import com.grupp3.weather.repository.PlaceRepository;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import com.grupp3.weather.repository.WeatherForecastRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -24,11 +29,24 @@ class PlaceServiceTest {
     @Mock
     private PlaceRepository placeRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlaceNameRegistry placeNameRegistry;
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    @Mock
+    private WeatherForecastRepository weatherForecastRepository;
+
     private PlaceService placeService;
 
     @BeforeEach
     void setUp() {
-        placeService = new PlaceService(placeRepository);
+        placeService = new PlaceService(placeRepository, eventPublisher, placeNameRegistry,
+                weatherDataRepository, weatherForecastRepository);
     }
 
     @Test
@@ -36,7 +54,7 @@ class PlaceServiceTest {
     void findByName_WithExistingPlace_ShouldReturnPlace() {
         // Arrange
         Place stockholm = new Place("Stockholm", 59.3293, 18.0686);
-        when(placeRepository.findByNameIgnoreCase("Stockholm")).thenReturn(Optional.of(stockholm));
+        when(placeNameRegistry.find("Stockholm")).thenReturn(Optional.of(stockholm));
 
         // Act
         Optional<Place> result = placeService.findByName("Stockholm");
@@ -45,13 +63,14 @@ class PlaceServiceTest {
         assertThat(result).isPresent();
         assertThat(result.get().getName()).isEqualTo("Stockholm");
         assertThat(result.get().getLat()).isEqualTo(59.3293);
+        verifyNoInteractions(placeRepository);
     }
 
     @Test
     @DisplayName("findByName med icke-befintlig plats ska returnera tom Optional")
     void findByName_WithNonExistingPlace_ShouldReturnEmpty() {
         // Arrange
-        when(placeRepository.findByNameIgnoreCase("NonExistent")).thenReturn(Optional.empty());
+        when(placeNameRegistry.find("NonExistent")).thenReturn(Optional.empty());
 
         // Act
         Optional<Place> result = placeService.findByName("NonExistent");
@@ -115,6 +134,49 @@ class PlaceServiceTest {
         verify(placeRepository).deleteByNameIgnoreCase("Stockholm");
     }
 
+    @Test
+    @DisplayName("deleteByCoordinates ska radera i en sats och svara efter antal raderade")
+    void deleteByCoordinates_ShouldUseDeletedCount() {
+        // Arrange
+        when(placeRepository.deleteByCoordinates(59.3293, 18.0686)).thenReturn(1);
+        when(placeRepository.deleteByCoordinates(0.0, 0.0)).thenReturn(0);
+
+        // Act & Assert
+        assertThat(placeService.deleteByCoordinates(59.3293, 18.0686)).isTrue();
+        assertThat(placeService.deleteByCoordinates(0.0, 0.0)).isFalse();
+        verify(placeRepository, never()).existsByCoordinates(anyDouble(), anyDouble());
+    }
+
+    @Test
+    @DisplayName("delete av plats med väderhistorik ska ge 409 och inte radera något")
+    void delete_WithWeatherHistory_ShouldConflict() {
+        // Arrange
+        when(placeRepository.existsByNameIgnoreCase("Stockholm")).thenReturn(true);
+        when(placeRepository.findIdsByNameIgnoreCase("Stockholm")).thenReturn(List.of(1L));
+        when(weatherDataRepository.existsByPlaceIdIn(List.of(1L))).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> placeService.delete("Stockholm"))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        verify(placeRepository, never()).deleteByNameIgnoreCase(anyString());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("deleteByCoordinates av plats med prognoser ska ge 409")
+    void deleteByCoordinates_WithForecasts_ShouldConflict() {
+        // Arrange
+        when(placeRepository.findIdsByCoordinates(59.3293, 18.0686)).thenReturn(List.of(1L));
+        when(weatherForecastRepository.existsByPlaceIdIn(List.of(1L))).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> placeService.deleteByCoordinates(59.3293, 18.0686))
+                .isInstanceOf(ResponseStatusException.class);
+        verify(placeRepository, never()).deleteByCoordinates(anyDouble(), anyDouble());
+    }
+
     @Test
     @DisplayName("setFavorite ska uppdatera favoritstatus")
     void setFavorite_ShouldUpdateFavoriteStatus() {
@@ -158,8 +220,8 @@ class PlaceServiceTest {
     @DisplayName("exists ska returnera korrekt boolean värde")
     void exists_ShouldReturnCorrectBoolean() {
         // Arrange
-        when(placeRepository.existsByNameIgnoreCase("Stockholm")).thenReturn(true);
-        when(placeRepository.existsByNameIgnoreCase("NonExistent")).thenReturn(false);
+        when(placeNameRegistry.contains("Stockholm")).thenReturn(true);
+        when(placeNameRegistry.contains("NonExistent")).thenReturn(false);
 
         // Act & Assert
         assertThat(placeService.exists("Stockholm")).isTrue();
@@ -174,6 +236,7 @@ class PlaceServiceTest {
 
         // Verify repository never called with null
         verify(placeRepository, never()).existsByNameIgnoreCase(null);
+        verify(placeNameRegistry, never()).contains(null);
     }
 
 }
\ No newline at end of file
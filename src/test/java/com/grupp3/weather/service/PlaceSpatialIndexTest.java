@@ -0,0 +1,106 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.NearbyPlaceDTO;
+import com.grupp3.weather.dto.PlaceChangedEvent;
+import com.grupp3.weather.model.Place;
+import com.grupp3.weather.repository.PlaceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlaceSpatialIndexTest {
+
+    @Mock
+    private PlaceRepository placeRepository;
+
+    private PlaceSpatialIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(placeRepository.findAll()).thenReturn(List.of(
+                place(1L, "Stockholm", 59.3293, 18.0686),
+                place(2L, "Uppsala", 59.8586, 17.6389),
+                place(3L, "Göteborg", 57.7089, 11.9746),
+                place(4L, "Malmö", 55.6050, 13.0038)));
+        index = new PlaceSpatialIndex(placeRepository);
+        index.rebuild();
+    }
+
+    @Test
+    @DisplayName("nearest ska ge de k närmaste platserna, närmast först")
+    void nearest_ShouldReturnClosestPlacesInOrder() {
+        // Act - Solna, strax norr om Stockholm
+        List<NearbyPlaceDTO> result = index.nearest(59.36, 18.00, 2);
+
+        // Assert
+        assertThat(result).extracting(NearbyPlaceDTO::getDisplayName).containsExactly("Stockholm", "Uppsala");
+        assertThat(result.get(0).getDistanceKm()).isBetween(4.0, 6.0);
+    }
+
+    @Test
+    @DisplayName("nearest långt från alla platser ska ändå hitta närmaste")
+    void nearest_FarFromAllPlaces_ShouldFallBackToFullSearch() {
+        // Act - Nya Zeeland
+        List<NearbyPlaceDTO> result = index.nearest(-41.29, 174.78, 10);
+
+        // Assert
+        assertThat(result).extracting(NearbyPlaceDTO::getDisplayName)
+                .containsExactly("Uppsala", "Stockholm", "Göteborg", "Malmö");
+        assertThat(result.get(0).getDistanceKm()).isBetween(17400.0, 17450.0);
+    }
+
+    @Test
+    @DisplayName("Sparade och raderade platser ska synas i indexet utan omladdning")
+    void onPlaceChanged_ShouldUpdateIndexIncrementally() {
+        // Arrange
+        Place solna = place(5L, "Solna", 59.36, 18.00);
+        Place movedMalmo = place(4L, "Malmö", 59.40, 18.05);
+
+        // Act
+        index.onPlaceChanged(PlaceChangedEvent.saved(solna));
+        index.onPlaceChanged(PlaceChangedEvent.deleted(1L));
+        index.onPlaceChanged(PlaceChangedEvent.saved(movedMalmo));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.nearest(59.33, 18.07, 2)).extracting(NearbyPlaceDTO::getDisplayName)
+                .containsExactly("Solna", "Malmö");
+        assertThat(index.nearestWithin(57.70, 11.97, 5.0)).map(NearbyPlaceDTO::getDisplayName).contains("Göteborg");
+        assertThat(index.nearestWithin(55.60, 13.00, 5.0)).isEmpty();
+        verify(placeRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Ändringar som kommer medan omladdningen läser databasen ska inte försvinna")
+    void rebuild_WithConcurrentChange_ShouldReplayChange() {
+        // Arrange - findAll() ger ett ögonblicksläge från före ändringarna
+        Place solna = place(5L, "Solna", 59.36, 18.00);
+        when(placeRepository.findAll()).thenAnswer(invocation -> {
+            index.onPlaceChanged(PlaceChangedEvent.saved(solna));
+            index.onPlaceChanged(PlaceChangedEvent.deleted(1L));
+            return List.of(place(1L, "Stockholm", 59.3293, 18.0686), place(2L, "Uppsala", 59.8586, 17.6389));
+        });
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.nearest(59.33, 18.07, 1)).extracting(NearbyPlaceDTO::getDisplayName).containsExactly("Solna");
+    }
+
+    private Place place(Long id, String name, double lat, double lon) {
+        Place place = new Place(name, lat, lon);
+        place.setId(id);
+        return place;
+    }
+}
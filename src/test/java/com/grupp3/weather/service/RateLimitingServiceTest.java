@@ -0,0 +1,141 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.service.RateLimitingService.EndpointType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitingServiceTest {
+
+    @Mock
+    private RedisRateLimiter redisRateLimiter;
+
+    private RateLimitingService rateLimitingService;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getLimits().put(EndpointType.WEATHER, new RateLimitProperties.Limit(10, 10));
+        rateLimitingService = new RateLimitingService(properties, new HeavyHitterDetector(properties),
+                redisRateLimiter, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Användare ska nekas när kvoten för endpoint-typen är slut")
+    void consumeForUser_OverCapacity_ShouldBeDenied() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertThat(rateLimitingService.consumeForUser("alice", EndpointType.WEATHER, 1.0)).isGreaterThanOrEqualTo(0);
+        }
+        long denied = rateLimitingService.consumeForUser("alice", EndpointType.WEATHER, 1.0);
+
+        // Assert - 10 polletter per minut ger en ny var sjätte sekund
+        assertThat(denied).isNegative();
+        assertThat(RateLimitingService.retryAfterMs(denied)).isBetween(1L, 6000L);
+    }
+
+    @Test
+    @DisplayName("Ändrad gräns ska gälla befintlig bucket utan att nollställa förbrukningen")
+    void updateLimit_ShouldKeepConsumedShare() {
+        // Arrange - halva kvoten förbrukad
+        for (int i = 0; i < 5; i++) {
+            rateLimitingService.consumeForUser("bob", EndpointType.WEATHER, 1.0);
+        }
+
+        // Act
+        rateLimitingService.updateLimit(EndpointType.WEATHER, new RateLimitProperties.Limit(20, 20));
+        long remaining = rateLimitingService.consumeForUser("bob", EndpointType.WEATHER, 1.0);
+
+        // Assert - 5 av 10 kvar blir 10 av 20, minus den nya requesten
+        assertThat(remaining).isEqualTo(9);
+        assertThat(rateLimitingService.getLimits().get(EndpointType.WEATHER).getCapacity()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Burst-gräns ska begränsa requests per sekund även med kvot kvar")
+    void burstLimit_ShouldCapRequestsPerSecond() {
+        // Arrange
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(100, 100);
+        limit.setBurst(6);
+        rateLimitingService.updateLimit(EndpointType.OTHER, limit);
+
+        // Act
+        for (int i = 0; i < 6; i++) {
+            assertThat(rateLimitingService.consumeForUser("carol", EndpointType.OTHER, 1.0)).isGreaterThanOrEqualTo(0);
+        }
+        long seventh = rateLimitingService.consumeForUser("carol", EndpointType.OTHER, 1.0);
+
+        // Assert
+        assertThat(seventh).isNegative();
+        assertThat(RateLimitingService.retryAfterMs(seventh)).isBetween(1L, 500L); // Burst-bandbredden styr väntan
+    }
+
+    @Test
+    @DisplayName("IP som flaggas ska få en bucket där tidigare requests redan är förbrukade")
+    void consume_FlaggedClient_ShouldNotGetThresholdOnTopOfCapacity() {
+        // Arrange - samma ordning som DDoSProtectionFilter: räkna i sketchen, förbruka sedan
+        long clientKey = 42L;
+        int allowed = 0;
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            rateLimitingService.recordRequest(clientKey);
+            if (rateLimitingService.consume(clientKey, EndpointType.WEATHER) >= 0) {
+                allowed++;
+            }
+        }
+
+        // Assert - kapaciteten 10 gäller totalt, inte flaggningströskeln (5) plus en full bucket
+        assertThat(allowed).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Gräns vid eller under flaggningströskeln ska avvisas")
+    void updateLimit_AtFlagThreshold_ShouldThrow() {
+        // Arrange - standardtröskeln är 5
+        RateLimitProperties.Limit lowBurst = new RateLimitProperties.Limit(100, 100);
+        lowBurst.setBurst(5);
+
+        // Act & Assert
+        assertThatThrownBy(() -> rateLimitingService.updateLimit(EndpointType.WEATHER, new RateLimitProperties.Limit(5, 5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rateLimitingService.updateLimit(EndpointType.WEATHER, lowBurst))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(rateLimitingService.getLimits().get(EndpointType.WEATHER).getCapacity()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Ogiltig gräns ska avvisas och inte ändra gällande gräns")
+    void updateLimit_Invalid_ShouldThrow() {
+        // Act & Assert
+        assertThatThrownBy(() -> rateLimitingService.updateLimit(EndpointType.WEATHER, new RateLimitProperties.Limit(0, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(rateLimitingService.getLimits().get(EndpointType.WEATHER).getCapacity()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Buckets och nekade requests ska räknas per endpoint-typ och nekade användare toppa listan")
+    void statistics_ShouldTrackBucketsAndRejections() {
+        // Act
+        for (int i = 0; i < 12; i++) {
+            rateLimitingService.consumeForUser("dave", EndpointType.WEATHER, 1.0);
+        }
+        rateLimitingService.consumeForUser("erin", EndpointType.ADMIN, 1.0);
+
+        // Assert - 10 godkända, 2 nekade
+        assertThat(rateLimitingService.getBucketCounts().get(EndpointType.WEATHER)).isEqualTo(1);
+        assertThat(rateLimitingService.getBucketCounts().get(EndpointType.ADMIN)).isEqualTo(1);
+        assertThat(rateLimitingService.getRejectionCounts().get(EndpointType.WEATHER)).isEqualTo(2);
+        assertThat(rateLimitingService.getTopRejected(5))
+                .extracting(SpaceSavingCounter.Entry::label, SpaceSavingCounter.Entry::count)
+                .containsExactly(tuple("dave", 2L));
+    }
+}
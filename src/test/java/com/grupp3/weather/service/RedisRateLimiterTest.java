@@ -0,0 +1,116 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.config.RateLimitProperties;
+import com.grupp3.weather.service.RateLimitingService.EndpointType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisRateLimiterTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private RateLimitProperties properties;
+    private RedisRateLimiter redisRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getRedis().setLeaseFraction(0.1);
+        properties.getRedis().setLeaseTtlMs(60_000);
+        redisRateLimiter = new RedisRateLimiter(redisTemplate, properties);
+    }
+
+    @Test
+    @DisplayName("Första anropet ska köra Lua-scriptet med gränsen och en lease på en tiondel")
+    void tryConsume_ShouldCallScriptWithLimitAndLeaseSize() {
+        // Arrange - scriptet ger 10 polletter, 80 kvar i Redis
+        when(redisTemplate.execute(any(), eq(List.of("ratelimit:user:anna:WEATHER")),
+                eq("100"), eq("100"), eq("60000"), eq("10"), eq("0")))
+                .thenReturn(List.of(10L, 80L, 0L));
+
+        // Act
+        long remaining = redisRateLimiter.tryConsume("user:anna:WEATHER", 100, 100, 60_000);
+
+        // Assert - en pollett används direkt, 9 ligger kvar i leasen
+        assertThat(remaining).isEqualTo(89);
+    }
+
+    @Test
+    @DisplayName("Lease ska räcka till sina polletter utan nya Redis-anrop")
+    void tryConsume_WithLease_ShouldConsumeLocally() {
+        // Arrange
+        when(redisTemplate.execute(any(), eq(List.of("ratelimit:ip:a:OTHER")), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(10L, 80L, 0L), List.of(10L, 70L, 0L));
+
+        // Act
+        long[] results = new long[11];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = redisRateLimiter.tryConsume("ip:a:OTHER", 100, 100, 60_000);
+        }
+
+        // Assert - 10 polletter per lease, den elfte requesten hämtar en ny lease
+        assertThat(results[0]).isEqualTo(89);
+        assertThat(results[9]).isEqualTo(80);
+        assertThat(results[10]).isEqualTo(79);
+        verify(redisTemplate, times(2)).execute(any(), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Tom bucket i Redis ska ge nekat resultat med scriptets väntetid och ingen lease")
+    void tryConsume_WhenRedisBucketEmpty_ShouldRejectWithWait() {
+        // Arrange
+        when(redisTemplate.execute(any(), anyList(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(0L, 0L, 1500L));
+
+        // Act
+        long first = redisRateLimiter.tryConsume("user:bob:ADMIN", 10, 10, 60_000);
+        long second = redisRateLimiter.tryConsume("user:bob:ADMIN", 10, 10, 60_000);
+
+        // Assert
+        assertThat(first).isNegative();
+        assertThat(RateLimitingService.retryAfterMs(first)).isEqualTo(1500);
+        assertThat(second).isNegative();
+        verify(redisTemplate, times(2)).execute(any(), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Redis nere ska ge lokala buckets med samma gräns och inget nytt Redis-anrop direkt")
+    void consume_WhenRedisFails_ShouldFallBackToLocalBuckets() {
+        // Arrange
+        properties.setMode(RateLimitProperties.Mode.REDIS);
+        properties.getLimits().put(EndpointType.WEATHER, new RateLimitProperties.Limit(10, 10));
+        RateLimitingService rateLimitingService = new RateLimitingService(properties,
+                new HeavyHitterDetector(properties), redisRateLimiter, new SimpleMeterRegistry());
+        when(redisTemplate.execute(any(), anyList(), any(), any(), any(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertThat(rateLimitingService.consumeForUser("carol", EndpointType.WEATHER, 1.0)).isGreaterThanOrEqualTo(0);
+        }
+        long denied = rateLimitingService.consumeForUser("carol", EndpointType.WEATHER, 1.0);
+
+        // Assert - felet kastas vidare från RedisRateLimiter, tjänsten väntar innan Redis provas igen
+        assertThatThrownBy(() -> redisRateLimiter.tryConsume("user:carol:WEATHER", 10, 10, 60_000))
+                .isInstanceOf(RedisConnectionFailureException.class);
+        assertThat(denied).isNegative();
+        verify(redisTemplate, times(2)).execute(any(), anyList(), anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+}
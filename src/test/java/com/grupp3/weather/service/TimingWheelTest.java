@@ -0,0 +1,117 @@
+package com.grupp3.weather.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Post ska gå ut vid första tick efter sin deadline, inte före")
+    void advance_ShouldExpireAtFirstTickAfterDeadline() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(1000, START);
+        List<Long> expired = new ArrayList<>();
+        wheel.schedule(7L, START + 2500);
+
+        // Act
+        wheel.advance(START + 2999, (key, deadline) -> expired.add(key));
+        List<Long> beforeDeadlineTick = new ArrayList<>(expired);
+        wheel.advance(START + 3000, (key, deadline) -> expired.add(key));
+
+        // Assert
+        assertThat(beforeDeadlineTick).isEmpty();
+        assertThat(expired).containsExactly(7L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Långa deadlines ska kaskaderas ner genom nivåerna och gå ut i tid")
+    void advance_ShouldCascadeLongDeadlines() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(1000, START);
+        long deadline = START + 15 * 60 * 1000 + 400; // 15 min - ligger på nivå 1
+        Map<Long, Long> firedAt = new HashMap<>();
+        wheel.schedule(1L, deadline);
+
+        // Act
+        for (long now = START; now <= deadline + 2000; now += 1000) {
+            long tickTime = now;
+            wheel.advance(now, (key, d) -> firedAt.put(key, tickTime));
+        }
+
+        // Assert
+        assertThat(firedAt).containsKey(1L);
+        assertThat(firedAt.get(1L)).isBetween(deadline, deadline + 1000);
+    }
+
+    @Test
+    @DisplayName("Slumpade deadlines ska aldrig gå ut före deadline och högst en tick plus ett steg efter")
+    void advance_ShouldNeverExpireEarlyOrLate() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(1000, START);
+        Random random = new Random(3);
+        Map<Long, Long> deadlines = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        long maxLateness = 1000 + 2000; // en tick plus längsta steget mellan advance-anrop
+        long now = START;
+
+        // Act
+        for (long key = 0; key < 20_000; key++) {
+            long deadline = now + random.nextInt(3 * 60 * 60 * 1000); // upp till 3 h - når nivå 2
+            deadlines.put(key, deadline);
+            wheel.schedule(key, deadline);
+            if (key % 100 == 0) {
+                now += random.nextInt(2000);
+                long tickTime = now;
+                wheel.advance(now, (k, d) -> {
+                    if (tickTime < d || tickTime - d > maxLateness) {
+                        errors.add(k + ": deadline " + d + " fired at " + tickTime);
+                    }
+                    deadlines.remove(k);
+                });
+            }
+        }
+        long end = now + 4 * 60 * 60 * 1000;
+        while (now < end) {
+            now += 700;
+            long tickTime = now;
+            wheel.advance(now, (k, d) -> {
+                if (tickTime < d || tickTime - d > maxLateness) {
+                    errors.add(k + ": deadline " + d + " fired at " + tickTime);
+                }
+                deadlines.remove(k);
+            });
+        }
+
+        // Assert
+        assertThat(errors).isEmpty();
+        assertThat(deadlines).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deadline som redan passerat ska gå ut vid nästa tick")
+    void schedule_PastDeadline_ShouldExpireOnNextTick() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(1000, START);
+        List<Long> expired = new ArrayList<>();
+        wheel.schedule(9L, START - 5000);
+
+        // Act
+        int count = wheel.advance(START + 1000, (key, deadline) -> expired.add(key));
+
+        // Assert
+        assertThat(count).isEqualTo(1);
+        assertThat(expired).containsExactly(9L);
+    }
+}
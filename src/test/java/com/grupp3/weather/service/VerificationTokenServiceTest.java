@@ -0,0 +1,111 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.User;
+import com.grupp3.weather.model.VerificationToken;
+import com.grupp3.weather.repository.VerificationTokenRepository;
+import com.grupp3.weather.security.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerificationTokenServiceTest {
+
+    @Mock
+    private VerificationTokenRepository tokenRepository;
+
+    private VerificationTokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new VerificationTokenService(tokenRepository);
+        ReflectionTestUtils.setField(tokenService, "purgeBatchSize", 100);
+    }
+
+    @Test
+    @DisplayName("Ny token ska lagras som SHA-256-hash och klartexten bara returneras")
+    void createVerificationToken_ShouldStoreOnlyHash() {
+        // Arrange
+        User user = new User("anna", "anna@example.com", "secret");
+
+        // Act
+        String token = tokenService.createVerificationToken(user);
+
+        // Assert
+        ArgumentCaptor<VerificationToken> saved = ArgumentCaptor.forClass(VerificationToken.class);
+        verify(tokenRepository).save(saved.capture());
+        assertThat(saved.getValue().getTokenHash())
+                .isEqualTo(TokenHasher.sha256Hex(token))
+                .hasSize(64)
+                .doesNotContain(token);
+        assertThat(saved.getValue().getUser()).isSameAs(user);
+    }
+
+    @Test
+    @DisplayName("Uppslag ska hasha inkommande token och aldrig söka på klartext")
+    void getVerificationToken_ShouldLookUpByHash() {
+        // Arrange
+        VerificationToken stored = new VerificationToken(TokenHasher.sha256Hex("abc-123"), new User());
+        when(tokenRepository.findByTokenHash(TokenHasher.sha256Hex("abc-123"))).thenReturn(Optional.of(stored));
+
+        // Act
+        Optional<VerificationToken> result = tokenService.getVerificationToken("abc-123");
+
+        // Assert
+        assertThat(result).containsSame(stored);
+        verify(tokenRepository, never()).findByTokenHash("abc-123");
+    }
+
+    @Test
+    @DisplayName("Tom token ska inte ge något databasuppslag")
+    void getVerificationToken_WithEmptyToken_ShouldSkipLookup() {
+        // Act & Assert
+        assertThat(tokenService.getVerificationToken(null)).isEmpty();
+        assertThat(tokenService.getVerificationToken("")).isEmpty();
+        verify(tokenRepository, never()).findByTokenHash(anyString());
+    }
+
+    @Test
+    @DisplayName("Rensning ska köra batchar tills en batch blir kortare än batchstorleken")
+    void purgeStaleTokens_ShouldStopOnShortBatch() {
+        // Arrange
+        when(tokenRepository.deleteStaleBatch(any(LocalDateTime.class), any(LocalDateTime.class), eq(100)))
+                .thenReturn(100, 100, 42);
+
+        // Act
+        tokenService.purgeStaleTokens();
+
+        // Assert
+        verify(tokenRepository, times(3)).deleteStaleBatch(any(LocalDateTime.class), any(LocalDateTime.class), eq(100));
+    }
+
+    @Test
+    @DisplayName("Rensning ska behålla verifierade tokens ett dygn")
+    void purgeStaleTokens_ShouldKeepVerifiedTokensForADay() {
+        // Arrange
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> verifiedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(tokenRepository.deleteStaleBatch(now.capture(), verifiedBefore.capture(), eq(100))).thenReturn(0);
+
+        // Act
+        tokenService.purgeStaleTokens();
+
+        // Assert
+        assertThat(verifiedBefore.getValue()).isEqualTo(now.getValue().minusDays(1));
+        verify(tokenRepository, times(1)).deleteStaleBatch(any(), any(), anyInt());
+    }
+}
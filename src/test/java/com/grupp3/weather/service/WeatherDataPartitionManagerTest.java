@@ -0,0 +1,132 @@
+package com.grupp3.weather.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherDataPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private WeatherDataPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        partitionManager = new WeatherDataPartitionManager(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(partitionManager, "retentionMonths", 12);
+        ReflectionTestUtils.setField(partitionManager, "premakeMonths", 2);
+    }
+
+    @Test
+    @DisplayName("Underhåll ska skapa partitioner framåt och bara släppa de utanför retention")
+    void maintainPartitions_ShouldCreateAheadAndDropExpired() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+                "weather_data_p202509", "weather_data_p202510", "weather_data_p202610", "weather_data_legacy"));
+
+        // Act
+        partitionManager.maintainPartitions(YearMonth.of(2026, 10));
+
+        // Assert
+        verify(jdbcTemplate).execute(
+                "CREATE TABLE IF NOT EXISTS weather_data_p202610 PARTITION OF weather_data FOR VALUES FROM ('2026-10-01') TO ('2026-11-01')");
+        verify(jdbcTemplate).execute(contains("weather_data_p202611 PARTITION OF"));
+        verify(jdbcTemplate).execute(contains("weather_data_p202612 PARTITION OF"));
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS weather_data_p202509");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS weather_data_p202510"); // Exakt 12 månader - behålls
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS weather_data_legacy");
+    }
+
+    @Test
+    @DisplayName("Konvertering ska kopiera nycklar och retention-fönstret, och behålla rader utanför fönstret")
+    void convertToPartitioned_ShouldCopyWindowAndKeepRowsOutsideIt() throws Exception {
+        // Arrange - äldsta raden (2025-03) ligger före retention (2025-10 med 12 månader från 2026-10)
+        Timestamp from = Timestamp.valueOf(LocalDateTime.of(2025, 10, 1, 0, 0));
+        Timestamp to = Timestamp.valueOf(LocalDateTime.of(2027, 1, 1, 0, 0));
+        ResultSet foreignKey = mock(ResultSet.class);
+        when(foreignKey.getString(1)).thenReturn("fk_weather_data_place");
+        when(foreignKey.getString(2)).thenReturn("FOREIGN KEY (place_id) REFERENCES places(id) ON DELETE RESTRICT");
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(foreignKey);
+            return null;
+        }).when(jdbcTemplate).query(contains("pg_constraint"), any(RowCallbackHandler.class));
+        when(jdbcTemplate.queryForObject(contains("MIN(observation_time)"), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(LocalDateTime.of(2025, 3, 15, 12, 0)));
+        when(jdbcTemplate.queryForObject(contains("observation_time < ? OR"), eq(Integer.class), eq(from), eq(to)))
+                .thenReturn(4);
+
+        // Act
+        partitionManager.convertToPartitioned(YearMonth.of(2026, 10));
+
+        // Assert
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE weather_data RENAME TO weather_data_legacy");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE weather_data (LIKE weather_data_legacy INCLUDING DEFAULTS)" +
+                " PARTITION BY RANGE (observation_time)");
+        inOrder.verify(jdbcTemplate).execute(
+                "ALTER TABLE weather_data ADD CONSTRAINT weather_data_pk PRIMARY KEY (id, observation_time)");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE weather_data ADD CONSTRAINT fk_weather_data_place " +
+                "FOREIGN KEY (place_id) REFERENCES places(id) ON DELETE RESTRICT");
+        inOrder.verify(jdbcTemplate).execute(contains("weather_data_p202510 PARTITION OF"));
+        inOrder.verify(jdbcTemplate).execute(contains("weather_data_p202612 PARTITION OF"));
+        inOrder.verify(jdbcTemplate).update("INSERT INTO weather_data SELECT * FROM weather_data_legacy " +
+                "WHERE observation_time >= ? AND observation_time < ?", from, to);
+        inOrder.verify(jdbcTemplate).update("DELETE FROM weather_data_legacy " +
+                "WHERE observation_time >= ? AND observation_time < ?", from, to);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE weather_data_legacy RENAME TO weather_data_out_of_range");
+        verify(jdbcTemplate, never()).execute(contains("weather_data_p202509 PARTITION OF"));
+        verify(jdbcTemplate, never()).execute(contains("weather_data_p202701 PARTITION OF"));
+        verify(jdbcTemplate, never()).execute("DROP TABLE weather_data_legacy");
+    }
+
+    @Test
+    @DisplayName("Konvertering utan rader utanför fönstret ska släppa den gamla tabellen")
+    void convertToPartitioned_WithAllRowsInWindow_ShouldDropLegacyTable() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(contains("MIN(observation_time)"), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(LocalDateTime.of(2026, 9, 1, 0, 0)));
+        when(jdbcTemplate.queryForObject(contains("observation_time < ? OR"), eq(Integer.class), any(), any()))
+                .thenReturn(0);
+
+        // Act
+        partitionManager.convertToPartitioned(YearMonth.of(2026, 10));
+
+        // Assert
+        verify(jdbcTemplate).execute("DROP TABLE weather_data_legacy");
+        verify(jdbcTemplate, never()).execute(contains(" RENAME TO weather_data_out_of_range"));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM weather_data_legacy"), any(), any());
+    }
+
+    @Test
+    @DisplayName("Partitionsnamn ska gå att tolka tillbaka till månad")
+    void partitionName_ShouldRoundTrip() {
+        // Act & Assert
+        assertThat(WeatherDataPartitionManager.partitionName(YearMonth.of(2026, 1))).isEqualTo("weather_data_p202601");
+        assertThat(WeatherDataPartitionManager.monthOf("weather_data_p202601")).isEqualTo(YearMonth.of(2026, 1));
+        assertThat(WeatherDataPartitionManager.monthOf("weather_data_pkey")).isNull();
+    }
+}
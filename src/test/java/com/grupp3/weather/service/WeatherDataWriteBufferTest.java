@@ -0,0 +1,178 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import com.grupp3.weather.service.WeatherDataWriteBuffer.SubmitResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherDataWriteBufferTest {
+
+    private static final LocalDateTime OBSERVED = LocalDateTime.of(2026, 10, 18, 12, 0);
+    private static final Long STOCKHOLM = 1L;
+    private static final Long GOTEBORG = 2L;
+    private static final Long MALMO = 3L;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherDataWriteBuffer writeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writeBuffer = new WeatherDataWriteBuffer(jdbcTemplate, weatherDataRepository,
+                meterRegistry, 10, 3, 10);
+    }
+
+    @Test
+    @DisplayName("Samma eller äldre observation för en plats ska inte köas igen")
+    void submit_ShouldRejectObservationNotNewerThanLatest() {
+        // Arrange
+        when(weatherDataRepository.findLatestByPlaceId(STOCKHOLM))
+                .thenReturn(Optional.of(observation(STOCKHOLM, OBSERVED)));
+
+        // Act & Assert
+        assertThat(writeBuffer.submit(observation(STOCKHOLM, OBSERVED))).isEqualTo(SubmitResult.DUPLICATE);
+        assertThat(writeBuffer.submit(observation(STOCKHOLM, OBSERVED.minusMinutes(15)))).isEqualTo(SubmitResult.DUPLICATE);
+        assertThat(writeBuffer.submit(observation(STOCKHOLM, OBSERVED.plusMinutes(15)))).isEqualTo(SubmitResult.ACCEPTED);
+        assertThat(writeBuffer.submit(observation(STOCKHOLM, OBSERVED.plusMinutes(15)))).isEqualTo(SubmitResult.DUPLICATE);
+        assertThat(writeBuffer.pending()).isEqualTo(1);
+        verify(weatherDataRepository, times(1)).findLatestByPlaceId(STOCKHOLM);
+    }
+
+    @Test
+    @DisplayName("Flush ska skriva köade observationer i en batch med id ur ett sekvensblock")
+    void flush_ShouldWriteQueuedObservationsAsOneBatch() {
+        // Arrange
+        when(weatherDataRepository.findLatestByPlaceId(anyLong())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(101L);
+        writeBuffer.submit(observation(STOCKHOLM, OBSERVED));
+        writeBuffer.submit(observation(GOTEBORG, OBSERVED));
+
+        // Act
+        int written = writeBuffer.flush();
+
+        // Assert
+        assertThat(written).isEqualTo(2);
+        assertThat(writeBuffer.pending()).isZero();
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class)); // Ett block räcker
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (place_id, observation_time) DO NOTHING"),
+                argThat((BatchPreparedStatementSetter setter) -> setter.getBatchSize() == 2));
+    }
+
+    @Test
+    @DisplayName("Full batch ska skrivas direkt utan att vänta på intervallet")
+    void submit_ShouldFlushWhenBatchSizeIsReached() {
+        // Arrange
+        when(weatherDataRepository.findLatestByPlaceId(anyLong())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+
+        // Act
+        writeBuffer.submit(observation(STOCKHOLM, OBSERVED));
+        writeBuffer.submit(observation(GOTEBORG, OBSERVED));
+        writeBuffer.submit(observation(MALMO, OBSERVED));
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        assertThat(writeBuffer.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("Misslyckad flush ska behålla observationerna och skriva dem nästa gång")
+    void flush_ShouldKeepBatchForRetryWhenDatabaseFails() {
+        // Arrange
+        when(weatherDataRepository.findLatestByPlaceId(anyLong())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(new int[]{1, 1});
+        writeBuffer.submit(observation(STOCKHOLM, OBSERVED));
+        writeBuffer.submit(observation(GOTEBORG, OBSERVED));
+
+        // Act
+        int firstAttempt = writeBuffer.flush();
+        int pendingAfterFailure = writeBuffer.pending();
+        int secondAttempt = writeBuffer.flush();
+
+        // Assert
+        assertThat(firstAttempt).isZero();
+        assertThat(pendingAfterFailure).isEqualTo(2);
+        assertThat(secondAttempt).isEqualTo(2);
+        assertThat(writeBuffer.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("Bestående fel ska skriva raderna en och en och släppa den som inte går att skriva")
+    void flush_ShouldWriteRowByRowAndDropFailingRowOnNonTransientError() {
+        // Arrange - Göteborg raderades medan observationen låg i bufferten (främmande nyckel)
+        when(weatherDataRepository.findLatestByPlaceId(anyLong())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        DataIntegrityViolationException fkViolation = new DataIntegrityViolationException("fk_weather_data_place");
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(fkViolation)                 // Hela batchen
+                .thenReturn(new int[]{1})               // Stockholm
+                .thenThrow(fkViolation)                 // Göteborg
+                .thenReturn(new int[]{1});              // Malmö, i nästa flush
+        writeBuffer.submit(observation(STOCKHOLM, OBSERVED));
+        writeBuffer.submit(observation(GOTEBORG, OBSERVED));
+
+        // Act
+        int firstFlush = writeBuffer.flush();
+        writeBuffer.submit(observation(MALMO, OBSERVED));
+        int secondFlush = writeBuffer.flush();
+
+        // Assert - den trasiga raden blockerar inte bufferten
+        assertThat(firstFlush).isEqualTo(1);
+        assertThat(secondFlush).isEqualTo(1);
+        assertThat(writeBuffer.pending()).isZero();
+        assertThat(meterRegistry.counter("weather.write_buffer.dropped").count()).isEqualTo(1.0);
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("created_at ska vara skrivtiden, inte när observationen skapades")
+    void flush_ShouldStampCreatedAtWithWriteTime() {
+        // Arrange - observationen skapades långt innan den skrivs
+        when(weatherDataRepository.findLatestByPlaceId(anyLong())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        WeatherData data = observation(STOCKHOLM, OBSERVED);
+        data.setCreatedAt(LocalDateTime.now().minusHours(1));
+        writeBuffer.submit(data);
+        LocalDateTime beforeFlush = LocalDateTime.now();
+
+        // Act
+        writeBuffer.flush();
+
+        // Assert
+        assertThat(data.getCreatedAt()).isAfterOrEqualTo(beforeFlush);
+    }
+
+    private WeatherData observation(Long placeId, LocalDateTime observationTime) {
+        return new WeatherData(placeId, 12.5, 40, 3.2, observationTime);
+    }
+}
@@ -0,0 +1,99 @@
+package com.grupp3.weather.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 9, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 9, 2, 0, 0);
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private WeatherExportService exportService;
+    private Map<Long, String> places;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new WeatherExportService(weatherDataRepository, entityManager, new ObjectMapper());
+        places = new LinkedHashMap<>();
+        places.put(1L, "Stockholm");
+        places.put(2L, "Malmö, Skåne");
+    }
+
+    @Test
+    @DisplayName("NDJSON ska ge ett JSON-objekt per rad och koppla loss varje rad")
+    void export_AsNdjson_ShouldWriteOneObjectPerLine() throws Exception {
+        // Arrange
+        WeatherData first = new WeatherData(1L, 15.5, 40, 3.2, LocalDateTime.of(2025, 9, 1, 10, 0));
+        WeatherData second = new WeatherData(2L, null, 80, 5.0, LocalDateTime.of(2025, 9, 1, 10, 30));
+        when(weatherDataRepository.streamForExport(places.keySet(), FROM, TO)).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.export(places, FROM, TO, WeatherExportService.Format.NDJSON, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("{\"place_id\":1,\"place\":\"Stockholm\",\"observation_time\":\"2025-09-01T10:00\"," +
+                "\"temperature\":15.5,\"cloud_cover\":40,\"wind_speed\":3.2,\"data_source\":\"open-meteo\"}");
+        assertThat(lines[1]).contains("\"temperature\":null");
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    @DisplayName("CSV ska ha rubrikrad, citera namn med kommatecken och stänga strömmen")
+    void export_AsCsv_ShouldQuoteAndCloseStream() throws Exception {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        WeatherData data = new WeatherData(2L, -3.0, null, 7.5, LocalDateTime.of(2025, 9, 1, 12, 0));
+        when(weatherDataRepository.streamForExport(places.keySet(), FROM, TO))
+                .thenReturn(Stream.of(data).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.export(places, FROM, TO, WeatherExportService.Format.CSV, out);
+
+        // Assert
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "place_id,place,observation_time,temperature,cloud_cover,wind_speed,data_source\n" +
+                "2,\"Malmö, Skåne\",2025-09-01T12:00,-3.0,,7.5,open-meteo\n");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Okänt format ska ge IllegalArgumentException")
+    void parse_WithUnknownFormat_ShouldThrow() {
+        assertThat(WeatherExportService.Format.parse("csv")).isEqualTo(WeatherExportService.Format.CSV);
+        assertThatThrownBy(() -> WeatherExportService.Format.parse("xml"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ndjson or csv");
+    }
+}
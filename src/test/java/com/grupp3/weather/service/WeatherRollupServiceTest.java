@@ -0,0 +1,173 @@
+package com.grupp3.weather.service;
+
+import com.grupp3.weather.dto.WeatherSummaryDTO;
+import com.grupp3.weather.model.WeatherData;
+import com.grupp3.weather.repository.WeatherDataRepository;
+import com.grupp3.weather.service.WeatherRollupService.Resolution;
+import com.grupp3.weather.service.WeatherRollupService.Series;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherRollupServiceTest {
+
+    private static final String WATERMARK_SQL = "SELECT watermark FROM weather_rollup_state WHERE name = ?";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    private WeatherRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new WeatherRollupService(jdbcTemplate, transactionManager, weatherDataRepository);
+        ReflectionTestUtils.setField(rollupService, "settleLagMs", 300_000L);
+    }
+
+    @Test
+    @DisplayName("Upplösning ska väljas efter intervallets längd")
+    void forRange_ShouldPickCoarsestUsefulResolution() {
+        // Act & Assert
+        assertThat(Resolution.forRange(Duration.ofHours(24))).isEqualTo(Resolution.RAW);
+        assertThat(Resolution.forRange(Duration.ofHours(48))).isEqualTo(Resolution.RAW);
+        assertThat(Resolution.forRange(Duration.ofDays(7))).isEqualTo(Resolution.HOURLY);
+        assertThat(Resolution.forRange(Duration.ofDays(30))).isEqualTo(Resolution.DAILY);
+        assertThat(Resolution.forRange(Duration.ofDays(365))).isEqualTo(Resolution.DAILY);
+    }
+
+    @Test
+    @DisplayName("rollup ska räkna om från sparad watermark och spara den nya, settle-lag bakom nu")
+    void rollup_ShouldAggregateFromWatermarkAndAdvanceIt() {
+        // Arrange
+        Timestamp watermark = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        when(jdbcTemplate.queryForList(WATERMARK_SQL, Timestamp.class, "weather_data")).thenReturn(List.of(watermark));
+        LocalDateTime before = LocalDateTime.now().minusMinutes(5);
+
+        // Act
+        rollupService.rollup();
+
+        // Assert
+        ArgumentCaptor<Timestamp> hourlyTo = ArgumentCaptor.forClass(Timestamp.class);
+        ArgumentCaptor<Timestamp> newWatermark = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO weather_data_hourly"), eq(watermark), hourlyTo.capture());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO weather_data_daily"), eq(watermark), eq(hourlyTo.getValue()));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO weather_rollup_state"), eq("weather_data"), newWatermark.capture());
+        assertThat(newWatermark.getValue()).isEqualTo(hourlyTo.getValue());
+        assertThat(newWatermark.getValue().toLocalDateTime())
+                .isAfterOrEqualTo(before)
+                .isBeforeOrEqualTo(LocalDateTime.now().minusMinutes(5));
+    }
+
+    @Test
+    @DisplayName("rollup utan sparad watermark ska börja från 1970")
+    void rollup_WithoutWatermark_ShouldStartFromEpoch() {
+        // Arrange
+        when(jdbcTemplate.queryForList(WATERMARK_SQL, Timestamp.class, "weather_data")).thenReturn(List.of());
+
+        // Act
+        rollupService.rollup();
+
+        // Assert
+        verify(jdbcTemplate).update(startsWith("INSERT INTO weather_data_hourly"),
+                eq(Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0))), any(Timestamp.class));
+    }
+
+    @Test
+    @DisplayName("rollup ska inte göra något när watermark redan ligger inom settle-lag")
+    void rollup_WhenWatermarkNotBehindSettleLag_ShouldSkip() {
+        // Arrange - to = nu - 5 min ligger inte efter en watermark för 1 min sedan
+        when(jdbcTemplate.queryForList(WATERMARK_SQL, Timestamp.class, "weather_data"))
+                .thenReturn(List.of(Timestamp.valueOf(LocalDateTime.now().minusMinutes(1))));
+
+        // Act
+        rollupService.rollup();
+
+        // Assert
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Kort intervall ska läsas rått, vändas till äldst först och ge en punkt per observation")
+    void getSeries_ForShortRange_ShouldReverseAndMapRawRows() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 9, 1, 0, 0);
+        LocalDateTime to = from.plusHours(24);
+        WeatherData newest = new WeatherData(1L, 16.0, 75, 4.5, from.plusHours(10));
+        WeatherData oldest = new WeatherData(1L, 12.5, null, 2.0, from.plusHours(9));
+        when(weatherDataRepository.findByPlaceIdAndObservationTimeBetween(1L, from, to))
+                .thenReturn(List.of(newest, oldest));
+
+        // Act
+        Series series = rollupService.getSeries(1L, from, to);
+
+        // Assert
+        assertThat(series.resolution()).isEqualTo(Resolution.RAW);
+        assertThat(series.points()).extracting(WeatherSummaryDTO::getBucketStart)
+                .containsExactly(from.plusHours(9), from.plusHours(10));
+        WeatherSummaryDTO first = series.points().get(0);
+        assertThat(first.getSampleCount()).isEqualTo(1);
+        assertThat(first.getTemperatureMin()).isEqualTo(12.5);
+        assertThat(first.getTemperatureAvg()).isEqualTo(12.5);
+        assertThat(first.getWindSpeedMax()).isEqualTo(2.0);
+        assertThat(first.getCloudCoverAvg()).isNull();
+        assertThat(series.points().get(1).getCloudCoverMax()).isEqualTo(75.0);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Långt intervall ska läsas från dygnsaggregaten och mappas kolumn för kolumn")
+    @SuppressWarnings("unchecked")
+    void getSeries_ForLongRange_ShouldReadDailyRollups() throws Exception {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 8, 1, 0, 0);
+        LocalDateTime to = from.plusDays(30);
+        ArgumentCaptor<RowMapper<WeatherSummaryDTO>> mapper = ArgumentCaptor.forClass(RowMapper.class);
+        when(jdbcTemplate.query(startsWith("SELECT * FROM weather_data_daily WHERE place_id = ?"), mapper.capture(),
+                eq(1L), eq(Timestamp.valueOf(from)), eq(Timestamp.valueOf(to)))).thenReturn(List.of());
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getTimestamp("bucket_start")).thenReturn(Timestamp.valueOf(from));
+        when(rs.getInt("sample_count")).thenReturn(48);
+        when(rs.getObject(anyString(), eq(Double.class))).thenReturn(null);
+        when(rs.getObject("temperature_avg", Double.class)).thenReturn(14.2);
+
+        // Act
+        Series series = rollupService.getSeries(1L, from, to);
+        WeatherSummaryDTO point = mapper.getValue().mapRow(rs, 0);
+
+        // Assert
+        assertThat(series.resolution()).isEqualTo(Resolution.DAILY);
+        assertThat(point.getBucketStart()).isEqualTo(from);
+        assertThat(point.getSampleCount()).isEqualTo(48);
+        assertThat(point.getTemperatureAvg()).isEqualTo(14.2);
+        assertThat(point.getWindSpeedMax()).isNull();
+        verifyNoInteractions(weatherDataRepository);
+    }
+}